@@ -0,0 +1,31 @@
+package org.avni.messaging.api;
+
+import org.avni.messaging.external.GlificRestClient;
+import org.avni.server.service.accessControl.AccessControlService;
+import org.avni.server.web.external.EndpointStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class GlificStatisticsController {
+    private final GlificRestClient glificRestClient;
+    private final AccessControlService accessControlService;
+
+    @Autowired
+    public GlificStatisticsController(GlificRestClient glificRestClient, AccessControlService accessControlService) {
+        this.glificRestClient = glificRestClient;
+        this.accessControlService = accessControlService;
+    }
+
+    @RequestMapping(value = "/glific/statistics", method = RequestMethod.GET)
+    @PreAuthorize(value = "hasAnyAuthority('user')")
+    public List<EndpointStatistics> getStatistics() {
+        accessControlService.checkIsAdmin();
+        return glificRestClient.getEndpointStatistics();
+    }
+}
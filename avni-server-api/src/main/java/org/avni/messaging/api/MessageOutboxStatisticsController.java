@@ -0,0 +1,37 @@
+package org.avni.messaging.api;
+
+import org.avni.messaging.contract.MessageOutboxStatisticsContract;
+import org.avni.messaging.service.MessageOutboxJob;
+import org.avni.messaging.service.MessageOutboxService;
+import org.avni.server.service.accessControl.AccessControlService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MessageOutboxStatisticsController {
+    private final MessageOutboxService messageOutboxService;
+    private final MessageOutboxJob messageOutboxJob;
+    private final AccessControlService accessControlService;
+
+    @Autowired
+    public MessageOutboxStatisticsController(MessageOutboxService messageOutboxService, MessageOutboxJob messageOutboxJob,
+                                             AccessControlService accessControlService) {
+        this.messageOutboxService = messageOutboxService;
+        this.messageOutboxJob = messageOutboxJob;
+        this.accessControlService = accessControlService;
+    }
+
+    /**
+     * Pending and exhausted counts are of the organisation of the user, while evaluation statistics are of this node.
+     */
+    @RequestMapping(value = "/messaging/outbox/statistics", method = RequestMethod.GET)
+    @PreAuthorize(value = "hasAnyAuthority('user')")
+    public MessageOutboxStatisticsContract getStatistics() {
+        accessControlService.checkIsAdmin();
+        return new MessageOutboxStatisticsContract(messageOutboxService.countPendingEvents(),
+                messageOutboxService.countExhaustedEvents(), messageOutboxJob.getEvaluationStatistics());
+    }
+}
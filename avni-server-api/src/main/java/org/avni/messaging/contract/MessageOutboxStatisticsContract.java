@@ -0,0 +1,27 @@
+package org.avni.messaging.contract;
+
+import org.avni.server.web.external.EndpointStatistics;
+
+public class MessageOutboxStatisticsContract {
+    private final long pendingEvents;
+    private final long exhaustedEvents;
+    private final EndpointStatistics evaluation;
+
+    public MessageOutboxStatisticsContract(long pendingEvents, long exhaustedEvents, EndpointStatistics evaluation) {
+        this.pendingEvents = pendingEvents;
+        this.exhaustedEvents = exhaustedEvents;
+        this.evaluation = evaluation;
+    }
+
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+
+    public long getExhaustedEvents() {
+        return exhaustedEvents;
+    }
+
+    public EndpointStatistics getEvaluation() {
+        return evaluation;
+    }
+}
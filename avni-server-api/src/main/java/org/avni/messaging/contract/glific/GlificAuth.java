@@ -1,11 +1,16 @@
 package org.avni.messaging.contract.glific;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class GlificAuth {
     @JsonProperty("access_token")
     private String accessToken;
 
+    @JsonProperty("token_expiry_time")
+    private String tokenExpiryTime;
+
     public String getAccessToken() {
         return accessToken;
     }
@@ -13,4 +18,12 @@ public class GlificAuth {
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
     }
+
+    public String getTokenExpiryTime() {
+        return tokenExpiryTime;
+    }
+
+    public void setTokenExpiryTime(String tokenExpiryTime) {
+        this.tokenExpiryTime = tokenExpiryTime;
+    }
 }
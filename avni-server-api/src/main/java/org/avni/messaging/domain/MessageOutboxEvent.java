@@ -0,0 +1,125 @@
+package org.avni.messaging.domain;
+
+import org.avni.server.domain.OrganisationAwareEntity;
+import org.joda.time.DateTime;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+@Entity
+@Table(name = "message_outbox_event")
+public class MessageOutboxEvent extends OrganisationAwareEntity {
+    @Column
+    @NotNull
+    private Long entityId;
+
+    @Column
+    private Long entityTypeId;
+
+    @Column
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+
+    @Column
+    @NotNull
+    private Long subjectId;
+
+    @Column
+    @NotNull
+    private Long userId;
+
+    @Column
+    private int attempts;
+
+    @Column
+    @NotNull
+    private DateTime nextAttemptDateTime;
+
+    @Column
+    private DateTime processedDateTime;
+
+    @Column
+    private String lastError;
+
+    @Column
+    private String leaseOwner;
+
+    @Column
+    private DateTime leaseExpiryDateTime;
+
+    public MessageOutboxEvent() {
+    }
+
+    public MessageOutboxEvent(Long entityId, Long entityTypeId, EntityType entityType, Long subjectId, Long userId) {
+        this.entityId = entityId;
+        this.entityTypeId = entityTypeId;
+        this.entityType = entityType;
+        this.subjectId = subjectId;
+        this.userId = userId;
+        this.nextAttemptDateTime = DateTime.now();
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getEntityTypeId() {
+        return entityTypeId;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public DateTime getNextAttemptDateTime() {
+        return nextAttemptDateTime;
+    }
+
+    public DateTime getProcessedDateTime() {
+        return processedDateTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public boolean isProcessed() {
+        return processedDateTime != null;
+    }
+
+    public boolean isLeasedBy(String owner) {
+        return owner != null && owner.equals(leaseOwner) && leaseExpiryDateTime != null && leaseExpiryDateTime.isAfterNow();
+    }
+
+    public void markProcessed() {
+        attempts++;
+        processedDateTime = DateTime.now();
+        lastError = null;
+        releaseLease();
+    }
+
+    public void markFailed(String error, DateTime nextAttemptDateTime) {
+        attempts++;
+        lastError = error;
+        this.nextAttemptDateTime = nextAttemptDateTime;
+        releaseLease();
+    }
+
+    private void releaseLease() {
+        leaseOwner = null;
+        leaseExpiryDateTime = null;
+    }
+}
@@ -38,6 +38,12 @@ public class MessageRequest extends OrganisationAwareEntity {
     @Column
     private DateTime deliveredDateTime;
 
+    @Column
+    private String leaseOwner;
+
+    @Column
+    private DateTime leaseExpiryDateTime;
+
     public void setMessageRule(MessageRule messageRule) {
         this.messageRule = messageRule;
     }
@@ -128,4 +134,21 @@ public class MessageRequest extends OrganisationAwareEntity {
     public void markFailed(MessageDeliveryStatus messageDeliveryStatus) {
         deliveryStatus = messageDeliveryStatus;
     }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public DateTime getLeaseExpiryDateTime() {
+        return leaseExpiryDateTime;
+    }
+
+    public boolean isLeasedBy(String owner) {
+        return owner != null && owner.equals(leaseOwner) && leaseExpiryDateTime != null && leaseExpiryDateTime.isAfterNow();
+    }
+
+    public void releaseLease() {
+        leaseOwner = null;
+        leaseExpiryDateTime = null;
+    }
 }
@@ -1,13 +1,24 @@
 package org.avni.messaging.domain;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class NextTriggerDetails implements Serializable {
     private int pageNo;
     private String contactId;
+    /**
+     * Contacts of the page that are still to be sent to. When absent, the page is resumed from contactId onwards.
+     */
+    private List<String> pendingContactIds;
 
     public NextTriggerDetails() {}
 
+    public NextTriggerDetails(int pageNo, String contactId, List<String> pendingContactIds) {
+        this.pageNo = pageNo;
+        this.contactId = contactId;
+        this.pendingContactIds = pendingContactIds;
+    }
+
     public NextTriggerDetails(int pageNo, String contactId) {
         this.pageNo = pageNo;
         this.contactId = contactId;
@@ -32,4 +43,12 @@ public class NextTriggerDetails implements Serializable {
     public void setContactId(String contactId) {
         this.contactId = contactId;
     }
+
+    public List<String> getPendingContactIds() {
+        return pendingContactIds;
+    }
+
+    public void setPendingContactIds(List<String> pendingContactIds) {
+        this.pendingContactIds = pendingContactIds;
+    }
 }
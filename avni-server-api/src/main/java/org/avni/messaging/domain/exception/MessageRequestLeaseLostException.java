@@ -0,0 +1,7 @@
+package org.avni.messaging.domain.exception;
+
+public class MessageRequestLeaseLostException extends RuntimeException {
+    public MessageRequestLeaseLostException(Long messageRequestId) {
+        super(String.format("Lease on message request with id: %d has been lost to another node", messageRequestId));
+    }
+}
@@ -1,37 +1,86 @@
 package org.avni.messaging.external;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.avni.messaging.contract.glific.*;
 import org.avni.messaging.domain.GlificSystemConfig;
 import org.avni.messaging.domain.exception.GlificConnectException;
 import org.avni.server.dao.externalSystem.ExternalSystemConfigRepository;
 import org.avni.server.domain.extenalSystem.ExternalSystemConfig;
 import org.avni.server.domain.extenalSystem.SystemName;
+import org.avni.server.framework.security.UserContextHolder;
+import org.avni.server.web.external.EndpointStatistics;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Calls Glific over pooled keep alive connections. The session token and the system config of each organisation are
+ * cached: the token until shortly before it expires, or until Glific rejects it, and the config for a configured time.
+ */
 @Service
 public class GlificRestClient {
     public static final String AUTH_URL = "/api/v1/session";
+    private static final long IDLE_CONNECTION_EVICTION_SECONDS = 30;
+    private static final long TOKEN_REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DEFAULT_TOKEN_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(30);
     private final String REQUEST_URL = "/api";
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final CloseableHttpClient httpClient;
     private final RestTemplate restTemplate;
+    private final long configCacheMillis;
+    private final Map<Long, GlificSession> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, CachedSystemConfig> systemConfigs = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStatistics> endpointStatistics = new ConcurrentHashMap<>();
 
     private final ExternalSystemConfigRepository organisationConfigRepository;
 
     @Autowired
-    public GlificRestClient(RestTemplateBuilder builder, ExternalSystemConfigRepository organisationConfigRepository) {
+    public GlificRestClient(RestTemplateBuilder builder, ExternalSystemConfigRepository organisationConfigRepository,
+                            @Value("${avni.glific.max.connections}") int maxConnections,
+                            @Value("${avni.glific.connect.timeout.millis}") int connectTimeoutMillis,
+                            @Value("${avni.glific.read.timeout.millis}") int readTimeoutMillis,
+                            @Value("${avni.glific.config.cache.seconds}") int configCacheSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(IDLE_CONNECTION_EVICTION_SECONDS, TimeUnit.SECONDS)
+                .build();
         this.restTemplate = builder.build();
+        this.restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.configCacheMillis = TimeUnit.SECONDS.toMillis(configCacheSeconds);
         this.organisationConfigRepository = organisationConfigRepository;
     }
 
@@ -47,8 +96,21 @@ public class GlificRestClient {
                 });
     }
 
+    /**
+     * Uses the cached session of the organisation. When Glific rejects it, the session is replaced and the call is made
+     * once more.
+     */
     public <T> T callAPI(Object requestObject, ParameterizedTypeReference<GlificResponse<T>> responseType) {
-        return callAPI(requestObject, responseType, this.authenticate());
+        Long organisationId = UserContextHolder.getOrganisation().getId();
+        try {
+            return callAPI(requestObject, responseType, getSession(organisationId).getAuth());
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.UNAUTHORIZED) throw e;
+            logger.info("Glific session of organisation {} rejected, logging in again", organisationId);
+            sessions.remove(organisationId);
+            systemConfigs.remove(organisationId);
+            return callAPI(requestObject, responseType, getSession(organisationId).getAuth());
+        }
     }
 
     public <T> T callAPI(Object requestObject, ParameterizedTypeReference<GlificResponse<T>> responseType, GlificAuth auth) {
@@ -62,15 +124,48 @@ public class GlificRestClient {
         return makeCall(REQUEST_URL, request, responseType);
     }
 
+    public List<EndpointStatistics> getEndpointStatistics() {
+        return new ArrayList<>(endpointStatistics.values());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Logs in outside of the map's lock, so a slow login does not block other organisations. Concurrent callers of an
+     * organisation may each log in; the last session stored wins and all of them are valid.
+     */
+    private GlificSession getSession(Long organisationId) {
+        GlificSession session = sessions.get(organisationId);
+        if (session != null && session.isValid()) {
+            return session;
+        }
+        GlificSession newSession = new GlificSession(authenticate());
+        sessions.put(organisationId, newSession);
+        return newSession;
+    }
+
     private <T> T makeCall(String url, HttpEntity<Object> request, ParameterizedTypeReference<GlificResponse<T>> responseType)  {
         String fullUrl = getSystemConfig().getBaseUrl() + (StringUtils.isEmpty(url) ? "/" : url);
         logger.info("Calling glific - {}", fullUrl);
-        ResponseEntity<GlificResponse<T>> responseEntity = restTemplate.exchange(fullUrl, HttpMethod.POST, request, responseType);
+        EndpointStatistics statistics = endpointStatistics.computeIfAbsent(getOperation(url, responseType), EndpointStatistics::new);
+        long start = System.currentTimeMillis();
+        ResponseEntity<GlificResponse<T>> responseEntity;
+        try {
+            responseEntity = restTemplate.exchange(fullUrl, HttpMethod.POST, request, responseType);
+        } catch (RestClientException e) {
+            statistics.record(System.currentTimeMillis() - start, true);
+            throw e;
+        }
 
         GlificResponse<T> response = responseEntity.getBody();
         if (response == null) { //Guard clause against null type responses from Glific
+            statistics.record(System.currentTimeMillis() - start, false);
             return null;
         }
+        statistics.record(System.currentTimeMillis() - start, response.hasErrors());
         if (response.hasErrors()) {
             logger.error("Error while calling Glific API: {}", url);
             logger.error("Request is {}", request.getBody());
@@ -80,11 +175,72 @@ public class GlificRestClient {
         return response.getData();
     }
 
+    /**
+     * Glific serves all of its operations from one graphql url, so they are told apart by the type of their response.
+     */
+    private static String getOperation(String url, ParameterizedTypeReference<?> responseType) {
+        return url + " " + responseType.getType().getTypeName().replaceAll("[\\w$]+\\.", "");
+    }
+
     private GlificSystemConfig getSystemConfig() {
+        Long organisationId = UserContextHolder.getOrganisation().getId();
+        CachedSystemConfig cachedSystemConfig = systemConfigs.get(organisationId);
+        if (cachedSystemConfig != null && cachedSystemConfig.isValid()) {
+            return cachedSystemConfig.getSystemConfig();
+        }
         ExternalSystemConfig externalSystemConfig = organisationConfigRepository.findBySystemName(SystemName.Glific);
         Assert.notNull(externalSystemConfig, "External system config not set up for organisation");
 
-        return new GlificSystemConfig(externalSystemConfig);
+        GlificSystemConfig systemConfig = new GlificSystemConfig(externalSystemConfig);
+        systemConfigs.put(organisationId, new CachedSystemConfig(systemConfig, System.currentTimeMillis() + configCacheMillis));
+        return systemConfig;
+    }
+
+    private static class GlificSession {
+        private final GlificAuth auth;
+        private final long refreshAt;
+
+        GlificSession(GlificAuth auth) {
+            this.auth = auth;
+            this.refreshAt = getExpiry(auth) - TOKEN_REFRESH_MARGIN_MILLIS;
+        }
+
+        private static long getExpiry(GlificAuth auth) {
+            if (auth == null || StringUtils.isEmpty(auth.getTokenExpiryTime())) {
+                return System.currentTimeMillis() + DEFAULT_TOKEN_VALIDITY_MILLIS;
+            }
+            try {
+                return DateTime.parse(auth.getTokenExpiryTime()).getMillis();
+            } catch (IllegalArgumentException e) {
+                return System.currentTimeMillis() + DEFAULT_TOKEN_VALIDITY_MILLIS;
+            }
+        }
+
+        boolean isValid() {
+            return auth != null && System.currentTimeMillis() < refreshAt;
+        }
+
+        GlificAuth getAuth() {
+            return auth;
+        }
+    }
+
+    private static class CachedSystemConfig {
+        private final GlificSystemConfig systemConfig;
+        private final long expiresAt;
+
+        CachedSystemConfig(GlificSystemConfig systemConfig, long expiresAt) {
+            this.systemConfig = systemConfig;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        GlificSystemConfig getSystemConfig() {
+            return systemConfig;
+        }
     }
 
     private class RequestObjectBuilder {
@@ -120,4 +276,3 @@ public class GlificRestClient {
         }
     }
 }
-
@@ -10,10 +10,12 @@ import org.springframework.stereotype.Repository;
 public class GlificMessageRepository extends AbstractGlificRepository {
     private final GlificRestClient glificRestClient;
     private final String SEND_HSM_MESSAGE_JSON;
+    private final String SEND_HSM_MESSAGE_TO_GROUP_JSON;
 
     public GlificMessageRepository(GlificRestClient glificRestClient) {
         this.glificRestClient = glificRestClient;
         SEND_HSM_MESSAGE_JSON = getJson("sendHsmMessage");
+        SEND_HSM_MESSAGE_TO_GROUP_JSON = getJson("sendHsmMessageToGroup");
     }
 
     public GlificMessageResponse sendMessageToContact(String messageTemplateId, String externalId, String[] parameters) {
@@ -25,7 +27,7 @@ public class GlificMessageRepository extends AbstractGlificRepository {
     }
 
     public void sendMessageToGroup(String externalId, String messageTemplateId, String[] parameters) {
-        String message = getJson("sendHsmMessageToGroup").replace("\"${templateId}\"", messageTemplateId)
+        String message = SEND_HSM_MESSAGE_TO_GROUP_JSON.replace("\"${templateId}\"", messageTemplateId)
                 .replace("\"${groupId}\"", externalId)
                 .replace("\"${parameters}\"", arrayToString(parameters));
 
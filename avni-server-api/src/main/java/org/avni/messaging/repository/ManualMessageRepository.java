@@ -2,8 +2,17 @@ package org.avni.messaging.repository;
 
 import org.avni.messaging.domain.ManualMessage;
 import org.avni.server.dao.CHSRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ManualMessageRepository extends CHSRepository<ManualMessage> {
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = "update manual_message mm set " +
+            "next_trigger_details = cast(:nextTriggerDetails as json) " +
+            "where mm.id = :id", nativeQuery = true)
+    void updateNextTriggerDetails(@Param("id") Long id, @Param("nextTriggerDetails") String nextTriggerDetails);
 }
@@ -0,0 +1,91 @@
+package org.avni.messaging.repository;
+
+import org.avni.messaging.domain.MessageOutboxEvent;
+import org.avni.server.dao.CHSRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Repository
+public interface MessageOutboxEventRepository extends CHSRepository<MessageOutboxEvent> {
+
+    /**
+     * Leases up to batchSize pending events that are due for an attempt and that no other node holds a live lease on.
+     * Only the oldest pending event of a subject is leased, and not while another event of the subject is leased, so
+     * that the events of a subject are evaluated one at a time in the order of their saves. Events that have used up
+     * their attempts are left alone.
+     */
+    @Query(value = "with claimable as (" +
+            "    select id from message_outbox_event e " +
+            "    where processed_date_time is null and is_voided = false and attempts < :maxAttempts " +
+            "      and next_attempt_date_time <= now() " +
+            "      and (lease_expiry_date_time is null or lease_expiry_date_time < now()) " +
+            "      and not exists (select 1 from message_outbox_event other " +
+            "          where other.subject_id = e.subject_id and other.id <> e.id " +
+            "            and other.processed_date_time is null and other.is_voided = false " +
+            "            and (other.id < e.id and other.attempts < :maxAttempts or other.lease_expiry_date_time >= now())) " +
+            "    order by next_attempt_date_time, id " +
+            "    limit :batchSize " +
+            "    for update skip locked) " +
+            "update message_outbox_event e set " +
+            "lease_owner = :leaseOwner, " +
+            "lease_expiry_date_time = now() + make_interval(secs => :leaseSeconds) " +
+            "from claimable where e.id = claimable.id " +
+            "returning e.id", nativeQuery = true)
+    List<Number> leasePendingEvents(@Param("leaseOwner") String leaseOwner, @Param("batchSize") int batchSize,
+                                    @Param("leaseSeconds") int leaseSeconds, @Param("maxAttempts") int maxAttempts);
+
+    default List<Long> claimPendingEvents(String leaseOwner, int batchSize, int leaseSeconds, int maxAttempts) {
+        return leasePendingEvents(leaseOwner, batchSize, leaseSeconds, maxAttempts).stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+    }
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from MessageOutboxEvent e where e.id = :id")
+    MessageOutboxEvent findForUpdate(@Param("id") Long id);
+
+    /**
+     * Marks the other pending saves of the entity as processed, as the evaluation of its current state covers them.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update message_outbox_event e set " +
+            "processed_date_time = now(), " +
+            "version = version + 1 " +
+            "where e.entity_id = :entityId and e.entity_type = :entityType and e.id <> :eventId " +
+            "and e.processed_date_time is null and e.is_voided = false", nativeQuery = true)
+    int coalescePendingEvents(@Param("eventId") Long eventId, @Param("entityId") Long entityId, @Param("entityType") String entityType);
+
+    @Query("select count(e) from MessageOutboxEvent e where e.processedDateTime is null and e.isVoided = false " +
+            "and e.attempts < :maxAttempts")
+    long countPendingEvents(@Param("maxAttempts") int maxAttempts);
+
+    @Query("select count(e) from MessageOutboxEvent e where e.processedDateTime is null and e.isVoided = false " +
+            "and e.attempts >= :maxAttempts")
+    long countExhaustedEvents(@Param("maxAttempts") int maxAttempts);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = "update message_outbox_event e set " +
+            "is_voided = true, " +
+            "version = version + 1, " +
+            "last_modified_date_time = now() " +
+            "where e.entity_id = :entityId and e.entity_type = :entityType and e.processed_date_time is null", nativeQuery = true)
+    void voidPendingEvents(@Param("entityId") Long entityId, @Param("entityType") String entityType);
+
+    /**
+     * Deletes up to batchSize events that were processed, or voided, before the given time. Returns the number deleted.
+     */
+    @Modifying
+    @Query(value = "delete from message_outbox_event where id in (" +
+            "    select id from message_outbox_event " +
+            "    where processed_date_time < :before or (is_voided = true and last_modified_date_time < :before) " +
+            "    limit :batchSize)", nativeQuery = true)
+    int deleteEventsDoneBefore(@Param("before") Date before, @Param("batchSize") int batchSize);
+}
@@ -8,9 +8,12 @@ import org.avni.server.dao.CHSRepository;
 import org.joda.time.DateTime;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Repository
@@ -18,12 +21,62 @@ public interface MessageRequestQueueRepository extends CHSRepository<MessageRequ
 
     Stream<MessageRequest> findAllByDeliveryStatusNotAndIsVoidedFalseAndScheduledDateTimeIsLessThanEqual(MessageDeliveryStatus messageDeliveryStatus, DateTime now);
 
-    Optional<MessageRequest> findByEntityIdAndMessageRule(Long entityId, MessageRule messageRule);
+    Optional<MessageRequest> findFirstByEntityIdAndMessageRuleOrderByIsVoidedAscIdAsc(Long entityId, MessageRule messageRule);
+
+    /**
+     * At most one request of an entity and message rule is not voided. Voided requests are only returned when there is
+     * no other.
+     */
+    default Optional<MessageRequest> findByEntityIdAndMessageRule(Long entityId, MessageRule messageRule) {
+        return findFirstByEntityIdAndMessageRuleOrderByIsVoidedAscIdAsc(entityId, messageRule);
+    }
 
     default Stream<MessageRequest> findDueMessageRequests() {
         return findAllByDeliveryStatusNotAndIsVoidedFalseAndScheduledDateTimeIsLessThanEqual(MessageDeliveryStatus.Sent, DateTime.now());
     }
 
+    /**
+     * Leases up to batchSize due requests that no other node holds a live lease on. Rows locked by another claim are
+     * skipped rather than waited on, and requests whose lease has expired are claimed again.
+     */
+    @Query(value = "with claimable as (" +
+            "    select id from message_request_queue " +
+            "    where delivery_status <> 'Sent' and is_voided = false and scheduled_date_time <= now() " +
+            "      and (lease_expiry_date_time is null or lease_expiry_date_time < now()) " +
+            "    order by scheduled_date_time, id " +
+            "    limit :batchSize " +
+            "    for update skip locked) " +
+            "update message_request_queue mr set " +
+            "lease_owner = :leaseOwner, " +
+            "lease_expiry_date_time = now() + make_interval(secs => :leaseSeconds) " +
+            "from claimable where mr.id = claimable.id " +
+            "returning mr.id", nativeQuery = true)
+    List<Number> leaseDueMessageRequests(@Param("leaseOwner") String leaseOwner, @Param("batchSize") int batchSize,
+                                         @Param("leaseSeconds") int leaseSeconds);
+
+    default List<Long> claimDueMessageRequests(String leaseOwner, int batchSize, int leaseSeconds) {
+        return leaseDueMessageRequests(leaseOwner, batchSize, leaseSeconds).stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Extends the lease of a request that is still being sent. Nothing is updated if another node holds the lease.
+     */
+    @Modifying
+    @Query(value = "update message_request_queue mr set " +
+            "lease_expiry_date_time = now() + make_interval(secs => :leaseSeconds) " +
+            "where mr.id = :id and mr.lease_owner = :leaseOwner", nativeQuery = true)
+    int renewLease(@Param("id") Long id, @Param("leaseOwner") String leaseOwner, @Param("leaseSeconds") int leaseSeconds);
+
+    @Query("select count(mr) from MessageRequest mr where mr.deliveryStatus <> :deliveryStatus and mr.isVoided = false " +
+            "and mr.scheduledDateTime <= :now")
+    long countDueMessageRequests(@Param("deliveryStatus") MessageDeliveryStatus deliveryStatus, @Param("now") DateTime now);
+
+    default long countDueMessageRequests() {
+        return countDueMessageRequests(MessageDeliveryStatus.Sent, DateTime.now());
+    }
+
     @Modifying(clearAutomatically = true, flushAutomatically=true)
     @Query(value = "update message_request_queue mr set " +
             "is_voided = :isVoided " +
@@ -7,25 +7,46 @@ import org.avni.messaging.domain.MessageReceiver;
 import org.avni.messaging.domain.MessageRequest;
 import org.avni.messaging.domain.NextTriggerDetails;
 import org.avni.messaging.domain.exception.GlificGroupMessageFailureException;
+import org.avni.messaging.domain.exception.MessageRequestLeaseLostException;
 import org.avni.messaging.repository.GlificContactRepository;
 import org.avni.messaging.repository.GlificMessageRepository;
 import org.avni.server.domain.Individual;
 import org.avni.server.domain.User;
+import org.avni.server.domain.UserContext;
+import org.avni.server.framework.security.AuthService;
+import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.service.IndividualService;
 import org.avni.server.service.UserService;
 import org.avni.server.util.A;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Sends manual messages to Glific contact groups. Messages that name each contact are sent to the contacts of a page
+ * concurrently, while the next page is fetched. Progress is saved after every page, and for a page that partly
+ * failed, along with the contacts still to be sent to, so that a send that failed or was cut short resumes from there.
+ * The lease of the message request is renewed after every page, and the send stops once another node has claimed it.
+ * <p>
+ * All group messages being sent on this node share one pool of contact senders, so the configured concurrency caps the
+ * contact sends of the whole node rather than of each message. Every contact send also takes a slot of the
+ * organisation's message rate, which it shares with the organisation's other messages.
+ */
 @Service
 public class GroupMessagingService {
 
@@ -37,16 +58,42 @@ public class GroupMessagingService {
     private IndividualService individualService;
     private UserService userService;
     private Bugsnag bugsnag;
+    private final AuthService authService;
+    private final MessageRequestService messageRequestService;
+    private final MessageSendRateLimiters messageSendRateLimiters;
+    private final int concurrency;
+    private final ThreadPoolTaskExecutor contactSenders;
 
     @Autowired
     public GroupMessagingService(GlificMessageRepository glificMessageRepository,
                             GlificContactRepository glificContactRepository, IndividualService individualService,
-                                 UserService userService, Bugsnag bugsnag) {
+                                 UserService userService, Bugsnag bugsnag, AuthService authService,
+                                 MessageRequestService messageRequestService, MessageSendRateLimiters messageSendRateLimiters,
+                                 @Value("${avni.messaging.group.send.concurrency}") int concurrency) {
         this.glificMessageRepository = glificMessageRepository;
         this.glificContactRepository = glificContactRepository;
         this.individualService = individualService;
         this.userService = userService;
         this.bugsnag = bugsnag;
+        this.authService = authService;
+        this.messageRequestService = messageRequestService;
+        this.messageSendRateLimiters = messageSendRateLimiters;
+        this.concurrency = Math.max(1, concurrency);
+        this.contactSenders = createContactSenders(this.concurrency);
+    }
+
+    private static ThreadPoolTaskExecutor createContactSenders(int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("group-message-");
+        executor.initialize();
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        contactSenders.shutdown();
     }
 
     public void sendManualMessage(MessageRequest messageRequest) {
@@ -57,45 +104,64 @@ public class GroupMessagingService {
         int[] indicesOfNonStaticParameters = A.findIndicesOf(parameters, NON_STATIC_NAME_PARAMETER);
 
         if (indicesOfNonStaticParameters.length > 0)
-            sendNonStaticMessageToGroup(messageReceiver, manualMessage, parameters, indicesOfNonStaticParameters);
+            sendNonStaticMessageToGroup(messageRequest, messageReceiver, manualMessage, parameters, indicesOfNonStaticParameters);
         else
             glificMessageRepository.sendMessageToGroup(messageReceiver.getExternalId(),
                     manualMessage.getMessageTemplateId(),
                     manualMessage.getParameters());
     }
 
-    private void sendNonStaticMessageToGroup(MessageReceiver messageReceiver, ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters) {
+    private void sendNonStaticMessageToGroup(MessageRequest messageRequest, MessageReceiver messageReceiver, ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters) {
+        Runnable authenticate = authenticateAsCurrentUser();
+        MessageSendRateLimiter rateLimiter = messageSendRateLimiters.forOrganisation(UserContextHolder.getOrganisation().getId());
         List<GlificContactGroupContactsResponse.GlificContactGroupContacts> contactGroupContacts;
         int pageNumber = 0;
         try {
             if (manualMessage.getNextTriggerDetails() != null)
-                pageNumber = sendMessageToContactsInThePartiallySentPage(messageReceiver,manualMessage, parameters, indicesOfNonStaticParameters);
+                pageNumber = sendMessageToContactsInThePartiallySentPage(messageReceiver,manualMessage, parameters, indicesOfNonStaticParameters, authenticate, rateLimiter);
 
+            CompletableFuture<List<GlificContactGroupContactsResponse.GlificContactGroupContacts>> nextPage = fetchPage(messageReceiver, pageNumber, authenticate);
             do {
-                PageRequest pageable = PageRequest.of(pageNumber, CONTACT_MEMBER_PAGE_SIZE);
-                contactGroupContacts = glificContactRepository.getContactGroupContacts(messageReceiver.getExternalId(),
-                        pageable);
-                sendNonStaticMessageToContacts(manualMessage, parameters, indicesOfNonStaticParameters, contactGroupContacts);
+                contactGroupContacts = nextPage.join();
+                if (contactGroupContacts.size() == CONTACT_MEMBER_PAGE_SIZE)
+                    nextPage = fetchPage(messageReceiver, pageNumber + 1, authenticate);
+                sendNonStaticMessageToContacts(manualMessage, parameters, indicesOfNonStaticParameters, pageNumber, contactGroupContacts, authenticate, rateLimiter);
                 pageNumber++;
+                messageRequestService.saveGroupMessageProgress(manualMessage, new NextTriggerDetails(pageNumber));
+                if (!messageRequestService.renewLease(messageRequest))
+                    throw new MessageRequestLeaseLostException(messageRequest.getId());
             } while (contactGroupContacts.size() == CONTACT_MEMBER_PAGE_SIZE);
         }
-        catch (GlificGroupMessageFailureException exception) {
-            manualMessage.setNextTriggerDetails(new NextTriggerDetails(pageNumber, exception.getContactIdFailedAt()));
+        catch (GlificGroupMessageFailureException | MessageRequestLeaseLostException exception) {
             throw exception;
         }
         catch (Exception exception) {
             manualMessage.setNextTriggerDetails(new NextTriggerDetails(pageNumber));
-            throw new GlificGroupMessageFailureException(exception.getMessage());
+            throw new GlificGroupMessageFailureException(unwrap(exception).getMessage());
         }
     }
 
-    private int sendMessageToContactsInThePartiallySentPage(MessageReceiver messageReceiver, ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters) {
-        int pageNoToResumeFrom = manualMessage.getNextTriggerDetails().getPageNo();
-        String contactIdToResumeFrom = manualMessage.getNextTriggerDetails().getContactId();
+    private CompletableFuture<List<GlificContactGroupContactsResponse.GlificContactGroupContacts>> fetchPage(MessageReceiver messageReceiver, int pageNumber, Runnable authenticate) {
+        return CompletableFuture.supplyAsync(() -> {
+            authenticate.run();
+            return glificContactRepository.getContactGroupContacts(messageReceiver.getExternalId(), PageRequest.of(pageNumber, CONTACT_MEMBER_PAGE_SIZE));
+        }, contactSenders);
+    }
+
+    private int sendMessageToContactsInThePartiallySentPage(MessageReceiver messageReceiver, ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters,
+                                                            Runnable authenticate, MessageSendRateLimiter rateLimiter) {
+        NextTriggerDetails nextTriggerDetails = manualMessage.getNextTriggerDetails();
+        if (nextTriggerDetails.getPendingContactIds() != null)
+            return sendMessageToPendingContactsOfThePage(messageReceiver, manualMessage, parameters, indicesOfNonStaticParameters, authenticate, rateLimiter);
+
+        int pageNoToResumeFrom = nextTriggerDetails.getPageNo();
+        String contactIdToResumeFrom = nextTriggerDetails.getContactId();
         List<GlificContactGroupContactsResponse.GlificContactGroupContacts> contactGroupContacts;
         List<?> contactGroupIds;
+        int pageNo;
 
         do {
+            pageNo = pageNoToResumeFrom;
             PageRequest pageable = PageRequest.of(pageNoToResumeFrom, CONTACT_MEMBER_PAGE_SIZE);
             contactGroupContacts = glificContactRepository.getContactGroupContacts(messageReceiver.getExternalId(),
                     pageable);
@@ -104,10 +170,26 @@ public class GroupMessagingService {
         } while (!contactGroupIds.contains(contactIdToResumeFrom) && (contactIdToResumeFrom != null));
 
         List<GlificContactGroupContactsResponse.GlificContactGroupContacts> pendingContactsInThePage = findPendingContactsWith(contactIdToResumeFrom, contactGroupContacts, contactGroupIds);
-        sendNonStaticMessageToContacts(manualMessage, parameters, indicesOfNonStaticParameters, pendingContactsInThePage);
+        sendNonStaticMessageToContacts(manualMessage, parameters, indicesOfNonStaticParameters, pageNo, pendingContactsInThePage, authenticate, rateLimiter);
         return pageNoToResumeFrom;
     }
 
+    /**
+     * Contacts that have left the group since the page was sent are not sent to.
+     */
+    private int sendMessageToPendingContactsOfThePage(MessageReceiver messageReceiver, ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters,
+                                                      Runnable authenticate, MessageSendRateLimiter rateLimiter) {
+        int pageNo = manualMessage.getNextTriggerDetails().getPageNo();
+        Set<String> pendingContactIds = new HashSet<>(manualMessage.getNextTriggerDetails().getPendingContactIds());
+        List<GlificContactGroupContactsResponse.GlificContactGroupContacts> pendingContactsInThePage = glificContactRepository
+                .getContactGroupContacts(messageReceiver.getExternalId(), PageRequest.of(pageNo, CONTACT_MEMBER_PAGE_SIZE))
+                .stream()
+                .filter(contactGroupContact -> pendingContactIds.contains(contactGroupContact.getId()))
+                .collect(Collectors.toList());
+        sendNonStaticMessageToContacts(manualMessage, parameters, indicesOfNonStaticParameters, pageNo, pendingContactsInThePage, authenticate, rateLimiter);
+        return pageNo + 1;
+    }
+
     private List<GlificContactGroupContactsResponse.GlificContactGroupContacts> findPendingContactsWith(String contactIdToResumeFrom, List<GlificContactGroupContactsResponse.GlificContactGroupContacts> contactGroupContacts, List<?> contactGroupIds) {
         if(contactIdToResumeFrom == null) return contactGroupContacts;
 
@@ -116,23 +198,79 @@ public class GroupMessagingService {
         return pendingContactsInThePage;
     }
 
-    private void sendNonStaticMessageToContacts(ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters, List<GlificContactGroupContactsResponse.GlificContactGroupContacts> contactGroupContacts) {
-        for (GlificContactGroupContactsResponse.GlificContactGroupContacts contactGroupContact : contactGroupContacts) {
-            try {
-                Optional<String> name = findNameOfTheContact(contactGroupContact);
-                if(!name.isPresent()) {
-                    logAndNotifyError(contactGroupContact);
-                    continue;
+    /**
+     * Sends to the contacts of a page on up to the configured number of workers. Contacts that could not be sent to are
+     * saved as pending for the page before failing.
+     */
+    private void sendNonStaticMessageToContacts(ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters, int pageNo,
+                                                List<GlificContactGroupContactsResponse.GlificContactGroupContacts> contactGroupContacts, Runnable authenticate,
+                                                MessageSendRateLimiter rateLimiter) {
+        Queue<GlificContactGroupContactsResponse.GlificContactGroupContacts> unsentContacts = new ConcurrentLinkedQueue<>(contactGroupContacts);
+        Set<String> failedContactIds = ConcurrentHashMap.newKeySet();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(concurrency, contactGroupContacts.size()); i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                try {
+                    authenticate.run();
+                } catch (Exception exception) {
+                    failure.set(exception);
+                    return;
                 }
-                String[] replacedParameters = parameters.clone();
-                A.replaceEntriesAtIndicesWith(replacedParameters, indicesOfNonStaticParameters, name.get());
-                glificMessageRepository.sendMessageToContact(manualMessage.getMessageTemplateId(),
-                        contactGroupContact.getId(), replacedParameters);
-            }
-            catch (Exception exception) {
-                throw new GlificGroupMessageFailureException(contactGroupContact.getId(), exception.getMessage());
-            }
+                GlificContactGroupContactsResponse.GlificContactGroupContacts contactGroupContact;
+                while ((contactGroupContact = unsentContacts.poll()) != null) {
+                    try {
+                        rateLimiter.acquire();
+                        sendNonStaticMessageToContact(manualMessage, parameters, indicesOfNonStaticParameters, contactGroupContact);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        failedContactIds.add(contactGroupContact.getId());
+                        failure.set(exception);
+                        return;
+                    } catch (Exception exception) {
+                        failedContactIds.add(contactGroupContact.getId());
+                        failure.set(exception);
+                    }
+                }
+            }, contactSenders));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+        unsentContacts.forEach(contactGroupContact -> failedContactIds.add(contactGroupContact.getId()));
+        if (failedContactIds.isEmpty()) return;
+
+        List<String> pendingContactIds = contactGroupContacts.stream()
+                .map(GlificContactGroupContactsResponse.GlificContactGroupContacts::getId)
+                .filter(failedContactIds::contains)
+                .collect(Collectors.toList());
+        messageRequestService.saveGroupMessageProgress(manualMessage, new NextTriggerDetails(pageNo, pendingContactIds.get(0), pendingContactIds));
+        throw new GlificGroupMessageFailureException(pendingContactIds.get(0), failure.get().getMessage());
+    }
+
+    private void sendNonStaticMessageToContact(ManualMessage manualMessage, String[] parameters, int[] indicesOfNonStaticParameters,
+                                               GlificContactGroupContactsResponse.GlificContactGroupContacts contactGroupContact) {
+        Optional<String> name = findNameOfTheContact(contactGroupContact);
+        if(!name.isPresent()) {
+            logAndNotifyError(contactGroupContact);
+            return;
         }
+        String[] replacedParameters = parameters.clone();
+        A.replaceEntriesAtIndicesWith(replacedParameters, indicesOfNonStaticParameters, name.get());
+        glificMessageRepository.sendMessageToContact(manualMessage.getMessageTemplateId(),
+                contactGroupContact.getId(), replacedParameters);
+    }
+
+    /**
+     * Workers run as the user sending the message, which is held per thread.
+     */
+    private Runnable authenticateAsCurrentUser() {
+        UserContext userContext = UserContextHolder.getUserContext();
+        Long userId = userContext.getUser().getId();
+        String organisationUUID = userContext.getOrganisationUUID();
+        return () -> authService.authenticateByUserId(userId, organisationUUID);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
     }
 
     private void logAndNotifyError(GlificContactGroupContactsResponse.GlificContactGroupContacts contactGroupContact) {
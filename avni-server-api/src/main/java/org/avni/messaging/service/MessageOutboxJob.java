@@ -0,0 +1,192 @@
+package org.avni.messaging.service;
+
+import com.bugsnag.Bugsnag;
+import org.avni.messaging.domain.GlificSystemConfig;
+import org.avni.server.application.OrganisationConfigSettingKey;
+import org.avni.server.dao.externalSystem.ExternalSystemConfigRepository;
+import org.avni.server.domain.OrganisationConfig;
+import org.avni.server.framework.security.AuthService;
+import org.avni.server.service.OrganisationConfigService;
+import org.avni.server.web.external.EndpointStatistics;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates the message rules of saved entities recorded by {@link MessageOutboxService}, for all organisations with
+ * messaging enabled, on a bounded pool of workers. Workers lease batches of events, so server nodes can run this job
+ * side by side. At most one event of a subject is leased at a time, so the events of a subject are never evaluated in
+ * parallel.
+ */
+@Component
+public class MessageOutboxJob {
+    private static final Logger logger = LoggerFactory.getLogger(MessageOutboxJob.class);
+    private final MessageOutboxService messageOutboxService;
+    private final OrganisationConfigService organisationConfigService;
+    private final AuthService authService;
+    private final ExternalSystemConfigRepository externalSystemConfigRepository;
+    private final Bugsnag bugsnag;
+    private final ThreadPoolTaskExecutor workers;
+    private final int maxWorkersPerOrganisation;
+    private final int batchSize;
+    private final int leaseSeconds;
+    private final int retentionDays;
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final EndpointStatistics evaluationStatistics = new EndpointStatistics("Message rule evaluation");
+
+    @Autowired
+    public MessageOutboxJob(MessageOutboxService messageOutboxService, OrganisationConfigService organisationConfigService,
+                            AuthService authService, ExternalSystemConfigRepository externalSystemConfigRepository, Bugsnag bugsnag,
+                            @Value("${avni.messaging.outbox.threads}") int threads,
+                            @Value("${avni.messaging.outbox.max.workers.per.organisation}") int maxWorkersPerOrganisation,
+                            @Value("${avni.messaging.outbox.batch.size}") int batchSize,
+                            @Value("${avni.messaging.lease.seconds}") int leaseSeconds,
+                            @Value("${avni.messaging.outbox.retention.days}") int retentionDays) {
+        this.messageOutboxService = messageOutboxService;
+        this.organisationConfigService = organisationConfigService;
+        this.authService = authService;
+        this.externalSystemConfigRepository = externalSystemConfigRepository;
+        this.bugsnag = bugsnag;
+        this.workers = createWorkers(threads);
+        this.maxWorkersPerOrganisation = Math.max(1, maxWorkersPerOrganisation);
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseSeconds = leaseSeconds;
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    private static ThreadPoolTaskExecutor createWorkers(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setThreadNamePrefix("message-outbox-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Scheduled(fixedDelayString = "${avni.messaging.outbox.poll.millis}")
+    public void processEvents() {
+        long start = System.currentTimeMillis();
+        authService.authenticateByUserName("admin", null);
+        List<OrganisationConfig> enabledOrganisations = organisationConfigService
+                .findAllWithFeatureEnabled(OrganisationConfigSettingKey.enableMessaging.name());
+
+        List<OrganisationEvents> organisationEvents = new ArrayList<>();
+        for (OrganisationConfig enabledOrganisation : enabledOrganisations) {
+            OrganisationEvents events = findPendingEvents(enabledOrganisation);
+            if (events != null && events.pending > 0) organisationEvents.add(events);
+            authService.authenticateByUserName("admin", null);
+        }
+        if (organisationEvents.isEmpty()) return;
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int worker = 0; worker < maxWorkersPerOrganisation; worker++) {
+            for (OrganisationEvents events : organisationEvents) {
+                if ((long) worker * batchSize < events.pending) {
+                    running.add(CompletableFuture.runAsync(() -> process(events), workers));
+                }
+            }
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+
+        long pending = organisationEvents.stream().mapToLong(events -> events.pending).sum();
+        int processed = organisationEvents.stream().mapToInt(events -> events.processed.get()).sum();
+        int failed = organisationEvents.stream().mapToInt(events -> events.failed.get()).sum();
+        long duration = System.currentTimeMillis() - start;
+        logger.info(String.format("Evaluated message rules of %d saves and failed %d of %d pending across %d organisations in %d ms (%.1f saves/s)",
+                processed, failed, pending, organisationEvents.size(), duration, duration == 0 ? 0 : processed * 1000.0 / duration));
+    }
+
+    /**
+     * Deletes events that were processed or voided more than the retention period ago, a batch at a time, so that the
+     * outbox does not keep growing.
+     */
+    @Scheduled(fixedDelayString = "${avni.messaging.outbox.purge.millis}")
+    public void purgeEvents() {
+        authService.authenticateByUserName("admin", null);
+        DateTime before = DateTime.now().minusDays(retentionDays);
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = messageOutboxService.purgeEventsDoneBefore(before, batchSize);
+            purged += deleted;
+        } while (deleted == batchSize);
+        if (purged > 0) {
+            logger.info(String.format("Purged %d outbox events processed or voided before %s", purged, before));
+        }
+    }
+
+    public EndpointStatistics getEvaluationStatistics() {
+        return evaluationStatistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private OrganisationEvents findPendingEvents(OrganisationConfig enabledOrganisation) {
+        try {
+            GlificSystemConfig glificConfig = externalSystemConfigRepository.getGlificSystemConfig(enabledOrganisation.getOrganisationId());
+            authService.authenticateByUserName(glificConfig.getAvniSystemUser(), null);
+            return new OrganisationEvents(enabledOrganisation.getOrganisationId(), glificConfig.getAvniSystemUser(), messageOutboxService.countPendingEvents());
+        } catch (Exception e) {
+            logger.error(String.format("Could not evaluate message rules for organisation with id: %d. Ensure if right Glific config is setup for the organisation.", enabledOrganisation.getOrganisationId()), e);
+            return null;
+        }
+    }
+
+    private void process(OrganisationEvents events) {
+        try {
+            authService.authenticateByUserName(events.avniSystemUser, null);
+            List<Long> eventIds;
+            while (!(eventIds = messageOutboxService.claimPendingEvents(leaseOwner, batchSize, leaseSeconds)).isEmpty()) {
+                eventIds.forEach(eventId -> process(events, eventId));
+            }
+        } catch (Exception e) {
+            logger.error(String.format("Could not evaluate message rules for organisation with id: %d", events.organisationId), e);
+        }
+    }
+
+    private void process(OrganisationEvents events, Long eventId) {
+        long start = System.currentTimeMillis();
+        try {
+            if (messageOutboxService.process(eventId, leaseOwner)) {
+                events.processed.incrementAndGet();
+                evaluationStatistics.record(System.currentTimeMillis() - start, false);
+            }
+        } catch (Exception e) {
+            events.failed.incrementAndGet();
+            evaluationStatistics.record(System.currentTimeMillis() - start, true);
+            logger.error(String.format("Could not evaluate message rules for outbox event with id: %d", eventId), e);
+            if (messageOutboxService.recordFailure(eventId, e)) {
+                bugsnag.notify(e);
+            }
+        }
+    }
+
+    private static class OrganisationEvents {
+        private final Long organisationId;
+        private final String avniSystemUser;
+        private final long pending;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private OrganisationEvents(Long organisationId, String avniSystemUser, long pending) {
+            this.organisationId = organisationId;
+            this.avniSystemUser = avniSystemUser;
+            this.pending = pending;
+        }
+    }
+}
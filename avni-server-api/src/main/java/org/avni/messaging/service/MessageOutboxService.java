@@ -0,0 +1,126 @@
+package org.avni.messaging.service;
+
+import org.avni.messaging.domain.EntityType;
+import org.avni.messaging.domain.MessageOutboxEvent;
+import org.avni.messaging.repository.MessageOutboxEventRepository;
+import org.avni.server.domain.RuleExecutionException;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Records saves of messageable entities as outbox events in the transaction of the save, so that evaluating message
+ * rules, which calls the rule server once per rule, does not hold up the save. The events are evaluated later by
+ * {@link MessageOutboxJob}. A failed evaluation is retried with exponential back off until it runs out of attempts.
+ */
+@Service
+public class MessageOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(MessageOutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final MessageOutboxEventRepository messageOutboxEventRepository;
+    private final MessagingService messagingService;
+    private final int maxAttempts;
+    private final int retryBackoffSeconds;
+
+    @Autowired
+    public MessageOutboxService(MessageOutboxEventRepository messageOutboxEventRepository, MessagingService messagingService,
+                                @Value("${avni.messaging.outbox.max.attempts}") int maxAttempts,
+                                @Value("${avni.messaging.outbox.retry.backoff.seconds}") int retryBackoffSeconds) {
+        this.messageOutboxEventRepository = messageOutboxEventRepository;
+        this.messagingService = messagingService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffSeconds = retryBackoffSeconds;
+    }
+
+    @Transactional
+    public MessageOutboxEvent recordEntitySave(Long entityId, Long entityTypeId, EntityType entityType, Long subjectId, Long userId) {
+        MessageOutboxEvent event = new MessageOutboxEvent(entityId, entityTypeId, entityType, subjectId, userId);
+        event.assignUUIDIfRequired();
+        return messageOutboxEventRepository.save(event);
+    }
+
+    /**
+     * Drops saves of the entity that have not been evaluated yet, so that they do not schedule messages after the
+     * entity is voided.
+     */
+    @Transactional
+    public void voidPendingEvents(Long entityId, EntityType entityType) {
+        messageOutboxEventRepository.voidPendingEvents(entityId, entityType.name());
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Long> claimPendingEvents(String leaseOwner, int batchSize, int leaseSeconds) {
+        return messageOutboxEventRepository.claimPendingEvents(leaseOwner, batchSize, leaseSeconds, maxAttempts);
+    }
+
+    /**
+     * Evaluates the message rules of the saved entity in a transaction of its own, which is rolled back if the
+     * evaluation fails. The event is locked meanwhile, so that it cannot be voided underneath. Other pending saves of
+     * the entity are covered by this evaluation and are not evaluated again. Returns false if the event is no longer
+     * leased by this node.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public boolean process(Long eventId, String leaseOwner) throws RuleExecutionException {
+        MessageOutboxEvent event = messageOutboxEventRepository.findForUpdate(eventId);
+        if (event == null || event.isVoided() || event.isProcessed() || !event.isLeasedBy(leaseOwner)) {
+            return false;
+        }
+        int coalesced = messageOutboxEventRepository.coalescePendingEvents(eventId, event.getEntityId(), event.getEntityType().name());
+        if (coalesced > 0) {
+            logger.debug(String.format("Evaluating %d more saves of %s with id: %d together", coalesced, event.getEntityType(), event.getEntityId()));
+        }
+        messagingService.onEntitySave(event.getEntityId(), event.getEntityTypeId(), event.getEntityType(), event.getSubjectId(), event.getUserId());
+        event.markProcessed();
+        messageOutboxEventRepository.save(event);
+        return true;
+    }
+
+    /**
+     * Returns true if the event has used up its attempts and will not be retried.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean recordFailure(Long eventId, Exception exception) {
+        MessageOutboxEvent event = messageOutboxEventRepository.findEntity(eventId);
+        if (event == null) return false;
+        long backoffSeconds = (long) retryBackoffSeconds << Math.min(event.getAttempts(), 16);
+        event.markFailed(getError(exception), DateTime.now().plusSeconds((int) Math.min(backoffSeconds, Integer.MAX_VALUE)));
+        messageOutboxEventRepository.save(event);
+        boolean exhausted = event.getAttempts() >= maxAttempts;
+        if (exhausted) {
+            logger.error(String.format("Giving up on message rules of %s with id: %d after %d attempts", event.getEntityType(), event.getEntityId(), event.getAttempts()));
+        }
+        return exhausted;
+    }
+
+    /**
+     * Deletes a batch of events that were processed or voided before the given time, in a transaction of its own.
+     * Returns the number of events deleted.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int purgeEventsDoneBefore(DateTime before, int batchSize) {
+        return messageOutboxEventRepository.deleteEventsDoneBefore(before.toDate(), batchSize);
+    }
+
+    @Transactional(readOnly = true)
+    public long countPendingEvents() {
+        return messageOutboxEventRepository.countPendingEvents(maxAttempts);
+    }
+
+    @Transactional(readOnly = true)
+    public long countExhaustedEvents() {
+        return messageOutboxEventRepository.countExhaustedEvents(maxAttempts);
+    }
+
+    private static String getError(Exception exception) {
+        String error = exception.getClass().getSimpleName() + ": " + exception.getMessage();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
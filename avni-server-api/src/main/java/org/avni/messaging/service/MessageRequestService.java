@@ -1,12 +1,18 @@
 package org.avni.messaging.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.avni.messaging.domain.*;
+import org.avni.messaging.repository.ManualMessageRepository;
 import org.avni.messaging.repository.MessageRequestQueueRepository;
+import org.avni.server.util.ObjectMapperSingleton;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.stream.Stream;
 
@@ -14,12 +20,18 @@ import java.util.stream.Stream;
 public class MessageRequestService {
     private final MessageRequestQueueRepository messageRequestRepository;
     private final MessageReceiverService messageReceiverService;
+    private final ManualMessageRepository manualMessageRepository;
+    private final int leaseSeconds;
     private static final Logger logger = LoggerFactory.getLogger(MessagingService.class);
 
     @Autowired
-    public MessageRequestService(MessageRequestQueueRepository messageRequestRepository, MessageReceiverService messageReceiverService) {
+    public MessageRequestService(MessageRequestQueueRepository messageRequestRepository, MessageReceiverService messageReceiverService,
+                                 ManualMessageRepository manualMessageRepository,
+                                 @Value("${avni.messaging.lease.seconds}") int leaseSeconds) {
         this.messageRequestRepository = messageRequestRepository;
         this.messageReceiverService = messageReceiverService;
+        this.manualMessageRepository = manualMessageRepository;
+        this.leaseSeconds = leaseSeconds;
     }
 
     public MessageRequest createOrUpdateAutomatedMessageRequest(MessageRule messageRule, MessageReceiver messageReceiver, Long entityId, DateTime scheduledDateTime) {
@@ -72,4 +84,29 @@ public class MessageRequestService {
         return messageReceiverService.findExternalMessageReceiver(groupId).map(messageReceiver -> messageRequestRepository.findAllByDeliveryStatusAndMessageReceiverAndIsVoidedFalse(messageDeliveryStatus, messageReceiver)
         ).orElse(Stream.empty());
     }
+
+    /**
+     * Commits how far a group message has got, independently of the transaction sending it, so that a send cut short
+     * by the server going down resumes from there as well.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveGroupMessageProgress(ManualMessage manualMessage, NextTriggerDetails nextTriggerDetails) {
+        manualMessage.setNextTriggerDetails(nextTriggerDetails);
+        try {
+            manualMessageRepository.updateNextTriggerDetails(manualMessage.getId(), ObjectMapperSingleton.getObjectMapper().writeValueAsString(nextTriggerDetails));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Extends the lease of a request being sent by a node, such as a message to a large group, so that no other node
+     * claims it meanwhile. Returns false if another node has claimed it since. Requests sent without being leased have
+     * nothing to renew.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean renewLease(MessageRequest messageRequest) {
+        if (messageRequest.getLeaseOwner() == null) return true;
+        return messageRequestRepository.renewLease(messageRequest.getId(), messageRequest.getLeaseOwner(), leaseSeconds) > 0;
+    }
 }
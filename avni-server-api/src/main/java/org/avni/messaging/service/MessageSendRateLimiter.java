@@ -0,0 +1,47 @@
+package org.avni.messaging.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces out the messages of an organisation so that they are sent no faster than the configured rate, however many
+ * workers are sending them.
+ */
+public class MessageSendRateLimiter {
+    private final double messagesPerSecond;
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+    private long nextPermitAt;
+
+    public MessageSendRateLimiter(double messagesPerSecond) {
+        this(messagesPerSecond, System::nanoTime);
+    }
+
+    MessageSendRateLimiter(double messagesPerSecond, LongSupplier nanoClock) {
+        this.messagesPerSecond = messagesPerSecond;
+        this.intervalNanos = messagesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / messagesPerSecond) : 0;
+        this.nanoClock = nanoClock;
+        this.nextPermitAt = nanoClock.getAsLong();
+    }
+
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes the next free slot and returns how long to wait for it.
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        long permitAt = Math.max(now, nextPermitAt);
+        nextPermitAt = permitAt + intervalNanos;
+        return permitAt - now;
+    }
+}
@@ -0,0 +1,67 @@
+package org.avni.messaging.service;
+
+import org.avni.server.application.OrganisationConfigSettingKey;
+import org.avni.server.domain.OrganisationConfig;
+import org.avni.server.service.OrganisationConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one rate limiter per organisation, shared by everything on this node that sends the organisation's messages, so
+ * that due messages and the per contact sends of group messages together stay within the organisation's rate.
+ */
+@Component
+public class MessageSendRateLimiters {
+    private static final Logger logger = LoggerFactory.getLogger(MessageSendRateLimiters.class);
+    private final OrganisationConfigService organisationConfigService;
+    private final double defaultMessagesPerSecond;
+    private final Map<Long, MessageSendRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MessageSendRateLimiters(OrganisationConfigService organisationConfigService,
+                                   @Value("${avni.messaging.messages.per.second}") double defaultMessagesPerSecond) {
+        this.organisationConfigService = organisationConfigService;
+        this.defaultMessagesPerSecond = defaultMessagesPerSecond;
+    }
+
+    public MessageSendRateLimiter forOrganisation(Long organisationId) {
+        return forOrganisation(organisationId, organisationConfigService.getOrganisationConfigByOrgId(organisationId));
+    }
+
+    /**
+     * The limiter is replaced when the organisation's rate has been changed.
+     */
+    public MessageSendRateLimiter forOrganisation(Long organisationId, OrganisationConfig organisationConfig) {
+        double messagesPerSecond = getMessagesPerSecond(organisationConfig);
+        return rateLimiters.compute(organisationId, (id, rateLimiter) ->
+                rateLimiter != null && rateLimiter.getMessagesPerSecond() == messagesPerSecond ? rateLimiter : new MessageSendRateLimiter(messagesPerSecond));
+    }
+
+    /**
+     * A rate of zero leaves the organisation's messages unlimited. A rate that is not a number, or is negative, is ignored
+     * in favour of the default so that a bad setting does not stop the organisation's messages from being sent.
+     */
+    private double getMessagesPerSecond(OrganisationConfig organisationConfig) {
+        if (organisationConfig == null) return defaultMessagesPerSecond;
+        return organisationConfig.getConfigValueOptional(OrganisationConfigSettingKey.messagingRatePerSecond)
+                .map(value -> parseMessagesPerSecond(organisationConfig.getOrganisationId(), value))
+                .orElse(defaultMessagesPerSecond);
+    }
+
+    private double parseMessagesPerSecond(Long organisationId, Object value) {
+        try {
+            double messagesPerSecond = Double.parseDouble(value.toString());
+            if (messagesPerSecond >= 0 && !Double.isInfinite(messagesPerSecond)) return messagesPerSecond;
+        } catch (NumberFormatException ignored) {
+        }
+        logger.warn(String.format("Invalid %s '%s' for organisation with id: %d. Using the default of %.1f messages/s",
+                OrganisationConfigSettingKey.messagingRatePerSecond, value, organisationId, defaultMessagesPerSecond));
+        return defaultMessagesPerSecond;
+    }
+}
@@ -1,20 +1,34 @@
 package org.avni.messaging.service;
 
 import org.avni.messaging.domain.GlificSystemConfig;
+import org.avni.messaging.domain.MessageDeliveryStatus;
+import org.avni.messaging.domain.MessageRequest;
 import org.avni.server.application.OrganisationConfigSettingKey;
 import org.avni.server.dao.externalSystem.ExternalSystemConfigRepository;
 import org.avni.server.domain.OrganisationConfig;
-import org.avni.server.domain.extenalSystem.SystemName;
 import org.avni.server.framework.security.AuthService;
 import org.avni.server.service.OrganisationConfigService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Sends due messages of all organisations with messaging enabled on a bounded pool of workers. Each organisation gets
+ * up to a configured number of workers, which share a rate limit so that Glific does not throttle the organisation.
+ * Workers lease small batches of due messages, so that server nodes running this job side by side never send the same
+ * message, and every message is sent in a transaction of its own.
+ */
 @Component
 public class MessageSenderJob {
     private static final Logger logger = LoggerFactory.getLogger(MessagingService.class);
@@ -22,39 +36,161 @@ public class MessageSenderJob {
     private final OrganisationConfigService organisationConfigService;
     private final AuthService authService;
     private final ExternalSystemConfigRepository externalSystemConfigRepository;
+    private final MessageSendRateLimiters messageSendRateLimiters;
+    private final ThreadPoolTaskExecutor workers;
+    private final int maxWorkersPerOrganisation;
+    private final int claimBatchSize;
+    private final int leaseSeconds;
+    private final String leaseOwner = UUID.randomUUID().toString();
 
     @Autowired
     public MessageSenderJob(MessagingService messagingService, OrganisationConfigService organisationConfigService,
-                            AuthService authService, ExternalSystemConfigRepository externalSystemConfigRepository) {
+                            AuthService authService, ExternalSystemConfigRepository externalSystemConfigRepository,
+                            MessageSendRateLimiters messageSendRateLimiters,
+                            @Value("${avni.messaging.dispatch.threads}") int threads,
+                            @Value("${avni.messaging.max.workers.per.organisation}") int maxWorkersPerOrganisation,
+                            @Value("${avni.messaging.claim.batch.size}") int claimBatchSize,
+                            @Value("${avni.messaging.lease.seconds}") int leaseSeconds) {
         this.messagingService = messagingService;
         this.organisationConfigService = organisationConfigService;
         this.authService = authService;
         this.externalSystemConfigRepository = externalSystemConfigRepository;
+        this.messageSendRateLimiters = messageSendRateLimiters;
+        this.workers = createWorkers(threads);
+        this.maxWorkersPerOrganisation = Math.max(1, maxWorkersPerOrganisation);
+        this.claimBatchSize = Math.max(1, claimBatchSize);
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    private static ThreadPoolTaskExecutor createWorkers(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setThreadNamePrefix("message-sender-");
+        executor.initialize();
+        return executor;
     }
 
     @Scheduled(fixedDelayString = "${avni.messagingScheduleMillis}")
     public void sendMessages() {
         logger.info("Job started");
+        long start = System.currentTimeMillis();
         authService.authenticateByUserName("admin", null);
         List<OrganisationConfig> enabledOrganisations = organisationConfigService
                 .findAllWithFeatureEnabled(OrganisationConfigSettingKey.enableMessaging.name());
 
+        List<OrganisationDispatch> dispatches = new ArrayList<>();
         for (OrganisationConfig enabledOrganisation : enabledOrganisations) {
-            sendMessages(enabledOrganisation);
+            OrganisationDispatch dispatch = findDueMessages(enabledOrganisation);
+            if (dispatch != null && dispatch.due > 0) dispatches.add(dispatch);
             authService.authenticateByUserName("admin", null);
         }
-        logger.info("Job ended");
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int worker = 0; worker < maxWorkersPerOrganisation; worker++) {
+            for (OrganisationDispatch dispatch : dispatches) {
+                if ((long) worker * claimBatchSize < dispatch.due) {
+                    dispatch.workers.incrementAndGet();
+                    running.add(CompletableFuture.runAsync(() -> send(dispatch), workers));
+                }
+            }
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+
+        long due = dispatches.stream().mapToLong(dispatch -> dispatch.due).sum();
+        int sent = dispatches.stream().mapToInt(dispatch -> dispatch.sent.get()).sum();
+        long remaining = dispatches.stream().mapToLong(dispatch -> dispatch.remaining).sum();
+        long duration = System.currentTimeMillis() - start;
+        logger.info(String.format("Job ended. Sent %d of %d due messages across %d organisations in %d ms (%.1f messages/s). %d remain due",
+                sent, due, dispatches.size(), duration, perSecond(sent, duration), remaining));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
     }
 
-    private void sendMessages(OrganisationConfig enabledOrganisation) {
+    private OrganisationDispatch findDueMessages(OrganisationConfig enabledOrganisation) {
         try {
             GlificSystemConfig glificConfig = externalSystemConfigRepository.getGlificSystemConfig(enabledOrganisation.getOrganisationId());
             authService.authenticateByUserName(glificConfig.getAvniSystemUser(), null);
-            messagingService.sendMessages();
+            return new OrganisationDispatch(enabledOrganisation.getOrganisationId(), glificConfig.getAvniSystemUser(),
+                    messagingService.countDueMessageRequests(), messageSendRateLimiters.forOrganisation(enabledOrganisation.getOrganisationId(), enabledOrganisation));
         }
         catch (Exception e) {
             logger.error(String.format("Message sending failed for organisation with id: %d. Ensure if right Glific config is setup for the organisation.", enabledOrganisation.getOrganisationId()));
             logger.error("Exception for the above message sending failed error:", e);
+            return null;
+        }
+    }
+
+    private void send(OrganisationDispatch dispatch) {
+        try {
+            authService.authenticateByUserName(dispatch.avniSystemUser, null);
+            List<Long> messageRequestIds;
+            while (!(messageRequestIds = messagingService.claimDueMessageRequests(leaseOwner, claimBatchSize, leaseSeconds)).isEmpty()) {
+                for (Long messageRequestId : messageRequestIds) {
+                    send(dispatch, messageRequestId);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error(String.format("Message sending failed for organisation with id: %d", dispatch.organisationId), e);
+        } finally {
+            if (dispatch.workers.decrementAndGet() == 0) complete(dispatch);
+        }
+    }
+
+    private void send(OrganisationDispatch dispatch, Long messageRequestId) throws InterruptedException {
+        try {
+            MessageRequest messageRequest = messagingService.sendMessage(messageRequestId, leaseOwner, dispatch.rateLimiter);
+            if (messageRequest != null && messageRequest.getDeliveryStatus() == MessageDeliveryStatus.Sent) {
+                dispatch.sent.incrementAndGet();
+            } else if (messageRequest != null) {
+                dispatch.failed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            dispatch.failed.incrementAndGet();
+            logger.error("Could not send message for message request id: " + messageRequestId, e);
+        }
+    }
+
+    private void complete(OrganisationDispatch dispatch) {
+        try {
+            dispatch.remaining = messagingService.countDueMessageRequests();
+        } catch (Exception e) {
+            logger.error(String.format("Could not count due messages for organisation with id: %d", dispatch.organisationId), e);
+        }
+        long duration = System.currentTimeMillis() - dispatch.start;
+        logger.info(String.format("Organisation with id: %d sent %d and failed %d of %d due messages in %d ms (%.1f messages/s). %d remain due",
+                dispatch.organisationId, dispatch.sent.get(), dispatch.failed.get(), dispatch.due, duration,
+                perSecond(dispatch.sent.get(), duration), dispatch.remaining));
+    }
+
+    private static double perSecond(int count, long millis) {
+        return millis == 0 ? 0 : count * 1000.0 / millis;
+    }
+
+    private static class OrganisationDispatch {
+        private final Long organisationId;
+        private final String avniSystemUser;
+        private final long due;
+        private final MessageSendRateLimiter rateLimiter;
+        private final AtomicInteger workers = new AtomicInteger();
+        private final AtomicInteger sent = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final long start = System.currentTimeMillis();
+        private volatile long remaining;
+
+        private OrganisationDispatch(Long organisationId, String avniSystemUser, long due, MessageSendRateLimiter rateLimiter) {
+            this.organisationId = organisationId;
+            this.avniSystemUser = avniSystemUser;
+            this.due = due;
+            this.remaining = due;
+            this.rateLimiter = rateLimiter;
         }
     }
 }
@@ -3,11 +3,11 @@ package org.avni.messaging.service;
 import com.bugsnag.Bugsnag;
 import org.avni.messaging.domain.*;
 import org.avni.messaging.domain.exception.GlificGroupMessageFailureException;
+import org.avni.messaging.domain.exception.MessageRequestLeaseLostException;
 import org.avni.messaging.repository.ManualMessageRepository;
 import org.avni.messaging.repository.MessageRequestQueueRepository;
 import org.avni.messaging.repository.MessageRuleRepository;
 import org.avni.server.domain.RuleExecutionException;
-import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.service.RuleService;
 import org.avni.server.web.request.rules.response.ScheduleRuleResponseEntity;
 import org.joda.time.DateTime;
@@ -21,7 +21,6 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Stream;
 
 @Service
 public class MessagingService {
@@ -126,6 +125,8 @@ public class MessagingService {
             logger.error("Message sending to all contacts for message request id: " + messageRequest.getId() +
                     "failed with message " + e.getMessage() + ".Will retry again after sometime.");
             bugsnag.notify(e);
+        } catch (MessageRequestLeaseLostException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Could not send message for message request id: " + messageRequest.getId(), e);
             bugsnag.notify(e);
@@ -134,11 +135,38 @@ public class MessagingService {
         return messageRequest;
     }
 
+    /**
+     * Sends a message in a transaction of its own, unless it has been sent, voided or claimed by another node since it
+     * was leased. The lease of a sent message is released, while that of an unsent one is left to expire, after which
+     * the message is claimed and tried again. A send that loses its lease to another node midway is rolled back.
+     * A message to a single receiver waits for its turn at the rate limiter, while a group message takes a turn for each
+     * contact of the group as it is sent to them.
+     */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void sendMessages() {
-        logger.info("Sending messages for organisation " + UserContextHolder.getOrganisation().getName());
-        Stream<MessageRequest> requests = messageRequestQueueRepository.findDueMessageRequests();
-        requests.forEach(this::sendMessage);
+    public MessageRequest sendMessage(Long messageRequestId, String leaseOwner, MessageSendRateLimiter rateLimiter) throws InterruptedException {
+        MessageRequest messageRequest = messageRequestQueueRepository.findEntity(messageRequestId);
+        if (messageRequest == null || messageRequest.isVoided() || messageRequest.getDeliveryStatus() == MessageDeliveryStatus.Sent
+                || !messageRequest.isLeasedBy(leaseOwner)) {
+            return null;
+        }
+        if (messageRequest.getMessageReceiver().getReceiverType() != ReceiverType.Group) {
+            rateLimiter.acquire();
+        }
+        messageRequest = sendMessage(messageRequest);
+        if (messageRequest.getDeliveryStatus() == MessageDeliveryStatus.Sent) {
+            messageRequest.releaseLease();
+        }
+        return messageRequest;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Long> claimDueMessageRequests(String leaseOwner, int batchSize, int leaseSeconds) {
+        return messageRequestQueueRepository.claimDueMessageRequests(leaseOwner, batchSize, leaseSeconds);
+    }
+
+    @Transactional(readOnly = true)
+    public long countDueMessageRequests() {
+        return messageRequestQueueRepository.countDueMessageRequests();
     }
 
     @Transactional
@@ -1,19 +1,15 @@
 package org.avni.server;
 
-import com.google.common.cache.CacheBuilder;
 import org.avni.server.application.projections.VirtualCatchmentProjection;
 import org.avni.server.domain.User;
+import org.avni.server.framework.cache.BoundedCacheManager;
 import org.avni.server.framework.jpa.CHSAuditorAware;
 import org.keycloak.adapters.springboot.KeycloakSpringBootConfigResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
@@ -26,10 +22,13 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import javax.sql.DataSource;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
+import static org.avni.messaging.repository.GlificContactRepository.GLIFIC_CONTACT_FOR_PHONE_NUMBER;
+import static org.avni.messaging.repository.GlificMessageTemplateRepository.GLIFIC_TEMPLATES_FOR_ORG;
 import static org.avni.server.service.AddressLevelCache.ADDRESSES_PER_CATCHMENT;
 import static org.avni.server.service.AddressLevelCache.ADDRESSES_PER_CATCHMENT_AND_MATCHING_ADDR_LEVELS;
+import static org.avni.server.service.IndividualService.PHONE_NUMBER_FOR_SUBJECT_ID;
+import static org.avni.server.service.SyncDetailsService.SYNCABLE_ITEMS;
 
 @Configuration
 @EnableCaching
@@ -93,30 +92,19 @@ public class AvniSpringConfiguration extends WebMvcAutoConfiguration {
     }
 
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager() {
-            @Override
-            protected Cache createConcurrentMapCache(final String name) {
-                switch (name) {
-                    case ADDRESSES_PER_CATCHMENT:
-                    case ADDRESSES_PER_CATCHMENT_AND_MATCHING_ADDR_LEVELS:
-                        return getConcurrentMapCacheWithWeightedCapacityForAddressesConfig(name);
-                    default:
-                        return getConcurrentMapCacheWithMaxEntriesConfig(name);
-                }
-            }
-
-            private ConcurrentMapCache getConcurrentMapCacheWithWeightedCapacityForAddressesConfig(String name) {
-                return new ConcurrentMapCache(name, CacheBuilder.newBuilder().expireAfterWrite(timeToLiveInSeconds,
-                        TimeUnit.SECONDS).maximumWeight(cacheMaxWeight)
-                        .weigher((key, value) -> value == null ? 0 : (((List<VirtualCatchmentProjection>)value).size() / 100)+1)
-                        .build().asMap(), DISALLOW_NULL_VALUES);
-            }
-
-            private ConcurrentMapCache getConcurrentMapCacheWithMaxEntriesConfig(String name) {
-                return new ConcurrentMapCache(name, CacheBuilder.newBuilder().expireAfterWrite(timeToLiveInSeconds,
-                        TimeUnit.SECONDS).maximumSize(maxEntriesToCache).build().asMap(), DISALLOW_NULL_VALUES);
-            }
-        };
+    public BoundedCacheManager cacheManager() {
+        return new BoundedCacheManager(environment, maxEntriesToCache, timeToLiveInSeconds, cacheMaxWeight, DISALLOW_NULL_VALUES)
+                .withWeigher(ADDRESSES_PER_CATCHMENT, AvniSpringConfiguration::weighVirtualCatchments)
+                .withWeigher(ADDRESSES_PER_CATCHMENT_AND_MATCHING_ADDR_LEVELS, AvniSpringConfiguration::weighVirtualCatchments)
+                .withCaches(ADDRESSES_PER_CATCHMENT,
+                        ADDRESSES_PER_CATCHMENT_AND_MATCHING_ADDR_LEVELS,
+                        PHONE_NUMBER_FOR_SUBJECT_ID,
+                        GLIFIC_CONTACT_FOR_PHONE_NUMBER,
+                        GLIFIC_TEMPLATES_FOR_ORG,
+                        SYNCABLE_ITEMS);
+    }
+
+    private static int weighVirtualCatchments(Object key, Object value) {
+        return value == null ? 0 : (((List<VirtualCatchmentProjection>) value).size() / 100) + 1;
     }
 }
@@ -3,5 +3,5 @@ package org.avni.server.application;
 public enum OrganisationConfigSettingKey {
     languages, searchFilters, myDashboardFilters, lowestAddressLevelType, saveDrafts, enableComments,
     searchResultFields, useMinioForStorage, useKeycloakAsIDP, skipRuleExecution, customRegistrationLocations, enableMessaging,
-    donotRequirePasswordChangeOnFirstLogin
+    donotRequirePasswordChangeOnFirstLogin, messagingRatePerSecond
 }
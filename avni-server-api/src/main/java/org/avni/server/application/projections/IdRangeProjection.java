@@ -0,0 +1,6 @@
+package org.avni.server.application.projections;
+
+public interface IdRangeProjection {
+    Long getMinId();
+    Long getMaxId();
+}
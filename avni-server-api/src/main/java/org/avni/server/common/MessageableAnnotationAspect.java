@@ -6,6 +6,7 @@ import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.avni.messaging.domain.EntityType;
+import org.avni.messaging.service.MessageOutboxService;
 import org.avni.messaging.service.MessagingService;
 import org.avni.server.domain.MessageableEntity;
 import org.avni.server.service.OrganisationConfigService;
@@ -20,14 +21,18 @@ public class MessageableAnnotationAspect {
 
     private MessagingService messagingService;
 
+    private MessageOutboxService messageOutboxService;
+
     private OrganisationConfigService organisationConfigService;
 
     private Bugsnag bugsnag;
     private static Logger logger = LoggerFactory.getLogger(MessageableAnnotationAspect.class);
 
     @Autowired
-    public MessageableAnnotationAspect(MessagingService messagingService, OrganisationConfigService organisationConfigService, Bugsnag bugsnag) {
+    public MessageableAnnotationAspect(MessagingService messagingService, MessageOutboxService messageOutboxService,
+                                       OrganisationConfigService organisationConfigService, Bugsnag bugsnag) {
         this.messagingService = messagingService;
+        this.messageOutboxService = messageOutboxService;
         this.organisationConfigService = organisationConfigService;
         this.bugsnag = bugsnag;
     }
@@ -43,9 +48,10 @@ public class MessageableAnnotationAspect {
             EntityType entityType = ((MethodSignature) joinPoint.getSignature()).getMethod().getAnnotation(Messageable.class).value();
 
             if (entity.isVoided()) {
+                messageOutboxService.voidPendingEvents(entity.getEntityId(), entityType);
                 messagingService.onEntityDelete(entity.getEntityId(), entityType, entity.getIndividual().getId());
             } else {
-                messagingService.onEntitySave(entity.getEntityId(), entity.getEntityTypeId(), entityType, entity.getIndividual().getId(), entity.getCreatedBy().getId());
+                messageOutboxService.recordEntitySave(entity.getEntityId(), entity.getEntityTypeId(), entityType, entity.getIndividual().getId(), entity.getCreatedBy().getId());
             }
 
             return entity;
@@ -0,0 +1,146 @@
+package org.avni.server.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.avni.server.domain.AddressLevel;
+import org.avni.server.domain.ObservationCollection;
+import org.avni.server.framework.security.UserContextHolder;
+import org.avni.server.geo.Point;
+import org.avni.server.util.ObjectMapperSingleton;
+import org.postgresql.geometric.PGpoint;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Set based reads and writes of address levels for the bulk location import. Address levels written here bypass
+ * hibernate, so ids and lineage are assigned by the caller and the virtual catchment mapping is refreshed explicitly.
+ */
+@Component
+public class AddressLevelBulkRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public AddressLevelBulkRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Finds the non voided children of the given parents (and top level locations if asked for) with any of the titles,
+     * ignoring case. Returned address levels carry only the id, title, lineage, location properties and the id of their
+     * parent.
+     */
+    public List<AddressLevel> findChildren(Collection<Long> parentIds, boolean includeTopLevel, Collection<String> titles) {
+        List<String> parentConditions = new ArrayList<>();
+        if (!parentIds.isEmpty()) parentConditions.add("parent_id in (:parentIds)");
+        if (includeTopLevel) parentConditions.add("parent_id is null");
+        if (parentConditions.isEmpty() || titles.isEmpty()) return Collections.emptyList();
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("parentIds", parentIds)
+                .addValue("titles", titles.stream().map(String::toLowerCase).collect(Collectors.toSet()));
+        String sql = "select id, parent_id, title, lineage::text as lineage, location_properties::text as location_properties " +
+                "from address_level " +
+                "where not is_voided and lower(title) in (:titles) and (" + String.join(" or ", parentConditions) + ") " +
+                "order by id";
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> {
+            AddressLevel addressLevel = new AddressLevel();
+            addressLevel.setId(rs.getLong("id"));
+            addressLevel.setTitle(rs.getString("title"));
+            addressLevel.setLineage(rs.getString("lineage"));
+            addressLevel.setLocationProperties(readLocationProperties(rs.getString("location_properties")));
+            long parentId = rs.getLong("parent_id");
+            if (!rs.wasNull()) {
+                AddressLevel parent = new AddressLevel();
+                parent.setId(parentId);
+                addressLevel.setParent(parent);
+            }
+            return addressLevel;
+        });
+    }
+
+    public List<Long> nextIds(int count) {
+        if (count == 0) return Collections.emptyList();
+        return jdbcTemplate.queryForList("select nextval('address_level_id_seq') from generate_series(1, :count)",
+                new MapSqlParameterSource("count", count), Long.class);
+    }
+
+    /**
+     * Inserts address levels whose id, uuid, type, parent and lineage are already set.
+     */
+    public void insert(List<AddressLevel> addressLevels) {
+        if (addressLevels.isEmpty()) return;
+        String sql = "insert into address_level (id, uuid, title, type_id, parent_id, lineage, gps_coordinates, location_properties, " +
+                "organisation_id, version, is_voided, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                "values (:id, :uuid, :title, :typeId, :parentId, cast(:lineage as ltree), :gpsCoordinates, :locationProperties, " +
+                ":organisationId, 0, false, :userId, :userId, :now, :now)";
+        Long organisationId = UserContextHolder.getOrganisation().getId();
+        MapSqlParameterSource[] batch = addressLevels.stream().map(addressLevel -> auditedParameters(addressLevel)
+                .addValue("uuid", addressLevel.getUuid())
+                .addValue("title", addressLevel.getTitle())
+                .addValue("typeId", addressLevel.getType().getId())
+                .addValue("parentId", addressLevel.getParentId())
+                .addValue("lineage", addressLevel.getLineage())
+                .addValue("organisationId", organisationId)).toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    public void updateLocationProperties(List<AddressLevel> addressLevels) {
+        if (addressLevels.isEmpty()) return;
+        String sql = "update address_level set gps_coordinates = :gpsCoordinates, location_properties = :locationProperties, " +
+                "version = version + 1, last_modified_by_id = :userId, last_modified_date_time = :now where id = :id";
+        jdbcTemplate.batchUpdate(sql, addressLevels.stream().map(this::auditedParameters).toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Stops the address level trigger from refreshing the virtual catchment mapping row by row, until the end of the
+     * current transaction.
+     */
+    public void deferVirtualCatchmentRefresh() {
+        jdbcTemplate.queryForObject("select set_config('avni.defer_virtual_catchment_refresh', 'true', true)",
+                new MapSqlParameterSource(), String.class);
+    }
+
+    public void refreshVirtualCatchments(Collection<Long> addressLevelIds) {
+        if (addressLevelIds.isEmpty()) return;
+        String ids = addressLevelIds.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+        jdbcTemplate.queryForList("select refresh_virtual_catchment_address_mapping_for_address_levels(cast(:ids as bigint[]))",
+                new MapSqlParameterSource("ids", ids));
+    }
+
+    private MapSqlParameterSource auditedParameters(AddressLevel addressLevel) {
+        Point gpsCoordinates = addressLevel.getGpsCoordinates();
+        return new MapSqlParameterSource()
+                .addValue("id", addressLevel.getId())
+                .addValue("gpsCoordinates", gpsCoordinates == null ? null : new PGpoint(gpsCoordinates.getX(), gpsCoordinates.getY()), Types.OTHER)
+                .addValue("locationProperties", writeLocationProperties(addressLevel.getLocationProperties()), Types.OTHER)
+                .addValue("userId", UserContextHolder.getUser().getId())
+                .addValue("now", new Timestamp(System.currentTimeMillis()));
+    }
+
+    private static ObservationCollection readLocationProperties(String json) {
+        if (json == null) return null;
+        try {
+            return ObjectMapperSingleton.getObjectMapper().readValue(json, ObservationCollection.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String writeLocationProperties(ObservationCollection locationProperties) {
+        if (locationProperties == null) return null;
+        try {
+            return ObjectMapperSingleton.getObjectMapper().writeValueAsString(locationProperties);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.avni.server.dao;
 
 import org.avni.server.domain.SubjectType;
 import org.avni.server.domain.User;
+import org.avni.server.importer.batch.BulkJobQueue;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -16,9 +17,11 @@ import java.util.Map;
 public class AvniJobRepository {
 
     private NamedParameterJdbcTemplate jdbcTemplate;
+    private BulkJobQueue bulkJobQueue;
 
-    public AvniJobRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public AvniJobRepository(NamedParameterJdbcTemplate jdbcTemplate, BulkJobQueue bulkJobQueue) {
         this.jdbcTemplate = jdbcTemplate;
+        this.bulkJobQueue = bulkJobQueue;
     }
 
     public Page<JobStatus> getJobStatuses(User user, String jobFilterCondition, Pageable pageable) {
@@ -63,6 +66,7 @@ public class AvniJobRepository {
         jobStatusParams.put("offset", offset);
         jobStatusParams.put("userId", userId);
         List<JobStatus> jobStatuses = jdbcTemplate.query(query, jobStatusParams, new JobStatusMapper());
+        jobStatuses.forEach(bulkJobQueue::describe);
 
         String countQuery = String.format("select count(*) from (%s) items;", jobFilterQuery);
         Map<String, Object> countParams = new HashMap<>();
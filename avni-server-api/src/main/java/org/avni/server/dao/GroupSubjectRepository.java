@@ -93,14 +93,8 @@ public interface GroupSubjectRepository extends TransactionalDataRepository<Grou
             if (subjectType.isShouldSyncByLocation()) {
                 List<Long> addressLevels = syncParameters.getAddressLevels();
                 if (addressLevels.size() > 0) {
-                    CriteriaBuilder.In<Long> inClause1 = cb.in(root.get("groupSubjectAddressId"));
-                    CriteriaBuilder.In<Long> inClause2 = cb.in(root.get("memberSubjectAddressId"));
-                    for (Long id : addressLevels) {
-                        inClause1.value(id);
-                        inClause2.value(id);
-                    }
-                    predicates.add(inClause1);
-                    predicates.add(inClause2);
+                    predicates.add(addressIdIn(cb, root.get("groupSubjectAddressId"), addressLevels));
+                    predicates.add(addressIdIn(cb, root.get("memberSubjectAddressId"), addressLevels));
                 } else {
                     predicates.add(cb.equal(root.get("id"), cb.literal(0)));
                 }
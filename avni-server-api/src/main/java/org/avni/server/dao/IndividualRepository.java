@@ -1,5 +1,6 @@
 package org.avni.server.dao;
 
+import org.avni.server.application.projections.IdRangeProjection;
 import org.avni.server.application.projections.WebSearchResultProjection;
 import org.avni.server.domain.AddressLevel;
 import org.avni.server.domain.Concept;
@@ -13,10 +14,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
+import javax.persistence.QueryHint;
 import javax.persistence.criteria.*;
 import java.util.Date;
 import java.util.List;
@@ -24,6 +27,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 @RepositoryRestResource(collectionResourceRel = "individual", path = "individual", exported = false)
 public interface IndividualRepository extends TransactionalDataRepository<Individual>, OperatingIndividualScopeAwareRepository<Individual> {
@@ -116,6 +121,70 @@ public interface IndividualRepository extends TransactionalDataRepository<Indivi
             "and (coalesce(:locationIds,NULL) is null OR ind.addressLevel.id in :locationIds)")
     Stream<Individual> findAllIndividuals(Long subjectTypeId, List<Long> locationIds, LocalDate startDateTime, LocalDate endDateTime);
 
+    @Query("select min(ind.id) as minId, max(ind.id) as maxId from Individual ind " +
+            "where (:includeVoided = true or ind.isVoided = false) " +
+            "and ind.subjectType.id = :subjectTypeId " +
+            "and ind.registrationDate between :startDateTime and :endDateTime " +
+            "and (coalesce(:locationIds,NULL) is null OR ind.addressLevel.id in :locationIds)")
+    IdRangeProjection findIndividualIdRange(Long subjectTypeId, List<Long> locationIds, LocalDate startDateTime, LocalDate endDateTime, boolean includeVoided);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select ind from Individual ind " +
+            "where ind.isVoided = false " +
+            "and ind.subjectType.id = :subjectTypeId " +
+            "and ind.registrationDate between :startDateTime and :endDateTime " +
+            "and (coalesce(:locationIds,NULL) is null OR ind.addressLevel.id in :locationIds) " +
+            "and ind.id between :fromId and :toId " +
+            "order by ind.id")
+    Stream<Individual> findNonVoidedIndividuals(Long subjectTypeId, List<Long> locationIds, LocalDate startDateTime, LocalDate endDateTime, Long fromId, Long toId);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select ind from Individual ind " +
+            "where ind.subjectType.id = :subjectTypeId " +
+            "and ind.registrationDate between :startDateTime and :endDateTime " +
+            "and (coalesce(:locationIds,NULL) is null OR ind.addressLevel.id in :locationIds) " +
+            "and ind.id between :fromId and :toId " +
+            "order by ind.id")
+    Stream<Individual> findAllIndividuals(Long subjectTypeId, List<Long> locationIds, LocalDate startDateTime, LocalDate endDateTime, Long fromId, Long toId);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct ind from Individual ind " +
+            "left join fetch ind.subjectType " +
+            "left join fetch ind.addressLevel " +
+            "left join fetch ind.encounters e " +
+            "left join fetch e.encounterType " +
+            "where ind.id in :ids")
+    List<Individual> findWithEncountersForExport(List<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct ind from Individual ind " +
+            "left join fetch ind.programEnrolments pe " +
+            "left join fetch pe.program " +
+            "where ind.id in :ids")
+    List<Individual> findWithProgramEnrolmentsForExport(List<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct ind from Individual ind " +
+            "left join fetch ind.memberGroupSubjects gs " +
+            "left join fetch gs.groupSubject g " +
+            "left join fetch g.subjectType " +
+            "where ind.id in :ids")
+    List<Individual> findWithMemberGroupSubjectsForExport(List<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct g from Individual g " +
+            "left join fetch g.encounters e " +
+            "left join fetch e.encounterType " +
+            "where g.id in (select gs.groupSubject.id from GroupSubject gs where gs.memberSubject.id in :memberIds)")
+    List<Individual> findGroupSubjectsWithEncountersForExport(List<Long> memberIds);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct g from Individual g " +
+            "left join fetch g.groupSubjects gs " +
+            "left join fetch gs.memberSubject " +
+            "where g.id in (select mgs.groupSubject.id from GroupSubject mgs where mgs.memberSubject.id in :memberIds)")
+    List<Individual> findGroupSubjectsWithMembersForExport(List<Long> memberIds);
+
     //group by is added for distinct ind records
     @Query("select i from Individual i " +
             "join i.encounters enc " +
@@ -6,6 +6,7 @@ import org.springframework.batch.core.ExitStatus;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Transient;
 import java.util.Date;
 
 @Entity
@@ -33,6 +34,14 @@ public class JobStatus {
     private String programUUID;
     private String encounterTypeUUID;
     private String reportType;
+    @Transient
+    private Integer queuePosition;
+    @Transient
+    private Long waitTimeMillis;
+    @Transient
+    private Integer queueDepth;
+    @Transient
+    private Integer runningJobs;
 
     public Date getStartDate() {
         return startDate;
@@ -194,4 +203,35 @@ public class JobStatus {
         this.reportType = reportType;
     }
 
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(Integer queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    public Long getWaitTimeMillis() {
+        return waitTimeMillis;
+    }
+
+    public void setWaitTimeMillis(Long waitTimeMillis) {
+        this.waitTimeMillis = waitTimeMillis;
+    }
+
+    public Integer getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(Integer queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public Integer getRunningJobs() {
+        return runningJobs;
+    }
+
+    public void setRunningJobs(Integer runningJobs) {
+        this.runningJobs = runningJobs;
+    }
 }
@@ -28,6 +28,9 @@ public class JobStatusMapper implements RowMapper<JobStatus> {
         jobStatus.setProgramUUID(rs.getString("programUUID"));
         jobStatus.setEncounterTypeUUID(rs.getString("encounterTypeUUID"));
         jobStatus.setReportType(rs.getString("reportType"));
+        if (jobStatus.getStartTime() != null && jobStatus.getCreateTime() != null) {
+            jobStatus.setWaitTimeMillis(jobStatus.getStartTime().getTime() - jobStatus.getCreateTime().getTime());
+        }
         return jobStatus;
     }
 }
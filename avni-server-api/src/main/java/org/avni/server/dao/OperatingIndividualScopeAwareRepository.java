@@ -2,9 +2,12 @@ package org.avni.server.dao;
 
 import org.avni.server.dao.sync.TransactionDataCriteriaBuilderUtil;
 import org.avni.server.domain.*;
+import org.avni.server.framework.postgres.CHSPostgreSQL94Dialect;
 import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.util.JsonObjectUtil;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
@@ -31,7 +34,11 @@ public interface OperatingIndividualScopeAwareRepository<T extends CHSEntity> ex
 
     default Slice<T> getSyncResultsAsSlice(SyncParameters syncParameters) {
         Specification specification = getSpecification(syncParameters);
-        return findAllAsSlice(specification, syncParameters.getPageable());
+        Pageable pageable = syncParameters.getPageable();
+        if (syncParameters.isKeysetPaged() && pageable.isPaged()) {
+            pageable = PageRequest.of(0, pageable.getPageSize(), pageable.getSort());
+        }
+        return findAllAsSlice(specification, pageable);
     }
 
     default Page<T> getSyncResults(SyncParameters syncParameters) {
@@ -43,9 +50,18 @@ public interface OperatingIndividualScopeAwareRepository<T extends CHSEntity> ex
     default Specification<T> syncAuditSpecification(SyncParameters syncParameters) {
         Date lastModifiedDateTime = syncParameters.getLastModifiedDateTime().toDate();
         Date now = syncParameters.getNow().toDate();
+        Long lastEntityId = syncParameters.getLastEntityId();
         return (Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
             List<Predicate> predicates = new ArrayList<>();
-            predicates.add(cb.between(root.get("lastModifiedDateTime"), cb.literal(lastModifiedDateTime), cb.literal(now)));
+            if (lastEntityId == null) {
+                predicates.add(cb.between(root.get("lastModifiedDateTime"), cb.literal(lastModifiedDateTime), cb.literal(now)));
+            } else {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("lastModifiedDateTime"), cb.literal(lastModifiedDateTime)));
+                predicates.add(cb.or(
+                        cb.greaterThan(root.get("lastModifiedDateTime"), cb.literal(lastModifiedDateTime)),
+                        cb.and(cb.equal(root.get("lastModifiedDateTime"), cb.literal(lastModifiedDateTime)), cb.greaterThan(root.get("id"), cb.literal(lastEntityId)))));
+                predicates.add(cb.lessThanOrEqualTo(root.get("lastModifiedDateTime"), cb.literal(now)));
+            }
             query.orderBy(cb.asc(root.get("lastModifiedDateTime")), cb.asc(root.get("id")));
             return cb.and(predicates.toArray(new Predicate[0]));
         };
@@ -84,16 +100,8 @@ public interface OperatingIndividualScopeAwareRepository<T extends CHSEntity> ex
         if (subjectType.isShouldSyncByLocation()) {
             List<Long> addressLevels = syncParameters.getAddressLevels();
             if (addressLevels.size() > 0) {
-                CriteriaBuilder.In<Long> inClause;
-                if (syncParameters.isParentOrSelfIndividual()) {
-                    inClause = cb.in(from.get("addressLevel").get("id"));
-                } else {
-                    inClause = cb.in(from.get("addressId"));
-                }
-                for (Long id : addressLevels) {
-                    inClause.value(id);
-                }
-                predicates.add(inClause);
+                Path<Long> addressId = syncParameters.isParentOrSelfIndividual() ? from.get("addressLevel").get("id") : from.get("addressId");
+                predicates.add(addressIdIn(cb, addressId, addressLevels));
             } else {
                 predicates.add(cb.equal(from.get("id"), cb.literal(0)));
             }
@@ -117,6 +125,14 @@ public interface OperatingIndividualScopeAwareRepository<T extends CHSEntity> ex
         addSyncAttributeConceptPredicate(cb, predicates, from, syncParameters, "syncConcept1Value", "syncConcept2Value");
     }
 
+    /**
+     * Catchments can have thousands of address levels. They are bound as one bigint[] parameter rather than as an in
+     * list with a bind value per address level, which keeps the SQL text (and its plan) the same across catchments.
+     */
+    default Predicate addressIdIn(CriteriaBuilder cb, Expression<Long> addressId, List<Long> addressLevels) {
+        return cb.isTrue(cb.function(CHSPostgreSQL94Dialect.IN_BIGINT_ARRAY, Boolean.class, addressId, cb.literal(addressLevels.toArray(new Long[0]))));
+    }
+
     default <A extends CHSEntity, B extends CHSEntity> void addSyncAttributeConceptPredicate(CriteriaBuilder cb,
                                                                                              List<Predicate> predicates,
                                                                                              From<A, B> from,
@@ -0,0 +1,28 @@
+package org.avni.server.dao;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the metadata version maintained by triggers on subject type, form, form mapping, checklist detail, group,
+ * group privilege and organisation config tables.
+ */
+@Component
+public class OrganisationMetadataVersionRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OrganisationMetadataVersionRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Row level security makes the versions of the parent organisations visible too, so the sum changes whenever
+     * metadata inherited by the current organisation changes.
+     */
+    public long getMetadataVersion() {
+        Long version = jdbcTemplate.queryForObject("select coalesce(sum(version), 0)::bigint from organisation_metadata_version",
+                new MapSqlParameterSource(), Long.class);
+        return version == null ? 0 : version;
+    }
+}
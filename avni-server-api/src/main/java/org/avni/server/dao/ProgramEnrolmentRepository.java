@@ -9,19 +9,26 @@ import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 @RepositoryRestResource(collectionResourceRel = "programEnrolment", path = "programEnrolment", exported = false)
 public interface ProgramEnrolmentRepository extends TransactionalDataRepository<ProgramEnrolment>, FindByLastModifiedDateTime<ProgramEnrolment>, OperatingIndividualScopeAwareRepository<ProgramEnrolment> {
@@ -86,6 +93,24 @@ public interface ProgramEnrolmentRepository extends TransactionalDataRepository<
     @Query("select pe from ProgramEnrolment pe where pe.legacyId = :id")
     ProgramEnrolment findByLegacyId(String id);
 
+    @Query("select pe.uuid, pe.legacyId, pe.individual.id from ProgramEnrolment pe where pe.uuid in :ids or pe.legacyId in :ids")
+    List<Object[]> findIndividualIdsByLegacyIdInOrUuidIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Resolves enrolments given by uuid or legacy id to the id of their individual, keyed by the id they were given by.
+     * Ids matching no enrolment are left out.
+     */
+    default Map<String, Long> findIndividualIdsByLegacyIdOrUuid(Collection<String> ids) {
+        Map<String, Long> individualIds = new HashMap<>();
+        if (ids.isEmpty()) return individualIds;
+        for (Object[] row : findIndividualIdsByLegacyIdInOrUuidIn(ids)) {
+            Long individualId = ((Number) row[2]).longValue();
+            if (ids.contains(row[0])) individualIds.put((String) row[0], individualId);
+            if (row[1] != null && ids.contains(row[1])) individualIds.put((String) row[1], individualId);
+        }
+        return individualIds;
+    }
+
     Page<ProgramEnrolment> findByLastModifiedDateTimeGreaterThanAndLastModifiedDateTimeLessThanOrderByLastModifiedDateTimeAscIdAsc(
             @Param("lastModifiedDateTime") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date lastModifiedDateTime,
             @Param("now") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date now,
@@ -120,4 +145,11 @@ public interface ProgramEnrolmentRepository extends TransactionalDataRepository<
             "from individual i " +
             "where enl.individual_id = i.id and i.subject_type_id = :subjectTypeId", nativeQuery = true)
     void updateConceptSyncAttributesForSubjectType(Long subjectTypeId, String syncAttribute1, String syncAttribute2);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select distinct pe from ProgramEnrolment pe " +
+            "left join fetch pe.programEncounters pen " +
+            "left join fetch pen.encounterType " +
+            "where pe.individual.id in :individualIds")
+    List<ProgramEnrolment> findWithProgramEncountersForExport(List<Long> individualIds);
 }
@@ -23,14 +23,8 @@ public interface SubjectMigrationRepository extends TransactionalDataRepository<
             if (subjectType.isShouldSyncByLocation()) {
                 List<Long> addressLevels = syncParameters.getAddressLevels();
                 if (addressLevels.size() > 0) {
-                    CriteriaBuilder.In<Long> inClause1 = cb.in(root.get("oldAddressLevel").get("id"));
-                    CriteriaBuilder.In<Long> inClause2 = cb.in(root.get("newAddressLevel").get("id"));
-                    for (Long id : addressLevels) {
-                        inClause1.value(id);
-                        inClause2.value(id);
-                    }
-                    predicates.add(inClause1);
-                    predicates.add(inClause2);
+                    predicates.add(addressIdIn(cb, root.get("oldAddressLevel").get("id"), addressLevels));
+                    predicates.add(addressIdIn(cb, root.get("newAddressLevel").get("id"), addressLevels));
                 } else {
                     predicates.add(cb.equal(root.get("id"), cb.literal(0)));
                 }
@@ -20,6 +20,7 @@ public class SyncParameters {
     private JsonObject syncSettings;
     private SyncEntityName syncEntityName;
     private Catchment catchment;
+    private Long lastEntityId;
 
     public SyncParameters(DateTime lastModifiedDateTime,
                           DateTime now, Long typeId,
@@ -103,6 +104,22 @@ public class SyncParameters {
         this.entityTypeUuid = entityTypeUuid;
     }
 
+    public Long getLastEntityId() {
+        return lastEntityId;
+    }
+
+    /**
+     * Id of the last entity the client received. When set, lastModifiedDateTime is the last modified date time of that
+     * entity and the next slice is read from after (lastModifiedDateTime, lastEntityId) instead of by page offset.
+     */
+    public void setLastEntityId(Long lastEntityId) {
+        this.lastEntityId = lastEntityId;
+    }
+
+    public boolean isKeysetPaged() {
+        return lastEntityId != null;
+    }
+
     public enum SyncEntityName {
         Subject,
         ProgramEnrolment,
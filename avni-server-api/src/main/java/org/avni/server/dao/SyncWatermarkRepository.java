@@ -0,0 +1,51 @@
+package org.avni.server.dao;
+
+import org.joda.time.DateTime;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "what is the latest change after this point" for many tables in one round trip, so that sync details do not
+ * need a separate exists query per entity type. Rows are restricted to the current organisation by row level security,
+ * the same way as for the repository queries this replaces.
+ */
+@Component
+public class SyncWatermarkRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SyncWatermarkRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param tableToLoadedSince table names (never user input) mapped to the point after which changes are of interest
+     * @return for every table passed in, the latest last_modified_date_time at or after its loadedSince, or null if there
+     * is none
+     */
+    public Map<String, DateTime> getLastModifiedDateTimes(Map<String, DateTime> tableToLoadedSince) {
+        Map<String, DateTime> watermarks = new HashMap<>();
+        if (tableToLoadedSince.isEmpty()) return watermarks;
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> probes = new ArrayList<>();
+        tableToLoadedSince.forEach((table, loadedSince) -> {
+            String parameterName = "since" + probes.size();
+            parameters.addValue(parameterName, new Timestamp(loadedSince.getMillis()));
+            probes.add(String.format("select '%s' as table_name, (select max(last_modified_date_time) from %s where last_modified_date_time >= :%s) as watermark",
+                    table, table, parameterName));
+        });
+
+        jdbcTemplate.query(String.join("\nunion all\n", probes), parameters, rs -> {
+            Timestamp watermark = rs.getTimestamp("watermark");
+            watermarks.put(rs.getString("table_name"), watermark == null ? null : new DateTime(watermark.getTime()));
+        });
+        return watermarks;
+    }
+}
@@ -6,6 +6,7 @@ import org.avni.server.domain.Group;
 import org.avni.server.domain.UserGroup;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Repository;
@@ -44,4 +45,7 @@ public interface UserGroupRepository extends ReferenceDataRepository<UserGroup>
 
     List<UserGroup> findByUserAndGroupHasAllPrivilegesTrueAndIsVoidedFalse(User user);
 
+    @Query("select ug.group.id from UserGroup ug where ug.user.id = :userId and ug.isVoided = false order by ug.group.id")
+    List<Long> getGroupIdsForUser(Long userId);
+
 }
@@ -44,14 +44,8 @@ public interface IndividualRelationshipRepository extends TransactionalDataRepos
             if (subjectType.isShouldSyncByLocation()) {
                 List<Long> addressLevels = syncParameters.getAddressLevels();
                 if (addressLevels.size() > 0) {
-                    CriteriaBuilder.In<Long> inClause1 = cb.in(individualAJoin.get("addressLevel").get("id"));
-                    CriteriaBuilder.In<Long> inClause2 = cb.in(individualBJoin.get("addressLevel").get("id"));
-                    for (Long id : addressLevels) {
-                        inClause1.value(id);
-                        inClause2.value(id);
-                    }
-                    predicates.add(inClause1);
-                    predicates.add(inClause2);
+                    predicates.add(addressIdIn(cb, individualAJoin.get("addressLevel").get("id"), addressLevels));
+                    predicates.add(addressIdIn(cb, individualBJoin.get("addressLevel").get("id"), addressLevels));
                 } else {
                     predicates.add(cb.equal(root.get("id"), cb.literal(0)));
                 }
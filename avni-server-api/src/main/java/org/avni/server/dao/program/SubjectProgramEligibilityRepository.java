@@ -31,11 +31,7 @@ public interface SubjectProgramEligibilityRepository extends TransactionalDataRe
             if (subjectType.isShouldSyncByLocation()) {
                 List<Long> addressLevels = syncParameters.getAddressLevels();
                 if (addressLevels.size() > 0) {
-                    CriteriaBuilder.In<Long> addressLevelFilter = cb.in(subjectJoin.get("addressLevel").get("id"));
-                    for (Long id : addressLevels) {
-                        addressLevelFilter.value(id);
-                    }
-                    predicates.add(addressLevelFilter);
+                    predicates.add(addressIdIn(cb, subjectJoin.get("addressLevel").get("id"), addressLevels));
                 } else {
                     predicates.add(cb.equal(root.get("id"), cb.literal(0)));
                 }
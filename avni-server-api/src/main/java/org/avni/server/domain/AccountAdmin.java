@@ -1,12 +1,14 @@
 package org.avni.server.domain;
 
 
+import org.avni.server.framework.security.UserContextCacheInvalidator;
 import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "account_admin")
+@EntityListeners({UserContextCacheInvalidator.class})
 @BatchSize(size = 100)
 public class AccountAdmin {
 
@@ -1,6 +1,7 @@
 package org.avni.server.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.avni.server.framework.security.UserContextCacheInvalidator;
 import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
@@ -9,6 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "organisation")
+@EntityListeners({UserContextCacheInvalidator.class})
 @BatchSize(size = 100)
 public class Organisation extends ETLEntity {
 
@@ -6,6 +6,7 @@ import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 import org.avni.server.web.validation.ValidationException;
+import org.avni.server.framework.security.UserContextCacheInvalidator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,6 +15,7 @@ import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "users")
+@EntityListeners({UserContextCacheInvalidator.class})
 @BatchSize(size = 100)
 public class User {
     public static String MOBILE_NUMBER_PATTERN = "^\\+91[0-9]{10}";
@@ -4,11 +4,15 @@ import org.avni.server.domain.*;
 import org.avni.server.domain.accessControl.GroupPrivilege;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 public class GroupPrivileges {
     private final boolean hasAllPrivileges;
     private final List<GroupPrivilege> privileges;
+    private Set<PrivilegeKey> privilegeIndex;
 
     public GroupPrivileges(boolean hasAllPrivileges, List<GroupPrivilege> privileges) {
         this.hasAllPrivileges = hasAllPrivileges;
@@ -21,7 +25,24 @@ public class GroupPrivileges {
     }
 
     public boolean hasPrivilege(String privilegeName, SubjectType subjectType, Program program, EncounterType encounterType, ChecklistDetail checklistDetail) {
-        return this.hasAllPrivileges || privileges.stream().anyMatch(groupPrivilege -> groupPrivilege.matches(privilegeName, subjectType, program, encounterType, checklistDetail));
+        return this.hasAllPrivileges || getPrivilegeIndex().contains(new PrivilegeKey(privilegeName, subjectType, program, encounterType, checklistDetail));
+    }
+
+    /**
+     * Same matching as {@link GroupPrivilege#matches}, as a hash lookup. A privilege is indexed under its encounter type
+     * and under its program encounter type, since a match on either is enough.
+     */
+    private Set<PrivilegeKey> getPrivilegeIndex() {
+        if (privilegeIndex == null) {
+            Set<PrivilegeKey> index = new HashSet<>();
+            privileges.forEach(groupPrivilege -> {
+                String privilegeName = groupPrivilege.getPrivilege().getName();
+                index.add(new PrivilegeKey(privilegeName, groupPrivilege.getSubjectType(), groupPrivilege.getProgram(), groupPrivilege.getEncounterType(), groupPrivilege.getChecklistDetail()));
+                index.add(new PrivilegeKey(privilegeName, groupPrivilege.getSubjectType(), groupPrivilege.getProgram(), groupPrivilege.getProgramEncounterType(), groupPrivilege.getChecklistDetail()));
+            });
+            privilegeIndex = index;
+        }
+        return privilegeIndex;
     }
 
     public boolean hasViewPrivilege(ChecklistItem checklistItem) {
@@ -66,4 +87,41 @@ public class GroupPrivileges {
     public List<GroupPrivilege> getPrivileges() {
         return privileges;
     }
+
+    private static class PrivilegeKey {
+        private final String privilegeName;
+        private final Long subjectTypeId;
+        private final Long programId;
+        private final Long encounterTypeId;
+        private final Long checklistDetailId;
+
+        PrivilegeKey(String privilegeName, SubjectType subjectType, Program program, EncounterType encounterType, ChecklistDetail checklistDetail) {
+            this.privilegeName = privilegeName;
+            this.subjectTypeId = idOf(subjectType);
+            this.programId = idOf(program);
+            this.encounterTypeId = idOf(encounterType);
+            this.checklistDetailId = idOf(checklistDetail);
+        }
+
+        private static Long idOf(CHSBaseEntity entity) {
+            return entity == null ? null : entity.getId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PrivilegeKey that = (PrivilegeKey) o;
+            return Objects.equals(privilegeName, that.privilegeName) &&
+                    Objects.equals(subjectTypeId, that.subjectTypeId) &&
+                    Objects.equals(programId, that.programId) &&
+                    Objects.equals(encounterTypeId, that.encounterTypeId) &&
+                    Objects.equals(checklistDetailId, that.checklistDetailId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(privilegeName, subjectTypeId, programId, encounterTypeId, checklistDetailId);
+        }
+    }
 }
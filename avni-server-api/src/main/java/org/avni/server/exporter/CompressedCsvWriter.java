@@ -0,0 +1,59 @@
+package org.avni.server.exporter;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes export rows as gzip compressed csv, the way {@link org.springframework.batch.item.file.FlatFileItemWriter}
+ * writes them to a file, but to any stream, so that exports can be compressed and uploaded as they are written.
+ */
+public class CompressedCsvWriter<T> implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private final GZIPOutputStream gzipOutputStream;
+    private final Writer writer;
+    private final DelimitedLineAggregator<T> lineAggregator;
+
+    public CompressedCsvWriter(OutputStream outputStream, FieldExtractor<T> fieldExtractor) throws IOException {
+        this.gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        this.writer = new BufferedWriter(new OutputStreamWriter(gzipOutputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.lineAggregator = new DelimitedLineAggregator<>();
+        lineAggregator.setDelimiter(",");
+        lineAggregator.setFieldExtractor(fieldExtractor);
+    }
+
+    public void writeHeader(FlatFileHeaderCallback headerCallback) throws IOException {
+        headerCallback.writeHeader(writer);
+        writer.write(LINE_SEPARATOR);
+    }
+
+    public void write(List<? extends T> items) throws IOException {
+        for (T item : items) {
+            writer.write(lineAggregator.aggregate(item));
+            writer.write(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Appends the rows of a file written by another CompressedCsvWriter.
+     */
+    public void append(File compressedCsv) throws IOException {
+        writer.flush();
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(compressedCsv), BUFFER_SIZE)) {
+            IOUtils.copy(inputStream, gzipOutputStream);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
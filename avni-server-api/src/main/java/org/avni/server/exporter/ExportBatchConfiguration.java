@@ -1,10 +1,13 @@
 package org.avni.server.exporter;
 
+import org.avni.server.application.projections.IdRangeProjection;
 import org.avni.server.dao.*;
 import org.avni.server.domain.*;
 import org.avni.server.exporter.v2.ExportV2CSVFieldExtractor;
 import org.avni.server.exporter.v2.ExportV2Processor;
+import org.avni.server.exporter.v2.LongitudinalExportPrefetcher;
 import org.avni.server.exporter.v2.LongitudinalExportV2TaskletImpl;
+import org.avni.server.exporter.v2.SubjectIdRange;
 import org.avni.server.framework.security.AuthService;
 import org.avni.server.service.ExportS3Service;
 import org.avni.server.web.external.request.export.ExportFilters;
@@ -22,13 +25,19 @@ import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +59,7 @@ public class ExportBatchConfiguration {
     private final SubjectTypeRepository subjectTypeRepository;
     private final EncounterTypeRepository encounterTypeRepository;
     private final ProgramRepository programRepository;
+    private final PlatformTransactionManager transactionManager;
 
     @Autowired
     public ExportBatchConfiguration(JobBuilderFactory jobBuilderFactory,
@@ -63,7 +73,8 @@ public class ExportBatchConfiguration {
                                     SubjectTypeRepository subjectTypeRepository,
                                     EncounterTypeRepository encounterTypeRepository,
                                     ProgramRepository programRepository,
-                                    EntityManager entityManager) {
+                                    EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
         this.programEnrolmentRepository = programEnrolmentRepository;
@@ -76,6 +87,7 @@ public class ExportBatchConfiguration {
         this.encounterTypeRepository = encounterTypeRepository;
         this.programRepository = programRepository;
         this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
     }
 
     @Bean
@@ -113,21 +125,47 @@ public class ExportBatchConfiguration {
                                    @Value("#{jobParameters['userId']}") Long userId,
                                    @Value("#{jobParameters['organisationUUID']}") String organisationUUID,
                                    @Value("#{jobParameters['exportJobParamsUUID']}") String exportJobParamsUUID,
+                                   @Value("${avni.export.partitions}") int exportPartitions,
+                                   @Qualifier("exportPartitionTaskExecutor") AsyncTaskExecutor exportPartitionTaskExecutor,
                                    LongitudinalExportJobStepListener listener,
                                    ExportV2CSVFieldExtractor exportV2CSVFieldExtractor,
-                                   ExportV2Processor exportV2Processor) {
+                                   ExportV2Processor exportV2Processor,
+                                   LongitudinalExportPrefetcher exportPrefetcher) {
         authService.authenticateByUserId(userId, organisationUUID);
         ExportOutput exportOutput = exportV2CSVFieldExtractor.getExportOutput();
         ExportFilters subjectFilters = exportOutput.getFilters();
         List<Long> addressLevelIds = subjectFilters.getAddressLevelIds();
         List<Long> selectedAddressIds = getLocations(addressLevelIds);
         List<Long> addressParam = selectedAddressIds.isEmpty() ? null : selectedAddressIds;
-        Stream stream = getRegistrationStream(exportOutput.getUuid(), addressParam, subjectFilters.getDate().getFrom().toLocalDate(), subjectFilters.getDate().getTo().toLocalDate(), subjectFilters.includeVoided());
-        LongitudinalExportTasklet encounterTasklet = new LongitudinalExportV2TaskletImpl(CHUNK_SIZE, entityManager, exportV2CSVFieldExtractor, exportV2Processor, exportS3Service, uuid, stream);
+        SubjectType subjectType = subjectTypeRepository.findByUuid(exportOutput.getUuid());
+        LocalDate startDate = subjectFilters.getDate().getFrom().toLocalDate();
+        LocalDate endDate = subjectFilters.getDate().getTo().toLocalDate();
+        boolean includeVoided = subjectFilters.includeVoided();
+        IdRangeProjection idRange = individualRepository.findIndividualIdRange(subjectType.getId(), addressParam, startDate, endDate, includeVoided);
+        List<Supplier<Stream>> partitions = SubjectIdRange.split(idRange.getMinId(), idRange.getMaxId(), exportPartitions).stream()
+                .map(range -> (Supplier<Stream>) () -> getRegistrationStream(subjectType.getId(), addressParam, startDate, endDate, includeVoided, range))
+                .collect(Collectors.toList());
+        TransactionTemplate readTransactionTemplate = new TransactionTemplate(transactionManager);
+        readTransactionTemplate.setReadOnly(true);
+        LongitudinalExportTasklet encounterTasklet = new LongitudinalExportV2TaskletImpl(CHUNK_SIZE, entityManager, exportV2CSVFieldExtractor, exportV2Processor, exportPrefetcher, exportS3Service, uuid,
+                partitions, exportPartitionTaskExecutor, readTransactionTemplate, () -> authService.authenticateByUserId(userId, organisationUUID));
         listener.setItemReaderCleaner(encounterTasklet);
         return encounterTasklet;
     }
 
+    /**
+     * Runs the partitions of longitudinal exports. The pool is shared by all running exports, so it also bounds the
+     * number of database connections they use.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportPartitionTaskExecutor(@Value("${avni.export.partition.threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setThreadNamePrefix("export-partition-");
+        return executor;
+    }
+
     @Bean
     public Step step1(Tasklet tasklet,
                       LongitudinalExportJobStepListener listener) {
@@ -219,6 +257,11 @@ public class ExportBatchConfiguration {
                 individualRepository.findNonVoidedIndividuals(subjectType.getId(), addressParam, startDateTime, endDateTime);
     }
 
+    private Stream getRegistrationStream(Long subjectTypeId, List<Long> addressParam, LocalDate startDateTime, LocalDate endDateTime, boolean includeVoided, SubjectIdRange range) {
+        return includeVoided ? individualRepository.findAllIndividuals(subjectTypeId, addressParam, startDateTime, endDateTime, range.getFromId(), range.getToId()) :
+                individualRepository.findNonVoidedIndividuals(subjectTypeId, addressParam, startDateTime, endDateTime, range.getFromId(), range.getToId());
+    }
+
     private List<Long> getLocations(List<Long> locationIds) {
         List<AddressLevel> selectedAddressLevels = locationRepository.findAllById(locationIds);
         List<AddressLevel> allAddressLevels = locationRepository.findAllByIsVoidedFalse();
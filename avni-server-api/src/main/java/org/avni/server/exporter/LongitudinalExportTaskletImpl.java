@@ -1,18 +1,15 @@
 package org.avni.server.exporter;
 
 import org.avni.server.service.ExportS3Service;
+import org.avni.server.service.ObjectUploadOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.scope.context.ChunkContext;
-import org.springframework.batch.item.ExecutionContext;
-import org.springframework.batch.item.file.FlatFileItemWriter;
-import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
 import org.springframework.batch.repeat.RepeatStatus;
-import org.springframework.core.io.FileSystemResource;
 
 import javax.persistence.EntityManager;
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -26,7 +23,8 @@ public class LongitudinalExportTaskletImpl implements LongitudinalExportTasklet
     private final ExportS3Service exportS3Service;
     private final String jobUuid;
     private int read;
-    private FlatFileItemWriter<ExportItemRow> writer;
+    private ObjectUploadOutputStream upload;
+    private CompressedCsvWriter<ExportItemRow> writer;
     private static final Logger logger = LoggerFactory.getLogger(LongitudinalExportTaskletImpl.class);
     private final Iterator iterator;
     private final Stream stream;
@@ -44,7 +42,19 @@ public class LongitudinalExportTaskletImpl implements LongitudinalExportTasklet
 
     @Override
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
-        createFileWriter(jobUuid, chunkContext.getStepContext().getStepExecution().getExecutionContext());
+        createWriter(jobUuid);
+        try {
+            writeRows();
+            writer.close();
+        } catch (Exception e) {
+            upload.abort();
+            throw e;
+        }
+        logger.info("Completed reading all records");
+        return RepeatStatus.FINISHED;
+    }
+
+    private void writeRows() throws Exception {
         List<ExportItemRow> exportItemRows = new ArrayList<>();
         while (true) {
             if (!iterator.hasNext()) {
@@ -66,22 +76,13 @@ public class LongitudinalExportTaskletImpl implements LongitudinalExportTasklet
                 read = 0;
             }
         }
-
-        logger.info("Completed reading all records");
-        return RepeatStatus.FINISHED;
     }
 
-    private void createFileWriter(String uuid, ExecutionContext executionContext) {
-        writer = new FlatFileItemWriter<>();
-        File outputFile = exportS3Service.getLocalExportFile(uuid);
-        writer.setResource(new FileSystemResource(outputFile));
-        DelimitedLineAggregator<ExportItemRow> delimitedLineAggregator = new DelimitedLineAggregator<>();
-        delimitedLineAggregator.setDelimiter(",");
-        delimitedLineAggregator.setFieldExtractor(exportCSVFieldExtractor);
-        writer.setLineAggregator(delimitedLineAggregator);
-        writer.setHeaderCallback(exportCSVFieldExtractor);
-        writer.open(executionContext);
-        logger.info(String.format("Writing to file:%s", outputFile.getAbsolutePath()));
+    private void createWriter(String uuid) throws IOException {
+        upload = exportS3Service.openExportUpload(uuid);
+        writer = new CompressedCsvWriter<>(upload, exportCSVFieldExtractor);
+        writer.writeHeader(exportCSVFieldExtractor);
+        logger.info(String.format("Writing to:%s", upload.getObjectKey()));
     }
 
     private void writeToFile(List<ExportItemRow> rows) throws Exception {
@@ -92,11 +93,7 @@ public class LongitudinalExportTaskletImpl implements LongitudinalExportTasklet
     @Override
     public void clean() {
         logger.info("Closing the result set stream");
-        try {
-            writer.close();
-        } catch (Exception e) {
-            logger.error("Error closing writer", e);
-        }
+        if (upload != null) upload.abort();
 
         try {
             stream.close();
@@ -9,11 +9,11 @@ import org.avni.server.exporter.ExportJobService;
 import org.avni.server.service.AddressLevelService;
 import org.avni.server.service.FormMappingService;
 import org.avni.server.service.ObservationService;
-import org.avni.server.util.DateTimeUtil;
 import org.avni.server.web.external.request.export.ExportEntityType;
 import org.avni.server.web.external.request.export.ExportFilters;
 import org.avni.server.web.external.request.export.ExportOutput;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.file.FlatFileHeaderCallback;
 import org.springframework.batch.item.file.transform.FieldExtractor;
@@ -26,7 +26,8 @@ import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -52,6 +53,16 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
     private List<String> addressLevelTypes = new ArrayList<>();
     private ExportFieldsManager exportFieldsManager;
     private Map<FormElement, Integer> maxNumberOfQuestionGroupObservations;
+    private volatile DateTimeZone dateTimeZone;
+    private volatile int lastRowWidth = 10;
+    private final Map<String, List<Function<Individual, ?>>> registrationColumns = new HashMap<>();
+    private final Map<String, List<Function<ProgramEnrolment, ?>>> enrolmentColumns = new HashMap<>();
+    private final Map<String, List<Function<AbstractEncounter, ?>>> encounterColumns = new HashMap<>();
+    private final Map<Map<String, FormElement>, ObservationColumns> observationColumns = new IdentityHashMap<>();
+    private final Map<String, CodedAnswers> codedAnswers = new HashMap<>();
+    private final Map<String, Long> totalNumberOfColumns = new HashMap<>();
+    private final Map<String, Long> maxEntityCounts = new HashMap<>();
+    private final Map<Long, List<String>> addressLevelColumns = new ConcurrentHashMap<>();
 
     @Autowired
     public ExportV2CSVFieldExtractor(EncounterRepository encounterRepository,
@@ -90,6 +101,7 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
         maxNumberOfQuestionGroupObservations = observationService.getMaxNumberOfQuestionGroupObservations(formFilters, timeZone);
         this.headerCreator = new HeaderCreator(subjectTypeRepository, addressLevelTypes, maxNumberOfQuestionGroupObservations,
                 encounterTypeRepository, exportFieldsManager, programRepository);
+        compilePlan();
     }
 
     @Override
@@ -108,15 +120,14 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
     }
 
     private Object[] createRow(LongitudinalExportItemRow itemRow) {
-        List<Object> columnsData = new ArrayList<>();
-        addRegistrationColumns(columnsData, itemRow.getIndividual(), exportFieldsManager.getMainFields(exportOutput), exportFieldsManager.getCoreFields(exportOutput));
+        List<Object> columnsData = new ArrayList<>(lastRowWidth);
+        addRegistrationColumns(columnsData, itemRow.getIndividual(), exportOutput);
         exportOutput.getEncounters().forEach(enc -> {
             List<Encounter> encounters = itemRow.getEncounterTypeToEncountersMap().get(enc.getUuid());
             if (encounters != null) {
-                addEncounterColumns(exportFieldsManager.getMaxEntityCount(enc), columnsData, encounters,
-                        exportFieldsManager.getMainFields(enc), exportFieldsManager.getSecondaryFields(enc), enc);
+                addEncounterColumns(columnsData, encounters, enc);
             } else {
-                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(enc));
+                addBlanks(columnsData, getTotalNumberOfColumns(enc));
             }
         });
         exportOutput.getGroups().forEach(grp -> {
@@ -126,19 +137,18 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
                     .filter(individual -> individual.getSubjectType().getUuid().equals(groupSubjectTypeUUID)).findFirst();
             if (groupSubjectOptional.isPresent()) {
                 groupSubjectOptional.ifPresent(individual -> {
-                    addRegistrationColumns(columnsData, individual, exportFieldsManager.getMainFields(grp), exportFieldsManager.getCoreFields(grp));
+                    addRegistrationColumns(columnsData, individual, grp);
                     Map<String, List<Encounter>> encounters = groupSubjectToEncountersMap.get(individual);
                     grp.getEncounters().forEach(ge -> {
                         if (encounters != null && encounters.get(ge.getUuid()) != null) {
-                            addEncounterColumns(exportFieldsManager.getMaxEntityCount(ge), columnsData, encounters.get(ge.getUuid()),
-                                    exportFieldsManager.getMainFields(ge), exportFieldsManager.getSecondaryFields(ge), ge);
+                            addEncounterColumns(columnsData, encounters.get(ge.getUuid()), ge);
                         } else {
-                            addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(ge));
+                            addBlanks(columnsData, getTotalNumberOfColumns(ge));
                         }
                     });
                 });
             } else {
-                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(grp));
+                addBlanks(columnsData, getTotalNumberOfColumns(grp));
                 addBlanks(columnsData, addressLevelTypes.size());//Blanks for GroupSubject addressLevels
                 addBlanks(columnsData, 1);//Blanks for No of Group members
             }
@@ -148,73 +158,113 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
             Optional<ProgramEnrolment> programEnrolmentOptional = programEnrolmentToEncountersMap.keySet().stream().filter(pe -> pe.getProgram().getUuid().equals(program.getUuid())).findFirst();
             if (programEnrolmentOptional.isPresent()) {
                 programEnrolmentOptional.ifPresent(programEnrolment -> {
-                    addEnrolmentColumns(columnsData, programEnrolment, exportFieldsManager.getMainFields(program), exportFieldsManager.getSecondaryFields(program), program);
+                    addEnrolmentColumns(columnsData, programEnrolment, program);
                     program.getEncounters().forEach(pe -> {
                         Map<String, List<ProgramEncounter>> encounterTypeListMap = programEnrolmentToEncountersMap.get(programEnrolment);
                         if (encounterTypeListMap != null && encounterTypeListMap.get(pe.getUuid()) != null) {
-                            addEncounterColumns(exportFieldsManager.getMaxEntityCount(pe), columnsData, encounterTypeListMap.get(pe.getUuid()), exportFieldsManager.getMainFields(pe),
-                                    exportFieldsManager.getSecondaryFields(pe), pe);
+                            addEncounterColumns(columnsData, encounterTypeListMap.get(pe.getUuid()), pe);
                         } else {
-                            addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(pe));
+                            addBlanks(columnsData, getTotalNumberOfColumns(pe));
                         }
                     });
                 });
             } else {
-                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(program));
+                addBlanks(columnsData, getTotalNumberOfColumns(program));
             }
         });
+        lastRowWidth = columnsData.size();
         return columnsData.toArray();
     }
 
-    private void addRegistrationColumns(List<Object> columnsData, Individual individual, Map<String, FormElement> registrationMap, List<String> coreFields) {
-        addStaticRegistrationColumns(columnsData, individual, HeaderCreator.registrationDataMap, coreFields);
+    /**
+     * Resolves, once for the job, everything that rows are extracted with: the value functions of the core columns, the
+     * layout of the observation columns, the answers of coded concepts and the number of columns of each entity type.
+     * These are only read while extracting, so the plan can be shared by the threads exporting the partitions.
+     */
+    private void compilePlan() {
+        compileRegistration(exportOutput);
+        exportOutput.getEncounters().forEach(this::compileEncounter);
+        exportOutput.getGroups().forEach(group -> {
+            compileRegistration(group);
+            group.getEncounters().forEach(this::compileEncounter);
+        });
+        exportOutput.getPrograms().forEach(program -> {
+            enrolmentColumns.put(program.getUuid(), compileCoreColumns(exportFieldsManager.getCoreFields(program), HeaderCreator.enrolmentDataMap));
+            compileObservationColumns(exportFieldsManager.getMainFields(program));
+            compileObservationColumns(exportFieldsManager.getSecondaryFields(program));
+            totalNumberOfColumns.put(program.getUuid(), exportFieldsManager.getTotalNumberOfColumns(program));
+            program.getEncounters().forEach(this::compileEncounter);
+        });
+    }
+
+    private void compileRegistration(ExportEntityType subject) {
+        registrationColumns.put(subject.getUuid(), compileCoreColumns(exportFieldsManager.getCoreFields(subject), HeaderCreator.registrationDataMap));
+        compileObservationColumns(exportFieldsManager.getMainFields(subject));
+        totalNumberOfColumns.put(subject.getUuid(), exportFieldsManager.getTotalNumberOfColumns(subject));
+    }
+
+    private void compileEncounter(ExportEntityType encounter) {
+        encounterColumns.put(encounter.getUuid(), compileCoreColumns(exportFieldsManager.getCoreFields(encounter), HeaderCreator.encounterDataMap));
+        compileObservationColumns(exportFieldsManager.getMainFields(encounter));
+        compileObservationColumns(exportFieldsManager.getSecondaryFields(encounter));
+        totalNumberOfColumns.put(encounter.getUuid(), exportFieldsManager.getTotalNumberOfColumns(encounter));
+        maxEntityCounts.put(encounter.getUuid(), exportFieldsManager.getMaxEntityCount(encounter));
+    }
+
+    private static <T> List<Function<T, ?>> compileCoreColumns(List<String> fields, Map<String, HeaderNameAndFunctionMapper<T>> dataMap) {
+        if (fields == null) return Collections.emptyList();
+        return fields.stream().filter(dataMap::containsKey).map(key -> dataMap.get(key).getValueFunction()).collect(Collectors.toList());
+    }
+
+    private void compileObservationColumns(Map<String, FormElement> obsMap) {
+        if (obsMap == null) return;
+        ObservationColumns columns = new ObservationColumns(obsMap);
+        observationColumns.put(obsMap, columns);
+        obsMap.values().stream()
+                .map(FormElement::getConcept)
+                .filter(concept -> concept.getDataType().equals(ConceptDataType.Coded.toString()))
+                .forEach(concept -> codedAnswers.putIfAbsent(concept.getUuid(), new CodedAnswers(concept)));
+    }
+
+    private void addRegistrationColumns(List<Object> columnsData, Individual individual, ExportEntityType subject) {
+        addCoreColumns(columnsData, individual, registrationColumns.get(subject.getUuid()));
         addAddressLevels(columnsData, individual.getAddressLevel());
         if (individual.getSubjectType().isGroup()) {
             columnsData.add(getTotalMembers(individual));
         }
-        columnsData.addAll(addObservations(individual.getObservations(), registrationMap));
+        addObservations(columnsData, individual.getObservations(), exportFieldsManager.getMainFields(subject));
     }
 
-    private void addStaticRegistrationColumns(List<Object> columnsData, Individual individual,
-                                              Map<String, HeaderNameAndFunctionMapper<Individual>> registrationDataMap, List<String> fields) {
-        fields.stream()
-                .filter(registrationDataMap::containsKey)
-                .forEach(key -> columnsData.add(registrationDataMap.get(key).getValueFunction().apply(individual)));
+    private void addEnrolmentColumns(List<Object> columnsData, ProgramEnrolment programEnrolment, ExportOutput.ExportNestedOutput program) {
+        addCoreColumns(columnsData, programEnrolment, enrolmentColumns.get(program.getUuid()));
+        addObservations(columnsData, programEnrolment.getObservations(), exportFieldsManager.getMainFields(program));
+        addObservations(columnsData, programEnrolment.getObservations(), exportFieldsManager.getSecondaryFields(program));
     }
 
-    private void addEnrolmentColumns(List<Object> columnsData, ProgramEnrolment programEnrolment, Map<String, FormElement> enrolmentMap,
-                                     Map<String, FormElement> exitEnrolmentMap,
-                                     ExportOutput.ExportNestedOutput program) {
-        addStaticEnrolmentColumns(program, columnsData, programEnrolment, HeaderCreator.enrolmentDataMap);
-        columnsData.addAll(addObservations(programEnrolment.getObservations(), enrolmentMap));
-        columnsData.addAll(addObservations(programEnrolment.getObservations(), exitEnrolmentMap));
-    }
-
-    private <T extends AbstractEncounter> void addEncounterColumns(Long maxVisitCount, List<Object> columnsData, List<T> encounters,
-                                                                   Map<String, FormElement> map, Map<String, FormElement> cancelMap, ExportEntityType encounterEntityType) {
-        AtomicInteger counter = new AtomicInteger(0);
-        encounters.forEach(encounter -> {
-            appendStaticEncounterColumns(encounterEntityType, columnsData, encounter, HeaderCreator.encounterDataMap);
-            columnsData.addAll(addObservations(encounter.getObservations(), map));
-            columnsData.addAll(addObservations(encounter.getObservations(), cancelMap));
-            counter.getAndIncrement();
-        });
-        int visit = counter.get();
-        while (visit++ < maxVisitCount) {
-            addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(encounterEntityType));
+    private <T extends AbstractEncounter> void addEncounterColumns(List<Object> columnsData, List<T> encounters, ExportEntityType encounterEntityType) {
+        List<Function<AbstractEncounter, ?>> coreColumns = encounterColumns.get(encounterEntityType.getUuid());
+        Map<String, FormElement> map = exportFieldsManager.getMainFields(encounterEntityType);
+        Map<String, FormElement> cancelMap = exportFieldsManager.getSecondaryFields(encounterEntityType);
+        for (T encounter : encounters) {
+            addCoreColumns(columnsData, encounter, coreColumns);
+            addObservations(columnsData, encounter.getObservations(), map);
+            addObservations(columnsData, encounter.getObservations(), cancelMap);
+        }
+        long maxVisits = maxEntityCounts.get(encounterEntityType.getUuid());
+        int visit = encounters.size();
+        while (visit++ < maxVisits) {
+            addBlanks(columnsData, getTotalNumberOfColumns(encounterEntityType));
         }
     }
 
-    private void addStaticEnrolmentColumns(ExportOutput.ExportNestedOutput program, List<Object> columnsData, ProgramEnrolment programEnrolment,
-                                           Map<String, HeaderNameAndFunctionMapper<ProgramEnrolment>> enrolmentDataMap) {
-        exportFieldsManager.getCoreFields(program).stream().filter(enrolmentDataMap::containsKey)
-                .forEach(key -> columnsData.add(enrolmentDataMap.get(key).getValueFunction().apply(programEnrolment)));
+    private static <T> void addCoreColumns(List<Object> columnsData, T entity, List<Function<T, ?>> coreColumns) {
+        for (Function<T, ?> coreColumn : coreColumns) {
+            columnsData.add(coreColumn.apply(entity));
+        }
     }
 
-    private void appendStaticEncounterColumns(ExportEntityType encounterEntityType, List<Object> columnsData, AbstractEncounter encounter,
-                                              Map<String, HeaderNameAndFunctionMapper<AbstractEncounter>> encounterDataMap) {
-        exportFieldsManager.getCoreFields(encounterEntityType).stream().filter(encounterDataMap::containsKey)
-                .forEach(key -> columnsData.add(encounterDataMap.get(key).getValueFunction().apply(encounter)));
+    private long getTotalNumberOfColumns(ExportEntityType exportEntityType) {
+        return totalNumberOfColumns.get(exportEntityType.getUuid());
     }
 
     private long getTotalMembers(Individual individual) {
@@ -224,34 +274,27 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
                 .count();
     }
 
-    private List<Object> addObservations(ObservationCollection observations, Map<String, FormElement> obsMap) {
-        List<Object> values = new ArrayList<>(obsMap.size());
-        obsMap.forEach((conceptUUID, formElement) -> {
-            if (formElement.isPartOfRepeatableQuestionGroup() || formElement.isQuestionGroupElement()) return;
+    private void addObservations(List<Object> values, ObservationCollection observations, Map<String, FormElement> obsMap) {
+        ObservationColumns columns = observationColumns.get(obsMap);
 
+        for (int i = 0; i < columns.formElements.length; i++) {
             Object val;
-            if (formElement.getGroup() != null) {
-                Concept parentConcept = formElement.getGroup().getConcept();
-                Map<String, Object> nestedObservations = observations == null ? Collections.EMPTY_MAP : (Map<String, Object>) observations.getOrDefault(parentConcept.getUuid(), new HashMap<String, Object>());
-                val = nestedObservations.getOrDefault(conceptUUID, null);
+            if (columns.parentConceptUUIDs[i] != null) {
+                Map<String, Object> nestedObservations = observations == null ? Collections.EMPTY_MAP : (Map<String, Object>) observations.getOrDefault(columns.parentConceptUUIDs[i], Collections.EMPTY_MAP);
+                val = nestedObservations.getOrDefault(columns.conceptUUIDs[i], null);
             } else {
-                val = observations == null ? null : observations.getOrDefault(conceptUUID, null);
+                val = observations == null ? null : observations.getOrDefault(columns.conceptUUIDs[i], null);
             }
+            addObservation(values, columns.formElements[i], val);
+        }
 
-            addObservation(values, formElement, val);
-        });
-
-        List<FormElement> observationsRepeatedMultipleTimes = obsMap.values().stream()
-                .filter(FormElement::isPartOfRepeatableQuestionGroup)
-                .collect(Collectors.toList());
-        Map<FormElement, List<FormElement>> repeatedFormElements = ExportFieldsManager.groupByQuestionGroup(observationsRepeatedMultipleTimes);
-        repeatedFormElements.forEach((group, formElements) -> {
+        columns.repeatedFormElements.forEach((group, formElements) -> {
             Integer maxRepeats = maxNumberOfQuestionGroupObservations.get(group);
             Concept questionGroupConcept = group.getConcept();
             List<Map<String, Object>> repeatableObservations;
-            if (observations == null) repeatableObservations = new ArrayList<>();
+            if (observations == null) repeatableObservations = Collections.emptyList();
             else {
-                repeatableObservations = (List<Map<String, Object>>) observations.getOrDefault(questionGroupConcept.getUuid(), new ArrayList<>());
+                repeatableObservations = (List<Map<String, Object>>) observations.getOrDefault(questionGroupConcept.getUuid(), Collections.emptyList());
             }
             for (int i = 0; i < maxRepeats; i++) {
                 if (repeatableObservations.size() > i) {
@@ -265,13 +308,12 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
                 }
             }
         });
-        return values;
     }
 
     private void addObservation(List<Object> values, FormElement formElement, Object val) {
         String dataType = formElement.getConcept().getDataType();
         if (dataType.equals(ConceptDataType.Coded.toString())) {
-            values.addAll(processCodedObs(formElement.getType(), val, formElement));
+            processCodedObs(values, formElement.getType(), val, formElement);
         } else if (dataType.equals(ConceptDataType.DateTime.toString()) || dataType.equals(ConceptDataType.Date.toString())) {
             values.add(processDateObs(val));
         } else if (ConceptDataType.isMedia(dataType)) {
@@ -283,18 +325,20 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
 
     private Object processDateObs(Object val) {
         if (val == null) return "";
-        return DateTimeUtil.getDateForTimeZone(new DateTime(String.valueOf(val)), timeZone);
+        if (dateTimeZone == null) dateTimeZone = DateTimeZone.forID(timeZone);
+        return new DateTime(String.valueOf(val)).withZone(dateTimeZone);
     }
 
-    private List<Object> processCodedObs(String formType, Object val, FormElement formElement) {
-        List<Object> values = new ArrayList<>();
+    private void processCodedObs(List<Object> values, String formType, Object val, FormElement formElement) {
+        CodedAnswers answers = codedAnswers.get(formElement.getConcept().getUuid());
         if (formType.equals(FormElementType.MultiSelect.toString())) {
             List<Object> codedObs = getObservationValueList(val);
-            values.addAll(getAns(formElement.getConcept(), codedObs));
+            for (String answerUUID : answers.answerUUIDs) {
+                values.add(codedObs.contains(answerUUID) ? selectedAnswerFieldValue : unSelectedAnswerFieldValue);
+            }
         } else {
-            values.add(val == null ? "" : getAnsName(formElement.getConcept(), val));
+            values.add(val == null ? "" : answers.getQuotedName(val));
         }
-        return values;
     }
 
     private List<Object> getObservationValueList(Object val) {
@@ -308,27 +352,28 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
         return getFieldValue(String.join(",", imageURIs));
     }
 
-    private String getFieldValue(String value) {
-        return String.format("\"%s\"", value);
+    private static String getFieldValue(String value) {
+        return "\"" + value + "\"";
     }
 
-    private String getAnsName(Concept concept, Object val) {
-        return concept.getSortedAnswers()
-                .filter(ca -> ca.getAnswerConcept().getUuid().equals(val))
-                .map(ca -> getFieldValue(ca.getAnswerConcept().getName()))
-                .findFirst().orElse("");
-    }
-
-    private List<String> getAns(Concept concept, List<Object> val) {
-        return concept.getSortedAnswers()
-                .map(ca -> val.contains(ca.getAnswerConcept().getUuid()) ? selectedAnswerFieldValue : unSelectedAnswerFieldValue)
-                .collect(Collectors.toList());
+    /**
+     * Subjects share few address levels, so their columns are worked out once for each address level.
+     */
+    private void addAddressLevels(List<Object> row, AddressLevel addressLevel) {
+        if (addressLevel == null) {
+            this.addressLevelTypes.forEach(level -> row.add(QuotedStringValue("")));
+            return;
+        }
+        if (addressLevel.getId() == null) {
+            row.addAll(getAddressLevelColumns(addressLevel));
+            return;
+        }
+        row.addAll(addressLevelColumns.computeIfAbsent(addressLevel.getId(), id -> getAddressLevelColumns(addressLevel)));
     }
 
-    private void addAddressLevels(List<Object> row, AddressLevel addressLevel) {
-        Map<String, String> addressLevelMap = addressLevel != null ?
-                getAddressTypeAddressLevelMap(addressLevel, addressLevel.getParentLocationMapping()) : new HashMap<>();
-        this.addressLevelTypes.forEach(level -> row.add(QuotedStringValue(addressLevelMap.getOrDefault(level, ""))));
+    private List<String> getAddressLevelColumns(AddressLevel addressLevel) {
+        Map<String, String> addressLevelMap = getAddressTypeAddressLevelMap(addressLevel, addressLevel.getParentLocationMapping());
+        return this.addressLevelTypes.stream().map(level -> QuotedStringValue(addressLevelMap.getOrDefault(level, ""))).collect(Collectors.toList());
     }
 
     private Map<String, String> getAddressTypeAddressLevelMap(AddressLevel addressLevel, ParentLocationMapping parentLocationMapping) {
@@ -356,4 +401,49 @@ public class ExportV2CSVFieldExtractor implements FieldExtractor<LongitudinalExp
             return text;
         return "\"".concat(text).concat("\"");
     }
+
+    /**
+     * The observation columns of a form, in the order of the header: the form elements outside repeatable question
+     * groups first, with the concepts they are stored under, then the repeatable question groups.
+     */
+    private static class ObservationColumns {
+        private final FormElement[] formElements;
+        private final String[] conceptUUIDs;
+        private final String[] parentConceptUUIDs;
+        private final Map<FormElement, List<FormElement>> repeatedFormElements;
+
+        ObservationColumns(Map<String, FormElement> obsMap) {
+            List<Map.Entry<String, FormElement>> columns = obsMap.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isPartOfRepeatableQuestionGroup() && !entry.getValue().isQuestionGroupElement())
+                    .collect(Collectors.toList());
+            formElements = columns.stream().map(Map.Entry::getValue).toArray(FormElement[]::new);
+            conceptUUIDs = columns.stream().map(Map.Entry::getKey).toArray(String[]::new);
+            parentConceptUUIDs = columns.stream()
+                    .map(entry -> entry.getValue().getGroup() == null ? null : entry.getValue().getGroup().getConcept().getUuid())
+                    .toArray(String[]::new);
+            repeatedFormElements = ExportFieldsManager.groupByQuestionGroup(obsMap.values().stream()
+                    .filter(FormElement::isPartOfRepeatableQuestionGroup)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * The answers of a coded concept in their display order.
+     */
+    private static class CodedAnswers {
+        private final List<String> answerUUIDs = new ArrayList<>();
+        private final Map<String, String> quotedNames = new HashMap<>();
+
+        CodedAnswers(Concept concept) {
+            concept.getSortedAnswers().forEach(conceptAnswer -> {
+                Concept answerConcept = conceptAnswer.getAnswerConcept();
+                answerUUIDs.add(answerConcept.getUuid());
+                quotedNames.putIfAbsent(answerConcept.getUuid(), getFieldValue(answerConcept.getName()));
+            });
+        }
+
+        String getQuotedName(Object answerUUID) {
+            return quotedNames.getOrDefault(answerUUID, "");
+        }
+    }
 }
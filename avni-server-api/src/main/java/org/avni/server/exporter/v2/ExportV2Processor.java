@@ -13,8 +13,8 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 @StepScope
@@ -23,6 +23,12 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
     private final String exportJobParamsUUID;
     private ExportJobParameters exportJobParameters;
     private ExportOutput exportOutput;
+    private DateTimeZone dateTimeZone;
+    private Map<String, ExportEntityType> generalEncountersToFiltersMap;
+    private Map<String, ExportEntityType> programsToFiltersMap;
+    private Map<String, ExportEntityType> programEncountersToFiltersMap;
+    private Map<String, ExportEntityType> groupsToFiltersMap;
+    private Map<String, ExportEntityType> groupsEncountersToFiltersMap;
 
     public ExportV2Processor(ExportJobParametersRepository exportJobParametersRepository,
                              @Value("#{jobParameters['exportJobParamsUUID']}") String exportJobParamsUUID) {
@@ -33,6 +39,7 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
     @PostConstruct
     public void init() {
         exportJobParameters = exportJobParametersRepository.findByUuid(exportJobParamsUUID);
+        dateTimeZone = DateTimeZone.forID(exportJobParameters.getTimezone());
     }
 
     @Override
@@ -53,17 +60,14 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
     }
 
     private void initGroupSubjectsAndTheirEncounters(LongitudinalExportItemRow exportItemRow, Individual individual) {
-        // filter GroupSubject by exportOutput
-        Map<String, ExportEntityType> groupsToFiltersMap = Optional.ofNullable(exportOutput.getGroups()).orElse(new ArrayList<>())
-                .stream().collect(Collectors.toMap(ExportEntityType::getUuid, Function.identity()));
-        // filter GroupSubject encounters by exportOutput
-        Map<String, ExportEntityType> groupsEncountersToFiltersMap = Optional.ofNullable(exportOutput.getGroups()).orElse(new ArrayList<>())
-                .stream().flatMap(p -> p.getEncounters().stream())
-                .collect(Collectors.toMap(ExportEntityType::getUuid, Function.identity()));
+        if (groupsToFiltersMap.isEmpty()) {
+            exportItemRow.setGroupSubjectToEncountersMap(new LinkedHashMap<>());
+            return;
+        }
         Map<Individual, Map<String, List<Encounter>>> individualToEncountersMap = Optional.ofNullable(individual.getMemberGroupSubjects())
                 .orElse(new HashSet<>()).stream()
                 .filter(gr -> applyFilters(groupsToFiltersMap, gr.getGroupSubject().getSubjectType().getUuid(), gr.getGroupSubject().getRegistrationDate()
-                        .toDateTimeAtStartOfDay(DateTimeZone.forID(exportJobParameters.getTimezone())), gr.isVoided()))
+                        .toDateTimeAtStartOfDay(dateTimeZone), gr.isVoided()))
                 .flatMap(gs -> gs.getGroupSubject().getEncounters(false))
                 .filter(e -> e.getEncounterDateTime() != null || e.getCancelDateTime() != null)
                 .filter(e -> applyFilters(groupsEncountersToFiltersMap, e.getEncounterType().getUuid(), Optional.ofNullable(e.getEncounterDateTime()).orElse(e.getCancelDateTime()), e.isVoided()))
@@ -74,19 +78,16 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
     }
 
     private void initProgramsAndTheirEncounters(LongitudinalExportItemRow exportItemRow, Individual individual) {
-        // filter ProgramEnrolment by exportOutput
-        Map<String, ExportEntityType> programsToFiltersMap = Optional.ofNullable(exportOutput.getPrograms()).orElse(new ArrayList<>())
-                .stream().collect(Collectors.toMap(ExportEntityType::getUuid, Function.identity()));
-        // filter ProgramEncounters by exportOutput
-        Map<String, ExportEntityType> encountersToFiltersMap = Optional.ofNullable(exportOutput.getPrograms()).orElse(new ArrayList<>())
-                .stream().flatMap(p -> p.getEncounters().stream())
-                .collect(Collectors.toMap(ExportEntityType::getUuid, Function.identity()));
+        if (programsToFiltersMap.isEmpty()) {
+            exportItemRow.setProgramEnrolmentToEncountersMap(new LinkedHashMap<>());
+            return;
+        }
         Map<ProgramEnrolment, Map<String, List<ProgramEncounter>>> programToEncountersMap = Optional.ofNullable(individual.getProgramEnrolments())
                 .orElse(new HashSet<>()).stream()
                 .filter(pe -> applyFilters(programsToFiltersMap, pe.getProgram().getUuid(), pe.getEnrolmentDateTime(), pe.isVoided()))
                 .flatMap(pe -> pe.getEncounters(false))
                 .filter(e -> e.getEncounterDateTime() != null || e.getCancelDateTime() != null)
-                .filter(e -> applyFilters(encountersToFiltersMap, e.getEncounterType().getUuid(), Optional.ofNullable(e.getEncounterDateTime()).orElse(e.getCancelDateTime()), e.isVoided()))
+                .filter(e -> applyFilters(programEncountersToFiltersMap, e.getEncounterType().getUuid(), Optional.ofNullable(e.getEncounterDateTime()).orElse(e.getCancelDateTime()), e.isVoided()))
                 .sorted(this::compareEncounters)
                 .collect(Collectors.groupingBy(ProgramEncounter::getProgramEnrolment, LinkedHashMap::new,
                         Collectors.groupingBy(pe -> pe.getEncounterType().getUuid(), LinkedHashMap::new, Collectors.toList())));
@@ -94,9 +95,6 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
     }
 
     private void initGeneralEncounters(LongitudinalExportItemRow exportItemRow, Individual individual) {
-        // filter Encounter by exportOutput
-        Map<String, ExportEntityType> generalEncountersToFiltersMap = Optional.ofNullable(exportOutput.getEncounters()).orElse(new ArrayList<>())
-                .stream().collect(Collectors.toMap(ExportEntityType::getUuid, Function.identity()));
         Map<String, List<Encounter>> generalEncounters = Optional.ofNullable(individual.getEncounters()).orElse(new HashSet<>())
                 .stream()
                 .filter(e -> e.getEncounterDateTime() != null || e.getCancelDateTime() != null)
@@ -116,8 +114,27 @@ public class ExportV2Processor implements ItemProcessor<Object, LongitudinalExpo
         return (entity.getFilters().includeVoided() || !isVoided) && (entity.getFilters().getDate().apply(entityDateTime));
     }
 
+    /**
+     * The lookup tables of the filters are built here once, instead of for every subject processed.
+     */
     public void setExportOutput(ExportOutput exportOutput) {
         this.exportOutput = exportOutput;
+        // filter Encounter by exportOutput
+        generalEncountersToFiltersMap = toFiltersMap(Optional.ofNullable(exportOutput.getEncounters()).orElse(new ArrayList<>()).stream());
+        // filter ProgramEnrolment by exportOutput
+        programsToFiltersMap = toFiltersMap(Optional.ofNullable(exportOutput.getPrograms()).orElse(new ArrayList<>()).stream());
+        // filter ProgramEncounters by exportOutput
+        programEncountersToFiltersMap = toFiltersMap(Optional.ofNullable(exportOutput.getPrograms()).orElse(new ArrayList<>())
+                .stream().flatMap(p -> p.getEncounters().stream()));
+        // filter GroupSubject by exportOutput
+        groupsToFiltersMap = toFiltersMap(Optional.ofNullable(exportOutput.getGroups()).orElse(new ArrayList<>()).stream());
+        // filter GroupSubject encounters by exportOutput
+        groupsEncountersToFiltersMap = toFiltersMap(Optional.ofNullable(exportOutput.getGroups()).orElse(new ArrayList<>())
+                .stream().flatMap(p -> p.getEncounters().stream()));
+    }
+
+    private static Map<String, ExportEntityType> toFiltersMap(Stream<? extends ExportEntityType> exportEntityTypes) {
+        return exportEntityTypes.collect(Collectors.toMap(ExportEntityType::getUuid, exportEntityType -> exportEntityType));
     }
 
     private int compareEncounters(AbstractEncounter enc1, AbstractEncounter enc2) {
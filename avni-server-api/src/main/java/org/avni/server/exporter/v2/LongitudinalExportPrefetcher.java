@@ -0,0 +1,50 @@
+package org.avni.server.exporter.v2;
+
+import org.avni.server.dao.IndividualRepository;
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.domain.CHSBaseEntity;
+import org.avni.server.domain.Individual;
+import org.avni.server.web.external.request.export.ExportOutput;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Loads what {@link ExportV2Processor} and {@link ExportV2CSVFieldExtractor} walk for a chunk of subjects, with one
+ * fetch join query per association instead of lazy loads per subject. The fetched collections are attached to the
+ * subjects already in the persistence context, so the processor reads them without further queries. All of it is
+ * loaded read only, so hibernate keeps no snapshots of it for dirty checking.
+ */
+@Component
+public class LongitudinalExportPrefetcher {
+    private final IndividualRepository individualRepository;
+    private final ProgramEnrolmentRepository programEnrolmentRepository;
+
+    public LongitudinalExportPrefetcher(IndividualRepository individualRepository, ProgramEnrolmentRepository programEnrolmentRepository) {
+        this.individualRepository = individualRepository;
+        this.programEnrolmentRepository = programEnrolmentRepository;
+    }
+
+    /**
+     * Associations that the export output does not ask for are not loaded at all.
+     */
+    public void prefetch(List<Individual> individuals, ExportOutput exportOutput) {
+        if (individuals.isEmpty()) return;
+        List<Long> ids = individuals.stream().map(CHSBaseEntity::getId).collect(Collectors.toList());
+        individualRepository.findWithEncountersForExport(ids);
+        if (isNotEmpty(exportOutput.getPrograms())) {
+            individualRepository.findWithProgramEnrolmentsForExport(ids);
+            programEnrolmentRepository.findWithProgramEncountersForExport(ids);
+        }
+        if (isNotEmpty(exportOutput.getGroups())) {
+            individualRepository.findWithMemberGroupSubjectsForExport(ids);
+            individualRepository.findGroupSubjectsWithEncountersForExport(ids);
+            individualRepository.findGroupSubjectsWithMembersForExport(ids);
+        }
+    }
+
+    private static boolean isNotEmpty(List<?> list) {
+        return list != null && !list.isEmpty();
+    }
+}
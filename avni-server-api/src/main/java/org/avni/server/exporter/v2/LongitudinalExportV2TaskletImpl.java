@@ -1,24 +1,44 @@
 package org.avni.server.exporter.v2;
 
+import org.avni.server.domain.Individual;
+import org.avni.server.exporter.CompressedCsvWriter;
 import org.avni.server.exporter.LongitudinalExportTasklet;
+import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.service.ExportS3Service;
+import org.avni.server.service.ObjectUploadOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.scope.context.ChunkContext;
-import org.springframework.batch.item.ExecutionContext;
-import org.springframework.batch.item.file.FlatFileItemWriter;
-import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
 import org.springframework.batch.repeat.RepeatStatus;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+/**
+ * Exports the subjects of each partition (an id range) concurrently. Every partition is read in its own read only
+ * transaction, and so with its own entity manager, and written to its own compressed file. Once all of them are done,
+ * the partition files are appended in partition order to the export, which is compressed and uploaded as it is written.
+ * The step execution is registered on the threads of the partitions, as the processor and field extractor are step
+ * scoped.
+ * <p>
+ * Subjects are processed in chunks, whose encounters, enrolments and groups are prefetched together before the chunk is
+ * processed, and which are dropped from the entity manager once written.
+ */
 public class LongitudinalExportV2TaskletImpl implements LongitudinalExportTasklet {
 
     private static final Logger logger = LoggerFactory.getLogger(LongitudinalExportV2TaskletImpl.class);
@@ -26,88 +46,145 @@ public class LongitudinalExportV2TaskletImpl implements LongitudinalExportTaskle
     private final EntityManager entityManager;
     private final ExportV2CSVFieldExtractor exportV2CSVFieldExtractor;
     private final ExportV2Processor exportV2Processor;
+    private final LongitudinalExportPrefetcher exportPrefetcher;
     private final ExportS3Service exportS3Service;
     private final String jobUuid;
-    private final Iterator iterator;
-    private final Stream stream;
-
-    private int read;
-    private FlatFileItemWriter<LongitudinalExportItemRow> writer;
-
+    private final List<Supplier<Stream>> partitions;
+    private final AsyncTaskExecutor partitionTaskExecutor;
+    private final TransactionTemplate readTransactionTemplate;
+    private final Runnable partitionAuthenticator;
 
     public LongitudinalExportV2TaskletImpl(int cacheClearSize, EntityManager entityManager, ExportV2CSVFieldExtractor exportV2CSVFieldExtractor,
-                                           ExportV2Processor exportV2Processor, ExportS3Service exportS3Service, String jobUuid, Stream stream) {
+                                           ExportV2Processor exportV2Processor, LongitudinalExportPrefetcher exportPrefetcher,
+                                           ExportS3Service exportS3Service, String jobUuid,
+                                           List<Supplier<Stream>> partitions, AsyncTaskExecutor partitionTaskExecutor,
+                                           TransactionTemplate readTransactionTemplate, Runnable partitionAuthenticator) {
         this.cacheClearSize = cacheClearSize;
         this.entityManager = entityManager;
         this.exportV2CSVFieldExtractor = exportV2CSVFieldExtractor;
         this.exportV2Processor = exportV2Processor;
+        this.exportPrefetcher = exportPrefetcher;
         this.exportS3Service = exportS3Service;
         this.jobUuid = jobUuid;
-        this.stream = stream;
+        this.partitions = partitions;
+        this.partitionTaskExecutor = partitionTaskExecutor;
+        this.readTransactionTemplate = readTransactionTemplate;
+        this.partitionAuthenticator = partitionAuthenticator;
         this.exportV2Processor.setExportOutput(exportV2CSVFieldExtractor.getExportOutput());
-        iterator = stream.iterator();
     }
 
     @Override
     public RepeatStatus execute(StepContribution stepContribution, ChunkContext chunkContext) throws Exception {
-        createFileWriter(jobUuid, chunkContext.getStepContext().getStepExecution().getExecutionContext());
-        List<LongitudinalExportItemRow> itemRows = new ArrayList<>();
-        while (true) {
-            if (!iterator.hasNext()) {
-                logger.info("All records processed, writing last set to file");
-                writeToFile(itemRows);
-                break;
+        logger.info(String.format("Exporting %d partitions", partitions.size()));
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+        List<Future<?>> partitionResults = new ArrayList<>();
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            int partitionNumber = partition;
+            partitionResults.add(partitionTaskExecutor.submit(() -> {
+                StepSynchronizationManager.register(stepExecution);
+                try {
+                    exportPartition(partitionNumber);
+                } finally {
+                    StepSynchronizationManager.close();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> partitionResult : partitionResults) {
+                partitionResult.get();
             }
-            read++;
-            Object individual = iterator.next();
-            LongitudinalExportItemRow itemRow = exportV2Processor.process(individual);
-            itemRows.add(itemRow);
+        } catch (ExecutionException e) {
+            partitionResults.forEach(partitionResult -> partitionResult.cancel(true));
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        mergePartitionFiles();
+        logger.info("Completed reading all records");
+        return RepeatStatus.FINISHED;
+    }
+
+    private void exportPartition(int partition) throws Exception {
+        partitionAuthenticator.run();
+        File partitionFile = exportS3Service.getLocalExportFile(jobUuid, partition);
+        CompressedCsvWriter<LongitudinalExportItemRow> writer = createFileWriter(partitionFile);
+        try {
+            readTransactionTemplate.execute(status -> {
+                try (Stream stream = partitions.get(partition).get()) {
+                    writePartition(partition, stream.iterator(), writer);
+                } catch (Exception e) {
+                    throw new RuntimeException(String.format("Export of partition %d failed", partition), e);
+                }
+                return null;
+            });
+        } finally {
+            writer.close();
+            UserContextHolder.clear();
+        }
+    }
 
-            if (cacheClearSize == read) {
-                logger.info(String.format("Read %d records which is equal to cache clear size of %d. Clearing entity manager", read, cacheClearSize));
-                writeToFile(itemRows);
-                itemRows.clear();
-                entityManager.flush();
-                entityManager.clear();
-                read = 0;
+    private void writePartition(int partition, Iterator iterator, CompressedCsvWriter<LongitudinalExportItemRow> writer) throws Exception {
+        List<Individual> individuals = new ArrayList<>();
+        while (iterator.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedException(String.format("Export of partition %d cancelled", partition));
+            individuals.add((Individual) iterator.next());
+            if (individuals.size() == cacheClearSize) {
+                logger.info(String.format("Partition %d read %d records which is equal to cache clear size. Clearing entity manager", partition, cacheClearSize));
+                writeChunk(individuals, writer);
             }
         }
+        logger.info(String.format("All records of partition %d processed, writing last set to file", partition));
+        writeChunk(individuals, writer);
+    }
 
-        logger.info("Completed reading all records");
-        return RepeatStatus.FINISHED;
+    private void writeChunk(List<Individual> individuals, CompressedCsvWriter<LongitudinalExportItemRow> writer) throws Exception {
+        exportPrefetcher.prefetch(individuals, exportV2CSVFieldExtractor.getExportOutput());
+        List<LongitudinalExportItemRow> itemRows = new ArrayList<>();
+        for (Individual individual : individuals) {
+            itemRows.add(exportV2Processor.process(individual));
+        }
+        writeToFile(writer, itemRows);
+        individuals.clear();
+        entityManager.clear();
     }
 
-    private void createFileWriter(String uuid, ExecutionContext executionContext) {
-        writer = new FlatFileItemWriter<>();
-        File outputFile = exportS3Service.getLocalExportFile(uuid);
-        writer.setResource(new FileSystemResource(outputFile));
-        DelimitedLineAggregator<LongitudinalExportItemRow> delimitedLineAggregator = new DelimitedLineAggregator<>();
-        delimitedLineAggregator.setDelimiter(",");
-        delimitedLineAggregator.setFieldExtractor(exportV2CSVFieldExtractor);
-        writer.setLineAggregator(delimitedLineAggregator);
-        writer.setHeaderCallback(exportV2CSVFieldExtractor);
-        writer.open(executionContext);
+    private CompressedCsvWriter<LongitudinalExportItemRow> createFileWriter(File outputFile) throws IOException {
+        CompressedCsvWriter<LongitudinalExportItemRow> writer = new CompressedCsvWriter<>(new FileOutputStream(outputFile), exportV2CSVFieldExtractor);
         logger.info(String.format("Writing to file:%s", outputFile.getAbsolutePath()));
+        return writer;
     }
 
-    private void writeToFile(List<LongitudinalExportItemRow> rows) throws Exception {
+    private void writeToFile(CompressedCsvWriter<LongitudinalExportItemRow> writer, List<LongitudinalExportItemRow> rows) throws Exception {
         if (rows.size() == 0) return;
         writer.write(rows);
     }
 
-    @Override
-    public void clean() {
-        logger.info("Closing the result set stream");
+    private void mergePartitionFiles() throws IOException {
+        ObjectUploadOutputStream upload = exportS3Service.openExportUpload(jobUuid);
+        logger.info(String.format("Writing to:%s", upload.getObjectKey()));
         try {
+            CompressedCsvWriter<LongitudinalExportItemRow> writer = new CompressedCsvWriter<>(upload, exportV2CSVFieldExtractor);
+            writer.writeHeader(exportV2CSVFieldExtractor);
+            for (int partition = 0; partition < partitions.size(); partition++) {
+                File partitionFile = exportS3Service.getLocalExportFile(jobUuid, partition);
+                writer.append(partitionFile);
+                Files.delete(partitionFile.toPath());
+            }
             writer.close();
-        } catch (Exception e) {
-            logger.error("Error closing writer", e);
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
         }
+    }
 
-        try {
-            stream.close();
-        } catch (Exception e) {
-            logger.error("Error closing data stream", e);
+    @Override
+    public void clean() {
+        logger.info("Removing partition files");
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            try {
+                Files.deleteIfExists(exportS3Service.getLocalExportFile(jobUuid, partition).toPath());
+            } catch (Exception e) {
+                logger.error("Error removing partition file", e);
+            }
         }
     }
 }
@@ -0,0 +1,45 @@
+package org.avni.server.exporter.v2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous, inclusive range of subject ids, exported as one partition of a longitudinal export.
+ */
+public class SubjectIdRange {
+    private final long fromId;
+    private final long toId;
+
+    public SubjectIdRange(long fromId, long toId) {
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+
+    /**
+     * Splits [minId, maxId] into at most the given number of ranges of about equal width, in ascending order. There are
+     * no ranges when there are no subjects (minId or maxId is null).
+     */
+    public static List<SubjectIdRange> split(Long minId, Long maxId, int partitions) {
+        List<SubjectIdRange> ranges = new ArrayList<>();
+        if (minId == null || maxId == null) return ranges;
+        long width = maxId - minId + 1;
+        long rangeWidth = (width + Math.max(1, partitions) - 1) / Math.max(1, partitions);
+        for (long fromId = minId; fromId <= maxId; fromId += rangeWidth) {
+            ranges.add(new SubjectIdRange(fromId, Math.min(maxId, fromId + rangeWidth - 1)));
+        }
+        return ranges;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SubjectIdRange{%d-%d}", fromId, toId);
+    }
+}
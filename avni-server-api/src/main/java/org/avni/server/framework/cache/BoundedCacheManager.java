@@ -0,0 +1,76 @@
+package org.avni.server.framework.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every cache is bounded and expires its entries. Size is limited by number of entries, or by weight for caches which
+ * have a weigher registered. Limits default to avni.cache.max.entries, avni.cache.max.weight and avni.cache.ttl.seconds
+ * and can be overridden per cache with avni.cache.[cacheName].max.entries etc.
+ */
+public class BoundedCacheManager implements CacheManager {
+    private final Environment environment;
+    private final long defaultMaxEntries;
+    private final long defaultTimeToLiveInSeconds;
+    private final long defaultMaxWeight;
+    private final boolean allowNullValues;
+    private final Map<String, Weigher<Object, Object>> weighers = new HashMap<>();
+    private final ConcurrentMap<String, GuavaBackedCache> caches = new ConcurrentHashMap<>();
+
+    public BoundedCacheManager(Environment environment, long defaultMaxEntries, long defaultTimeToLiveInSeconds, long defaultMaxWeight, boolean allowNullValues) {
+        this.environment = environment;
+        this.defaultMaxEntries = defaultMaxEntries;
+        this.defaultTimeToLiveInSeconds = defaultTimeToLiveInSeconds;
+        this.defaultMaxWeight = defaultMaxWeight;
+        this.allowNullValues = allowNullValues;
+    }
+
+    public BoundedCacheManager withWeigher(String cacheName, Weigher<Object, Object> weigher) {
+        weighers.put(cacheName, weigher);
+        return this;
+    }
+
+    public BoundedCacheManager withCaches(String... cacheNames) {
+        Arrays.stream(cacheNames).forEach(this::getCache);
+        return this;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    public Collection<GuavaBackedCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    private GuavaBackedCache createCache(String name) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .expireAfterWrite(getProperty(name, "ttl.seconds", defaultTimeToLiveInSeconds), TimeUnit.SECONDS)
+                .recordStats();
+        Weigher<Object, Object> weigher = weighers.get(name);
+        if (weigher != null) {
+            builder.maximumWeight(getProperty(name, "max.weight", defaultMaxWeight)).weigher(weigher);
+        } else {
+            builder.maximumSize(getProperty(name, "max.entries", defaultMaxEntries));
+        }
+        return new GuavaBackedCache(name, builder.build(), allowNullValues);
+    }
+
+    private long getProperty(String cacheName, String property, long defaultValue) {
+        return environment.getProperty(String.format("avni.cache.%s.%s", cacheName, property), Long.class, defaultValue);
+    }
+}
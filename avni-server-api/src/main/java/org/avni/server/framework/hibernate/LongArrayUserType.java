@@ -0,0 +1,59 @@
+package org.avni.server.framework.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+import java.sql.*;
+import java.util.Arrays;
+
+/**
+ * Binds a Long[] as a single bigint[] parameter, so that a set of ids can be matched with = any(?) instead of one bind
+ * value per id.
+ */
+public class LongArrayUserType extends AbstractUserType implements UserType {
+
+    @Override
+    public int[] sqlTypes() {
+        return new int[]{Types.ARRAY};
+    }
+
+    @Override
+    public Class returnedClass() {
+        return Long[].class;
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor session, Object owner)
+            throws HibernateException, SQLException {
+        Array array = rs.getArray(names[0]);
+        return array != null ? array.getArray() : null;
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor session)
+            throws HibernateException, SQLException {
+        if (value != null && st != null) {
+            Array array = session.connection().createArrayOf("bigint", (Long[]) value);
+            st.setArray(index, array);
+        } else {
+            st.setNull(index, sqlTypes()[0]);
+        }
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) throws HibernateException {
+        if (x == y) {
+            return true;
+        }
+        if (!(x instanceof Long[]) || !(y instanceof Long[])) {
+            return false;
+        }
+        return Arrays.equals((Long[]) x, (Long[]) y);
+    }
+
+    @Override
+    public int hashCode(Object obj) throws HibernateException {
+        return Arrays.hashCode((Long[]) obj);
+    }
+}
@@ -1,6 +1,11 @@
 package org.avni.server.framework.postgres;
 
+import org.avni.server.framework.hibernate.LongArrayUserType;
+import org.hibernate.boot.model.TypeContributions;
 import org.hibernate.dialect.PostgreSQL94Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.StandardBasicTypes;
 
 import java.sql.Types;
 
@@ -8,10 +13,18 @@ public class CHSPostgreSQL94Dialect extends PostgreSQL94Dialect {
 
     private static final String JSONB = "jsonb";
     private static final String JSON = "json";
+    public static final String IN_BIGINT_ARRAY = "in_bigint_array";
 
     public CHSPostgreSQL94Dialect() {
         super();
         this.registerColumnType(Types.JAVA_OBJECT, JSONB);
         this.registerColumnType(Types.JAVA_OBJECT, JSON);
+        this.registerFunction(IN_BIGINT_ARRAY, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN, "(?1 = any(?2))"));
+    }
+
+    @Override
+    public void contributeTypes(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        super.contributeTypes(typeContributions, serviceRegistry);
+        typeContributions.contributeType(new LongArrayUserType(), new String[]{Long[].class.getName()});
     }
 }
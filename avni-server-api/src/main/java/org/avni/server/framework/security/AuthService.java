@@ -4,7 +4,6 @@ import com.auth0.jwk.SigningKeyNotFoundException;
 import org.avni.server.dao.AccountAdminRepository;
 import org.avni.server.dao.OrganisationRepository;
 import org.avni.server.dao.UserRepository;
-import org.avni.server.domain.AccountAdmin;
 import org.avni.server.domain.Organisation;
 import org.avni.server.domain.User;
 import org.avni.server.domain.UserContext;
@@ -19,6 +18,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,10 +29,12 @@ public class AuthService {
     private final OrganisationRepository organisationRepository;
     private final AccountAdminRepository accountAdminRepository;
     private final IdpServiceFactory idpServiceFactory;
+    private final UserContextCache userContextCache;
 
     @Autowired
-    public AuthService(UserRepository userRepository, OrganisationRepository organisationRepository, AccountAdminRepository accountAdminRepository, IdpServiceFactory idpServiceFactory) {
+    public AuthService(UserRepository userRepository, OrganisationRepository organisationRepository, AccountAdminRepository accountAdminRepository, IdpServiceFactory idpServiceFactory, UserContextCache userContextCache) {
         this.idpServiceFactory = idpServiceFactory;
+        this.userContextCache = userContextCache;
         this.userRepository = userRepository;
         this.organisationRepository = organisationRepository;
         this.accountAdminRepository = accountAdminRepository;
@@ -40,7 +42,7 @@ public class AuthService {
 
     public UserContext authenticateByUserName(String username, String organisationUUID) {
         becomeSuperUser();
-        return changeUser(userRepository.findByUsername(username), organisationUUID);
+        return changeUser(userContextCache.getUserId(username), () -> userRepository.findByUsername(username), organisationUUID);
     }
 
     public UserContext authenticateByToken(String authToken, String organisationUUID) {
@@ -48,7 +50,8 @@ public class AuthService {
         IAMAuthService iamAuthService = idpServiceFactory.getAuthService();
         UserContext userContext;
         try {
-            userContext = changeUser(iamAuthService.getUserFromToken(authToken), organisationUUID);
+            Long userId = iamAuthService.getUserIdFromToken(authToken);
+            userContext = changeUser(userId, () -> userId == null ? null : userRepository.findOne(userId), organisationUUID);
         } catch (SigningKeyNotFoundException signingKeyNotFoundException) {
             throw new AvniNoUserSessionException(signingKeyNotFoundException);
         }
@@ -58,29 +61,15 @@ public class AuthService {
 
     public UserContext authenticateByUserId(Long userId, String organisationUUID) {
         becomeSuperUser();
-        Optional<User> user = userRepository.findById(userId);
-        if (user.isPresent()) {
-            return changeUser(user.get(), organisationUUID);
-        }
-        throw new RuntimeException(String.format("Not found: User{id='%s'}", userId));
+        return changeUser(userId, () -> userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException(String.format("Not found: User{id='%s'}", userId))), organisationUUID);
     }
 
-    private Authentication attemptAuthentication(User user, String organisationUUID) {
+    private Authentication attemptAuthentication(UserContextSnapshot snapshot, String organisationUUID) {
         UserContext userContext = new UserContext();
         UserContextHolder.create(userContext);
-        if (user == null) {
-            return null;
-        }
-        List<AccountAdmin> accountAdmins = accountAdminRepository.findByUser_Id(user.getId());
-        user.setAdmin(accountAdmins.size() > 0);
-        Organisation organisation = null;
-        if (organisationUUID != null) {
-            organisation = organisationRepository.findByUuid(organisationUUID);
-        } else if (user.getOrganisationId() != null) {
-            organisation = organisationRepository.findOne(user.getOrganisationId());
-        }
-        userContext.setUser(user);
-        userContext.setOrganisation(organisation);
+        userContext.setUser(snapshot.newUser());
+        userContext.setOrganisation(snapshot.newOrganisation());
         userContext.setOrganisationUUID(organisationUUID);
 
         List<SimpleGrantedAuthority> authorities = ALL_AUTHORITIES.stream()
@@ -91,11 +80,34 @@ public class AuthService {
         return createTempAuth(authorities);
     }
 
-    private UserContext changeUser(User user, String organisationUUID) {
-        if (user == null) {
-            throw new AvniNoUserSessionException("No user, or not logged in");
+    private UserContextSnapshot resolve(User user, String organisationUUID) {
+        boolean admin = accountAdminRepository.findByUser_Id(user.getId()).size() > 0;
+        UserContextSnapshot snapshot = new UserContextSnapshot(user, admin, findOrganisation(user, organisationUUID));
+        if (user.getId() != null) {
+            userContextCache.put(organisationUUID, snapshot);
+        }
+        return snapshot;
+    }
+
+    private Organisation findOrganisation(User user, String organisationUUID) {
+        if (organisationUUID != null) {
+            return organisationRepository.findByUuid(organisationUUID);
+        } else if (user.getOrganisationId() != null) {
+            return organisationRepository.findOne(user.getOrganisationId());
+        }
+        return null;
+    }
+
+    private UserContext changeUser(Long userId, Supplier<User> userLoader, String organisationUUID) {
+        UserContextSnapshot snapshot = userId == null ? null : userContextCache.get(userId, organisationUUID);
+        if (snapshot == null) {
+            User user = userLoader.get();
+            if (user == null) {
+                throw new AvniNoUserSessionException("No user, or not logged in");
+            }
+            snapshot = resolve(user, organisationUUID);
         }
-        SecurityContextHolder.getContext().setAuthentication(attemptAuthentication(user, organisationUUID));
+        SecurityContextHolder.getContext().setAuthentication(attemptAuthentication(snapshot, organisationUUID));
         return UserContextHolder.getUserContext();
     }
 
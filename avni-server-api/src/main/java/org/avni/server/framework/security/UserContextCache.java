@@ -0,0 +1,73 @@
+package org.avni.server.framework.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per node cache of what AuthService resolves for a user on every protected request - the user, the admin flag and the
+ * organisation - so that authenticating a known user needs no query. Entries are immutable snapshots rather than
+ * entities, since they are shared across threads and sessions. They are looked up by user id, or by username through
+ * an index of the user ids already seen. Entries are dropped by UserContextCacheInvalidator when users, account admins
+ * or organisations change on this node, and expire on their own so that changes made on other nodes are picked up.
+ */
+@Component
+public class UserContextCache {
+    private static final int MAX_ENTRIES = 10000;
+    private static final long TTL_SECONDS = 300;
+
+    private final Cache<String, UserContextSnapshot> snapshots = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    private final Cache<String, Long> userIdsByUsername = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    public UserContextSnapshot get(Long userId, String organisationUUID) {
+        return snapshots.getIfPresent(key(userId, organisationUUID));
+    }
+
+    public Long getUserId(String username) {
+        return username == null ? null : userIdsByUsername.getIfPresent(username);
+    }
+
+    public void put(String organisationUUID, UserContextSnapshot snapshot) {
+        snapshots.put(key(snapshot.getUserId(), organisationUUID), snapshot);
+        if (snapshot.getUsername() != null && snapshot.getUserId() != null) {
+            userIdsByUsername.put(snapshot.getUsername(), snapshot.getUserId());
+        }
+    }
+
+    public void invalidateUser(Long userId) {
+        String prefix = userId + "|";
+        snapshots.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        userIdsByUsername.asMap().values().removeIf(cachedUserId -> cachedUserId.equals(userId));
+    }
+
+    public void invalidateOrganisation(Long organisationId) {
+        snapshots.asMap().values().removeIf(snapshot -> organisationId == null || organisationId.equals(snapshot.getOrganisationId()));
+    }
+
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+        userIdsByUsername.invalidateAll();
+    }
+
+    public long size() {
+        return snapshots.size();
+    }
+
+    public CacheStats getStats() {
+        return snapshots.stats();
+    }
+
+    private static String key(Long userId, String organisationUUID) {
+        return userId + "|" + organisationUUID;
+    }
+}
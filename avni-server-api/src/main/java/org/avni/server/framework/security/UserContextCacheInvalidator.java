@@ -0,0 +1,29 @@
+package org.avni.server.framework.security;
+
+import org.avni.server.domain.AccountAdmin;
+import org.avni.server.domain.Organisation;
+import org.avni.server.domain.User;
+import org.avni.server.framework.ApplicationContextProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class UserContextCacheInvalidator {
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (ApplicationContextProvider.getContext() == null) return;
+        UserContextCache userContextCache = ApplicationContextProvider.getContext().getBean(UserContextCache.class);
+        if (entity instanceof User) {
+            userContextCache.invalidateUser(((User) entity).getId());
+        } else if (entity instanceof AccountAdmin && ((AccountAdmin) entity).getUser() != null) {
+            userContextCache.invalidateUser(((AccountAdmin) entity).getUser().getId());
+        } else if (entity instanceof Organisation) {
+            userContextCache.invalidateOrganisation(((Organisation) entity).getId());
+        } else {
+            userContextCache.invalidateAll();
+        }
+    }
+}
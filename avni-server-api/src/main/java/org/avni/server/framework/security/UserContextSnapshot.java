@@ -0,0 +1,159 @@
+package org.avni.server.framework.security;
+
+import org.avni.server.domain.*;
+import org.joda.time.DateTime;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable copy of the user and organisation fields a UserContext is built from. Entries of UserContextCache are
+ * shared across threads, so they never hold entities; every request gets its own User and Organisation instances
+ * rebuilt from the snapshot. Associations are rebuilt as references holding only what the request paths read off them
+ * (the ids, and the uuid and name of the catchment), so they can be bound as query parameters but are not loaded.
+ */
+public class UserContextSnapshot {
+    private final Long userId;
+    private final String username;
+    private final String userUuid;
+    private final String name;
+    private final Long userOrganisationId;
+    private final String email;
+    private final String phoneNumber;
+    private final boolean disabledInCognito;
+    private final boolean userVoided;
+    private final boolean admin;
+    private final OperatingIndividualScope operatingIndividualScope;
+    private final Map<String, Object> settings;
+    private final Map<String, Object> syncSettings;
+    private final Long catchmentId;
+    private final String catchmentUuid;
+    private final String catchmentName;
+    private final Long createdById;
+    private final DateTime createdDateTime;
+    private final Long lastModifiedById;
+    private final DateTime lastModifiedDateTime;
+
+    private final Long organisationId;
+    private final String organisationName;
+    private final String organisationUuid;
+    private final String dbUser;
+    private final String schemaName;
+    private final String mediaDirectory;
+    private final Long parentOrganisationId;
+    private final String usernameSuffix;
+    private final boolean organisationVoided;
+    private final Long accountId;
+
+    public UserContextSnapshot(User user, boolean admin, Organisation organisation) {
+        this.userId = user.getId();
+        this.username = user.getUsername();
+        this.userUuid = user.getUuid();
+        this.name = user.getName();
+        this.userOrganisationId = user.getOrganisationId();
+        this.email = user.getEmail();
+        this.phoneNumber = user.getPhoneNumber();
+        this.disabledInCognito = user.isDisabledInCognito();
+        this.userVoided = Boolean.TRUE.equals(user.isVoided());
+        this.admin = admin;
+        this.operatingIndividualScope = user.getOperatingIndividualScope();
+        this.settings = copy(user.getSettings());
+        this.syncSettings = copy(user.getSyncSettings());
+        Catchment catchment = user.getCatchment();
+        this.catchmentId = catchment == null ? null : catchment.getId();
+        this.catchmentUuid = catchment == null ? null : catchment.getUuid();
+        this.catchmentName = catchment == null ? null : catchment.getName();
+        this.createdById = user.getCreatedBy() == null ? null : user.getCreatedBy().getId();
+        this.createdDateTime = user.getCreatedDateTime();
+        this.lastModifiedById = user.getLastModifiedBy() == null ? null : user.getLastModifiedBy().getId();
+        this.lastModifiedDateTime = user.getLastModifiedDateTime();
+
+        this.organisationId = organisation == null ? null : organisation.getId();
+        this.organisationName = organisation == null ? null : organisation.getName();
+        this.organisationUuid = organisation == null ? null : organisation.getUuid();
+        this.dbUser = organisation == null ? null : organisation.getDbUser();
+        this.schemaName = organisation == null ? null : organisation.getSchemaName();
+        this.mediaDirectory = organisation == null ? null : organisation.getMediaDirectory();
+        this.parentOrganisationId = organisation == null ? null : organisation.getParentOrganisationId();
+        this.usernameSuffix = organisation == null ? null : organisation.getUsernameSuffix();
+        this.organisationVoided = organisation != null && organisation.isVoided();
+        this.accountId = organisation == null || organisation.getAccount() == null ? null : organisation.getAccount().getId();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getOrganisationId() {
+        return organisationId;
+    }
+
+    public User newUser() {
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setUuid(userUuid);
+        user.setName(name);
+        user.setOrganisationId(userOrganisationId);
+        user.setEmail(email);
+        user.setPhoneNumber(phoneNumber);
+        user.setDisabledInCognito(disabledInCognito);
+        user.setVoided(userVoided);
+        user.setAdmin(admin);
+        user.setOperatingIndividualScope(operatingIndividualScope);
+        user.setSettings(settings == null ? null : new JsonObject(settings));
+        user.setSyncSettings(syncSettings == null ? null : new JsonObject(syncSettings));
+        if (catchmentId != null) {
+            Catchment catchment = new Catchment();
+            catchment.setId(catchmentId);
+            catchment.setUuid(catchmentUuid);
+            catchment.setName(catchmentName);
+            user.setCatchment(catchment);
+        }
+        user.setCreatedBy(userReference(createdById));
+        user.setCreatedDateTime(createdDateTime);
+        user.setLastModifiedBy(userReference(lastModifiedById));
+        user.setLastModifiedDateTime(lastModifiedDateTime);
+        return user;
+    }
+
+    public Organisation newOrganisation() {
+        if (organisationId == null) {
+            return null;
+        }
+        Organisation organisation = new Organisation();
+        organisation.setId(organisationId);
+        organisation.setName(organisationName);
+        organisation.setUuid(organisationUuid);
+        organisation.setDbUser(dbUser);
+        organisation.setSchemaName(schemaName);
+        organisation.setMediaDirectory(mediaDirectory);
+        organisation.setParentOrganisationId(parentOrganisationId);
+        organisation.setUsernameSuffix(usernameSuffix);
+        organisation.setVoided(organisationVoided);
+        if (accountId != null) {
+            Account account = new Account();
+            account.setId(accountId);
+            organisation.setAccount(account);
+        }
+        return organisation;
+    }
+
+    private static User userReference(Long id) {
+        if (id == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static Map<String, Object> copy(JsonObject jsonObject) {
+        return jsonObject == null ? null : Collections.unmodifiableMap(new HashMap<>(jsonObject));
+    }
+}
@@ -0,0 +1,183 @@
+package org.avni.server.importer.batch;
+
+import org.avni.server.dao.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static java.lang.String.format;
+
+/**
+ * Runs background jobs on a fixed number of worker slots. Each organisation can occupy at most a configured number of
+ * slots, and waiting jobs are picked round-robin across organisations, so a long running job of one organisation does
+ * not hold up the others. Jobs of the same organisation run in the order they were submitted.
+ */
+@Component
+public class BulkJobQueue {
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobQueue.class);
+
+    private final int workerSlots;
+    private final int maxRunningPerOrganisation;
+    private final int capacity;
+    private final Executor workers;
+
+    private final LinkedHashMap<String, Deque<QueuedJob>> queuedByOrganisation = new LinkedHashMap<>();
+    private final Map<String, Integer> runningByOrganisation = new HashMap<>();
+    /**
+     * When each organisation with waiting or running jobs was last given a slot. The least recently served one goes next.
+     */
+    private final Map<String, Long> lastServedByOrganisation = new HashMap<>();
+    private long serveCount;
+    private int queued;
+    private int running;
+
+    @Autowired
+    public BulkJobQueue(@Value("${avni.job.worker.slots}") int workerSlots,
+                        @Value("${avni.job.max.running.per.organisation}") int maxRunningPerOrganisation,
+                        @Value("${avni.job.queue.capacity}") int capacity) {
+        this(workerSlots, maxRunningPerOrganisation, capacity, createWorkers(workerSlots));
+    }
+
+    BulkJobQueue(int workerSlots, int maxRunningPerOrganisation, int capacity, Executor workers) {
+        this.workerSlots = Math.max(1, workerSlots);
+        this.maxRunningPerOrganisation = Math.max(1, maxRunningPerOrganisation);
+        this.capacity = capacity;
+        this.workers = workers;
+    }
+
+    private static ThreadPoolTaskExecutor createWorkers(int workerSlots) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, workerSlots));
+        executor.setMaxPoolSize(Math.max(1, workerSlots));
+        executor.setThreadNamePrefix("bulk-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    public synchronized void submit(String organisationUUID, String jobUUID, Runnable task) {
+        if (queued >= capacity) {
+            throw new TaskRejectedException(format("Job queue is full. %d jobs are waiting", queued));
+        }
+        String organisation = organisationUUID == null ? "" : organisationUUID;
+        queuedByOrganisation.computeIfAbsent(organisation, key -> new ArrayDeque<>()).addLast(new QueuedJob(jobUUID, task));
+        queued++;
+        logger.info(format("Job{uuid='%s'} queued for organisation '%s'. %d waiting, %d running", jobUUID, organisation, queued, running));
+        dispatch();
+    }
+
+    /**
+     * Adds the queue position and wait time of jobs that have not started yet, along with the overall queue depth and
+     * number of running jobs.
+     */
+    public synchronized void describe(JobStatus jobStatus) {
+        jobStatus.setQueueDepth(queued);
+        jobStatus.setRunningJobs(running);
+        for (Deque<QueuedJob> organisationQueue : queuedByOrganisation.values()) {
+            int position = 1;
+            for (QueuedJob queuedJob : organisationQueue) {
+                if (queuedJob.jobUUID != null && queuedJob.jobUUID.equals(jobStatus.getUuid())) {
+                    jobStatus.setQueuePosition(position);
+                    jobStatus.setWaitTimeMillis(System.currentTimeMillis() - queuedJob.queuedAt);
+                    return;
+                }
+                position++;
+            }
+        }
+    }
+
+    public synchronized int getQueueDepth() {
+        return queued;
+    }
+
+    public synchronized int getRunningJobs() {
+        return running;
+    }
+
+    private void dispatch() {
+        while (running < workerSlots) {
+            String organisation = nextOrganisationToServe();
+            if (organisation == null) return;
+
+            Deque<QueuedJob> organisationQueue = queuedByOrganisation.get(organisation);
+            QueuedJob job = organisationQueue.pollFirst();
+            if (organisationQueue.isEmpty()) {
+                queuedByOrganisation.remove(organisation);
+            }
+            queued--;
+            running++;
+            runningByOrganisation.merge(organisation, 1, Integer::sum);
+            lastServedByOrganisation.put(organisation, ++serveCount);
+            start(organisation, job);
+        }
+    }
+
+    private String nextOrganisationToServe() {
+        String next = null;
+        long nextLastServed = Long.MAX_VALUE;
+        for (String organisation : queuedByOrganisation.keySet()) {
+            long lastServed = lastServedByOrganisation.getOrDefault(organisation, 0L);
+            if (runningByOrganisation.getOrDefault(organisation, 0) < maxRunningPerOrganisation && lastServed < nextLastServed) {
+                next = organisation;
+                nextLastServed = lastServed;
+            }
+        }
+        return next;
+    }
+
+    private void start(String organisation, QueuedJob job) {
+        logger.info(format("Job{uuid='%s'} starting after waiting %d ms", job.jobUUID, System.currentTimeMillis() - job.queuedAt));
+        try {
+            workers.execute(() -> {
+                try {
+                    job.task.run();
+                } finally {
+                    finished(organisation);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error(format("Job{uuid='%s'} could not be started", job.jobUUID), e);
+            release(organisation);
+        }
+    }
+
+    private synchronized void finished(String organisation) {
+        release(organisation);
+        dispatch();
+    }
+
+    private void release(String organisation) {
+        running--;
+        if (runningByOrganisation.merge(organisation, -1, Integer::sum) <= 0) {
+            runningByOrganisation.remove(organisation);
+            if (!queuedByOrganisation.containsKey(organisation)) {
+                lastServedByOrganisation.remove(organisation);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) workers).shutdown();
+        }
+    }
+
+    private static class QueuedJob {
+        private final String jobUUID;
+        private final Runnable task;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private QueuedJob(String jobUUID, Runnable task) {
+            this.jobUUID = jobUUID;
+            this.task = task;
+        }
+    }
+}
@@ -69,7 +69,7 @@ public class JobService {
         }
     }
 
-    public JobExecution create(String uuid, String type, String fileName, ObjectInfo s3FileInfo, Long userId, String organisationUUID, boolean autoApprove, String locationUploadMode) throws JobParametersInvalidException, JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+    public JobExecution create(String uuid, String type, String fileName, ObjectInfo s3FileInfo, Long userId, String organisationUUID, boolean autoApprove, String locationUploadMode, boolean partitioned) throws JobParametersInvalidException, JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
         JobParameters parameters = new JobParametersBuilder()
                 .addString("organisationUUID", organisationUUID)
                 .addString("uuid", uuid)
@@ -80,6 +80,7 @@ public class JobService {
                 .addString("type", type, false)
                 .addString("autoApprove", String.valueOf(autoApprove))
                 .addString("locationUploadMode", locationUploadMode)
+                .addString("partitioned", String.valueOf(partitioned), false)
                 .toJobParameters();
         logger.info(format("Bulkupload initiated! Job{type='%s',uuid='%s',fileName='%s'}", type, uuid, fileName));
 
@@ -0,0 +1,38 @@
+package org.avni.server.importer.batch;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+/**
+ * Launches jobs on the {@link BulkJobQueue}, queued under the organisation and uuid in their job parameters.
+ */
+public class OrganisationFairJobLauncher extends SimpleJobLauncher {
+    private final ThreadLocal<JobParameters> launchingJobParameters = new ThreadLocal<>();
+
+    public OrganisationFairJobLauncher(JobRepository jobRepository, BulkJobQueue bulkJobQueue) {
+        setJobRepository(jobRepository);
+        setTaskExecutor(task -> {
+            JobParameters jobParameters = launchingJobParameters.get();
+            String organisationUUID = jobParameters == null ? null : jobParameters.getString("organisationUUID");
+            String jobUUID = jobParameters == null ? null : jobParameters.getString("uuid");
+            bulkJobQueue.submit(organisationUUID, jobUUID, task);
+        });
+    }
+
+    @Override
+    public JobExecution run(Job job, JobParameters jobParameters) throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException, JobParametersInvalidException {
+        launchingJobParameters.set(jobParameters);
+        try {
+            return super.run(job, jobParameters);
+        } finally {
+            launchingJobParameters.remove();
+        }
+    }
+}
@@ -1,31 +1,37 @@
 package org.avni.server.importer.batch.csv;
 
-import org.apache.commons.io.IOUtils;
+import org.avni.server.importer.batch.BulkJobQueue;
+import org.avni.server.importer.batch.OrganisationFairJobLauncher;
 import org.avni.server.importer.batch.csv.writer.CsvFileItemWriter;
 import org.avni.server.importer.batch.model.Row;
-import org.avni.server.service.S3Service;
+import org.avni.server.service.BulkUploadS3Service;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
-import org.springframework.batch.core.launch.support.SimpleJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.mapping.DefaultLineMapper;
 import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.batch.item.file.transform.FlatFileFormatException;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -40,73 +46,162 @@ public class BatchConfiguration {
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
     private final JobRepository jobRepository;
-    private final S3Service s3Service;
+    private final BulkUploadS3Service bulkUploadS3Service;
 
     @Autowired
     public BatchConfiguration(JobBuilderFactory jobBuilderFactory, StepBuilderFactory stepBuilderFactory, JobRepository jobRepository,
-                              @Qualifier("BatchS3Service")  S3Service s3Service) {
+                              BulkUploadS3Service bulkUploadS3Service) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
         this.jobRepository = jobRepository;
-        this.s3Service = s3Service;
+        this.bulkUploadS3Service = bulkUploadS3Service;
     }
 
     @Bean
     @StepScope
-    public FlatFileItemReader<Row> csvFileItemReader(@Value("#{jobParameters['s3Key']}") String s3Key) throws IOException {
-        byte[] bytes = IOUtils.toByteArray(s3Service.getObjectContent(s3Key));
-        String[] headers = this.getHeaders(new StringReader(new String(bytes)));
+    public FlatFileItemReader<Row> csvFileItemReader(@Value("#{jobParameters['s3Key']}") String s3Key,
+                                                     @Value("#{jobParameters['uuid']}") String uuid) throws IOException {
+        return createCsvFileItemReader(bulkUploadS3Service.downloadInputFile(s3Key, uuid), true);
+    }
+
+    /**
+     * Partition files are kept until the job ends, so that an interrupted partitioned import can be restarted.
+     */
+    @Bean
+    @StepScope
+    public FlatFileItemReader<Row> partitionCsvFileItemReader(@Value("#{stepExecutionContext['partitionFile']}") String partitionFile) throws IOException {
+        return createCsvFileItemReader(new File(partitionFile), false);
+    }
+
+    private FlatFileItemReader<Row> createCsvFileItemReader(File inputFile, boolean deleteOnClose) throws IOException {
+        String[] headers = this.getHeaders(new FileReader(inputFile));
         DefaultLineMapper<Row> lineMapper = new DefaultLineMapper<>();
         lineMapper.setLineTokenizer(new DelimitedLineTokenizer());
         lineMapper.setFieldSetMapper(fieldSet -> new Row(headers, fieldSet.getValues()));
 
-        return new FlatFileItemReaderBuilder<Row>()
-                .name("csvFileItemReader")
-                .resource(new ByteArrayResource(bytes))
-                .linesToSkip(1)
-                .lineMapper(lineMapper)
-                .build();
+        FlatFileItemReader<Row> reader = new FlatFileItemReader<Row>() {
+            @Override
+            public void close() throws ItemStreamException {
+                try {
+                    super.close();
+                } finally {
+                    if (deleteOnClose) inputFile.delete();
+                }
+            }
+        };
+        reader.setName("csvFileItemReader");
+        reader.setResource(new FileSystemResource(inputFile));
+        reader.setLinesToSkip(1);
+        reader.setLineMapper(lineMapper);
+        return reader;
     }
 
+    /**
+     * Rows are written in chunks of avni.bulkUpload.chunkSize. When a chunk fails, the fault tolerant step rolls it
+     * back and writes its rows again one at a time, so the error file still reports failures per row.
+     * Users and catchments are written one row per chunk since they create users in the identity provider, which a
+     * rollback does not undo.
+     */
     @Bean
-    public Job importJob(ErrorFileCreatorListener listener, Step importStep) {
+    @StepScope
+    public SimpleCompletionPolicy importCompletionPolicy(@Value("#{jobParameters['type']}") String type,
+                                                         @Value("${avni.bulkUpload.chunkSize}") int chunkSize) {
+        String primaryType = type == null ? "" : type.split("---")[0];
+        return new SimpleCompletionPolicy("usersAndCatchments".equals(primaryType) ? 1 : Math.max(1, chunkSize));
+    }
+
+    /**
+     * Subject, encounter and program encounter uploads can opt in to be imported as partitions running in parallel.
+     */
+    @Bean
+    public JobExecutionDecider importModeDecider() {
+        return (jobExecution, stepExecution) -> {
+            JobParameters jobParameters = jobExecution.getJobParameters();
+            boolean partitioned = Boolean.parseBoolean(jobParameters.getString("partitioned"))
+                    && CsvFilePartitioner.canPartition(jobParameters.getString("type"));
+            return new FlowExecutionStatus(partitioned ? "PARTITIONED" : "SEQUENTIAL");
+        };
+    }
+
+    @Bean
+    public Job importJob(ErrorFileCreatorListener listener, JobExecutionDecider importModeDecider, Step importStep, Step partitionedImportStep) {
         return jobBuilderFactory.get("importJob")
                 .incrementer(new RunIdIncrementer())
                 .listener(listener)
-                .flow(importStep)
+                .start(importModeDecider)
+                .on("PARTITIONED").to(partitionedImportStep)
+                .from(importModeDecider).on("*").to(importStep)
                 .end()
                 .build();
     }
 
     @Bean
-    public Step importStep(FlatFileItemReader<Row> csvFileItemReader,
+    public Step importStep(@Qualifier("csvFileItemReader") FlatFileItemReader<Row> csvFileItemReader,
                            CsvFileItemWriter csvFileItemWriter,
-                           ErrorFileWriterListener errorFileWriterListener) {
-        return stepBuilderFactory.get("importStep")
-                .<Row, Row>chunk(1)
-                .reader(csvFileItemReader)
+                           ErrorFileWriterListener errorFileWriterListener,
+                           SimpleCompletionPolicy importCompletionPolicy) {
+        return createImportStep("importStep", csvFileItemReader, csvFileItemWriter, errorFileWriterListener, importCompletionPolicy)
+                .build();
+    }
+
+    @Bean
+    public Step partitionedImportStep(CsvFilePartitioner csvFilePartitioner,
+                                      Step importPartitionStep,
+                                      @Qualifier("importPartitionTaskExecutor") TaskExecutor importPartitionTaskExecutor,
+                                      @Value("${avni.bulkUpload.partitions}") int partitions) {
+        return stepBuilderFactory.get("partitionedImportStep")
+                .partitioner("importPartitionStep", csvFilePartitioner)
+                .step(importPartitionStep)
+                .gridSize(Math.max(1, partitions))
+                .taskExecutor(importPartitionTaskExecutor)
+                .build();
+    }
+
+    @Bean
+    public Step importPartitionStep(@Qualifier("partitionCsvFileItemReader") FlatFileItemReader<Row> partitionCsvFileItemReader,
+                                    CsvFileItemWriter csvFileItemWriter,
+                                    ErrorFileWriterListener errorFileWriterListener,
+                                    SimpleCompletionPolicy importCompletionPolicy) {
+        return createImportStep("importPartitionStep", partitionCsvFileItemReader, csvFileItemWriter, errorFileWriterListener, importCompletionPolicy)
+                .listener(new PartitionJobScopeListener())
+                .build();
+    }
+
+    /**
+     * Shared by all partitioned imports, so that the number of rows imported in parallel stays bounded however many
+     * of them are running.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importPartitionTaskExecutor(@Value("${avni.bulkUpload.partition.threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setThreadNamePrefix("import-partition-");
+        return executor;
+    }
+
+    private FaultTolerantStepBuilder<Row, Row> createImportStep(String name,
+                                                               FlatFileItemReader<Row> reader,
+                                                               CsvFileItemWriter csvFileItemWriter,
+                                                               ErrorFileWriterListener errorFileWriterListener,
+                                                               SimpleCompletionPolicy importCompletionPolicy) {
+        FaultTolerantStepBuilder<Row, Row> stepBuilder = stepBuilderFactory.get(name)
+                .<Row, Row>chunk(importCompletionPolicy)
+                .reader(reader)
                 .writer(csvFileItemWriter)
                 .faultTolerant()
                 .skip(Exception.class)
                 .noSkip(FileNotFoundException.class)
                 .noSkip(FlatFileParseException.class)
                 .noSkip(FlatFileFormatException.class)
-                .skipPolicy((error, count) -> true)
-                .listener(errorFileWriterListener)
-                .build();
+                .skipPolicy((error, count) -> true);
+        stepBuilder.listener(errorFileWriterListener);
+        return stepBuilder;
     }
 
     @Bean
-    public JobLauncher bgJobLauncher() {
-        return new SimpleJobLauncher() {{
-            setJobRepository(jobRepository);
-            setTaskExecutor(new ThreadPoolTaskExecutor() {{
-                setCorePoolSize(1);
-                setMaxPoolSize(1);
-                setQueueCapacity(100);
-                initialize();
-            }});
-        }};
+    public JobLauncher bgJobLauncher(BulkJobQueue bulkJobQueue) {
+        return new OrganisationFairJobLauncher(jobRepository, bulkJobQueue);
     }
 
     private String[] getHeaders(Reader reader) throws IOException {
@@ -0,0 +1,154 @@
+package org.avni.server.importer.batch.csv;
+
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.importer.batch.csv.writer.header.EncounterHeaders;
+import org.avni.server.importer.batch.csv.writer.header.ProgramEncounterHeaders;
+import org.avni.server.importer.batch.csv.writer.header.SubjectHeaders;
+import org.avni.server.service.BulkUploadS3Service;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.util.*;
+
+import static java.lang.String.format;
+
+/**
+ * Splits an uploaded CSV into partition files that can be imported in parallel. Rows are assigned by the subject they
+ * belong to, so that rows of the same subject stay in one partition and keep their order. Program encounter rows only
+ * carry the enrolment, which is resolved to its subject in batches before the rows are split. Rows without such an id
+ * are spread evenly.
+ */
+@Component
+@StepScope
+public class CsvFilePartitioner implements Partitioner {
+    public static final String PARTITION = "partition";
+    public static final String PARTITION_FILE = "partitionFile";
+    private static final int ENROLMENT_BATCH_SIZE = 1000;
+
+    private static final Map<String, String> partitionKeyHeaders = new HashMap<String, String>() {{
+        put("Subject", SubjectHeaders.id);
+        put("Encounter", EncounterHeaders.subjectId);
+        put("ProgramEncounter", ProgramEncounterHeaders.enrolmentId);
+    }};
+
+    private final BulkUploadS3Service bulkUploadS3Service;
+    private final ProgramEnrolmentRepository programEnrolmentRepository;
+
+    @Value("#{jobParameters['s3Key']}")
+    private String s3Key;
+    @Value("#{jobParameters['uuid']}")
+    private String uuid;
+    @Value("#{jobParameters['type']}")
+    private String type;
+
+    public CsvFilePartitioner(BulkUploadS3Service bulkUploadS3Service, ProgramEnrolmentRepository programEnrolmentRepository) {
+        this.bulkUploadS3Service = bulkUploadS3Service;
+        this.programEnrolmentRepository = programEnrolmentRepository;
+    }
+
+    public static boolean canPartition(String type) {
+        return type != null && partitionKeyHeaders.containsKey(type.split("---")[0]);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        File inputFile = null;
+        List<BufferedWriter> partitionWriters = new ArrayList<>();
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        try {
+            inputFile = bulkUploadS3Service.downloadInputFile(s3Key, uuid);
+            try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+                String headerLine = reader.readLine();
+                if (headerLine == null) headerLine = "";
+                DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+                String[] headers = tokenizer.tokenize(headerLine).getValues();
+                int keyIndex = Arrays.asList(headers).indexOf(partitionKeyHeaders.get(type.split("---")[0]));
+                Map<String, String> subjectKeys = "ProgramEncounter".equals(type.split("---")[0]) && keyIndex >= 0
+                        ? resolveSubjectKeys(inputFile, keyIndex) : Collections.emptyMap();
+
+                for (int partition = 0; partition < gridSize; partition++) {
+                    File partitionFile = bulkUploadS3Service.getLocalInputFile(uuid, partition);
+                    BufferedWriter partitionWriter = new BufferedWriter(new FileWriter(partitionFile));
+                    partitionWriters.add(partitionWriter);
+                    partitionWriter.write(headerLine);
+                    partitionWriter.newLine();
+
+                    ExecutionContext executionContext = new ExecutionContext();
+                    executionContext.putInt(PARTITION, partition);
+                    executionContext.putString(PARTITION_FILE, partitionFile.getAbsolutePath());
+                    partitions.put(format("%s%d", PARTITION, partition), executionContext);
+                }
+
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    String key = keyIndex < 0 ? "" : valueAt(tokenizer.tokenize(line).getValues(), keyIndex);
+                    key = subjectKeys.getOrDefault(key, key);
+                    int partition = key.isEmpty() ? lineNumber % gridSize : Math.floorMod(key.hashCode(), gridSize);
+                    BufferedWriter partitionWriter = partitionWriters.get(partition);
+                    partitionWriter.write(line);
+                    partitionWriter.newLine();
+                    lineNumber++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Unable to partition '%s'", s3Key), e);
+        } finally {
+            for (BufferedWriter partitionWriter : partitionWriters) {
+                try {
+                    partitionWriter.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (inputFile != null) inputFile.delete();
+        }
+        return partitions;
+    }
+
+    private Map<String, String> resolveSubjectKeys(File inputFile, int keyIndex) throws IOException {
+        Set<String> enrolmentIds = new LinkedHashSet<>();
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String enrolmentId = valueAt(tokenizer.tokenize(line).getValues(), keyIndex);
+                if (!enrolmentId.isEmpty()) enrolmentIds.add(enrolmentId);
+            }
+        }
+
+        Map<String, String> subjectKeys = new HashMap<>();
+        List<String> batch = new ArrayList<>(ENROLMENT_BATCH_SIZE);
+        Iterator<String> iterator = enrolmentIds.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == ENROLMENT_BATCH_SIZE || !iterator.hasNext()) {
+                programEnrolmentRepository.findIndividualIdsByLegacyIdOrUuid(new HashSet<>(batch))
+                        .forEach((enrolmentId, subjectId) -> subjectKeys.put(enrolmentId, subjectId.toString()));
+                batch.clear();
+            }
+        }
+        return subjectKeys;
+    }
+
+    public void setS3Key(String s3Key) {
+        this.s3Key = s3Key;
+    }
+
+    public void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    private static String valueAt(String[] values, int index) {
+        return index < values.length && values[index] != null ? values[index].trim() : "";
+    }
+}
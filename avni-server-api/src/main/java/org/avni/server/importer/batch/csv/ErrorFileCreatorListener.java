@@ -6,6 +6,7 @@ import org.avni.server.service.ObjectInfo;
 import org.avni.server.service.S3Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
@@ -79,6 +80,10 @@ public class ErrorFileCreatorListener implements JobExecutionListener {
     public void afterJob(JobExecution jobExecution) {
         logger.info(format("Bulkupload '%s'! %s", jobExecution.getStatus(), jobInfo));
         try {
+            bulkUploadS3Service.mergePartitionErrorFiles(uuid);
+            if (jobExecution.getStatus() == BatchStatus.COMPLETED) {
+                bulkUploadS3Service.deletePartitionInputFiles(uuid);
+            }
             ObjectInfo metadata = bulkUploadS3Service.uploadErrorFile(errorFile, uuid);
             logger.info(format("Bulkupload '%s'! Check for errors at '%s'", jobExecution.getStatus(), metadata.getKey()));
         } catch (IOException e) {
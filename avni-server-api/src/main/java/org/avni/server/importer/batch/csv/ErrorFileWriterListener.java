@@ -7,6 +7,7 @@ import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.stream.Collectors;
@@ -21,6 +22,8 @@ public class ErrorFileWriterListener {
     private final BulkUploadS3Service bulkUploadS3Service;
     @Value("#{jobParameters['uuid']}")
     private String uuid;
+    @Value("#{stepExecutionContext['partition']}")
+    private Integer partition;
 
     public ErrorFileWriterListener(BulkUploadS3Service bulkUploadS3Service) {
         this.bulkUploadS3Service = bulkUploadS3Service;
@@ -36,7 +39,8 @@ public class ErrorFileWriterListener {
             String stackTrace = Stream.of(t.getStackTrace())
                     .map(StackTraceElement::toString)
                     .collect(Collectors.joining("\n"));
-            FileWriter fileWriter = new FileWriter(bulkUploadS3Service.getLocalErrorFile(uuid), true);
+            File errorFile = partition == null ? bulkUploadS3Service.getLocalErrorFile(uuid) : bulkUploadS3Service.getLocalErrorFile(uuid, partition);
+            FileWriter fileWriter = new FileWriter(errorFile, true);
             fileWriter.append(item.toString());
             fileWriter.append(",\"");
             fileWriter.append(t.getMessage());
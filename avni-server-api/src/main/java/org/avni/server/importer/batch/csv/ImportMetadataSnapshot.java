@@ -0,0 +1,138 @@
+package org.avni.server.importer.batch.csv;
+
+import org.avni.server.application.Form;
+import org.avni.server.application.FormElement;
+import org.avni.server.application.FormMapping;
+import org.avni.server.application.FormType;
+import org.avni.server.application.projections.LocationProjection;
+import org.avni.server.dao.AddressLevelTypeRepository;
+import org.avni.server.dao.ConceptRepository;
+import org.avni.server.dao.LocationRepository;
+import org.avni.server.dao.OperationalSubjectTypeRepository;
+import org.avni.server.dao.SubjectTypeRepository;
+import org.avni.server.dao.application.FormElementRepository;
+import org.avni.server.dao.application.FormMappingRepository;
+import org.avni.server.dao.application.FormRepository;
+import org.avni.server.domain.AddressLevelType;
+import org.avni.server.domain.CHSBaseEntity;
+import org.avni.server.domain.Concept;
+import org.avni.server.domain.OperationalSubjectType;
+import org.avni.server.domain.SubjectType;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Read only metadata looked up once per import job and shared by all writers, instead of once per row.
+ * <p>
+ * Only ids and plain values are kept across chunks. Entities are handed out by id from the repositories, so they are
+ * attached to the current chunk's persistence context and loaded at most once per chunk.
+ */
+@Component
+@JobScope
+public class ImportMetadataSnapshot {
+    private final AddressLevelTypeRepository addressLevelTypeRepository;
+    private final LocationRepository locationRepository;
+    private final ConceptRepository conceptRepository;
+    private final FormRepository formRepository;
+    private final FormElementRepository formElementRepository;
+    private final FormMappingRepository formMappingRepository;
+    private final OperationalSubjectTypeRepository operationalSubjectTypeRepository;
+    private final SubjectTypeRepository subjectTypeRepository;
+
+    private volatile List<AddressLevelType> addressLevelTypes;
+    private volatile Set<String> allAddressLevelTypeNames;
+    private final Map<String, List<Long>> conceptIdsByHeaders = new ConcurrentHashMap<>();
+    private final Map<FormType, List<Long>> formIdsByType = new ConcurrentHashMap<>();
+    private final Map<Long, List<Long>> childFormElementIdsByGroup = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, List<LocationProjection>>> locationsByTypeAndTitle = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Long>> subjectTypeIdsByName = new ConcurrentHashMap<>();
+    private final Map<Long, Optional<Long>> registrationFormMappingIdsBySubjectType = new ConcurrentHashMap<>();
+
+    public ImportMetadataSnapshot(AddressLevelTypeRepository addressLevelTypeRepository,
+                                  LocationRepository locationRepository,
+                                  ConceptRepository conceptRepository,
+                                  FormRepository formRepository,
+                                  FormElementRepository formElementRepository,
+                                  FormMappingRepository formMappingRepository,
+                                  OperationalSubjectTypeRepository operationalSubjectTypeRepository,
+                                  SubjectTypeRepository subjectTypeRepository) {
+        this.addressLevelTypeRepository = addressLevelTypeRepository;
+        this.locationRepository = locationRepository;
+        this.conceptRepository = conceptRepository;
+        this.formRepository = formRepository;
+        this.formElementRepository = formElementRepository;
+        this.formMappingRepository = formMappingRepository;
+        this.operationalSubjectTypeRepository = operationalSubjectTypeRepository;
+        this.subjectTypeRepository = subjectTypeRepository;
+    }
+
+    /**
+     * Non voided address level types, highest level first. Only their plain fields should be used.
+     */
+    public List<AddressLevelType> getAddressLevelTypes() {
+        if (addressLevelTypes == null) {
+            List<AddressLevelType> types = new ArrayList<>(addressLevelTypeRepository.findAllByIsVoidedFalse());
+            types.sort(Comparator.comparingDouble(AddressLevelType::getLevel).reversed());
+            addressLevelTypes = Collections.unmodifiableList(types);
+        }
+        return addressLevelTypes;
+    }
+
+    public Set<String> getAllAddressLevelTypeNames() {
+        if (allAddressLevelTypeNames == null) {
+            allAddressLevelTypeNames = Collections.unmodifiableSet(addressLevelTypeRepository.findAll().stream()
+                    .map(AddressLevelType::getName)
+                    .collect(Collectors.toSet()));
+        }
+        return allAddressLevelTypeNames;
+    }
+
+    public Set<Concept> getConcepts(String[] fixedHeaders, String[] fileHeaders, Supplier<Set<Concept>> conceptLookup) {
+        String key = String.join("\u0000", fixedHeaders) + "\u0001" + String.join("\u0000", fileHeaders);
+        List<Long> conceptIds = conceptIdsByHeaders.computeIfAbsent(key, k -> ids(conceptLookup.get()));
+        return conceptIds.stream().map(id -> conceptRepository.findOne(id)).collect(Collectors.toSet());
+    }
+
+    public List<Form> getForms(FormType formType) {
+        List<Long> formIds = formIdsByType.computeIfAbsent(formType, type -> ids(formRepository.findByFormTypeAndIsVoidedFalse(type)));
+        return formIds.stream().map(id -> formRepository.findOne(id)).collect(Collectors.toList());
+    }
+
+    public List<FormElement> getChildFormElements(Long groupFormElementId) {
+        List<Long> formElementIds = childFormElementIdsByGroup.computeIfAbsent(groupFormElementId, id -> ids(formElementRepository.findAllByGroupId(id)));
+        return formElementIds.stream().map(id -> formElementRepository.findOne(id)).collect(Collectors.toList());
+    }
+
+    /**
+     * Non voided locations of a type keyed by lower cased title.
+     */
+    public Map<String, List<LocationProjection>> getLocationsByTitle(Long addressLevelTypeId) {
+        return locationsByTypeAndTitle.computeIfAbsent(addressLevelTypeId, typeId ->
+                locationRepository.findNonVoidedLocationsByTypeId(typeId).stream()
+                        .collect(Collectors.groupingBy(location -> location.getTitle().toLowerCase())));
+    }
+
+    public SubjectType getSubjectType(String name) {
+        if (name == null) return null;
+        Optional<Long> subjectTypeId = subjectTypeIdsByName.computeIfAbsent(name.toLowerCase(), n -> {
+            OperationalSubjectType operationalSubjectType = operationalSubjectTypeRepository.findByNameIgnoreCase(name);
+            return Optional.ofNullable(operationalSubjectType).map(ost -> ost.getSubjectType().getId());
+        });
+        return subjectTypeId.map(id -> subjectTypeRepository.findOne(id)).orElse(null);
+    }
+
+    public FormMapping getRegistrationFormMapping(SubjectType subjectType) {
+        Optional<Long> formMappingId = registrationFormMappingIdsBySubjectType.computeIfAbsent(subjectType.getId(), id ->
+                Optional.ofNullable(formMappingRepository.getRegistrationFormMapping(subjectType)).map(CHSBaseEntity::getId));
+        return formMappingId.map(id -> formMappingRepository.findOne(id)).orElse(null);
+    }
+
+    private static List<Long> ids(Collection<? extends CHSBaseEntity> entities) {
+        return entities.stream().map(CHSBaseEntity::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,25 @@
+package org.avni.server.importer.batch.csv;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.JobSynchronizationManager;
+
+/**
+ * Partition steps run on worker threads, where the job scope of the partitioned job is not registered. This makes the
+ * job's scoped beans, like the writer and the metadata snapshot, available to the partition and shared with the others.
+ * The registration is only closed after the partition, as releasing it would destroy the job's scoped beans while other
+ * partitions still use them.
+ */
+public class PartitionJobScopeListener implements StepExecutionListener {
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        JobSynchronizationManager.register(stepExecution.getJobExecution());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        JobSynchronizationManager.close();
+        return null;
+    }
+}
@@ -4,14 +4,11 @@ import org.avni.server.application.Form;
 import org.avni.server.application.FormElement;
 import org.avni.server.application.FormElementType;
 import org.avni.server.application.FormType;
-import org.avni.server.dao.AddressLevelTypeRepository;
 import org.avni.server.dao.ConceptRepository;
-import org.avni.server.dao.application.FormElementRepository;
-import org.avni.server.dao.application.FormRepository;
-import org.avni.server.domain.AddressLevelType;
 import org.avni.server.domain.Concept;
 import org.avni.server.domain.ConceptDataType;
 import org.avni.server.domain.ObservationCollection;
+import org.avni.server.importer.batch.csv.ImportMetadataSnapshot;
 import org.avni.server.importer.batch.csv.writer.header.Headers;
 import org.avni.server.importer.batch.model.Row;
 import org.avni.server.service.IndividualService;
@@ -43,41 +40,37 @@ public class ObservationCreator {
 
     private static final String PHONE_NUMBER_PATTERN = "^[0-9]{10}";
     private static Logger logger = LoggerFactory.getLogger(ObservationCreator.class);
-    private AddressLevelTypeRepository addressLevelTypeRepository;
     private ConceptRepository conceptRepository;
-    private FormRepository formRepository;
     private ObservationService observationService;
     private S3Service s3Service;
     private IndividualService individualService;
     private LocationService locationService;
-    private FormElementRepository formElementRepository;
+    private ImportMetadataSnapshot importMetadataSnapshot;
 
     @Autowired
-    public ObservationCreator(AddressLevelTypeRepository addressLevelTypeRepository,
-                              ConceptRepository conceptRepository,
-                              FormRepository formRepository,
+    public ObservationCreator(ConceptRepository conceptRepository,
                               ObservationService observationService,
                               S3Service s3Service,
                               IndividualService individualService,
                               LocationService locationService,
-                              FormElementRepository formElementRepository) {
-        this.addressLevelTypeRepository = addressLevelTypeRepository;
+                              ImportMetadataSnapshot importMetadataSnapshot) {
         this.conceptRepository = conceptRepository;
-        this.formRepository = formRepository;
         this.observationService = observationService;
         this.s3Service = s3Service;
         this.individualService = individualService;
         this.locationService = locationService;
-        this.formElementRepository = formElementRepository;
+        this.importMetadataSnapshot = importMetadataSnapshot;
     }
 
     public Set<Concept> getConceptHeaders(Headers fixedHeaders, String[] fileHeaders) {
-        List<AddressLevelType> locationTypes = addressLevelTypeRepository.findAll();
-        locationTypes.sort(Comparator.comparingDouble(AddressLevelType::getLevel).reversed());
+        String[] allFixedHeaders = fixedHeaders.getAllHeaders();
+        return importMetadataSnapshot.getConcepts(allFixedHeaders, fileHeaders, () -> lookupConceptHeaders(allFixedHeaders, fileHeaders));
+    }
 
+    private Set<Concept> lookupConceptHeaders(String[] fixedHeaders, String[] fileHeaders) {
         Set<String> nonConceptHeaders = Stream.concat(
-                locationTypes.stream().map(AddressLevelType::getName),
-                Stream.of(fixedHeaders.getAllHeaders())).collect(Collectors.toSet());
+                importMetadataSnapshot.getAllAddressLevelTypeNames().stream(),
+                Stream.of(fixedHeaders)).collect(Collectors.toSet());
 
         return getConceptHeaders(fileHeaders, nonConceptHeaders)
                 .stream()
@@ -109,7 +102,7 @@ public class ObservationCreator {
     private boolean isNonEmptyQuestionGroup(FormElement formElement, Row row) {
         Concept concept = formElement.getConcept();
         if (ConceptDataType.isGroupQuestion(concept.getDataType())) {
-            List<FormElement> allChildQuestions = formElementRepository.findAllByGroupId(formElement.getId());
+            List<FormElement> allChildQuestions = importMetadataSnapshot.getChildFormElements(formElement.getId());
             return allChildQuestions.stream().anyMatch(fe -> {
                 String parentChildName = concept.getName() + "|" + fe.getConcept().getName();
                 String headerName = formElement.isRepeatable() ? String.format("%s|1", parentChildName) : parentChildName;
@@ -154,7 +147,7 @@ public class ObservationCreator {
 
     // For the repeatable question group columns should be "Question group concept"|"Child concept"|"order(1,2,3...)"
     private Object constructChildObservations(Row row, Headers headers, List<String> errorMsgs, FormElement parentFormElement, FormType formType, ObservationCollection oldObservations) {
-        List<FormElement> allChildQuestions = formElementRepository.findAllByGroupId(parentFormElement.getId());
+        List<FormElement> allChildQuestions = importMetadataSnapshot.getChildFormElements(parentFormElement.getId());
         if (parentFormElement.isRepeatable()) {
             Pattern repeatableQuestionGroupPattern = Pattern.compile(String.format("%s\\|.*\\|\\d", parentFormElement.getConcept().getName()));
             List<String> repeatableQuestionGroupHeaders = Stream.of(row.getHeaders())
@@ -206,7 +199,7 @@ public class ObservationCreator {
     }
 
     private FormElement getFormElementForObservationConcept(Concept concept, FormType formType) throws Exception {
-        List<Form> applicableForms = formRepository.findByFormTypeAndIsVoidedFalse(formType);
+        List<Form> applicableForms = importMetadataSnapshot.getForms(formType);
         if (applicableForms.size() == 0)
             throw new Exception(String.format("No forms of type %s found", formType));
 
@@ -1,7 +1,6 @@
 package org.avni.server.importer.batch.csv.creator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.avni.server.application.Form;
 import org.avni.server.domain.Encounter;
 import org.avni.server.domain.Individual;
@@ -13,6 +12,7 @@ import org.avni.server.importer.batch.model.Row;
 import org.avni.server.service.EntityApprovalStatusService;
 import org.avni.server.service.ObservationService;
 import org.avni.server.util.ObjectMapperSingleton;
+import org.avni.server.web.external.RuleEndpointNotFoundException;
 import org.avni.server.web.external.RuleServiceClient;
 import org.avni.server.web.request.rules.RulesContractWrapper.EncounterContract;
 import org.avni.server.web.request.rules.RulesContractWrapper.IndividualContract;
@@ -21,19 +21,27 @@ import org.avni.server.web.request.rules.RulesContractWrapper.ProgramEnrolmentCo
 import org.avni.server.web.request.rules.constructWrappers.IndividualConstructionService;
 import org.avni.server.web.request.rules.constructWrappers.ProgramEncounterConstructionService;
 import org.avni.server.web.request.rules.constructWrappers.ProgramEnrolmentConstructionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RuleServerInvoker {
+    private static final Logger logger = LoggerFactory.getLogger(RuleServerInvoker.class);
+    private static final long BATCH_REPROBE_MILLIS = TimeUnit.MINUTES.toMillis(10);
     private final RuleServiceClient restClient;
     private final ProgramEnrolmentConstructionService programEnrolmentConstructionService;
     private final IndividualConstructionService individualConstructionService;
     private final ObservationService observationService;
     private final ProgramEncounterConstructionService programEncounterConstructionService;
     private final EntityApprovalStatusService entityApprovalStatusService;
+    private volatile long batchUnsupportedUntil;
 
     @Autowired
     public RuleServerInvoker(RuleServiceClient restClient,
@@ -49,38 +57,71 @@ public class RuleServerInvoker {
         this.entityApprovalStatusService = entityApprovalStatusService;
     }
 
-    private UploadRuleServerResponseContract invokeRuleServer(Row row, Form form, Object entity, List<String> allErrorMsgs) throws Exception {
-        ObjectMapper mapper = ObjectMapperSingleton.getObjectMapper();
-        mapper.registerModule(new JodaModule());
-        UploadRuleServerRequestContract contract = UploadRuleServerRequestContract.buildRuleServerContract(row, form, entity);
-        String ruleResponse = restClient.post("/api/upload", contract);
-        UploadRuleServerResponseContract uploadRuleServerResponseContract = mapper.readValue(ruleResponse, UploadRuleServerResponseContract.class);
-        allErrorMsgs.addAll(uploadRuleServerResponseContract.getErrors());
+    /**
+     * Evaluates the rules of several rows in one call to the rule server. Responses are in the order of the requests.
+     * Falls back to one call per row when the rule server rejects the batch. A rule server without the batch endpoint is
+     * not asked again for a while, after which it is probed again, as it may have been upgraded.
+     */
+    public List<UploadRuleServerResponseContract> getRuleServerResults(List<UploadRuleServerRequestContract> requests) throws Exception {
+        if (requests.size() > 1 && System.currentTimeMillis() >= batchUnsupportedUntil) {
+            try {
+                String ruleResponse = restClient.post("/api/upload/batch", requests);
+                List<UploadRuleServerResponseContract> responses = ObjectMapperSingleton.getObjectMapper().readValue(ruleResponse, new TypeReference<List<UploadRuleServerResponseContract>>() {});
+                if (responses.size() != requests.size()) {
+                    throw new Exception(String.format("Rule server returned %d results for %d rows", responses.size(), requests.size()));
+                }
+                return responses;
+            } catch (RuleEndpointNotFoundException e) {
+                logger.warn("Rule server does not support batch upload rules, evaluating one row at a time");
+                batchUnsupportedUntil = System.currentTimeMillis() + BATCH_REPROBE_MILLIS;
+            } catch (HttpClientErrorException e) {
+                logger.warn("Rule server rejected batch of upload rules, evaluating its rows one at a time");
+            }
+        }
+        List<UploadRuleServerResponseContract> responses = new ArrayList<>();
+        for (UploadRuleServerRequestContract request : requests) {
+            responses.add(invokeRuleServer(request));
+        }
+        return responses;
+    }
+
+    /**
+     * Fails the row when the rule server, or the row itself, reported errors.
+     */
+    public UploadRuleServerResponseContract checkErrors(UploadRuleServerResponseContract ruleResponse, List<String> allErrorMsgs) throws Exception {
+        if (ruleResponse.getErrors() != null) {
+            allErrorMsgs.addAll(ruleResponse.getErrors());
+        }
         if (allErrorMsgs.size() > 0) {
             throw new Exception(String.join(", ", allErrorMsgs));
         }
-        return uploadRuleServerResponseContract;
+        return ruleResponse;
+    }
+
+    private UploadRuleServerResponseContract invokeRuleServer(UploadRuleServerRequestContract contract) throws Exception {
+        String ruleResponse = restClient.post("/api/upload", contract);
+        return ObjectMapperSingleton.getObjectMapper().readValue(ruleResponse, UploadRuleServerResponseContract.class);
     }
 
-    public UploadRuleServerResponseContract getRuleServerResult(Row row, Form form, Individual individual, List<String> allErrorMsgs) throws Exception {
+    public UploadRuleServerRequestContract buildRuleServerRequest(Row row, Form form, Individual individual) {
         IndividualContract entity = individualConstructionService.constructBasicSubject(individual);
-        return invokeRuleServer(row, form, entity, allErrorMsgs);
+        return UploadRuleServerRequestContract.buildRuleServerContract(row, form, entity);
     }
 
-    public UploadRuleServerResponseContract getRuleServerResult(Row row, Form form, ProgramEnrolment programEnrolment, List<String> allErrorMsgs) throws Exception {
+    public UploadRuleServerRequestContract buildRuleServerRequest(Row row, Form form, ProgramEnrolment programEnrolment) {
         ProgramEnrolmentContract entity = programEnrolmentConstructionService.constructProgramEnrolmentContract(programEnrolment);
-        return invokeRuleServer(row, form, entity, allErrorMsgs);
+        return UploadRuleServerRequestContract.buildRuleServerContract(row, form, entity);
     }
 
-    public UploadRuleServerResponseContract getRuleServerResult(Row row, Form form, ProgramEncounter programEncounter, List<String> allErrorMsgs) throws Exception {
+    public UploadRuleServerRequestContract buildRuleServerRequest(Row row, Form form, ProgramEncounter programEncounter) {
         ProgramEncounterContract entity = programEncounterConstructionService.constructProgramEncounterContractWrapper(programEncounter);
         entity.setProgramEnrolment(programEncounterConstructionService.constructEnrolments(programEncounter.getProgramEnrolment(), programEncounter.getUuid()));
-        return invokeRuleServer(row, form, entity, allErrorMsgs);
+        return UploadRuleServerRequestContract.buildRuleServerContract(row, form, entity);
     }
 
-    public UploadRuleServerResponseContract getRuleServerResult(Row row, Form form, Encounter encounter, List<String> allErrorMsgs) throws Exception {
+    public UploadRuleServerRequestContract buildRuleServerRequest(Row row, Form form, Encounter encounter) {
         EncounterContract entity = EncounterContract.fromEncounter(encounter, observationService, entityApprovalStatusService);
         entity.setSubject(individualConstructionService.getSubjectInfo(encounter.getIndividual()));
-        return invokeRuleServer(row, form, entity, allErrorMsgs);
+        return UploadRuleServerRequestContract.buildRuleServerContract(row, form, entity);
     }
 }
@@ -1,27 +1,26 @@
 package org.avni.server.importer.batch.csv.creator;
 
-import org.avni.server.dao.OperationalSubjectTypeRepository;
-import org.avni.server.domain.OperationalSubjectType;
 import org.avni.server.domain.SubjectType;
+import org.avni.server.importer.batch.csv.ImportMetadataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class SubjectTypeCreator {
 
-    private OperationalSubjectTypeRepository operationalSubjectTypeRepository;
+    private ImportMetadataSnapshot importMetadataSnapshot;
 
     @Autowired
-    public SubjectTypeCreator(OperationalSubjectTypeRepository operationalSubjectTypeRepository) {
-        this.operationalSubjectTypeRepository = operationalSubjectTypeRepository;
+    public SubjectTypeCreator(ImportMetadataSnapshot importMetadataSnapshot) {
+        this.importMetadataSnapshot = importMetadataSnapshot;
     }
 
     public SubjectType getSubjectType(String subjectTypeValue, String header) throws Exception {
-        OperationalSubjectType operationalSubjectType = operationalSubjectTypeRepository.findByNameIgnoreCase(subjectTypeValue);
-        if (operationalSubjectType == null) {
+        SubjectType subjectType = importMetadataSnapshot.getSubjectType(subjectTypeValue);
+        if (subjectType == null) {
             throw new Exception(String.format("'%s' '%s' not found", header, subjectTypeValue));
         }
-        return operationalSubjectType.getSubjectType();
+        return subjectType;
     }
 
 }
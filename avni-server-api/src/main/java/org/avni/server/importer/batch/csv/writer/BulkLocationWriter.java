@@ -0,0 +1,179 @@
+package org.avni.server.importer.batch.csv.writer;
+
+import org.avni.server.application.FormType;
+import org.avni.server.dao.AddressLevelBulkRepository;
+import org.avni.server.domain.AddressLevel;
+import org.avni.server.domain.AddressLevelType;
+import org.avni.server.importer.batch.csv.creator.LocationCreator;
+import org.avni.server.importer.batch.csv.creator.ObservationCreator;
+import org.avni.server.importer.batch.csv.writer.header.LocationHeaders;
+import org.avni.server.importer.batch.model.Row;
+import org.avni.server.util.S;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Writes locations the way the relaxed mode does, but for all rows of a chunk together. The rows are staged as a tree
+ * first, then the tree is saved one level at a time: one query finds the locations that already exist at the level,
+ * ids for the missing ones are taken from the sequence in one call, so that their lineage can be computed before they
+ * are inserted in one batch. The virtual catchment mapping of the new locations is refreshed once at the end.
+ */
+@Component
+public class BulkLocationWriter {
+    private static final LocationHeaders headers = new LocationHeaders();
+    private final AddressLevelBulkRepository addressLevelBulkRepository;
+    private final ObservationCreator observationCreator;
+    private final LocationCreator locationCreator;
+
+    public BulkLocationWriter(AddressLevelBulkRepository addressLevelBulkRepository, ObservationCreator observationCreator) {
+        this.addressLevelBulkRepository = addressLevelBulkRepository;
+        this.observationCreator = observationCreator;
+        this.locationCreator = new LocationCreator();
+    }
+
+    public void write(List<? extends Row> rows, Map<String, AddressLevelType> locationTypes) throws Exception {
+        addressLevelBulkRepository.deferVirtualCatchmentRefresh();
+        List<Long> createdIds = new ArrayList<>();
+        List<StagedLocation> level = stage(rows, locationTypes).getChildren();
+        while (!level.isEmpty()) {
+            resolveExisting(level);
+            List<StagedLocation> newLocations = level.stream().filter(location -> location.getAddressLevel().getId() == null).collect(Collectors.toList());
+            Iterator<Long> ids = addressLevelBulkRepository.nextIds(newLocations.size()).iterator();
+            for (StagedLocation location : newLocations) {
+                AddressLevel addressLevel = location.getAddressLevel();
+                addressLevel.setId(ids.next());
+                addressLevel.setLineage(addressLevel.getParent() == null ? addressLevel.getId().toString() : addressLevel.getParent().getLineage() + "." + addressLevel.getId());
+                createdIds.add(addressLevel.getId());
+            }
+
+            List<AddressLevel> changedExistingLocations = new ArrayList<>();
+            for (StagedLocation location : level) {
+                if (location.getRows().isEmpty()) continue;
+                updateLocationProperties(location);
+                if (location.isExisting()) changedExistingLocations.add(location.getAddressLevel());
+            }
+            addressLevelBulkRepository.insert(newLocations.stream().map(StagedLocation::getAddressLevel).collect(Collectors.toList()));
+            addressLevelBulkRepository.updateLocationProperties(changedExistingLocations);
+            level = level.stream().flatMap(location -> location.getChildren().stream()).collect(Collectors.toList());
+        }
+        addressLevelBulkRepository.refreshVirtualCatchments(createdIds);
+    }
+
+    /**
+     * Children of locations created in this chunk cannot exist yet, so only the children of existing locations are
+     * looked up, for the whole level in one query.
+     */
+    private void resolveExisting(List<StagedLocation> level) {
+        List<StagedLocation> lookups = level.stream()
+                .filter(location -> location.getParent().isRoot() || location.getParent().isExisting())
+                .collect(Collectors.toList());
+        if (lookups.isEmpty()) return;
+        Set<Long> parentIds = lookups.stream().map(location -> location.getParent().getAddressLevel())
+                .filter(Objects::nonNull).map(AddressLevel::getId).collect(Collectors.toSet());
+        boolean includeTopLevel = lookups.stream().anyMatch(location -> location.getParent().isRoot());
+        Set<String> titles = lookups.stream().map(location -> location.getAddressLevel().getTitle()).collect(Collectors.toSet());
+
+        Map<String, AddressLevel> existingLocations = new HashMap<>();
+        for (AddressLevel existing : addressLevelBulkRepository.findChildren(parentIds, includeTopLevel, titles)) {
+            existingLocations.putIfAbsent(key(existing.getParentId(), existing.getTitle()), existing);
+        }
+        for (StagedLocation location : lookups) {
+            AddressLevel parent = location.getParent().getAddressLevel();
+            AddressLevel existing = existingLocations.get(key(parent == null ? null : parent.getId(), location.getAddressLevel().getTitle()));
+            if (existing != null) location.useExisting(existing);
+        }
+    }
+
+    private void updateLocationProperties(StagedLocation location) throws Exception {
+        AddressLevel addressLevel = location.getAddressLevel();
+        for (Row row : location.getRows()) {
+            List<String> allErrorMsgs = new ArrayList<>();
+            addressLevel.setGpsCoordinates(locationCreator.getLocation(row, headers.gpsCoordinates, allErrorMsgs));
+            addressLevel.setLocationProperties(observationCreator.getObservations(row, headers, allErrorMsgs, FormType.Location, addressLevel.getLocationProperties()));
+        }
+    }
+
+    private static String key(Long parentId, String title) {
+        return parentId + "|" + title.toLowerCase();
+    }
+
+    /**
+     * Builds the tree of locations named in the rows, under a root that stands for the top level. A location is
+     * identified by its parent and its title ignoring case, like the relaxed mode looks it up. Rows are attached to their
+     * lowest location when they have location properties.
+     */
+    static StagedLocation stage(List<? extends Row> rows, Map<String, AddressLevelType> locationTypes) {
+        StagedLocation root = new StagedLocation(null, null);
+        for (Row row : rows) {
+            StagedLocation location = root;
+            boolean hasProperties = false;
+            for (String header : row.getHeaders()) {
+                if (locationTypes.containsKey(header) && !S.isEmpty(row.get(header))) {
+                    location = location.child(locationTypes.get(header), row.get(header).trim());
+                } else if (location != root && !locationTypes.containsKey(header)) {
+                    hasProperties = true;
+                }
+            }
+            if (hasProperties) location.getRows().add(row);
+        }
+        return root;
+    }
+
+    static class StagedLocation {
+        private final StagedLocation parent;
+        private final AddressLevel addressLevel;
+        private boolean existing;
+        private final Map<String, StagedLocation> children = new LinkedHashMap<>();
+        private final List<Row> rows = new ArrayList<>();
+
+        private StagedLocation(StagedLocation parent, AddressLevel addressLevel) {
+            this.parent = parent;
+            this.addressLevel = addressLevel;
+        }
+
+        StagedLocation child(AddressLevelType type, String title) {
+            return children.computeIfAbsent(title.toLowerCase(), key -> {
+                AddressLevel child = new AddressLevel();
+                child.assignUUID();
+                child.setTitle(title);
+                child.setType(type);
+                child.setParent(addressLevel);
+                return new StagedLocation(this, child);
+            });
+        }
+
+        void useExisting(AddressLevel existing) {
+            addressLevel.setId(existing.getId());
+            addressLevel.setTitle(existing.getTitle());
+            addressLevel.setLineage(existing.getLineage());
+            addressLevel.setLocationProperties(existing.getLocationProperties());
+            this.existing = true;
+        }
+
+        boolean isRoot() {
+            return parent == null;
+        }
+
+        boolean isExisting() {
+            return existing;
+        }
+
+        StagedLocation getParent() {
+            return parent;
+        }
+
+        AddressLevel getAddressLevel() {
+            return addressLevel;
+        }
+
+        List<StagedLocation> getChildren() {
+            return new ArrayList<>(children.values());
+        }
+
+        List<Row> getRows() {
+            return rows;
+        }
+    }
+}
@@ -56,6 +56,10 @@ public class CsvFileItemWriter implements ItemWriter<Row> {
         }
     }
 
+    /**
+     * Authenticates once per chunk, so that each chunk's transaction gets its own user context. Only the user id and
+     * organisation uuid are kept across chunks.
+     */
     @Override
     public void write(List<? extends Row> rows) throws Exception {
         authService.authenticateByUserId(userId, organisationUUID);
@@ -70,6 +74,14 @@ public class CsvFileItemWriter implements ItemWriter<Row> {
         this.userId = userId;
     }
 
+    public String getOrganisationUUID() {
+        return organisationUUID;
+    }
+
+    public void setOrganisationUUID(String organisationUUID) {
+        this.organisationUUID = organisationUUID;
+    }
+
     public String getType() {
         return type;
     }
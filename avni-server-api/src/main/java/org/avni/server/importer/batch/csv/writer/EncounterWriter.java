@@ -8,6 +8,7 @@ import org.avni.server.dao.application.FormMappingRepository;
 import org.avni.server.domain.Encounter;
 import org.avni.server.domain.EntityApprovalStatus;
 import org.avni.server.domain.Individual;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
 import org.avni.server.importer.batch.csv.contract.UploadRuleServerResponseContract;
 import org.avni.server.importer.batch.csv.writer.header.EncounterHeaders;
 import org.avni.server.importer.batch.model.Row;
@@ -25,7 +26,7 @@ import java.util.List;
 
 
 @Component
-public class EncounterWriter extends EntityWriter implements ItemWriter<Row>, Serializable {
+public class EncounterWriter extends EntityWriter<Encounter> implements ItemWriter<Row>, Serializable {
     private EncounterRepository encounterRepository;
     private IndividualRepository individualRepository;
     private BasicEncounterCreator basicEncounterCreator;
@@ -67,10 +68,11 @@ public class EncounterWriter extends EntityWriter implements ItemWriter<Row>, Se
 
     @Override
     public void write(List<? extends Row> rows) throws Exception {
-        for (Row row : rows) write(row);
+        writeInRuleBatches(rows, ruleServerInvoker, EncounterHeaders.id, EncounterHeaders.subjectId);
     }
 
-    private void write(Row row) throws Exception {
+    @Override
+    protected PreparedRow<Encounter> prepare(Row row) throws Exception {
         Encounter encounter = getOrCreateEncounter(row);
 
         List<String> allErrorMsgs = new ArrayList<>();
@@ -83,21 +85,38 @@ public class EncounterWriter extends EntityWriter implements ItemWriter<Row>, Se
         if (formMapping == null) {
             throw new Exception(String.format("No form found for the encounter type %s", encounter.getEncounterType().getName()));
         }
-        Encounter savedEncounter;
+        return new PreparedRow<>(row, encounter, formMapping, allErrorMsgs);
+    }
 
-        if (skipRuleExecution()) {
-            EncounterHeaders encounterHeaders = new EncounterHeaders(encounter.getEncounterType());
-            encounter.setObservations(observationCreator.getObservations(row, encounterHeaders, allErrorMsgs, FormType.Encounter, encounter.getObservations()));
-            savedEncounter = encounterService.save(encounter);
-        } else {
-            UploadRuleServerResponseContract ruleResponse = ruleServerInvoker.getRuleServerResult(row, formMapping.getForm(), encounter, allErrorMsgs);
-            encounter.setObservations(observationService.createObservations(ruleResponse.getObservations()));
-            decisionCreator.addEncounterDecisions(encounter.getObservations(), ruleResponse.getDecisions());
-            decisionCreator.addRegistrationDecisions(subject.getObservations(), ruleResponse.getDecisions());
-            savedEncounter = encounterService.save(encounter);
-            individualRepository.save(subject);
-            visitCreator.saveScheduledVisits(formMapping.getType(), subject.getUuid(), null, ruleResponse.getVisitSchedules(), savedEncounter.getUuid());
-        }
+    @Override
+    protected UploadRuleServerRequestContract buildRuleServerRequest(PreparedRow<Encounter> preparedRow) {
+        return ruleServerInvoker.buildRuleServerRequest(preparedRow.getRow(), preparedRow.getFormMapping().getForm(), preparedRow.getEntity());
+    }
+
+    @Override
+    protected void saveWithoutRules(PreparedRow<Encounter> preparedRow) throws Exception {
+        Encounter encounter = preparedRow.getEntity();
+        EncounterHeaders encounterHeaders = new EncounterHeaders(encounter.getEncounterType());
+        encounter.setObservations(observationCreator.getObservations(preparedRow.getRow(), encounterHeaders, preparedRow.getErrorMsgs(), FormType.Encounter, encounter.getObservations()));
+        Encounter savedEncounter = encounterService.save(encounter);
+        saveApprovalStatus(preparedRow.getFormMapping(), savedEncounter);
+    }
+
+    @Override
+    protected void saveWithRuleResponse(PreparedRow<Encounter> preparedRow, UploadRuleServerResponseContract ruleResponse) throws Exception {
+        Encounter encounter = preparedRow.getEntity();
+        Individual subject = encounter.getIndividual();
+        FormMapping formMapping = preparedRow.getFormMapping();
+        encounter.setObservations(observationService.createObservations(ruleResponse.getObservations()));
+        decisionCreator.addEncounterDecisions(encounter.getObservations(), ruleResponse.getDecisions());
+        decisionCreator.addRegistrationDecisions(subject.getObservations(), ruleResponse.getDecisions());
+        Encounter savedEncounter = encounterService.save(encounter);
+        individualRepository.save(subject);
+        visitCreator.saveScheduledVisits(formMapping.getType(), subject.getUuid(), null, ruleResponse.getVisitSchedules(), savedEncounter.getUuid());
+        saveApprovalStatus(formMapping, savedEncounter);
+    }
+
+    private void saveApprovalStatus(FormMapping formMapping, Encounter savedEncounter) {
         entityApprovalStatusWriter.saveStatus(formMapping, savedEncounter.getId(), EntityApprovalStatus.EntityType.Encounter, savedEncounter.getEncounterType().getUuid());
     }
 
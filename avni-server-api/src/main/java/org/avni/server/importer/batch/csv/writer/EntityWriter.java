@@ -1,11 +1,18 @@
 package org.avni.server.importer.batch.csv.writer;
 
+import org.avni.server.application.FormMapping;
 import org.avni.server.application.OrganisationConfigSettingKey;
 import org.avni.server.domain.OrganisationConfig;
 import org.avni.server.framework.security.UserContextHolder;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerResponseContract;
+import org.avni.server.importer.batch.csv.creator.RuleServerInvoker;
+import org.avni.server.importer.batch.model.Row;
 import org.avni.server.service.OrganisationConfigService;
 
-public abstract class EntityWriter {
+import java.util.*;
+
+public abstract class EntityWriter<T> {
     private final OrganisationConfigService organisationConfigService;
 
     protected EntityWriter(OrganisationConfigService organisationConfigService) {
@@ -16,4 +23,93 @@ public abstract class EntityWriter {
         OrganisationConfig organisationConfig = organisationConfigService.getOrganisationConfig(UserContextHolder.getOrganisation());
         return (Boolean) organisationConfig.getConfigValueOptional(OrganisationConfigSettingKey.skipRuleExecution).orElse(false);
     }
+
+    /**
+     * Prepares the entities of all rows first, then evaluates their rules in one call to the rule server and saves
+     * them. Rows with the same value in any of the batch key columns go to separate batches, so that a row's rules see
+     * what the earlier rows of its subject have saved.
+     * <p>
+     * A failing row fails the chunk, which is then written again one row at a time, so failures are still reported
+     * against the row that caused them.
+     */
+    protected void writeInRuleBatches(List<? extends Row> rows, RuleServerInvoker ruleServerInvoker, String... batchKeyHeaders) throws Exception {
+        if (skipRuleExecution()) {
+            for (Row row : rows) saveWithoutRules(prepare(row));
+            return;
+        }
+        for (List<Row> batch : splitIntoRuleBatches(rows, batchKeyHeaders)) {
+            List<PreparedRow<T>> preparedRows = new ArrayList<>();
+            List<UploadRuleServerRequestContract> ruleRequests = new ArrayList<>();
+            for (Row row : batch) {
+                PreparedRow<T> preparedRow = prepare(row);
+                preparedRows.add(preparedRow);
+                ruleRequests.add(buildRuleServerRequest(preparedRow));
+            }
+            List<UploadRuleServerResponseContract> ruleResponses = ruleServerInvoker.getRuleServerResults(ruleRequests);
+            for (int i = 0; i < preparedRows.size(); i++) {
+                PreparedRow<T> preparedRow = preparedRows.get(i);
+                saveWithRuleResponse(preparedRow, ruleServerInvoker.checkErrors(ruleResponses.get(i), preparedRow.getErrorMsgs()));
+            }
+        }
+    }
+
+    protected abstract PreparedRow<T> prepare(Row row) throws Exception;
+
+    protected abstract UploadRuleServerRequestContract buildRuleServerRequest(PreparedRow<T> preparedRow);
+
+    protected abstract void saveWithoutRules(PreparedRow<T> preparedRow) throws Exception;
+
+    protected abstract void saveWithRuleResponse(PreparedRow<T> preparedRow, UploadRuleServerResponseContract ruleResponse) throws Exception;
+
+    static List<List<Row>> splitIntoRuleBatches(List<? extends Row> rows, String... batchKeyHeaders) {
+        List<List<Row>> batches = new ArrayList<>();
+        List<Row> batch = new ArrayList<>();
+        Set<String> batchKeys = new HashSet<>();
+        for (Row row : rows) {
+            List<String> rowKeys = new ArrayList<>();
+            for (String header : batchKeyHeaders) {
+                String value = row.get(header);
+                if (value != null && !value.trim().isEmpty()) rowKeys.add(header + "|" + value.trim());
+            }
+            if (rowKeys.stream().anyMatch(batchKeys::contains)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchKeys.clear();
+            }
+            batch.add(row);
+            batchKeys.addAll(rowKeys);
+        }
+        if (!batch.isEmpty()) batches.add(batch);
+        return batches;
+    }
+
+    protected static class PreparedRow<T> {
+        private final Row row;
+        private final T entity;
+        private final FormMapping formMapping;
+        private final List<String> errorMsgs;
+
+        public PreparedRow(Row row, T entity, FormMapping formMapping, List<String> errorMsgs) {
+            this.row = row;
+            this.entity = entity;
+            this.formMapping = formMapping;
+            this.errorMsgs = errorMsgs;
+        }
+
+        public Row getRow() {
+            return row;
+        }
+
+        public T getEntity() {
+            return entity;
+        }
+
+        public FormMapping getFormMapping() {
+            return formMapping;
+        }
+
+        public List<String> getErrorMsgs() {
+            return errorMsgs;
+        }
+    }
 }
@@ -36,17 +36,21 @@ public class LocationWriter implements ItemWriter<Row> {
     private final AddressLevelTypeRepository addressLevelTypeRepository;
     private final LocationCreator locationCreator;
     private final ObservationCreator observationCreator;
+    private final BulkLocationWriter bulkLocationWriter;
     private List<String> locationTypeNames;
+    private Map<String, AddressLevelType> locationTypesByName;
 
     @Autowired
     public LocationWriter(LocationService locationService,
                           LocationRepository locationRepository,
                           AddressLevelTypeRepository addressLevelTypeRepository,
-                          ObservationCreator observationCreator) {
+                          ObservationCreator observationCreator,
+                          BulkLocationWriter bulkLocationWriter) {
         this.locationService = locationService;
         this.locationRepository = locationRepository;
         this.addressLevelTypeRepository = addressLevelTypeRepository;
         this.observationCreator = observationCreator;
+        this.bulkLocationWriter = bulkLocationWriter;
         this.locationCreator = new LocationCreator();
     }
 
@@ -55,10 +59,18 @@ public class LocationWriter implements ItemWriter<Row> {
         List<AddressLevelType> locationTypes = addressLevelTypeRepository.findAllByIsVoidedFalse();
         locationTypes.sort(Comparator.comparingDouble(AddressLevelType::getLevel).reversed());
         this.locationTypeNames = locationTypes.stream().map(AddressLevelType::getName).collect(Collectors.toList());
+        this.locationTypesByName = locationTypes.stream().collect(Collectors.toMap(AddressLevelType::getName, locationType -> locationType, (first, second) -> first));
     }
 
     @Override
     public void write(List<? extends Row> rows) throws Exception {
+        if (LocationUploadMode.isBulkMode(locationUploadMode)) {
+            for (Row row : rows) {
+                checkIfHeaderHasLocationTypes(this.locationTypeNames, row.getHeaders(), new ArrayList<>());
+            }
+            bulkLocationWriter.write(rows, this.locationTypesByName);
+            return;
+        }
         for (Row row : rows) {
             List<String> allErrorMsgs = new ArrayList<>();
             checkIfHeaderHasLocationTypes(this.locationTypeNames, row.getHeaders(), allErrorMsgs);
@@ -178,10 +190,14 @@ public class LocationWriter implements ItemWriter<Row> {
     }
 
     private enum LocationUploadMode {
-        relaxed, strict;
+        relaxed, strict, bulk;
 
         public static boolean isRelaxedMode(String mode) {
             return mode == null || LocationUploadMode.valueOf(mode).equals(relaxed);
         }
+
+        public static boolean isBulkMode(String mode) {
+            return mode != null && LocationUploadMode.valueOf(mode).equals(bulk);
+        }
     }
 }
@@ -9,6 +9,7 @@ import org.avni.server.domain.EntityApprovalStatus;
 import org.avni.server.domain.ProgramEncounter;
 import org.avni.server.domain.ProgramEnrolment;
 import org.avni.server.domain.SubjectType;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
 import org.avni.server.importer.batch.csv.contract.UploadRuleServerResponseContract;
 import org.avni.server.importer.batch.csv.writer.header.ProgramEncounterHeaders;
 import org.avni.server.importer.batch.model.Row;
@@ -26,7 +27,7 @@ import java.util.List;
 
 
 @Component
-public class ProgramEncounterWriter extends EntityWriter implements ItemWriter<Row>, Serializable {
+public class ProgramEncounterWriter extends EntityWriter<ProgramEncounter> implements ItemWriter<Row>, Serializable {
     private final ProgramEncounterRepository programEncounterRepository;
     private ProgramEnrolmentCreator programEnrolmentCreator;
     private BasicEncounterCreator basicEncounterCreator;
@@ -71,10 +72,11 @@ public class ProgramEncounterWriter extends EntityWriter implements ItemWriter<R
 
     @Override
     public void write(List<? extends Row> rows) throws Exception {
-        for (Row row : rows) write(row);
+        writeInRuleBatches(rows, ruleServerInvoker, ProgramEncounterHeaders.id, ProgramEncounterHeaders.enrolmentId);
     }
 
-    private void write(Row row) throws Exception {
+    @Override
+    protected PreparedRow<ProgramEncounter> prepare(Row row) throws Exception {
         ProgramEncounter programEncounter = getOrCreateProgramEncounter(row);
         List<String> allErrorMsgs = new ArrayList<>();
         ProgramEnrolment programEnrolment = programEnrolmentCreator.getProgramEnrolment(row.get(ProgramEncounterHeaders.enrolmentId), ProgramEncounterHeaders.enrolmentId);
@@ -86,20 +88,38 @@ public class ProgramEncounterWriter extends EntityWriter implements ItemWriter<R
         if (formMapping == null) {
             throw new Exception(String.format("No form found for the encounter type %s", programEncounter.getEncounterType().getName()));
         }
-        ProgramEncounter savedEncounter;
-        if (skipRuleExecution()) {
-            ProgramEncounterHeaders programEncounterHeaders = new ProgramEncounterHeaders(programEncounter.getEncounterType());
-            programEncounter.setObservations(observationCreator.getObservations(row, programEncounterHeaders, allErrorMsgs, FormType.ProgramEncounter, programEncounter.getObservations()));
-            savedEncounter = programEncounterService.save(programEncounter);
-        } else {
-            UploadRuleServerResponseContract ruleResponse = ruleServerInvoker.getRuleServerResult(row, formMapping.getForm(), programEncounter, allErrorMsgs);
-            programEncounter.setObservations(observationService.createObservations(ruleResponse.getObservations()));
-            decisionCreator.addEncounterDecisions(programEncounter.getObservations(), ruleResponse.getDecisions());
-            decisionCreator.addEnrolmentDecisions(programEnrolment.getObservations(), ruleResponse.getDecisions());
-            savedEncounter = programEncounterService.save(programEncounter);
-            programEnrolmentRepository.save(programEnrolment);
-            visitCreator.saveScheduledVisits(formMapping.getType(), null, programEnrolment.getUuid(), ruleResponse.getVisitSchedules(), savedEncounter.getUuid());
-        }
+        return new PreparedRow<>(row, programEncounter, formMapping, allErrorMsgs);
+    }
+
+    @Override
+    protected UploadRuleServerRequestContract buildRuleServerRequest(PreparedRow<ProgramEncounter> preparedRow) {
+        return ruleServerInvoker.buildRuleServerRequest(preparedRow.getRow(), preparedRow.getFormMapping().getForm(), preparedRow.getEntity());
+    }
+
+    @Override
+    protected void saveWithoutRules(PreparedRow<ProgramEncounter> preparedRow) throws Exception {
+        ProgramEncounter programEncounter = preparedRow.getEntity();
+        ProgramEncounterHeaders programEncounterHeaders = new ProgramEncounterHeaders(programEncounter.getEncounterType());
+        programEncounter.setObservations(observationCreator.getObservations(preparedRow.getRow(), programEncounterHeaders, preparedRow.getErrorMsgs(), FormType.ProgramEncounter, programEncounter.getObservations()));
+        ProgramEncounter savedEncounter = programEncounterService.save(programEncounter);
+        saveApprovalStatus(preparedRow.getFormMapping(), savedEncounter);
+    }
+
+    @Override
+    protected void saveWithRuleResponse(PreparedRow<ProgramEncounter> preparedRow, UploadRuleServerResponseContract ruleResponse) throws Exception {
+        ProgramEncounter programEncounter = preparedRow.getEntity();
+        ProgramEnrolment programEnrolment = programEncounter.getProgramEnrolment();
+        FormMapping formMapping = preparedRow.getFormMapping();
+        programEncounter.setObservations(observationService.createObservations(ruleResponse.getObservations()));
+        decisionCreator.addEncounterDecisions(programEncounter.getObservations(), ruleResponse.getDecisions());
+        decisionCreator.addEnrolmentDecisions(programEnrolment.getObservations(), ruleResponse.getDecisions());
+        ProgramEncounter savedEncounter = programEncounterService.save(programEncounter);
+        programEnrolmentRepository.save(programEnrolment);
+        visitCreator.saveScheduledVisits(formMapping.getType(), null, programEnrolment.getUuid(), ruleResponse.getVisitSchedules(), savedEncounter.getUuid());
+        saveApprovalStatus(formMapping, savedEncounter);
+    }
+
+    private void saveApprovalStatus(FormMapping formMapping, ProgramEncounter savedEncounter) {
         entityApprovalStatusWriter.saveStatus(formMapping, savedEncounter.getId(), EntityApprovalStatus.EntityType.ProgramEncounter, savedEncounter.getEncounterType().getUuid());
     }
 
@@ -8,6 +8,7 @@ import org.avni.server.domain.EntityApprovalStatus;
 import org.avni.server.domain.Individual;
 import org.avni.server.domain.Program;
 import org.avni.server.domain.ProgramEnrolment;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
 import org.avni.server.importer.batch.csv.contract.UploadRuleServerResponseContract;
 import org.avni.server.importer.batch.csv.creator.*;
 import org.avni.server.importer.batch.csv.writer.header.ProgramEnrolmentHeaders;
@@ -26,7 +27,7 @@ import java.util.List;
 
 
 @Component
-public class ProgramEnrolmentWriter extends EntityWriter implements ItemWriter<Row>, Serializable {
+public class ProgramEnrolmentWriter extends EntityWriter<ProgramEnrolment> implements ItemWriter<Row>, Serializable {
     private final ProgramEnrolmentRepository programEnrolmentRepository;
     private LocationCreator locationCreator;
     private SubjectCreator subjectCreator;
@@ -72,10 +73,11 @@ public class ProgramEnrolmentWriter extends EntityWriter implements ItemWriter<R
 
     @Override
     public void write(List<? extends Row> rows) throws Exception {
-        for (Row row : rows) write(row);
+        writeInRuleBatches(rows, ruleServerInvoker, ProgramEnrolmentHeaders.id, ProgramEnrolmentHeaders.subjectId);
     }
 
-    private void write(Row row) throws Exception {
+    @Override
+    protected PreparedRow<ProgramEnrolment> prepare(Row row) throws Exception {
         ProgramEnrolment programEnrolment = getOrCreateProgramEnrolment(row);
 
         List<String> allErrorMsgs = new ArrayList<>();
@@ -102,18 +104,35 @@ public class ProgramEnrolmentWriter extends EntityWriter implements ItemWriter<R
         if (formMapping == null) {
             throw new Exception(String.format("No form found for the subject type '%s' and program '%s'", individual.getSubjectType().getName(), program.getName()));
         }
-        ProgramEnrolment savedEnrolment;
-        if (skipRuleExecution()) {
-            ProgramEnrolmentHeaders programEnrolmentHeaders = new ProgramEnrolmentHeaders(program);
-            programEnrolment.setObservations(observationCreator.getObservations(row, programEnrolmentHeaders, allErrorMsgs, FormType.ProgramEnrolment, programEnrolment.getObservations()));
-            savedEnrolment = programEnrolmentService.save(programEnrolment);
-        } else {
-            UploadRuleServerResponseContract ruleResponse = ruleServerInvoker.getRuleServerResult(row, formMapping.getForm(), programEnrolment, allErrorMsgs);
-            programEnrolment.setObservations(observationService.createObservations(ruleResponse.getObservations()));
-            decisionCreator.addEnrolmentDecisions(programEnrolment.getObservations(), ruleResponse.getDecisions());
-            savedEnrolment = programEnrolmentService.save(programEnrolment);
-            visitCreator.saveScheduledVisits(formMapping.getType(), null, savedEnrolment.getUuid(), ruleResponse.getVisitSchedules(), null);
-        }
+        return new PreparedRow<>(row, programEnrolment, formMapping, allErrorMsgs);
+    }
+
+    @Override
+    protected UploadRuleServerRequestContract buildRuleServerRequest(PreparedRow<ProgramEnrolment> preparedRow) {
+        return ruleServerInvoker.buildRuleServerRequest(preparedRow.getRow(), preparedRow.getFormMapping().getForm(), preparedRow.getEntity());
+    }
+
+    @Override
+    protected void saveWithoutRules(PreparedRow<ProgramEnrolment> preparedRow) throws Exception {
+        ProgramEnrolment programEnrolment = preparedRow.getEntity();
+        ProgramEnrolmentHeaders programEnrolmentHeaders = new ProgramEnrolmentHeaders(programEnrolment.getProgram());
+        programEnrolment.setObservations(observationCreator.getObservations(preparedRow.getRow(), programEnrolmentHeaders, preparedRow.getErrorMsgs(), FormType.ProgramEnrolment, programEnrolment.getObservations()));
+        ProgramEnrolment savedEnrolment = programEnrolmentService.save(programEnrolment);
+        saveApprovalStatus(preparedRow.getFormMapping(), savedEnrolment);
+    }
+
+    @Override
+    protected void saveWithRuleResponse(PreparedRow<ProgramEnrolment> preparedRow, UploadRuleServerResponseContract ruleResponse) throws Exception {
+        ProgramEnrolment programEnrolment = preparedRow.getEntity();
+        FormMapping formMapping = preparedRow.getFormMapping();
+        programEnrolment.setObservations(observationService.createObservations(ruleResponse.getObservations()));
+        decisionCreator.addEnrolmentDecisions(programEnrolment.getObservations(), ruleResponse.getDecisions());
+        ProgramEnrolment savedEnrolment = programEnrolmentService.save(programEnrolment);
+        visitCreator.saveScheduledVisits(formMapping.getType(), null, savedEnrolment.getUuid(), ruleResponse.getVisitSchedules(), null);
+        saveApprovalStatus(formMapping, savedEnrolment);
+    }
+
+    private void saveApprovalStatus(FormMapping formMapping, ProgramEnrolment savedEnrolment) {
         entityApprovalStatusWriter.saveStatus(formMapping, savedEnrolment.getId(), EntityApprovalStatus.EntityType.ProgramEnrolment, savedEnrolment.getProgram().getUuid());
     }
 
@@ -4,12 +4,12 @@ import org.avni.server.application.FormMapping;
 import org.avni.server.application.FormType;
 import org.avni.server.application.Subject;
 import org.avni.server.application.projections.LocationProjection;
-import org.avni.server.dao.AddressLevelTypeRepository;
 import org.avni.server.dao.GenderRepository;
 import org.avni.server.dao.IndividualRepository;
 import org.avni.server.dao.LocationRepository;
-import org.avni.server.dao.application.FormMappingRepository;
 import org.avni.server.domain.*;
+import org.avni.server.importer.batch.csv.ImportMetadataSnapshot;
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
 import org.avni.server.importer.batch.csv.contract.UploadRuleServerResponseContract;
 import org.avni.server.importer.batch.csv.creator.*;
 import org.avni.server.importer.batch.csv.writer.header.SubjectHeaders;
@@ -25,21 +25,18 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
 
 
 @Component
-public class SubjectWriter extends EntityWriter implements ItemWriter<Row>, Serializable {
-    private final AddressLevelTypeRepository addressLevelTypeRepository;
+public class SubjectWriter extends EntityWriter<Individual> implements ItemWriter<Row>, Serializable {
+    private final ImportMetadataSnapshot importMetadataSnapshot;
     private final LocationRepository locationRepository;
     private final IndividualRepository individualRepository;
     private final GenderRepository genderRepository;
     private final SubjectTypeCreator subjectTypeCreator;
     private final LocationCreator locationCreator;
-    private final FormMappingRepository formMappingRepository;
     private final ObservationService observationService;
     private final RuleServerInvoker ruleServerInvoker;
     private final VisitCreator visitCreator;
@@ -53,13 +50,12 @@ public class SubjectWriter extends EntityWriter implements ItemWriter<Row>, Seri
     private static final Logger logger = LoggerFactory.getLogger(SubjectWriter.class);
 
     @Autowired
-    public SubjectWriter(AddressLevelTypeRepository addressLevelTypeRepository,
+    public SubjectWriter(ImportMetadataSnapshot importMetadataSnapshot,
                          LocationRepository locationRepository,
                          IndividualRepository individualRepository,
                          GenderRepository genderRepository,
                          SubjectTypeCreator subjectTypeCreator,
                          EntityApprovalStatusService entityApprovalStatusService,
-                         FormMappingRepository formMappingRepository,
                          ObservationService observationService,
                          RuleServerInvoker ruleServerInvoker,
                          VisitCreator visitCreator,
@@ -69,13 +65,12 @@ public class SubjectWriter extends EntityWriter implements ItemWriter<Row>, Seri
                          S3Service s3Service,
                          OrganisationConfigService organisationConfigService) {
         super(organisationConfigService);
-        this.addressLevelTypeRepository = addressLevelTypeRepository;
+        this.importMetadataSnapshot = importMetadataSnapshot;
         this.locationRepository = locationRepository;
         this.individualRepository = individualRepository;
         this.genderRepository = genderRepository;
         this.subjectTypeCreator = subjectTypeCreator;
         this.entityApprovalStatusService = entityApprovalStatusService;
-        this.formMappingRepository = formMappingRepository;
         this.observationService = observationService;
         this.ruleServerInvoker = ruleServerInvoker;
         this.visitCreator = visitCreator;
@@ -89,55 +84,72 @@ public class SubjectWriter extends EntityWriter implements ItemWriter<Row>, Seri
 
     @Override
     public void write(List<? extends Row> rows) throws Exception {
-        for (Row row : rows) write(row);
-    }
-
-    private void write(Row row) throws Exception {
         try {
-            List<AddressLevelType> locationTypes = addressLevelTypeRepository.findAllByIsVoidedFalse();
-            locationTypes.sort(Comparator.comparingDouble(AddressLevelType::getLevel).reversed());
-
-            Individual individual = getOrCreateIndividual(row);
-            List<String> allErrorMsgs = new ArrayList<>();
-
-            SubjectType subjectType = subjectTypeCreator.getSubjectType(row.get(SubjectHeaders.subjectTypeHeader), SubjectHeaders.subjectTypeHeader);
-            individual.setSubjectType(subjectType);
-            individual.setFirstName(row.get(SubjectHeaders.firstName));
-            if (subjectType.isAllowMiddleName())
-                individual.setMiddleName(row.get(SubjectHeaders.middleName));
-            individual.setLastName(row.get(SubjectHeaders.lastName));
-            setProfilePicture(subjectType, individual, row, allErrorMsgs);
-            setDateOfBirth(individual, row, allErrorMsgs);
-            individual.setDateOfBirthVerified(row.getBool(SubjectHeaders.dobVerified));
-            setRegistrationDate(individual, row, allErrorMsgs);
-            individual.setRegistrationLocation(locationCreator.getLocation(row, SubjectHeaders.registrationLocation, allErrorMsgs));
-            setAddressLevel(individual, row, locationTypes, allErrorMsgs);
-            if (individual.getSubjectType().getType().equals(Subject.Person)) setGender(individual, row);
-            FormMapping formMapping = formMappingRepository.getRegistrationFormMapping(subjectType);
-            individual.setVoided(false);
-            individual.assignUUIDIfRequired();
-            if (formMapping == null) {
-                throw new Exception(String.format("No form found for the subject type %s", subjectType.getName()));
-            }
-            Individual savedIndividual;
-            if (skipRuleExecution()) {
-                SubjectHeaders subjectHeaders = new SubjectHeaders(subjectType);
-                individual.setObservations(observationCreator.getObservations(row, subjectHeaders, allErrorMsgs, FormType.IndividualProfile, individual.getObservations()));
-                savedIndividual = individualService.save(individual);
-            } else {
-                UploadRuleServerResponseContract ruleResponse = ruleServerInvoker.getRuleServerResult(row, formMapping.getForm(), individual, allErrorMsgs);
-                individual.setObservations(observationService.createObservations(ruleResponse.getObservations()));
-                decisionCreator.addRegistrationDecisions(individual.getObservations(), ruleResponse.getDecisions());
-                savedIndividual = individualService.save(individual);
-                visitCreator.saveScheduledVisits(formMapping.getType(), savedIndividual.getUuid(), null, ruleResponse.getVisitSchedules(), null);
-            }
-            entityApprovalStatusWriter.saveStatus(formMapping, savedIndividual.getId(), EntityApprovalStatus.EntityType.Subject, savedIndividual.getSubjectType().getUuid());
+            writeInRuleBatches(rows, ruleServerInvoker, SubjectHeaders.id);
         } catch (Exception e) {
             logger.warn("Error in writing row", e);
             throw e;
         }
     }
 
+    @Override
+    protected PreparedRow<Individual> prepare(Row row) throws Exception {
+        List<AddressLevelType> locationTypes = importMetadataSnapshot.getAddressLevelTypes();
+
+        Individual individual = getOrCreateIndividual(row);
+        List<String> allErrorMsgs = new ArrayList<>();
+
+        SubjectType subjectType = subjectTypeCreator.getSubjectType(row.get(SubjectHeaders.subjectTypeHeader), SubjectHeaders.subjectTypeHeader);
+        individual.setSubjectType(subjectType);
+        individual.setFirstName(row.get(SubjectHeaders.firstName));
+        if (subjectType.isAllowMiddleName())
+            individual.setMiddleName(row.get(SubjectHeaders.middleName));
+        individual.setLastName(row.get(SubjectHeaders.lastName));
+        setProfilePicture(subjectType, individual, row, allErrorMsgs);
+        setDateOfBirth(individual, row, allErrorMsgs);
+        individual.setDateOfBirthVerified(row.getBool(SubjectHeaders.dobVerified));
+        setRegistrationDate(individual, row, allErrorMsgs);
+        individual.setRegistrationLocation(locationCreator.getLocation(row, SubjectHeaders.registrationLocation, allErrorMsgs));
+        setAddressLevel(individual, row, locationTypes, allErrorMsgs);
+        if (individual.getSubjectType().getType().equals(Subject.Person)) setGender(individual, row);
+        FormMapping formMapping = importMetadataSnapshot.getRegistrationFormMapping(subjectType);
+        individual.setVoided(false);
+        individual.assignUUIDIfRequired();
+        if (formMapping == null) {
+            throw new Exception(String.format("No form found for the subject type %s", subjectType.getName()));
+        }
+        return new PreparedRow<>(row, individual, formMapping, allErrorMsgs);
+    }
+
+    @Override
+    protected UploadRuleServerRequestContract buildRuleServerRequest(PreparedRow<Individual> preparedRow) {
+        return ruleServerInvoker.buildRuleServerRequest(preparedRow.getRow(), preparedRow.getFormMapping().getForm(), preparedRow.getEntity());
+    }
+
+    @Override
+    protected void saveWithoutRules(PreparedRow<Individual> preparedRow) throws Exception {
+        Individual individual = preparedRow.getEntity();
+        SubjectHeaders subjectHeaders = new SubjectHeaders(individual.getSubjectType());
+        individual.setObservations(observationCreator.getObservations(preparedRow.getRow(), subjectHeaders, preparedRow.getErrorMsgs(), FormType.IndividualProfile, individual.getObservations()));
+        Individual savedIndividual = individualService.save(individual);
+        saveApprovalStatus(preparedRow.getFormMapping(), savedIndividual);
+    }
+
+    @Override
+    protected void saveWithRuleResponse(PreparedRow<Individual> preparedRow, UploadRuleServerResponseContract ruleResponse) throws Exception {
+        Individual individual = preparedRow.getEntity();
+        FormMapping formMapping = preparedRow.getFormMapping();
+        individual.setObservations(observationService.createObservations(ruleResponse.getObservations()));
+        decisionCreator.addRegistrationDecisions(individual.getObservations(), ruleResponse.getDecisions());
+        Individual savedIndividual = individualService.save(individual);
+        visitCreator.saveScheduledVisits(formMapping.getType(), savedIndividual.getUuid(), null, ruleResponse.getVisitSchedules(), null);
+        saveApprovalStatus(formMapping, savedIndividual);
+    }
+
+    private void saveApprovalStatus(FormMapping formMapping, Individual savedIndividual) {
+        entityApprovalStatusWriter.saveStatus(formMapping, savedIndividual.getId(), EntityApprovalStatus.EntityType.Subject, savedIndividual.getSubjectType().getUuid());
+    }
+
     private void setProfilePicture(SubjectType subjectType, Individual individual, Row row, List<String> errorMsgs) {
         try {
             String profilePicUrl = row.get(SubjectHeaders.profilePicture);
@@ -211,19 +223,16 @@ public class SubjectWriter extends EntityWriter implements ItemWriter<Row>, Seri
             if (lowestInputAddressLevel == null)
                 throw new Exception(String.format("Missing '%s'", lowestAddressLevelType.getName()));
 
-            List<LocationProjection> locationsOfLowestAddressLevelType = locationRepository.findNonVoidedLocationsByTypeId(lowestAddressLevelType.getId());
-            Supplier<Stream<LocationProjection>> addressMatches = () ->
-                    locationsOfLowestAddressLevelType.stream()
-                            .filter(location ->
-                                    location.getTitle().toLowerCase().equals(lowestInputAddressLevel.toLowerCase()));
+            List<LocationProjection> addressMatches = importMetadataSnapshot.getLocationsByTitle(lowestAddressLevelType.getId())
+                    .getOrDefault(lowestInputAddressLevel.toLowerCase(), Collections.emptyList());
 
-            if (addressMatches.get().count() > 1) {
+            if (addressMatches.size() > 1) {
                 // filter by lineage if more than one location with same name present
                 addressLevel = getAddressLevelByLineage(row, locationTypes);
             } else {
                 // exactly 1 or no match
-                LocationProjection locationProjection = addressMatches.get().findFirst().orElseThrow(() -> new Exception("'Address' not found"));
-                addressLevel = locationRepository.findByUuid(locationProjection.getUuid());
+                LocationProjection locationProjection = addressMatches.stream().findFirst().orElseThrow(() -> new Exception("'Address' not found"));
+                addressLevel = locationRepository.findOne(locationProjection.getId());
             }
             individual.setAddressLevel(addressLevel);
         } catch (Exception ex) {
@@ -10,6 +10,10 @@ import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.Verification;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
 import org.avni.server.dao.UserRepository;
 import org.avni.server.domain.User;
 import org.slf4j.Logger;
@@ -18,14 +22,27 @@ import org.springframework.util.StringUtils;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 public abstract class BaseIAMService implements IAMAuthService {
     private final Logger logger = LoggerFactory.getLogger(BaseIAMService.class);
+    private static final int MAX_VERIFIED_TOKENS = 10000;
+    private static final long MAX_VERIFIED_TOKEN_AGE_MINUTES = 60;
+
     private final UserRepository userRepository;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private volatile RefreshingJwkProvider jwkProvider;
 
     protected BaseIAMService(UserRepository userRepository) {
         this.userRepository = userRepository;
+        this.verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(MAX_VERIFIED_TOKENS)
+                .expireAfterWrite(MAX_VERIFIED_TOKEN_AGE_MINUTES, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
     }
 
     private String getValueInToken(DecodedJWT jwt, String name) {
@@ -36,25 +53,73 @@ public abstract class BaseIAMService implements IAMAuthService {
 
     @Override
     public User getUserFromToken(String token) throws SigningKeyNotFoundException {
+        Long userId = getUserIdFromToken(token);
+        return userId == null ? null : userRepository.findOne(userId);
+    }
+
+    /**
+     * Tokens are verified, and the user they were issued to looked up, once. Later requests with the token are
+     * answered from the id and expiry kept for it, without loading the user.
+     */
+    @Override
+    public Long getUserIdFromToken(String token) throws SigningKeyNotFoundException {
         logConfiguration();
         if (StringUtils.isEmpty(token)) return null;
 
+        String tokenHash = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(tokenHash);
+        if (verifiedToken != null) {
+            if (!verifiedToken.hasExpired()) return verifiedToken.userId;
+            verifiedTokens.invalidate(tokenHash);
+        }
+
         DecodedJWT jwt = verifyAndDecodeToken(token);
         if (jwt == null) return null;
 
         String username = getValueInToken(jwt, getUsernameField());
         String userUUID = getValueInToken(jwt, getUserUuidField());
-        return Strings.isNullOrEmpty(userUUID)
+        User user = Strings.isNullOrEmpty(userUUID)
                 ? userRepository.findByUsername(username)
                 : userRepository.findByUuid(userUUID);
+        if (user == null) return null;
+        if (jwt.getExpiresAt() != null) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(user.getId(), jwt.getExpiresAt()));
+        }
+        return user.getId();
+    }
+
+    public long getVerifiedTokenCacheSize() {
+        return verifiedTokens.size();
+    }
+
+    public CacheStats getVerifiedTokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    public long getJwkCacheSize() {
+        return jwkProvider == null ? 0 : jwkProvider.size();
+    }
+
+    public CacheStats getJwkCacheStats() {
+        return jwkProvider == null ? new CacheStats(0, 0, 0, 0, 0, 0) : jwkProvider.getStats();
+    }
+
+    private JwkProvider getJwkProvider() throws MalformedURLException {
+        if (jwkProvider == null) {
+            synchronized (this) {
+                if (jwkProvider == null) {
+                    jwkProvider = new RefreshingJwkProvider(new UrlJwkProvider(new URL(getJwkProviderUrl())));
+                }
+            }
+        }
+        return jwkProvider;
     }
 
     protected DecodedJWT verifyAndDecodeToken(String token) throws SigningKeyNotFoundException {
         Jwk jwk;
         try {
             DecodedJWT unverifiedJwt = JWT.decode(token);
-            JwkProvider provider = new GuavaCachedJwkProvider(new UrlJwkProvider(new URL(getJwkProviderUrl())));
-            jwk = provider.get(unverifiedJwt.getKeyId());
+            jwk = getJwkProvider().get(unverifiedJwt.getKeyId());
         } catch (MalformedURLException e) {
             logger.error("Check the settings for public key " + getIssuer(), e);
             throw new RuntimeException(e);
@@ -89,6 +154,20 @@ public abstract class BaseIAMService implements IAMAuthService {
         }
     }
 
+    private static class VerifiedToken {
+        private final Long userId;
+        private final Date expiresAt;
+
+        private VerifiedToken(Long userId, Date expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean hasExpired() {
+            return !expiresAt.after(new Date());
+        }
+    }
+
     protected abstract String getUserUuidField();
 
     protected abstract String getUsernameField();
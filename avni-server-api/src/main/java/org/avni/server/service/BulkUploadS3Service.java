@@ -8,9 +8,11 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import static java.lang.String.format;
 
@@ -38,9 +40,73 @@ public class BulkUploadS3Service {
     }
 
     public File getLocalErrorFile(String uuid) {
-        File errorDir = new File(format("%s/bulkuploads/error", System.getProperty("java.io.tmpdir")));
-        errorDir.mkdirs();
-        return new File(errorDir, format("%s.csv", uuid));
+        return new File(getLocalDirectory("error"), format("%s.csv", uuid));
+    }
+
+    public File getLocalErrorFile(String uuid, int partition) {
+        return getLocalErrorFile(partitionFileName(uuid, partition));
+    }
+
+    public File getLocalInputFile(String uuid, int partition) {
+        return new File(getLocalDirectory("input"), format("%s.csv", partitionFileName(uuid, partition)));
+    }
+
+    /**
+     * Spools the uploaded file to local disk so that it can be read as a stream, and re-read on restart, without
+     * holding it in memory.
+     */
+    public File downloadInputFile(String s3Key, String uuid) throws IOException {
+        File inputFile = new File(getLocalDirectory("input"), format("%s.csv", uuid));
+        try (InputStream inputStream = s3Service.getObjectContent(s3Key)) {
+            Files.copy(inputStream, inputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return inputFile;
+    }
+
+    /**
+     * Appends the error files of a partitioned import to the job's error file, in partition order, and removes them.
+     */
+    public void mergePartitionErrorFiles(String uuid) throws IOException {
+        String partitionPrefix = format("%s-partition-", uuid);
+        File[] partitionErrorFiles = getLocalDirectory("error").listFiles((dir, name) -> name.startsWith(partitionPrefix));
+        if (partitionErrorFiles != null) {
+            Arrays.sort(partitionErrorFiles, Comparator.comparingInt(file -> partitionNumber(file, partitionPrefix)));
+            try (OutputStream errorFile = new FileOutputStream(getLocalErrorFile(uuid), true)) {
+                for (File partitionErrorFile : partitionErrorFiles) {
+                    Files.copy(partitionErrorFile.toPath(), errorFile);
+                    Files.delete(partitionErrorFile.toPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the input files of a partitioned import. They are kept until the import completes, as a restarted import
+     * reads the partitions it was split into before.
+     */
+    public void deletePartitionInputFiles(String uuid) throws IOException {
+        String partitionPrefix = format("%s-partition-", uuid);
+        File[] partitionInputFiles = getLocalDirectory("input").listFiles((dir, name) -> name.startsWith(partitionPrefix));
+        if (partitionInputFiles != null) {
+            for (File partitionInputFile : partitionInputFiles) {
+                Files.deleteIfExists(partitionInputFile.toPath());
+            }
+        }
+    }
+
+    private static int partitionNumber(File file, String partitionPrefix) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(partitionPrefix.length(), name.length() - ".csv".length()));
+    }
+
+    private static String partitionFileName(String uuid, int partition) {
+        return format("%s-partition-%d", uuid, partition);
+    }
+
+    private static File getLocalDirectory(String name) {
+        File directory = new File(format("%s/bulkuploads/%s", System.getProperty("java.io.tmpdir"), name));
+        directory.mkdirs();
+        return directory;
     }
 
     public InputStream downloadErrorFile(String jobUuid) {
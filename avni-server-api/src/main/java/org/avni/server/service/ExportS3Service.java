@@ -1,6 +1,6 @@
 package org.avni.server.service;
 
-import org.avni.server.domain.UserContext;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.util.S3File;
 import org.avni.server.util.S3FileType;
@@ -19,6 +19,8 @@ import static java.lang.String.format;
 public class ExportS3Service {
 
     public static final String FILE_NAME_EXTENSION = ".csv";
+    public static final String COMPRESSED_FILE_NAME_EXTENSION = ".gz";
+    public static final String GZIP_CONTENT_ENCODING = "gzip";
     private final S3Service s3Service;
     private static final Logger logger = LoggerFactory.getLogger(ExportS3Service.class);
 
@@ -26,19 +28,44 @@ public class ExportS3Service {
         this.s3Service = s3Service;
     }
 
-    public File getLocalExportFile(String uuid) {
+    /**
+     * Partitions are compressed as they are written, so they take as little disk as the export itself.
+     */
+    public File getLocalExportFile(String uuid, int partition) {
         File exportDir = new File(format("%s/exports/", System.getProperty("java.io.tmpdir")));
         exportDir.mkdirs();
-        return new File(exportDir, format("%s%s", uuid, FILE_NAME_EXTENSION));
+        return new File(exportDir, format("%s-partition-%d%s%s", uuid, partition, FILE_NAME_EXTENSION, COMPRESSED_FILE_NAME_EXTENSION));
     }
 
-    public ObjectInfo uploadFile(File tempSourceFile, String uuid) throws IOException {
-        logger.info(String.format("Uploading %s file to S3", tempSourceFile.getAbsolutePath()));
-        return s3Service.uploadFile(tempSourceFile, format("%s%s", uuid, FILE_NAME_EXTENSION), "exports");
+    /**
+     * The export is stored gzip compressed, as uuid.csv.gz, with gzip as its content encoding. It is uploaded while it is
+     * being written.
+     */
+    public ObjectUploadOutputStream openExportUpload(String uuid) throws IOException {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentType("text/csv");
+        objectMetadata.setContentEncoding(GZIP_CONTENT_ENCODING);
+        logger.info(String.format("Uploading export %s to S3", uuid));
+        return s3Service.openUpload(format("%s%s%s", uuid, FILE_NAME_EXTENSION, COMPRESSED_FILE_NAME_EXTENSION), "exports", objectMetadata);
+    }
+
+    /**
+     * Exports are downloaded by the name of the csv. Exports made before they were compressed are stored under that
+     * name, later ones under the name of the csv with the .gz extension.
+     */
+    public boolean isCompressed(String fileName) {
+        return s3Service.objectExists(getExportS3File(fileName.concat(COMPRESSED_FILE_NAME_EXTENSION)));
     }
 
     public InputStream downloadFile(String fileName) {
-        S3File s3File = S3File.organisationFile(UserContextHolder.getOrganisation(), fileName, S3FileType.Export);
-        return s3Service.getFileStream(s3File);
+        return s3Service.getFileStream(getExportS3File(fileName));
+    }
+
+    public InputStream downloadCompressedFile(String fileName) {
+        return s3Service.getFileStream(getExportS3File(fileName.concat(COMPRESSED_FILE_NAME_EXTENSION)));
+    }
+
+    private S3File getExportS3File(String fileName) {
+        return S3File.organisationFile(UserContextHolder.getOrganisation(), fileName, S3FileType.Export);
     }
 }
@@ -5,4 +5,9 @@ import org.avni.server.domain.User;
 
 public interface IAMAuthService {
     User getUserFromToken(String token) throws SigningKeyNotFoundException;
+
+    default Long getUserIdFromToken(String token) throws SigningKeyNotFoundException {
+        User user = getUserFromToken(token);
+        return user == null ? null : user.getId();
+    }
 }
@@ -10,6 +10,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Service
 public class IdpServiceFactory {
     @Autowired
@@ -78,6 +81,16 @@ public class IdpServiceFactory {
         }
     }
 
+    /**
+     * The token verifying services in use, by the name of their IdP.
+     */
+    public Map<String, BaseIAMService> getIAMServices() {
+        Map<String, BaseIAMService> iamServices = new LinkedHashMap<>();
+        if (cognitoAuthService != null) iamServices.put("cognito", cognitoAuthService);
+        if (keycloakAuthService != null) iamServices.put("keycloak", keycloakAuthService);
+        return iamServices;
+    }
+
     private OrganisationConfig.Settings getSettings(Organisation organisation) {
         OrganisationConfig organisationConfig = organisationConfigService.getOrganisationConfig(organisation);
         return organisationConfig.getSettingsObject();
@@ -100,6 +113,15 @@ public class IdpServiceFactory {
                 return keycloakAuthService.getUserFromToken(token);
             }
         }
+
+        @Override
+        public Long getUserIdFromToken(String token) throws SigningKeyNotFoundException {
+            try {
+                return cognitoAuthService.getUserIdFromToken(token);
+            } catch (SigningKeyNotFoundException e) {
+                return keycloakAuthService.getUserIdFromToken(token);
+            }
+        }
     }
 
     public static class NoIAMAuthService implements IAMAuthService {
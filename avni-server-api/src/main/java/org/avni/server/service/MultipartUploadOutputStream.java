@@ -0,0 +1,124 @@
+package org.avni.server.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uploads what is written to it as parts of a multipart upload, so that the object never has to be held locally. Only
+ * one part is buffered at a time. A part that fails to upload is uploaded again from the buffer, without restarting the
+ * upload.
+ */
+public class MultipartUploadOutputStream extends ObjectUploadOutputStream {
+    private static final Logger logger = LoggerFactory.getLogger(MultipartUploadOutputStream.class);
+    static final int PART_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_PART_ATTEMPTS = 3;
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final String objectKey;
+    private final String uploadId;
+    private final List<PartETag> partETags = new ArrayList<>();
+    private final byte[] part;
+    private int partLength;
+    private boolean closed;
+
+    public MultipartUploadOutputStream(AmazonS3 s3Client, String bucketName, String objectKey, ObjectMetadata objectMetadata) {
+        this(s3Client, bucketName, objectKey, objectMetadata, PART_SIZE);
+    }
+
+    MultipartUploadOutputStream(AmazonS3 s3Client, String bucketName, String objectKey, ObjectMetadata objectMetadata, int partSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.part = new byte[partSize];
+        this.uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, objectKey, objectMetadata)).getUploadId();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (partLength == part.length) uploadPart();
+        part[partLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (partLength == part.length) uploadPart();
+            int length = Math.min(len, part.length - partLength);
+            System.arraycopy(b, off, part, partLength, length);
+            partLength += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Uploads the last part and completes the upload. The upload is aborted if that fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            if (partLength > 0 || partETags.isEmpty()) uploadPart();
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, objectKey, uploadId, partETags));
+            closed = true;
+            logger.info(String.format("Uploaded %s in %d parts", objectKey, partETags.size()));
+        } catch (IOException | SdkClientException e) {
+            abort();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (closed) return;
+        closed = true;
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectKey, uploadId));
+        } catch (SdkClientException e) {
+            logger.error(String.format("Error aborting upload of %s", objectKey), e);
+        }
+    }
+
+    @Override
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    private void uploadPart() throws IOException {
+        int partNumber = partETags.size() + 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadPartResult result = s3Client.uploadPart(new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(objectKey)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withInputStream(new ByteArrayInputStream(part, 0, partLength))
+                        .withPartSize(partLength));
+                partETags.add(result.getPartETag());
+                partLength = 0;
+                return;
+            } catch (SdkClientException e) {
+                if (attempt == MAX_PART_ATTEMPTS) {
+                    throw new IOException(String.format("Upload of part %d of %s failed", partNumber, objectKey), e);
+                }
+                logger.warn(String.format("Upload of part %d of %s failed, retrying", partNumber, objectKey), e);
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException(String.format("Upload of %s is already closed", objectKey));
+    }
+}
@@ -0,0 +1,13 @@
+package org.avni.server.service;
+
+import java.io.OutputStream;
+
+/**
+ * Stream to an object being uploaded. The object is stored when the stream is closed, and is discarded if the upload is
+ * aborted instead.
+ */
+public abstract class ObjectUploadOutputStream extends OutputStream {
+    public abstract void abort();
+
+    public abstract String getObjectKey();
+}
@@ -0,0 +1,73 @@
+package org.avni.server.service;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long lived JWK provider for one issuer. Keys are kept for the life of the process and refreshed in the background,
+ * so that a key rotation at the IdP is picked up without making request threads wait on the JWKS endpoint.
+ */
+public class RefreshingJwkProvider implements JwkProvider {
+    private static final int MAX_KEYS = 10;
+    private static final long REFRESH_AFTER_HOURS = 1;
+    private static final long EXPIRE_AFTER_HOURS = 24;
+
+    private static final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jwk-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LoadingCache<String, Jwk> keys;
+
+    public RefreshingJwkProvider(JwkProvider delegate) {
+        this(delegate, Ticker.systemTicker());
+    }
+
+    RefreshingJwkProvider(JwkProvider delegate, Ticker ticker) {
+        this.keys = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .maximumSize(MAX_KEYS)
+                .refreshAfterWrite(REFRESH_AFTER_HOURS, TimeUnit.HOURS)
+                .expireAfterWrite(EXPIRE_AFTER_HOURS, TimeUnit.HOURS)
+                .recordStats()
+                .build(CacheLoader.asyncReloading(new CacheLoader<String, Jwk>() {
+                    @Override
+                    public Jwk load(String keyId) throws Exception {
+                        return delegate.get(keyId);
+                    }
+                }, refreshExecutor));
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        try {
+            return keys.get(keyId);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JwkException) throw (JwkException) cause;
+            throw new SigningKeyNotFoundException("Failed to get key with kid " + keyId, cause);
+        }
+    }
+
+    public long size() {
+        return keys.size();
+    }
+
+    public CacheStats getStats() {
+        return keys.stats();
+    }
+}
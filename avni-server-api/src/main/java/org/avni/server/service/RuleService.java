@@ -1,7 +1,6 @@
 package org.avni.server.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
 import org.avni.server.dao.*;
 import org.avni.server.domain.*;
 import org.avni.server.web.external.RuleServiceClient;
@@ -325,7 +324,6 @@ public class RuleService implements NonScopeAwareService {
     private <R extends BaseRuleResponseEntity> R createHttpHeaderAndSendRequest(String url, Object contractObject, RuleFailureLog ruleFailureLog, Class<R> responseType) throws RuleExecutionException {
         try {
             ObjectMapper mapper = ObjectMapperSingleton.getObjectMapper();
-            mapper.registerModule(new JodaModule());
             String ruleResponse = restClient.post(url, contractObject);
             R ruleResponseEntity = mapper.readValue(ruleResponse, responseType);
             if (ruleResponseEntity.getStatus().equals("failure")) {
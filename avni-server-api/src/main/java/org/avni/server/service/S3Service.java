@@ -2,6 +2,7 @@ package org.avni.server.service;
 
 import com.amazonaws.HttpMethod;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.avni.server.domain.S3ExtensionFile;
 import org.avni.server.domain.Organisation;
 import org.avni.server.domain.UserContext;
@@ -35,6 +36,10 @@ public interface S3Service {
 
     ObjectInfo uploadFile(File tempSourceFile, String destFileName, String directory) throws IOException;
 
+    ObjectUploadOutputStream openUpload(String destFileName, String directory, ObjectMetadata objectMetadata) throws IOException;
+
+    boolean objectExists(S3File s3File);
+
     String getS3Key(String destFileName, String directory);
 
     ObjectInfo uploadFile(MultipartFile source, String destFileName, String directory) throws IOException;
@@ -118,6 +118,26 @@ public abstract class StorageService implements S3Service {
         return new ObjectInfo(actualS3Key, noOfLines);
     }
 
+    @Override
+    public ObjectUploadOutputStream openUpload(String destFileName, String directory, ObjectMetadata objectMetadata) throws IOException {
+        String s3Key = getS3Key(destFileName, directory);
+        if (isDev && !s3InDev) {
+            File localFile = new File(format("%s/%s", System.getProperty("java.io.tmpdir"), s3Key));
+            logger.info(format("[dev] Save file locally. '%s'", localFile.getAbsolutePath()));
+            localFile.getParentFile().mkdirs();
+            return new LocalUploadOutputStream(localFile);
+        }
+        return new MultipartUploadOutputStream(s3Client, bucketName, s3Key, objectMetadata);
+    }
+
+    @Override
+    public boolean objectExists(S3File s3File) {
+        if (isDev && !s3InDev) {
+            return new File(format("%s/%s", System.getProperty("java.io.tmpdir"), s3File.getPath())).exists();
+        }
+        return s3Client.doesObjectExist(bucketName, s3File.getPath());
+    }
+
     @Override
     public String getS3Key(String destFileName, String directory) {
         return format("%s/%s/%s",
@@ -451,4 +471,47 @@ public abstract class StorageService implements S3Service {
     public boolean isInternalUrl(String url) {
         return url.startsWith(this.s3Client.getUrl(this.bucketName, "").toString());
     }
+
+    private static class LocalUploadOutputStream extends ObjectUploadOutputStream {
+        private final File file;
+        private final OutputStream outputStream;
+        private boolean closed;
+
+        LocalUploadOutputStream(File file) throws IOException {
+            this.file = file;
+            this.outputStream = new FileOutputStream(file);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            outputStream.close();
+        }
+
+        @Override
+        public void abort() {
+            if (closed) return;
+            closed = true;
+            try {
+                outputStream.close();
+            } catch (IOException ignored) {
+            }
+            file.delete();
+        }
+
+        @Override
+        public String getObjectKey() {
+            return file.getAbsolutePath();
+        }
+    }
 }
@@ -4,12 +4,17 @@ import org.avni.server.application.FormMapping;
 import org.avni.server.dao.ChecklistDetailRepository;
 import org.avni.server.dao.EncounterTypeRepository;
 import org.avni.server.dao.OperationalSubjectTypeRepository;
+import org.avni.server.dao.OrganisationMetadataVersionRepository;
+import org.avni.server.dao.UserGroupRepository;
 import org.avni.server.dao.application.FormMappingRepository;
 import org.avni.server.domain.ChecklistDetail;
 import org.avni.server.domain.accessControl.GroupPrivileges;
 import org.avni.server.domain.SubjectType;
 import org.avni.server.domain.SyncableItem;
+import org.avni.server.domain.UserContext;
+import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.service.accessControl.GroupPrivilegeService;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
@@ -19,23 +24,45 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class SyncDetailsService {
+    public static final String SYNCABLE_ITEMS = "syncableItems";
+
     private OperationalSubjectTypeRepository subjectTypeRepository;
     private FormMappingRepository formMappingRepository;
     private ChecklistDetailRepository checklistDetailRepository;
     private OrganisationConfigService organisationConfigService;
     private GroupPrivilegeService groupPrivilegeService;
+    private UserGroupRepository userGroupRepository;
+    private OrganisationMetadataVersionRepository organisationMetadataVersionRepository;
+    private CacheManager cacheManager;
 
 
-    public SyncDetailsService(OperationalSubjectTypeRepository subjectTypeRepository1, EncounterTypeRepository encounterTypeRepository, FormMappingRepository formMappingRepository, ChecklistDetailRepository checklistDetailRepository, OrganisationConfigService organisationConfigService, GroupPrivilegeService groupPrivilegeService) {
+    public SyncDetailsService(OperationalSubjectTypeRepository subjectTypeRepository1, EncounterTypeRepository encounterTypeRepository, FormMappingRepository formMappingRepository, ChecklistDetailRepository checklistDetailRepository, OrganisationConfigService organisationConfigService, GroupPrivilegeService groupPrivilegeService,
+                              UserGroupRepository userGroupRepository, OrganisationMetadataVersionRepository organisationMetadataVersionRepository, CacheManager cacheManager) {
         this.subjectTypeRepository = subjectTypeRepository1;
         this.formMappingRepository = formMappingRepository;
         this.checklistDetailRepository = checklistDetailRepository;
         this.organisationConfigService = organisationConfigService;
         this.groupPrivilegeService = groupPrivilegeService;
+        this.userGroupRepository = userGroupRepository;
+        this.organisationMetadataVersionRepository = organisationMetadataVersionRepository;
+        this.cacheManager = cacheManager;
     }
 
+    /**
+     * The answer depends only on the organisation's metadata and the groups of the user, so it is shared by all users
+     * of an organisation with the same groups until the organisation metadata version changes.
+     */
     @Transactional
     public Set<SyncableItem> getAllSyncableItems(boolean scopeAwareEAS) {
+        UserContext userContext = UserContextHolder.getUserContext();
+        String key = String.format("%d|%s|%d|%b", userContext.getOrganisationId(),
+                userGroupRepository.getGroupIdsForUser(userContext.getUser().getId()),
+                organisationMetadataVersionRepository.getMetadataVersion(),
+                scopeAwareEAS);
+        return cacheManager.getCache(SYNCABLE_ITEMS).get(key, () -> Collections.unmodifiableSet(computeSyncableItems(scopeAwareEAS)));
+    }
+
+    private Set<SyncableItem> computeSyncableItems(boolean scopeAwareEAS) {
         List<SubjectType> subjectTypes = subjectTypeRepository.findAll()
                 .stream()
                 .map(operationalSubjectType -> operationalSubjectType.getSubjectType())
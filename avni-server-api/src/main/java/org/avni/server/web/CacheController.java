@@ -0,0 +1,47 @@
+package org.avni.server.web;
+
+import org.avni.server.framework.cache.BoundedCacheManager;
+import org.avni.server.framework.security.UserContextCache;
+import org.avni.server.service.IdpServiceFactory;
+import org.avni.server.service.accessControl.AccessControlService;
+import org.avni.server.web.response.CacheStatisticsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+public class CacheController {
+    private final BoundedCacheManager cacheManager;
+    private final UserContextCache userContextCache;
+    private final AccessControlService accessControlService;
+    private final IdpServiceFactory idpServiceFactory;
+
+    @Autowired
+    public CacheController(BoundedCacheManager cacheManager, UserContextCache userContextCache, AccessControlService accessControlService,
+                           IdpServiceFactory idpServiceFactory) {
+        this.cacheManager = cacheManager;
+        this.userContextCache = userContextCache;
+        this.accessControlService = accessControlService;
+        this.idpServiceFactory = idpServiceFactory;
+    }
+
+    @RequestMapping(value = "/cache/statistics", method = RequestMethod.GET)
+    @PreAuthorize(value = "hasAnyAuthority('user')")
+    public List<CacheStatisticsResponse> getStatistics() {
+        accessControlService.checkIsAdmin();
+        List<CacheStatisticsResponse> statistics = cacheManager.getCaches().stream()
+                .map(cache -> new CacheStatisticsResponse(cache.getName(), cache.size(), cache.getStats()))
+                .collect(Collectors.toList());
+        statistics.add(new CacheStatisticsResponse("userContext", userContextCache.size(), userContextCache.getStats()));
+        idpServiceFactory.getIAMServices().forEach((idp, iamService) -> {
+            statistics.add(new CacheStatisticsResponse(idp + "VerifiedTokens", iamService.getVerifiedTokenCacheSize(), iamService.getVerifiedTokenCacheStats()));
+            statistics.add(new CacheStatisticsResponse(idp + "Jwks", iamService.getJwkCacheSize(), iamService.getJwkCacheStats()));
+        });
+        return statistics;
+    }
+}
@@ -20,6 +20,7 @@ import org.avni.server.web.external.request.export.ExportOutput;
 import org.avni.server.web.external.request.export.ExportV2JobRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
@@ -31,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.avni.server.exporter.v2.ExportV2ValidationHelper.*;
 
@@ -89,14 +91,28 @@ public class ExportController {
     }
 
     @RequestMapping(value = "/export/download", method = RequestMethod.GET)
-    public ResponseEntity<?> downloadFile(@RequestParam String fileName) throws IOException {
-        InputStream inputStream = exportS3Service.downloadFile(fileName);
-        byte[] bytes = IOUtils.toByteArray(inputStream);
+    public ResponseEntity<?> downloadFile(@RequestParam String fileName,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        if (!exportS3Service.isCompressed(fileName)) {
+            InputStream inputStream = exportS3Service.downloadFile(fileName);
+            byte[] bytes = IOUtils.toByteArray(inputStream);
+            return ResponseEntity.ok()
+                    .headers(getHttpHeaders(fileName))
+                    .contentLength(bytes.length)
+                    .contentType(MediaType.parseMediaType("application/octet-stream"))
+                    .body(new ByteArrayResource(bytes));
+        }
+        HttpHeaders headers = getHttpHeaders(fileName);
+        InputStream inputStream = exportS3Service.downloadCompressedFile(fileName);
+        if (acceptEncoding != null && acceptEncoding.contains(ExportS3Service.GZIP_CONTENT_ENCODING)) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, ExportS3Service.GZIP_CONTENT_ENCODING);
+        } else {
+            inputStream = new GZIPInputStream(inputStream);
+        }
         return ResponseEntity.ok()
-                .headers(getHttpHeaders(fileName))
-                .contentLength(bytes.length)
+                .headers(headers)
                 .contentType(MediaType.parseMediaType("application/octet-stream"))
-                .body(new ByteArrayResource(bytes));
+                .body(new InputStreamResource(inputStream));
     }
 
     private HttpHeaders getHttpHeaders(String filename) {
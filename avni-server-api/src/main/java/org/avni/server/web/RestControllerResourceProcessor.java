@@ -1,5 +1,6 @@
 package org.avni.server.web;
 
+import org.avni.server.domain.CHSEntity;
 import org.avni.server.web.response.slice.SlicedResources;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -28,6 +29,12 @@ public interface RestControllerResourceProcessor<T> {
         SlicedResources.SliceMetadata sliceMetadata = new SlicedResources.SliceMetadata(slice.getSize(), slice.getNumber(), slice.hasNext());
         List<Resource<T>> resources = new ArrayList<>();
         for (T it : slice) resources.add(this.process(new Resource<>(it)));
+        if (slice.hasContent()) {
+            T last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            if (last instanceof CHSEntity) {
+                sliceMetadata.setLastEntity(((CHSEntity) last).getLastModifiedDateTime(), ((CHSEntity) last).getId());
+            }
+        }
         return new SlicedResources<>(resources, sliceMetadata);
     }
 
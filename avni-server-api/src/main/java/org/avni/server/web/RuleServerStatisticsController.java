@@ -0,0 +1,31 @@
+package org.avni.server.web;
+
+import org.avni.server.domain.JsonObject;
+import org.avni.server.service.accessControl.AccessControlService;
+import org.avni.server.web.external.RuleServiceClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class RuleServerStatisticsController {
+    private final RuleServiceClient ruleServiceClient;
+    private final AccessControlService accessControlService;
+
+    @Autowired
+    public RuleServerStatisticsController(RuleServiceClient ruleServiceClient, AccessControlService accessControlService) {
+        this.ruleServiceClient = ruleServiceClient;
+        this.accessControlService = accessControlService;
+    }
+
+    @RequestMapping(value = "/ruleServer/statistics", method = RequestMethod.GET)
+    @PreAuthorize(value = "hasAnyAuthority('user')")
+    public JsonObject getStatistics() {
+        accessControlService.checkIsAdmin();
+        return new JsonObject()
+                .with("circuitState", ruleServiceClient.getCircuitState())
+                .with("endpoints", ruleServiceClient.getEndpointStatistics());
+    }
+}
@@ -1,5 +1,7 @@
 package org.avni.server.web;
 
+import org.avni.server.common.dbSchema.TableNames;
+import org.avni.server.dao.SyncWatermarkRepository;
 import org.avni.server.domain.JsonObject;
 import org.avni.server.domain.SyncableItem;
 import org.avni.server.service.*;
@@ -33,6 +35,7 @@ public class SyncController {
     private final Environment environment;
     private final Map<String, ScopeAwareService> scopeAwareServiceMap = new HashMap<>();
     private final Map<String, NonScopeAwareService> nonScopeAwareServiceMap = new HashMap<>();
+    private final Map<String, String> watermarkTableMap = new HashMap<>();
     private final IndividualService individualService;
     private final EncounterService encounterService;
     private final ProgramEnrolmentService programEnrolmentService;
@@ -101,6 +104,7 @@ public class SyncController {
     private final UserSubjectAssignmentService userSubjectAssignmentService;
     private final ScopedEntityApprovalStatusService scopedEntityApprovalStatusService;
     private final DashboardFilterService dashboardFilterService;
+    private final SyncWatermarkRepository syncWatermarkRepository;
 
     @Autowired
     public SyncController(Environment environment, IndividualService individualService, EncounterService encounterService,
@@ -133,7 +137,8 @@ public class SyncController {
                           DocumentationService documentationService, DocumentationItemService documentationItemService,
                           TaskService taskService, TaskTypeService taskTypeService, TaskStatusService taskStatusService,
                           TaskUnAssigmentService taskUnAssigmentService, SubjectProgramEligibilityService subjectProgramEligibilityService, MenuItemService menuItemService, UserSubjectAssignmentService userSubjectAssignmentService,
-                          ScopedEntityApprovalStatusService scopedEntityApprovalStatusService, DashboardFilterService dashboardFilterService) {
+                          ScopedEntityApprovalStatusService scopedEntityApprovalStatusService, DashboardFilterService dashboardFilterService,
+                          SyncWatermarkRepository syncWatermarkRepository) {
         this.environment = environment;
         this.individualService = individualService;
         this.encounterService = encounterService;
@@ -202,6 +207,7 @@ public class SyncController {
         this.userSubjectAssignmentService = userSubjectAssignmentService;
         this.scopedEntityApprovalStatusService = scopedEntityApprovalStatusService;
         this.dashboardFilterService = dashboardFilterService;
+        this.syncWatermarkRepository = syncWatermarkRepository;
         this.logger = LoggerFactory.getLogger(this.getClass());
     }
 
@@ -209,6 +215,7 @@ public class SyncController {
     public void init() {
         populateScopeAwareRepositoryMap();
         populateEntityNameToTableMap();
+        populateWatermarkTableMap();
     }
 
     private void populateScopeAwareRepositoryMap() {
@@ -287,6 +294,78 @@ public class SyncController {
         nonScopeAwareServiceMap.put("UserSubjectAssignment", userSubjectAssignmentService);
     }
 
+    /**
+     * Tables whose latest change can be read in a single batched query. For non scope aware entities the table
+     * watermark is the whole answer. For scope aware entities it is only a pre-check, the scoped query runs when the
+     * table has changed at all. Entities filtered by the user, platform, publish state or stored outside the database
+     * (IdentifierAssignment, Task, TaskUnAssignment, MyGroups, UserSubjectAssignment, PlatformTranslation, News,
+     * LocationHierarchy, Extension) are left to their services.
+     */
+    private void populateWatermarkTableMap() {
+        watermarkTableMap.put("Individual", TableNames.Subject);
+        watermarkTableMap.put("Encounter", TableNames.Encounter);
+        watermarkTableMap.put("ProgramEnrolment", TableNames.ProgramEnrolment);
+        watermarkTableMap.put("ProgramEncounter", TableNames.ProgramEncounter);
+        watermarkTableMap.put("Checklist", "checklist");
+        watermarkTableMap.put("ChecklistItem", "checklist_item");
+        watermarkTableMap.put("IndividualRelationship", "individual_relationship");
+        watermarkTableMap.put("GroupSubject", "group_subject");
+        watermarkTableMap.put("Comment", "comment");
+        watermarkTableMap.put("CommentThread", "comment_thread");
+        watermarkTableMap.put("AddressLevel", "address_level");
+        watermarkTableMap.put("LocationMapping", "location_location_mapping");
+        watermarkTableMap.put("SubjectMigration", "subject_migration");
+        watermarkTableMap.put("SubjectProgramEligibility", "subject_program_eligibility");
+        watermarkTableMap.put("SubjectEntityApprovalStatus", "entity_approval_status");
+        watermarkTableMap.put("EncounterEntityApprovalStatus", "entity_approval_status");
+        watermarkTableMap.put("ProgramEncounterEntityApprovalStatus", "entity_approval_status");
+        watermarkTableMap.put("ProgramEnrolmentEntityApprovalStatus", "entity_approval_status");
+        watermarkTableMap.put("ChecklistItemEntityApprovalStatus", "entity_approval_status");
+
+        watermarkTableMap.put("ChecklistDetail", "checklist_detail");
+        watermarkTableMap.put("Rule", "rule");
+        watermarkTableMap.put("RuleDependency", "rule_dependency");
+        watermarkTableMap.put("Form", "form");
+        watermarkTableMap.put("FormMapping", "form_mapping");
+        watermarkTableMap.put("EncounterType", "encounter_type");
+        watermarkTableMap.put("Program", "program");
+        watermarkTableMap.put("ProgramOutcome", "program_outcome");
+        watermarkTableMap.put("Gender", "gender");
+        watermarkTableMap.put("IndividualRelation", "individual_relation");
+        watermarkTableMap.put("IndividualRelationGenderMapping", "individual_relation_gender_mapping");
+        watermarkTableMap.put("IndividualRelationshipType", "individual_relationship_type");
+        watermarkTableMap.put("Concept", "concept");
+        watermarkTableMap.put("ProgramConfig", "program_organisation_config");
+        watermarkTableMap.put("Video", "video");
+        watermarkTableMap.put("SubjectType", "subject_type");
+        watermarkTableMap.put("ChecklistItemDetail", "checklist_item_detail");
+        watermarkTableMap.put("FormElementGroup", "form_element_group");
+        watermarkTableMap.put("FormElement", "form_element");
+        watermarkTableMap.put("ConceptAnswer", "concept_answer");
+        watermarkTableMap.put("IdentifierSource", "identifier_source");
+        watermarkTableMap.put("OrganisationConfig", "organisation_config");
+        watermarkTableMap.put("Translation", "translation");
+        watermarkTableMap.put("Groups", "groups");
+        watermarkTableMap.put("GroupPrivileges", "group_privilege");
+        watermarkTableMap.put("GroupRole", "group_role");
+        watermarkTableMap.put("ReportCard", "report_card");
+        watermarkTableMap.put("Dashboard", "dashboard");
+        watermarkTableMap.put("DashboardSection", "dashboard_section");
+        watermarkTableMap.put("DashboardFilter", "dashboard_filter");
+        watermarkTableMap.put("DashboardSectionCardMapping", "dashboard_section_card_mapping");
+        watermarkTableMap.put("ApprovalStatus", "approval_status");
+        watermarkTableMap.put("GroupDashboard", "group_dashboard");
+        watermarkTableMap.put("EntityApprovalStatus", "entity_approval_status");
+        watermarkTableMap.put("Documentation", "documentation");
+        watermarkTableMap.put("DocumentationItem", "documentation_item");
+        watermarkTableMap.put("UserInfo", "users");
+        watermarkTableMap.put("Privilege", "privilege");
+        watermarkTableMap.put("StandardReportCardType", "standard_report_card_type");
+        watermarkTableMap.put("TaskType", "task_type");
+        watermarkTableMap.put("TaskStatus", "task_status");
+        watermarkTableMap.put("MenuItem", "menu_item");
+    }
+
     /**
      *
      * @param clientEntitySyncStatuses : This would contain all entries from EntitySyncStatus table maintained on avni-client,
@@ -346,11 +425,23 @@ public class SyncController {
         });
         removeDisabledEntities(clientEntitySyncStatuses, serverSyncableItems);
 
+        Map<String, DateTime> tableWatermarks = syncWatermarkRepository.getLastModifiedDateTimes(getEarliestLoadedSinceByTable(clientEntitySyncStatuses));
         return clientEntitySyncStatuses.stream()
-                .filter((entitySyncStatusContract) -> filterChangedEntities(entitySyncStatusContract, scopeAwareEAS))
+                .filter((entitySyncStatusContract) -> filterChangedEntities(entitySyncStatusContract, scopeAwareEAS, tableWatermarks))
                 .collect(Collectors.toList());
     }
 
+    private Map<String, DateTime> getEarliestLoadedSinceByTable(List<EntitySyncStatusContract> clientEntitySyncStatuses) {
+        Map<String, DateTime> earliestLoadedSinceByTable = new HashMap<>();
+        clientEntitySyncStatuses.forEach(entitySyncStatusContract -> {
+            String table = watermarkTableMap.get(entitySyncStatusContract.getEntityName());
+            DateTime loadedSince = entitySyncStatusContract.getLoadedSince();
+            if (table == null || loadedSince == null) return;
+            earliestLoadedSinceByTable.merge(table, loadedSince, (a, b) -> a.isBefore(b) ? a : b);
+        });
+        return earliestLoadedSinceByTable;
+    }
+
     /**
      * The purpose of this method is to iterate on {@code clientSyncStatuses}(1st param) and removing from it entries corresponding
      * to entities with
@@ -386,13 +477,19 @@ public class SyncController {
                 serverSyncableItems.stream().noneMatch(clientSyncStatus::matchesEntity));
     }
 
-    private boolean filterChangedEntities(EntitySyncStatusContract entitySyncStatusContract, boolean scopeAwareEAS) {
+    private boolean filterChangedEntities(EntitySyncStatusContract entitySyncStatusContract, boolean scopeAwareEAS, Map<String, DateTime> tableWatermarks) {
         String entityName = entitySyncStatusContract.getEntityName();
         DateTime loadedSince = entitySyncStatusContract.getLoadedSince();
-        if(scopeAwareEAS) nonScopeAwareServiceMap.remove("EntityApprovalStatus");
+        if (scopeAwareEAS && "EntityApprovalStatus".equals(entityName)) return false;
         ScopeAwareService scopeAwareService = this.scopeAwareServiceMap.get(entityName);
         NonScopeAwareService nonScopeAwareService = this.nonScopeAwareServiceMap.get(entityName);
 
+        String table = watermarkTableMap.get(entityName);
+        if (table != null && loadedSince != null && tableWatermarks.containsKey(table)) {
+            boolean tableChanged = isChangedSince(tableWatermarks.get(table), loadedSince);
+            if (!tableChanged || nonScopeAwareService != null) return tableChanged;
+        }
+
         if (nonScopeAwareService != null) {
             return nonScopeAwareService.isNonScopeEntityChanged(loadedSince);
         }
@@ -404,6 +501,14 @@ public class SyncController {
         return false;
     }
 
+    /**
+     * Rows modified at loadedSince itself count as changes, as rows with the same last modified date time may have been
+     * committed after the client loaded the ones it has.
+     */
+    static boolean isChangedSince(DateTime watermark, DateTime loadedSince) {
+        return watermark != null && !watermark.isBefore(loadedSince);
+    }
+
     /**
      * This is a hack to fix the problem of missing data when multiple users sync at the same time.
      * During sync, it is possible that the tables being sync GETted are also being updated concurrently.
@@ -0,0 +1,54 @@
+package org.avni.server.web.external;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a failing dependency for a while after a run of consecutive failures. Once the open period is over a
+ * single trial call is let through; its outcome decides whether the circuit closes again or stays open.
+ */
+public class CircuitBreaker {
+    public enum State {Closed, Open, HalfOpen}
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.Closed;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.Open && clock.getAsLong() - openedAt >= openMillis) {
+            state = State.HalfOpen;
+            return true;
+        }
+        return state == State.Closed;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.Closed;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HalfOpen || consecutiveFailures >= failureThreshold) {
+            state = State.Open;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,53 @@
+package org.avni.server.web.external;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EndpointStatistics {
+    private final String endpoint;
+    private final LongAdder callCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    public EndpointStatistics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void record(long latencyMillis, boolean failed) {
+        callCount.increment();
+        if (failed) errorCount.increment();
+        totalLatencyMillis.add(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    public void recordRejected() {
+        rejectedCount.increment();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getCallCount() {
+        return callCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getAverageLatencyMillis() {
+        long calls = callCount.sum();
+        return calls == 0 ? 0 : totalLatencyMillis.sum() / calls;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+}
@@ -0,0 +1,13 @@
+package org.avni.server.web.external;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Thrown when the rule server does not have the endpoint at all (404 or 405), as opposed to rejecting the request.
+ */
+public class RuleEndpointNotFoundException extends HttpClientErrorException {
+    public RuleEndpointNotFoundException(String api) {
+        super(HttpStatus.NOT_FOUND, "rule " + api + " not found");
+    }
+}
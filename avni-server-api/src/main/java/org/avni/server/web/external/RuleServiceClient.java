@@ -1,5 +1,9 @@
 package org.avni.server.web.external;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.avni.server.domain.UserContext;
 import org.avni.server.framework.security.AuthenticationFilter;
 import org.avni.server.framework.security.UserContextHolder;
@@ -10,28 +14,98 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class RuleServiceClient {
+    private static final long IDLE_CONNECTION_EVICTION_SECONDS = 30;
+
     @Value("${node.server.url}")
     private String NODE_SERVER_HOST;
     private Logger logger = LoggerFactory.getLogger(RuleServiceClient.class);
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<String, EndpointStatistics> endpointStatistics = new ConcurrentHashMap<>();
+
+    public RuleServiceClient(@Value("${node.server.max.connections}") int maxConnections,
+                             @Value("${node.server.connect.timeout.millis}") int connectTimeoutMillis,
+                             @Value("${node.server.read.timeout.millis}") int readTimeoutMillis,
+                             @Value("${node.server.circuit.failure.threshold}") int circuitFailureThreshold,
+                             @Value("${node.server.circuit.open.seconds}") int circuitOpenSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(IDLE_CONNECTION_EVICTION_SECONDS, TimeUnit.SECONDS)
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.circuitBreaker = new CircuitBreaker(circuitFailureThreshold, TimeUnit.SECONDS.toMillis(circuitOpenSeconds));
+    }
 
     public <T> String post(String api, T jsonObj) throws HttpClientErrorException {
+        EndpointStatistics statistics = endpointStatistics.computeIfAbsent(api, EndpointStatistics::new);
         String uri = NODE_SERVER_HOST.concat(api);
-        RestTemplate restTemplate = new RestTemplate();
         HttpEntity<Object> entityCredentials = new HttpEntity<>(jsonObj, constructHeaders());
+        if (!circuitBreaker.allowRequest()) {
+            statistics.recordRejected();
+            throw new ResourceAccessException("rule server unavailable, not calling " + api);
+        }
+
+        long start = System.currentTimeMillis();
         try {
-            return restTemplate.postForObject(uri, entityCredentials, String.class);
+            String response = restTemplate.postForObject(uri, entityCredentials, String.class);
+            circuitBreaker.recordSuccess();
+            statistics.record(System.currentTimeMillis() - start, false);
+            return response;
         } catch (HttpClientErrorException e) {
+            circuitBreaker.recordSuccess();
+            statistics.record(System.currentTimeMillis() - start, true);
             logger.info("rule " + api + " not found");
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND || e.getStatusCode() == HttpStatus.METHOD_NOT_ALLOWED) {
+                throw new RuleEndpointNotFoundException(api);
+            }
             throw new HttpClientErrorException(HttpStatus.NOT_FOUND, "rule " + api + " not found");
+        } catch (RuntimeException e) {
+            // any other outcome counts as a failure, so that a half open circuit never keeps its trial call taken
+            circuitBreaker.recordFailure();
+            statistics.record(System.currentTimeMillis() - start, true);
+            throw e;
         }
     }
 
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public List<EndpointStatistics> getEndpointStatistics() {
+        return new ArrayList<>(endpointStatistics.values());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
     private HttpHeaders constructHeaders() {
         HttpHeaders httpHeaders = new HttpHeaders();
         UserContext userContext = UserContextHolder.getUserContext();
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
+import org.joda.time.DateTime;
 import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
@@ -13,6 +14,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -162,6 +164,14 @@ public class SlicedResources<T> extends Resources<T> {
         @JsonProperty //
         private boolean hasNext;
 
+        @JsonProperty //
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private DateTime lastModifiedDateTime;
+
+        @JsonProperty //
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long lastEntityId;
+
         protected SliceMetadata() {}
 
         /**
@@ -215,6 +225,26 @@ public class SlicedResources<T> extends Resources<T> {
             return hasNext;
         }
 
+        /**
+         * Sets the position of the last entity in this slice. Clients pass these back as lastModifiedDateTime and
+         * lastEntityId to seek to the next slice.
+         *
+         * @param lastModifiedDateTime last modified date time of the last entity in the slice.
+         * @param lastEntityId id of the last entity in the slice.
+         */
+        public void setLastEntity(DateTime lastModifiedDateTime, Long lastEntityId) {
+            this.lastModifiedDateTime = lastModifiedDateTime;
+            this.lastEntityId = lastEntityId;
+        }
+
+        public DateTime getLastModifiedDateTime() {
+            return lastModifiedDateTime;
+        }
+
+        public Long getLastEntityId() {
+            return lastEntityId;
+        }
+
 
         /*
          * (non-Javadoc)
@@ -3,6 +3,8 @@
 -- Repeatable migrations are run only when the checksum of the current file is changed.
 --
 
+-- virtual_catchment_address_mapping_table is a table maintained by triggers (see V1_309). This function is kept for
+-- queries written against it and reads from that table.
 CREATE OR REPLACE FUNCTION virtual_catchment_address_mapping_table_function()
     RETURNS TABLE
             (
@@ -15,22 +17,10 @@ CREATE OR REPLACE FUNCTION virtual_catchment_address_mapping_table_function()
     SECURITY INVOKER
 AS
 $$
-select row_number() OVER ()  AS id,
-       cam.catchment_id::int AS catchment_id,
-       al.id                 AS addresslevel_id,
-       al.type_id            AS type_id
-from address_level al
-         left outer join regexp_split_to_table((al.lineage)::text, '[.]'::text) WITH ORDINALITY lineage(point_id, level)
-                         ON (true)
-         left outer join catchment_address_mapping cam on cam.addresslevel_id = point_id::int
-where catchment_id notnull
-group by 2, 3
+select v.id, v.catchment_id, v.addresslevel_id, v.type_id
+from virtual_catchment_address_mapping_table v
 $$;
 
-CREATE or replace VIEW virtual_catchment_address_mapping_table AS
-SELECT *
-FROM virtual_catchment_address_mapping_table_function();
-
 
 DROP VIEW if exists address_level_type_view;
 
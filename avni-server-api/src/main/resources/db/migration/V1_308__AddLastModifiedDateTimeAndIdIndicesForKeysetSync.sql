@@ -0,0 +1,12 @@
+DROP INDEX IF EXISTS individual_last_modified_date_time_id__index;
+CREATE INDEX individual_last_modified_date_time_id__index
+  ON individual (last_modified_date_time, id);
+DROP INDEX IF EXISTS encounter_last_modified_date_time_id__index;
+CREATE INDEX encounter_last_modified_date_time_id__index
+  ON encounter (last_modified_date_time, id);
+DROP INDEX IF EXISTS program_enrolment_last_modified_date_time_id__index;
+CREATE INDEX program_enrolment_last_modified_date_time_id__index
+  ON program_enrolment (last_modified_date_time, id);
+DROP INDEX IF EXISTS program_encounter_last_modified_date_time_id__index;
+CREATE INDEX program_encounter_last_modified_date_time_id__index
+  ON program_encounter (last_modified_date_time, id);
@@ -0,0 +1,129 @@
+-- virtual_catchment_address_mapping_table used to be a view recomputed on every read. It is now a table kept up to date
+-- by triggers on catchment_address_mapping and address_level.
+drop view if exists virtual_catchment_address_mapping_table;
+
+create table virtual_catchment_address_mapping_table
+(
+    id              bigserial primary key,
+    catchment_id    int    not null,
+    addresslevel_id int    not null,
+    type_id         int,
+    organisation_id bigint not null
+);
+
+create index virtual_catchment_address_mapping_table_catchment_id_type_id_idx
+    on virtual_catchment_address_mapping_table (catchment_id, type_id);
+create index virtual_catchment_address_mapping_table_addresslevel_id_idx
+    on virtual_catchment_address_mapping_table (addresslevel_id);
+
+select enable_rls_on_ref_table('virtual_catchment_address_mapping_table');
+
+create index if not exists address_level_lineage_gist_idx on address_level using gist (lineage);
+
+create or replace function add_virtual_catchment_address_mapping(in_catchment_id bigint, in_address_level_id bigint)
+    returns void
+    language sql
+    security definer
+as
+$$
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select c.id, al.id, al.type_id, c.organisation_id
+from catchment c
+         join address_level mapped on mapped.id = in_address_level_id
+         join address_level al on al.lineage <@ mapped.lineage
+where c.id = in_catchment_id
+  and not exists(select 1
+                 from virtual_catchment_address_mapping_table v
+                 where v.catchment_id = in_catchment_id
+                   and v.addresslevel_id = al.id);
+$$;
+
+create or replace function remove_virtual_catchment_address_mapping(in_catchment_id bigint, in_address_level_id bigint)
+    returns void
+    language sql
+    security definer
+as
+$$
+delete
+from virtual_catchment_address_mapping_table v
+    using address_level al, address_level removed
+where v.catchment_id = in_catchment_id
+  and removed.id = in_address_level_id
+  and al.id = v.addresslevel_id
+  and al.lineage <@ removed.lineage
+  and not exists(select 1
+                 from catchment_address_mapping cam
+                          join address_level mapped on mapped.id = cam.addresslevel_id
+                 where cam.catchment_id = in_catchment_id
+                   and al.lineage <@ mapped.lineage);
+$$;
+
+create or replace function refresh_virtual_catchment_address_mapping_for_address_level(in_address_level_id bigint)
+    returns void
+    language sql
+    security definer
+as
+$$
+delete from virtual_catchment_address_mapping_table where addresslevel_id = in_address_level_id;
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select distinct cam.catchment_id, al.id, al.type_id, c.organisation_id
+from address_level al
+         join address_level mapped on al.lineage <@ mapped.lineage
+         join catchment_address_mapping cam on cam.addresslevel_id = mapped.id
+         join catchment c on c.id = cam.catchment_id
+where al.id = in_address_level_id;
+$$;
+
+create or replace function catchment_address_mapping_changed()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    if (tg_op = 'DELETE' or tg_op = 'UPDATE') then
+        perform remove_virtual_catchment_address_mapping(old.catchment_id, old.addresslevel_id);
+    end if;
+    if (tg_op = 'INSERT' or tg_op = 'UPDATE') then
+        perform add_virtual_catchment_address_mapping(new.catchment_id, new.addresslevel_id);
+    end if;
+    return null;
+end
+$$;
+
+create or replace function address_level_lineage_changed()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    if (tg_op = 'DELETE') then
+        delete from virtual_catchment_address_mapping_table where addresslevel_id = old.id;
+    else
+        perform refresh_virtual_catchment_address_mapping_for_address_level(new.id);
+    end if;
+    return null;
+end
+$$;
+
+drop trigger if exists catchment_address_mapping_virtual_catchment on catchment_address_mapping;
+create trigger catchment_address_mapping_virtual_catchment
+    after insert or update or delete
+    on catchment_address_mapping
+    for each row
+execute procedure catchment_address_mapping_changed();
+
+drop trigger if exists address_level_virtual_catchment on address_level;
+create trigger address_level_virtual_catchment
+    after insert or update of lineage, type_id or delete
+    on address_level
+    for each row
+execute procedure address_level_lineage_changed();
+
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select distinct cam.catchment_id, al.id, al.type_id, c.organisation_id
+from catchment_address_mapping cam
+         join catchment c on c.id = cam.catchment_id
+         join address_level mapped on mapped.id = cam.addresslevel_id
+         join address_level al on al.lineage <@ mapped.lineage;
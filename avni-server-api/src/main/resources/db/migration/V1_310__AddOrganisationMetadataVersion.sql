@@ -0,0 +1,119 @@
+-- Monotonically increasing version of the metadata that decides which entity types a user syncs. Bumped by triggers
+-- whenever subject types, forms, form mappings, checklist details, groups, group privileges or organisation config change.
+create table organisation_metadata_version
+(
+    id              serial primary key,
+    organisation_id integer not null unique references organisation (id),
+    version         bigint  not null default 0
+);
+
+select enable_rls_on_ref_table('organisation_metadata_version');
+
+insert into organisation_metadata_version (organisation_id, version)
+select id, 0
+from organisation;
+
+create or replace function bump_organisation_metadata_version(in_organisation_id integer)
+    returns void
+    language plpgsql
+    security definer
+as
+$$
+begin
+    update organisation_metadata_version set version = version + 1 where organisation_id = in_organisation_id;
+    if not found then
+        insert into organisation_metadata_version (organisation_id, version) values (in_organisation_id, 1);
+    end if;
+end
+$$;
+
+create or replace function organisation_metadata_changed()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    if (tg_op = 'DELETE') then
+        perform bump_organisation_metadata_version(old.organisation_id);
+    else
+        perform bump_organisation_metadata_version(new.organisation_id);
+    end if;
+    return null;
+end
+$$;
+
+create or replace function organisation_created()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    insert into organisation_metadata_version (organisation_id, version) values (new.id, 0);
+    return null;
+end
+$$;
+
+drop trigger if exists organisation_metadata_version_on_create on organisation;
+create trigger organisation_metadata_version_on_create
+    after insert
+    on organisation
+    for each row
+execute procedure organisation_created();
+
+drop trigger if exists subject_type_metadata_version on subject_type;
+create trigger subject_type_metadata_version
+    after insert or update or delete
+    on subject_type
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists operational_subject_type_metadata_version on operational_subject_type;
+create trigger operational_subject_type_metadata_version
+    after insert or update or delete
+    on operational_subject_type
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists form_metadata_version on form;
+create trigger form_metadata_version
+    after insert or update of form_type, is_voided or delete
+    on form
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists form_mapping_metadata_version on form_mapping;
+create trigger form_mapping_metadata_version
+    after insert or update or delete
+    on form_mapping
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists checklist_detail_metadata_version on checklist_detail;
+create trigger checklist_detail_metadata_version
+    after insert or update or delete
+    on checklist_detail
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists groups_metadata_version on groups;
+create trigger groups_metadata_version
+    after insert or update or delete
+    on groups
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists group_privilege_metadata_version on group_privilege;
+create trigger group_privilege_metadata_version
+    after insert or update or delete
+    on group_privilege
+    for each row
+execute procedure organisation_metadata_changed();
+
+drop trigger if exists organisation_config_metadata_version on organisation_config;
+create trigger organisation_config_metadata_version
+    after insert or update or delete
+    on organisation_config
+    for each row
+execute procedure organisation_metadata_changed();
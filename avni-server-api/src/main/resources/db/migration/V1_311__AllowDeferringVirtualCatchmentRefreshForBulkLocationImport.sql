@@ -0,0 +1,34 @@
+-- Bulk location import inserts many address levels in one transaction. It sets avni.defer_virtual_catchment_refresh
+-- (transaction local) so that the address_level trigger does not refresh the mapping once per row, and refreshes all
+-- the inserted address levels in one statement at the end instead.
+create or replace function address_level_lineage_changed()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    if (tg_op = 'DELETE') then
+        delete from virtual_catchment_address_mapping_table where addresslevel_id = old.id;
+    elsif (coalesce(current_setting('avni.defer_virtual_catchment_refresh', true), '') <> 'true') then
+        perform refresh_virtual_catchment_address_mapping_for_address_level(new.id);
+    end if;
+    return null;
+end
+$$;
+
+create or replace function refresh_virtual_catchment_address_mapping_for_address_levels(in_address_level_ids bigint[])
+    returns void
+    language sql
+    security definer
+as
+$$
+delete from virtual_catchment_address_mapping_table where addresslevel_id = any (in_address_level_ids);
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select distinct cam.catchment_id, al.id, al.type_id, c.organisation_id
+from address_level al
+         join address_level mapped on al.lineage <@ mapped.lineage
+         join catchment_address_mapping cam on cam.addresslevel_id = mapped.id
+         join catchment c on c.id = cam.catchment_id
+where al.id = any (in_address_level_ids);
+$$;
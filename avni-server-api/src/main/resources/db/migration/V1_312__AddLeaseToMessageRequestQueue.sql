@@ -0,0 +1,8 @@
+-- Server nodes claim due message requests by leasing them until the lease expiry time. A request whose lease has
+-- expired, because its node went away or its send failed, can be claimed again.
+alter table message_request_queue add column lease_owner text;
+alter table message_request_queue add column lease_expiry_date_time timestamp(3) with time zone;
+
+create index message_request_queue_due_index
+    on message_request_queue (organisation_id, scheduled_date_time, id)
+    where delivery_status <> 'Sent' and is_voided = false;
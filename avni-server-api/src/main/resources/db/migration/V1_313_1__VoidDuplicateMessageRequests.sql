@@ -0,0 +1,16 @@
+-- Concurrent evaluations of the saves of an entity could create more than one request for the same message rule. Keep
+-- the delivered request, or else the oldest one, and void the others, so that their delivery history is not lost.
+with duplicate as (select id,
+                          row_number() over (partition by entity_id, message_rule_id
+                              order by delivery_status = 'Sent' desc, id) as position
+                   from message_request_queue
+                   where entity_id is not null
+                     and message_rule_id is not null
+                     and is_voided = false)
+update message_request_queue q
+set is_voided               = true,
+    version                 = q.version + 1,
+    last_modified_date_time = now()
+from duplicate
+where q.id = duplicate.id
+  and duplicate.position > 1;
@@ -0,0 +1,34 @@
+-- Saves of messageable entities are recorded here in the same transaction, and their message rules are evaluated in
+-- the background. Events are leased by server nodes the same way as message requests.
+create table message_outbox_event
+(
+    id                      SERIAL PRIMARY KEY,
+    uuid                    varchar(255)                NOT NULL,
+    organisation_id         integer                     NOT NULL references organisation (id),
+    entity_id               bigint                      NOT NULL,
+    entity_type_id          bigint,
+    entity_type             text                        NOT NULL,
+    subject_id              bigint                      NOT NULL,
+    user_id                 bigint                      NOT NULL,
+    attempts                integer                     NOT NULL DEFAULT 0,
+    next_attempt_date_time  timestamp(3) with time zone NOT NULL,
+    processed_date_time     timestamp(3) with time zone,
+    last_error              text,
+    lease_owner             text,
+    lease_expiry_date_time  timestamp(3) with time zone,
+    is_voided               boolean                     NOT NULL DEFAULT FALSE,
+    version                 integer                     NOT NULL,
+    created_by_id           bigint                      NOT NULL references users (id),
+    last_modified_by_id     bigint                      NOT NULL references users (id),
+    created_date_time       timestamp(3) with time zone NOT NULL,
+    last_modified_date_time timestamp(3) with time zone NOT NULL
+);
+
+alter table message_outbox_event
+    add unique (uuid, organisation_id);
+
+create index message_outbox_event_pending_index
+    on message_outbox_event (organisation_id, next_attempt_date_time, id)
+    where processed_date_time is null and is_voided = false;
+
+select enable_rls_on_tx_table('message_outbox_event');
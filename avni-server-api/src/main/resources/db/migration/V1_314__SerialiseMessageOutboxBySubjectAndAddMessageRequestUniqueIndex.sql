@@ -0,0 +1,9 @@
+-- Outbox events of a subject are leased one at a time, oldest first.
+create index message_outbox_event_pending_subject_index
+    on message_outbox_event (subject_id, id)
+    where processed_date_time is null and is_voided = false;
+
+-- Evaluating an outbox event finds the request of the entity and message rule and creates it when it is not found.
+create unique index message_request_queue_entity_message_rule_unique_index
+    on message_request_queue (entity_id, message_rule_id)
+    where is_voided = false;
@@ -0,0 +1,60 @@
+-- Concurrent changes to catchment_address_mapping or address_level could add the same mapping twice. Remove such
+-- duplicates, make them impossible, and let the trigger functions skip mappings that already exist.
+delete
+from virtual_catchment_address_mapping_table v
+    using (select id, row_number() over (partition by catchment_id, addresslevel_id order by id) as position
+           from virtual_catchment_address_mapping_table) duplicate
+where v.id = duplicate.id
+  and duplicate.position > 1;
+
+create unique index virtual_catchment_address_mapping_table_catchment_id_addresslevel_id_idx
+    on virtual_catchment_address_mapping_table (catchment_id, addresslevel_id);
+
+create or replace function add_virtual_catchment_address_mapping(in_catchment_id bigint, in_address_level_id bigint)
+    returns void
+    language sql
+    security definer
+as
+$$
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select c.id, al.id, al.type_id, c.organisation_id
+from catchment c
+         join address_level mapped on mapped.id = in_address_level_id
+         join address_level al on al.lineage <@ mapped.lineage
+where c.id = in_catchment_id
+on conflict (catchment_id, addresslevel_id) do nothing;
+$$;
+
+create or replace function refresh_virtual_catchment_address_mapping_for_address_level(in_address_level_id bigint)
+    returns void
+    language sql
+    security definer
+as
+$$
+delete from virtual_catchment_address_mapping_table where addresslevel_id = in_address_level_id;
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select distinct cam.catchment_id, al.id, al.type_id, c.organisation_id
+from address_level al
+         join address_level mapped on al.lineage <@ mapped.lineage
+         join catchment_address_mapping cam on cam.addresslevel_id = mapped.id
+         join catchment c on c.id = cam.catchment_id
+where al.id = in_address_level_id
+on conflict (catchment_id, addresslevel_id) do nothing;
+$$;
+
+create or replace function refresh_virtual_catchment_address_mapping_for_address_levels(in_address_level_ids bigint[])
+    returns void
+    language sql
+    security definer
+as
+$$
+delete from virtual_catchment_address_mapping_table where addresslevel_id = any (in_address_level_ids);
+insert into virtual_catchment_address_mapping_table (catchment_id, addresslevel_id, type_id, organisation_id)
+select distinct cam.catchment_id, al.id, al.type_id, c.organisation_id
+from address_level al
+         join address_level mapped on al.lineage <@ mapped.lineage
+         join catchment_address_mapping cam on cam.addresslevel_id = mapped.id
+         join catchment c on c.id = cam.catchment_id
+where al.id = any (in_address_level_ids)
+on conflict (catchment_id, addresslevel_id) do nothing;
+$$;
@@ -0,0 +1,227 @@
+-- Bumps the organisation metadata version once per statement rather than once per row, so that bulk changes to metadata,
+-- like saving a form mapping for each of many encounter types, do not update the version row of the organisation
+-- again for every row. The organisations changed are read from the transition tables of the statement.
+create or replace function organisation_metadata_changed_by_statement()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    if (tg_op = 'INSERT') then
+        perform bump_organisation_metadata_version(organisation_id)
+        from (select distinct organisation_id from new_rows order by organisation_id) changed;
+    elsif (tg_op = 'UPDATE') then
+        perform bump_organisation_metadata_version(organisation_id)
+        from (select organisation_id from new_rows union select organisation_id from old_rows order by organisation_id) changed;
+    else
+        perform bump_organisation_metadata_version(organisation_id)
+        from (select distinct organisation_id from old_rows order by organisation_id) changed;
+    end if;
+    return null;
+end
+$$;
+
+-- Forms only decide what is synced through their type and whether they are voided.
+create or replace function form_metadata_updated_by_statement()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    perform bump_organisation_metadata_version(organisation_id)
+    from (select distinct new_row.organisation_id
+          from new_rows new_row
+                   join old_rows old_row on old_row.id = new_row.id
+          where new_row.form_type is distinct from old_row.form_type
+             or new_row.is_voided is distinct from old_row.is_voided
+          order by new_row.organisation_id) changed;
+    return null;
+end
+$$;
+
+create or replace function organisations_created()
+    returns trigger
+    language plpgsql
+    security definer
+as
+$$
+begin
+    insert into organisation_metadata_version (organisation_id, version)
+    select id, 0
+    from new_rows;
+    return null;
+end
+$$;
+
+drop trigger if exists organisation_metadata_version_on_create on organisation;
+create trigger organisation_metadata_version_on_create
+    after insert
+    on organisation
+    referencing new table as new_rows
+    for each statement
+execute procedure organisations_created();
+
+drop trigger if exists subject_type_metadata_version on subject_type;
+create trigger subject_type_metadata_version_on_insert
+    after insert
+    on subject_type
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger subject_type_metadata_version_on_update
+    after update
+    on subject_type
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger subject_type_metadata_version_on_delete
+    after delete
+    on subject_type
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists operational_subject_type_metadata_version on operational_subject_type;
+create trigger operational_subject_type_metadata_version_on_insert
+    after insert
+    on operational_subject_type
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger operational_subject_type_metadata_version_on_update
+    after update
+    on operational_subject_type
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger operational_subject_type_metadata_version_on_delete
+    after delete
+    on operational_subject_type
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists form_metadata_version on form;
+create trigger form_metadata_version_on_insert
+    after insert
+    on form
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger form_metadata_version_on_update
+    after update
+    on form
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure form_metadata_updated_by_statement();
+create trigger form_metadata_version_on_delete
+    after delete
+    on form
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists form_mapping_metadata_version on form_mapping;
+create trigger form_mapping_metadata_version_on_insert
+    after insert
+    on form_mapping
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger form_mapping_metadata_version_on_update
+    after update
+    on form_mapping
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger form_mapping_metadata_version_on_delete
+    after delete
+    on form_mapping
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists checklist_detail_metadata_version on checklist_detail;
+create trigger checklist_detail_metadata_version_on_insert
+    after insert
+    on checklist_detail
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger checklist_detail_metadata_version_on_update
+    after update
+    on checklist_detail
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger checklist_detail_metadata_version_on_delete
+    after delete
+    on checklist_detail
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists groups_metadata_version on groups;
+create trigger groups_metadata_version_on_insert
+    after insert
+    on groups
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger groups_metadata_version_on_update
+    after update
+    on groups
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger groups_metadata_version_on_delete
+    after delete
+    on groups
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists group_privilege_metadata_version on group_privilege;
+create trigger group_privilege_metadata_version_on_insert
+    after insert
+    on group_privilege
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger group_privilege_metadata_version_on_update
+    after update
+    on group_privilege
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger group_privilege_metadata_version_on_delete
+    after delete
+    on group_privilege
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop trigger if exists organisation_config_metadata_version on organisation_config;
+create trigger organisation_config_metadata_version_on_insert
+    after insert
+    on organisation_config
+    referencing new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger organisation_config_metadata_version_on_update
+    after update
+    on organisation_config
+    referencing old table as old_rows new table as new_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+create trigger organisation_config_metadata_version_on_delete
+    after delete
+    on organisation_config
+    referencing old table as old_rows
+    for each statement
+execute procedure organisation_metadata_changed_by_statement();
+
+drop function if exists organisation_metadata_changed();
+drop function if exists organisation_created();
@@ -0,0 +1,185 @@
+package org.avni.messaging.external;
+
+import org.avni.messaging.contract.glific.GlificAuth;
+import org.avni.messaging.contract.glific.GlificResponse;
+import org.avni.server.dao.externalSystem.ExternalSystemConfigRepository;
+import org.avni.server.domain.JsonObject;
+import org.avni.server.domain.Organisation;
+import org.avni.server.domain.UserContext;
+import org.avni.server.domain.extenalSystem.ExternalSystemConfig;
+import org.avni.server.domain.extenalSystem.SystemName;
+import org.avni.server.framework.security.UserContextHolder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class GlificRestClientUnitTest {
+    private static final String BASE_URL = "http://glific";
+    private static final String AUTH_URL = BASE_URL + GlificRestClient.AUTH_URL;
+    private static final String API_URL = BASE_URL + "/api";
+    private static final ParameterizedTypeReference<GlificResponse<String>> RESPONSE_TYPE = new ParameterizedTypeReference<GlificResponse<String>>() {
+    };
+
+    @Mock
+    private RestTemplateBuilder restTemplateBuilder;
+    @Mock
+    private RestTemplate restTemplate;
+    @Mock
+    private ExternalSystemConfigRepository externalSystemConfigRepository;
+
+    private GlificRestClient glificRestClient;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        when(restTemplateBuilder.build()).thenReturn(restTemplate);
+        ExternalSystemConfig externalSystemConfig = new ExternalSystemConfig();
+        externalSystemConfig.setSystemName(SystemName.Glific);
+        externalSystemConfig.setConfig(new JsonObject()
+                .with("baseUrl", BASE_URL)
+                .with("phone", "919999999999")
+                .with("password", "password"));
+        when(externalSystemConfigRepository.findBySystemName(SystemName.Glific)).thenReturn(externalSystemConfig);
+        doReturn(ResponseEntity.ok(response("sent"))).when(restTemplate)
+                .exchange(eq(API_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        UserContext userContext = new UserContext();
+        userContext.setOrganisation(organisation);
+        UserContextHolder.create(userContext);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        UserContextHolder.clear();
+        if (glificRestClient != null) glificRestClient.close();
+    }
+
+    @Test
+    public void shouldReuseTheSessionOfAnOrganisationUntilShortlyBeforeItExpires() {
+        glificRestClient = createClient(60);
+        stubSessions(session("token-1", DateTime.now().plusHours(1)));
+
+        glificRestClient.callAPI("first", RESPONSE_TYPE);
+        glificRestClient.callAPI("second", RESPONSE_TYPE);
+
+        verify(restTemplate, times(1)).exchange(eq(AUTH_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        assertEquals(Arrays.asList("token-1", "token-1"), authorisationsOfApiCalls());
+    }
+
+    @Test
+    public void shouldLogInAgainBeforeTheTokenExpires() {
+        glificRestClient = createClient(60);
+        stubSessions(session("token-1", DateTime.now().plusSeconds(30)), session("token-2", DateTime.now().plusHours(1)));
+
+        glificRestClient.callAPI("first", RESPONSE_TYPE);
+        glificRestClient.callAPI("second", RESPONSE_TYPE);
+        glificRestClient.callAPI("third", RESPONSE_TYPE);
+
+        verify(restTemplate, times(2)).exchange(eq(AUTH_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        assertEquals(Arrays.asList("token-1", "token-2", "token-2"), authorisationsOfApiCalls());
+    }
+
+    @Test
+    public void shouldLogInAgainAndRetryOnceWhenTheSessionIsRejected() {
+        glificRestClient = createClient(60);
+        stubSessions(session("token-1", DateTime.now().plusHours(1)), session("token-2", DateTime.now().plusHours(1)));
+        doThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))
+                .doReturn(ResponseEntity.ok(response("sent")))
+                .when(restTemplate).exchange(eq(API_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+
+        String response = glificRestClient.callAPI("message", RESPONSE_TYPE);
+
+        assertEquals("sent", response);
+        assertEquals(Arrays.asList("token-1", "token-2"), authorisationsOfApiCalls());
+        verify(externalSystemConfigRepository, times(2)).findBySystemName(SystemName.Glific);
+    }
+
+    @Test(expected = HttpClientErrorException.class)
+    public void shouldNotRetryMoreThanOnceWhenTheSessionIsRejected() {
+        glificRestClient = createClient(60);
+        stubSessions(session("token-1", DateTime.now().plusHours(1)), session("token-2", DateTime.now().plusHours(1)));
+        doThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)).when(restTemplate)
+                .exchange(eq(API_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+
+        try {
+            glificRestClient.callAPI("message", RESPONSE_TYPE);
+        } finally {
+            verify(restTemplate, times(2)).exchange(eq(API_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        }
+    }
+
+    @Test
+    public void shouldReadTheSystemConfigAgainOnlyOnceItsCacheExpires() throws IOException {
+        glificRestClient = createClient(60);
+        stubSessions(session("token-1", DateTime.now().plusHours(1)));
+        glificRestClient.callAPI("first", RESPONSE_TYPE);
+        glificRestClient.callAPI("second", RESPONSE_TYPE);
+        verify(externalSystemConfigRepository, times(1)).findBySystemName(SystemName.Glific);
+
+        glificRestClient.close();
+        glificRestClient = createClient(0);
+        glificRestClient.callAPI("first", RESPONSE_TYPE);
+        glificRestClient.callAPI("second", RESPONSE_TYPE);
+        verify(externalSystemConfigRepository, times(5)).findBySystemName(SystemName.Glific);
+    }
+
+    private GlificRestClient createClient(int configCacheSeconds) {
+        return new GlificRestClient(restTemplateBuilder, externalSystemConfigRepository, 2, 1000, 1000, configCacheSeconds);
+    }
+
+    private void stubSessions(GlificAuth first, GlificAuth... rest) {
+        ResponseEntity<?>[] responses = new ResponseEntity<?>[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            responses[i] = ResponseEntity.ok(response(rest[i]));
+        }
+        doReturn(ResponseEntity.ok(response(first)), (Object[]) responses).when(restTemplate)
+                .exchange(eq(AUTH_URL), eq(HttpMethod.POST), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> authorisationsOfApiCalls() {
+        ArgumentCaptor<HttpEntity> requests = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, atLeastOnce()).exchange(eq(API_URL), eq(HttpMethod.POST), requests.capture(), any(ParameterizedTypeReference.class));
+        return requests.getAllValues().stream()
+                .map(request -> request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .collect(Collectors.toList());
+    }
+
+    private static GlificAuth session(String accessToken, DateTime expiresAt) {
+        GlificAuth auth = new GlificAuth();
+        auth.setAccessToken(accessToken);
+        auth.setTokenExpiryTime(expiresAt.toString());
+        return auth;
+    }
+
+    private static <T> GlificResponse<T> response(T data) {
+        GlificResponse<T> response = new GlificResponse<>();
+        response.setData(data);
+        return response;
+    }
+}
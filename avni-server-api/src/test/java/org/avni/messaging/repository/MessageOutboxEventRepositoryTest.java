@@ -0,0 +1,127 @@
+package org.avni.messaging.repository;
+
+import org.avni.server.common.AbstractControllerIntegrationTest;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Sql(scripts = {"/test-data.sql"})
+public class MessageOutboxEventRepositoryTest extends AbstractControllerIntegrationTest {
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private MessageOutboxEventRepository messageOutboxEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional
+    public void shouldDeleteOnlyEventsProcessedOrVoidedBeforeTheRetentionPeriod() {
+        long processedLongAgo = insertEvent(1L, 40, 40, false);
+        long processedRecently = insertEvent(2L, 40, 1, false);
+        long voidedLongAgo = insertEvent(3L, 40, null, true);
+        long pendingLongAgo = insertEvent(4L, 40, null, false);
+
+        int deleted = messageOutboxEventRepository.deleteEventsDoneBefore(DateTime.now().minusDays(30).toDate(), 10);
+
+        assertThat(deleted).isEqualTo(2);
+        assertThat(remainingEventIds()).containsExactlyInAnyOrder(processedRecently, pendingLongAgo);
+        assertThat(remainingEventIds()).doesNotContain(processedLongAgo, voidedLongAgo);
+    }
+
+    @Test
+    @Transactional
+    public void shouldDeleteAtMostABatchOfEvents() {
+        insertEvent(1L, 40, 40, false);
+        insertEvent(2L, 40, 40, false);
+        insertEvent(3L, 40, 40, false);
+
+        assertThat(messageOutboxEventRepository.deleteEventsDoneBefore(DateTime.now().minusDays(30).toDate(), 2)).isEqualTo(2);
+        assertThat(messageOutboxEventRepository.deleteEventsDoneBefore(DateTime.now().minusDays(30).toDate(), 2)).isEqualTo(1);
+    }
+
+    /**
+     * Each node leases in a transaction of its own. The second event of the subject must not be leased while the first
+     * one's lease is not yet committed, nor while it is leased, nor while it is still pending. It is leased once the
+     * first one has used up its attempts.
+     */
+    @Test
+    @Sql(scripts = "/test-data.sql")
+    @Sql(scripts = "/tear-down.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void shouldLeaseTheEventsOfASubjectOneAtATime() throws Exception {
+        long firstEvent = insertPendingEvent(1L);
+        long secondEvent = insertPendingEvent(1L);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch firstNodeLeased = new CountDownLatch(1);
+        CountDownLatch secondNodeDone = new CountDownLatch(1);
+        ExecutorService firstNode = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Long>> firstNodeLease = firstNode.submit(() -> transactionTemplate.execute(status -> {
+                List<Long> leased = lease("node1");
+                firstNodeLeased.countDown();
+                try {
+                    secondNodeDone.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return leased;
+            }));
+            assertThat(firstNodeLeased.await(30, TimeUnit.SECONDS)).isTrue();
+
+            List<Long> leasedWhileFirstNodeHoldsLocks = transactionTemplate.execute(status -> lease("node2"));
+            secondNodeDone.countDown();
+            List<Long> leasedByFirstNode = firstNodeLease.get(30, TimeUnit.SECONDS);
+            List<Long> leasedWhileFirstEventIsLeased = transactionTemplate.execute(status -> lease("node2"));
+
+            jdbcTemplate.update("update message_outbox_event set lease_expiry_date_time = now() - interval '1 second' where id = ?", firstEvent);
+            List<Long> leasedWhileFirstEventIsPending = transactionTemplate.execute(status -> lease("node2"));
+
+            jdbcTemplate.update("update message_outbox_event set attempts = ?, lease_owner = null, lease_expiry_date_time = null where id = ?", MAX_ATTEMPTS, firstEvent);
+            List<Long> leasedOnceFirstEventIsExhausted = transactionTemplate.execute(status -> lease("node2"));
+
+            assertThat(leasedByFirstNode).containsExactly(firstEvent);
+            assertThat(leasedWhileFirstNodeHoldsLocks).isEmpty();
+            assertThat(leasedWhileFirstEventIsLeased).isEmpty();
+            assertThat(leasedWhileFirstEventIsPending).containsExactly(firstEvent);
+            assertThat(leasedOnceFirstEventIsExhausted).containsExactly(secondEvent);
+        } finally {
+            secondNodeDone.countDown();
+            firstNode.shutdown();
+        }
+    }
+
+    private List<Long> lease(String leaseOwner) {
+        return messageOutboxEventRepository.claimPendingEvents(leaseOwner, 10, 60, MAX_ATTEMPTS);
+    }
+
+    private long insertPendingEvent(Long subjectId) {
+        return insertEvent(subjectId, 0, null, false);
+    }
+
+    private List<Long> remainingEventIds() {
+        return jdbcTemplate.queryForList("select id from message_outbox_event", Long.class);
+    }
+
+    private long insertEvent(Long subjectId, int daysSinceModified, Integer daysSinceProcessed, boolean voided) {
+        return jdbcTemplate.queryForObject("insert into message_outbox_event (uuid, organisation_id, entity_id, entity_type, subject_id, user_id, " +
+                        "next_attempt_date_time, processed_date_time, is_voided, version, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                        "values (?, 2, ?, 'Subject', ?, 1, now(), now() - make_interval(days => ?), ?, 0, 1, 1, " +
+                        "now() - make_interval(days => ?), now() - make_interval(days => ?)) returning id",
+                Long.class, UUID.randomUUID().toString(), subjectId, subjectId, daysSinceProcessed, voided, daysSinceModified, daysSinceModified);
+    }
+}
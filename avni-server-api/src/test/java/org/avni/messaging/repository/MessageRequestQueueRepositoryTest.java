@@ -5,8 +5,12 @@ import org.avni.server.common.AbstractControllerIntegrationTest;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+import java.util.concurrent.*;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -17,10 +21,52 @@ public class MessageRequestQueueRepositoryTest extends AbstractControllerIntegra
     @Autowired
     private MessageRequestQueueRepository messageRequestQueueRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     @Transactional
     public void shouldRetrieveUndeliveredMessageRequests() {
         Stream<MessageRequest> unsentMessages = messageRequestQueueRepository.findDueMessageRequests();
         assertThat(unsentMessages.findFirst().get().getUuid()).isEqualTo("75925823-109f-41a5-89e3-9c719c88155d");
     }
+
+    /**
+     * Each node claims in a transaction of its own. The second node claims while the first one's claim is not yet
+     * committed, so it must skip the locked rows, and again once the claim is committed, as the rows are then leased.
+     */
+    @Test
+    @Sql(scripts = "/test-data.sql")
+    @Sql(scripts = "/tear-down.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void shouldLeaseDueMessageRequestsToOnlyOneOwner() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch firstNodeClaimed = new CountDownLatch(1);
+        CountDownLatch secondNodeDone = new CountDownLatch(1);
+        ExecutorService firstNode = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Long>> firstNodeClaim = firstNode.submit(() -> transactionTemplate.execute(status -> {
+                List<Long> claimed = messageRequestQueueRepository.claimDueMessageRequests("node1", 10, 60);
+                firstNodeClaimed.countDown();
+                try {
+                    secondNodeDone.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return claimed;
+            }));
+            assertThat(firstNodeClaimed.await(30, TimeUnit.SECONDS)).isTrue();
+
+            List<Long> claimedWhileFirstNodeHoldsLocks = transactionTemplate.execute(status -> messageRequestQueueRepository.claimDueMessageRequests("node2", 10, 60));
+            secondNodeDone.countDown();
+            List<Long> claimedByFirstNode = firstNodeClaim.get(30, TimeUnit.SECONDS);
+            List<Long> claimedBySecondNodeAfterCommit = transactionTemplate.execute(status -> messageRequestQueueRepository.claimDueMessageRequests("node2", 10, 60));
+
+            assertThat(claimedByFirstNode).isNotEmpty();
+            assertThat(claimedWhileFirstNodeHoldsLocks).isEmpty();
+            assertThat(claimedBySecondNodeAfterCommit).isEmpty();
+        } finally {
+            secondNodeDone.countDown();
+            firstNode.shutdown();
+        }
+    }
 }
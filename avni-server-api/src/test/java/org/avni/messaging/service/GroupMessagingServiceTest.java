@@ -0,0 +1,154 @@
+package org.avni.messaging.service;
+
+import org.avni.messaging.contract.glific.GlificContactGroupContactsResponse;
+import org.avni.messaging.domain.*;
+import org.avni.messaging.domain.exception.GlificGroupMessageFailureException;
+import org.avni.messaging.domain.exception.MessageRequestLeaseLostException;
+import org.avni.messaging.repository.GlificContactRepository;
+import org.avni.messaging.repository.GlificMessageRepository;
+import org.avni.server.domain.Organisation;
+import org.avni.server.domain.User;
+import org.avni.server.domain.UserContext;
+import org.avni.server.framework.security.AuthService;
+import org.avni.server.framework.security.UserContextHolder;
+import org.avni.server.service.IndividualService;
+import org.avni.server.service.UserService;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class GroupMessagingServiceTest {
+    @Mock
+    private GlificMessageRepository glificMessageRepository;
+    @Mock
+    private GlificContactRepository glificContactRepository;
+    @Mock
+    private IndividualService individualService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private AuthService authService;
+    @Mock
+    private MessageRequestService messageRequestService;
+    @Mock
+    private MessageSendRateLimiters messageSendRateLimiters;
+
+    private GroupMessagingService groupMessagingService;
+    private final MessageSendRateLimiter rateLimiter = spy(new MessageSendRateLimiter(0));
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        groupMessagingService = new GroupMessagingService(glificMessageRepository, glificContactRepository, individualService,
+                userService, null, authService, messageRequestService, messageSendRateLimiters, 2);
+        User user = new User();
+        user.setId(1L);
+        user.setName("Sender");
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        UserContext userContext = new UserContext();
+        userContext.setUser(user);
+        userContext.setOrganisation(organisation);
+        UserContextHolder.create(userContext);
+        when(userService.findByPhoneNumber(anyString())).thenReturn(Optional.of(user));
+        when(messageSendRateLimiters.forOrganisation(1L)).thenReturn(rateLimiter);
+        when(messageRequestService.renewLease(any(MessageRequest.class))).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        groupMessagingService.shutdown();
+        UserContextHolder.clear();
+    }
+
+    @Test
+    public void shouldSavePendingContactsOfThePageWhenSomeSendsFail() {
+        when(glificContactRepository.getContactGroupContacts(eq("group1"), any(Pageable.class)))
+                .thenReturn(Arrays.asList(contact("c1"), contact("c2"), contact("c3")));
+        when(glificMessageRepository.sendMessageToContact(eq("template1"), eq("c2"), any())).thenThrow(new RuntimeException("throttled"));
+
+        try {
+            groupMessagingService.sendManualMessage(groupMessageRequest(null));
+            fail("Group message should have failed");
+        } catch (GlificGroupMessageFailureException e) {
+            assertEquals("c2", e.getContactIdFailedAt());
+        }
+
+        ArgumentCaptor<NextTriggerDetails> progress = ArgumentCaptor.forClass(NextTriggerDetails.class);
+        verify(messageRequestService).saveGroupMessageProgress(any(ManualMessage.class), progress.capture());
+        assertEquals(0, progress.getValue().getPageNo());
+        assertEquals(Arrays.asList("c2"), progress.getValue().getPendingContactIds());
+        verify(glificMessageRepository, times(3)).sendMessageToContact(eq("template1"), anyString(), any());
+    }
+
+    @Test
+    public void shouldResumeWithOnlyThePendingContactsOfThePage() {
+        when(glificContactRepository.getContactGroupContacts(eq("group1"), any(Pageable.class)))
+                .thenReturn(Arrays.asList(contact("c1"), contact("c2"), contact("c3")))
+                .thenReturn(Arrays.asList(contact("c4")));
+
+        groupMessagingService.sendManualMessage(groupMessageRequest(new NextTriggerDetails(0, "c2", Arrays.asList("c2"))));
+
+        verify(glificMessageRepository).sendMessageToContact(eq("template1"), eq("c2"), any());
+        verify(glificMessageRepository).sendMessageToContact(eq("template1"), eq("c4"), any());
+        verify(glificMessageRepository, times(2)).sendMessageToContact(eq("template1"), anyString(), any());
+    }
+
+    @Test
+    public void shouldTakeASlotOfTheOrganisationRateForEveryContact() throws InterruptedException {
+        when(glificContactRepository.getContactGroupContacts(eq("group1"), any(Pageable.class)))
+                .thenReturn(Arrays.asList(contact("c1"), contact("c2"), contact("c3")));
+
+        groupMessagingService.sendManualMessage(groupMessageRequest(null));
+
+        verify(rateLimiter, times(3)).acquire();
+    }
+
+    @Test
+    public void shouldStopSendingOnceTheLeaseIsLostToAnotherNode() {
+        List<GlificContactGroupContactsResponse.GlificContactGroupContacts> fullPage = IntStream.range(0, GroupMessagingService.CONTACT_MEMBER_PAGE_SIZE)
+                .mapToObj(i -> contact("c" + i))
+                .collect(Collectors.toList());
+        when(glificContactRepository.getContactGroupContacts(eq("group1"), any(Pageable.class)))
+                .thenReturn(fullPage)
+                .thenReturn(Arrays.asList(contact("last")));
+        when(messageRequestService.renewLease(any(MessageRequest.class))).thenReturn(false);
+
+        try {
+            groupMessagingService.sendManualMessage(groupMessageRequest(null));
+            fail("Group message should have stopped");
+        } catch (MessageRequestLeaseLostException e) {
+            verify(messageRequestService).saveGroupMessageProgress(any(ManualMessage.class), any(NextTriggerDetails.class));
+            verify(glificMessageRepository, times(GroupMessagingService.CONTACT_MEMBER_PAGE_SIZE)).sendMessageToContact(eq("template1"), anyString(), any());
+            verify(glificMessageRepository, never()).sendMessageToContact(eq("template1"), eq("last"), any());
+        }
+    }
+
+    private MessageRequest groupMessageRequest(NextTriggerDetails nextTriggerDetails) {
+        ManualMessage manualMessage = new ManualMessage("template1", new String[]{"Hello", "@name"});
+        manualMessage.setNextTriggerDetails(nextTriggerDetails);
+        return new MessageRequest(manualMessage, new MessageReceiver(ReceiverType.Group, "group1"), DateTime.now());
+    }
+
+    private static GlificContactGroupContactsResponse.GlificContactGroupContacts contact(String id) {
+        GlificContactGroupContactsResponse.GlificContactGroupContacts contact = new GlificContactGroupContactsResponse.GlificContactGroupContacts();
+        contact.setId(id);
+        contact.setPhone("98765" + id);
+        return contact;
+    }
+}
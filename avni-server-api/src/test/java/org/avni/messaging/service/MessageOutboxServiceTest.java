@@ -0,0 +1,70 @@
+package org.avni.messaging.service;
+
+import org.avni.messaging.domain.EntityType;
+import org.avni.messaging.domain.MessageOutboxEvent;
+import org.avni.messaging.repository.MessageOutboxEventRepository;
+import org.avni.server.domain.RuleExecutionException;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class MessageOutboxServiceTest {
+    @Mock
+    private MessageOutboxEventRepository messageOutboxEventRepository;
+
+    @Mock
+    private MessagingService messagingService;
+
+    private MessageOutboxService messageOutboxService;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        messageOutboxService = new MessageOutboxService(messageOutboxEventRepository, messagingService, 3, 60);
+    }
+
+    @Test
+    public void shouldEvaluateMessageRulesOfLeasedEvent() throws RuleExecutionException {
+        MessageOutboxEvent event = spy(new MessageOutboxEvent(1L, 2L, EntityType.Subject, 1L, 4L));
+        doReturn(true).when(event).isLeasedBy("node1");
+        when(messageOutboxEventRepository.findForUpdate(10L)).thenReturn(event);
+
+        assertTrue(messageOutboxService.process(10L, "node1"));
+
+        verify(messageOutboxEventRepository).coalescePendingEvents(10L, 1L, "Subject");
+        verify(messagingService).onEntitySave(1L, 2L, EntityType.Subject, 1L, 4L);
+        assertTrue(event.isProcessed());
+    }
+
+    @Test
+    public void shouldNotEvaluateEventLeasedByAnotherNode() throws RuleExecutionException {
+        MessageOutboxEvent event = spy(new MessageOutboxEvent(1L, 2L, EntityType.Subject, 1L, 4L));
+        doReturn(false).when(event).isLeasedBy("node1");
+        when(messageOutboxEventRepository.findForUpdate(10L)).thenReturn(event);
+
+        assertFalse(messageOutboxService.process(10L, "node1"));
+
+        verify(messagingService, never()).onEntitySave(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyAndGiveUpAfterMaxAttempts() {
+        MessageOutboxEvent event = new MessageOutboxEvent(1L, 2L, EntityType.Subject, 1L, 4L);
+        when(messageOutboxEventRepository.findEntity(10L)).thenReturn(event);
+
+        assertFalse(messageOutboxService.recordFailure(10L, new RuntimeException("rule server down")));
+        assertTrue(event.getNextAttemptDateTime().isAfter(DateTime.now().plusSeconds(50)));
+        assertFalse(messageOutboxService.recordFailure(10L, new RuntimeException("rule server down")));
+        assertTrue(event.getNextAttemptDateTime().isAfter(DateTime.now().plusSeconds(110)));
+        assertTrue(messageOutboxService.recordFailure(10L, new RuntimeException("rule server down")));
+
+        assertEquals(3, event.getAttempts());
+        assertEquals("RuntimeException: rule server down", event.getLastError());
+        assertFalse(event.isProcessed());
+    }
+}
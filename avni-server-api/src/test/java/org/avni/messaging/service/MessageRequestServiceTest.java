@@ -3,6 +3,7 @@ package org.avni.messaging.service;
 import org.avni.messaging.domain.MessageReceiver;
 import org.avni.messaging.domain.MessageRequest;
 import org.avni.messaging.domain.MessageRule;
+import org.avni.messaging.repository.ManualMessageRepository;
 import org.avni.messaging.repository.MessageRequestQueueRepository;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -21,6 +22,9 @@ public class MessageRequestServiceTest {
     @Mock
     private MessageRequestQueueRepository messageRequestRepository;
 
+    @Mock
+    private ManualMessageRepository manualMessageRepository;
+
     @Captor
     ArgumentCaptor<MessageRequest> messageRequest;
 
@@ -30,7 +34,7 @@ public class MessageRequestServiceTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        messageRequestService = new MessageRequestService(messageRequestRepository, messageReceiverService);
+        messageRequestService = new MessageRequestService(messageRequestRepository, messageReceiverService, manualMessageRepository, 300);
     }
 
     @Test
@@ -0,0 +1,40 @@
+package org.avni.messaging.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageSendRateLimiterTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void shouldSpaceOutMessagesAtTheConfiguredRate() {
+        MessageSendRateLimiter rateLimiter = new MessageSendRateLimiter(2, now::get);
+
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), rateLimiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), rateLimiter.reserve());
+    }
+
+    @Test
+    public void shouldNotLetIdleTimeBuildUpIntoABurst() {
+        MessageSendRateLimiter rateLimiter = new MessageSendRateLimiter(2, now::get);
+        rateLimiter.reserve();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), rateLimiter.reserve());
+    }
+
+    @Test
+    public void shouldNotWaitWhenRateIsNotLimited() {
+        MessageSendRateLimiter rateLimiter = new MessageSendRateLimiter(0, now::get);
+
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(0, rateLimiter.reserve());
+    }
+}
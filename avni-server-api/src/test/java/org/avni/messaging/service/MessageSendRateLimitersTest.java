@@ -0,0 +1,67 @@
+package org.avni.messaging.service;
+
+import org.avni.server.application.OrganisationConfigSettingKey;
+import org.avni.server.domain.JsonObject;
+import org.avni.server.domain.OrganisationConfig;
+import org.avni.server.service.OrganisationConfigService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class MessageSendRateLimitersTest {
+    @Mock
+    private OrganisationConfigService organisationConfigService;
+
+    private MessageSendRateLimiters messageSendRateLimiters;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        messageSendRateLimiters = new MessageSendRateLimiters(organisationConfigService, 5);
+    }
+
+    @Test
+    public void shouldLimitToTheRateOfTheOrganisation() {
+        assertEquals(2, messageSendRateLimiters.forOrganisation(1L, organisationConfig("2")).getMessagesPerSecond(), 0);
+        assertEquals(0, messageSendRateLimiters.forOrganisation(2L, organisationConfig(0)).getMessagesPerSecond(), 0);
+    }
+
+    @Test
+    public void shouldLimitToTheDefaultRateWhenTheOrganisationHasNone() {
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, null).getMessagesPerSecond(), 0);
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig(null)).getMessagesPerSecond(), 0);
+    }
+
+    @Test
+    public void shouldFallBackToTheDefaultRateWhenTheRateOfTheOrganisationIsInvalid() {
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig("two")).getMessagesPerSecond(), 0);
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig("")).getMessagesPerSecond(), 0);
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig(-1)).getMessagesPerSecond(), 0);
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig("NaN")).getMessagesPerSecond(), 0);
+        assertEquals(5, messageSendRateLimiters.forOrganisation(1L, organisationConfig("Infinity")).getMessagesPerSecond(), 0);
+    }
+
+    @Test
+    public void shouldReplaceTheLimiterOnlyWhenTheRateChanges() {
+        MessageSendRateLimiter rateLimiter = messageSendRateLimiters.forOrganisation(1L, organisationConfig(2));
+        assertSame(rateLimiter, messageSendRateLimiters.forOrganisation(1L, organisationConfig(2)));
+
+        MessageSendRateLimiter changedRateLimiter = messageSendRateLimiters.forOrganisation(1L, organisationConfig(3));
+        assertNotSame(rateLimiter, changedRateLimiter);
+        assertEquals(3, changedRateLimiter.getMessagesPerSecond(), 0);
+    }
+
+    private static OrganisationConfig organisationConfig(Object messagesPerSecond) {
+        OrganisationConfig organisationConfig = new OrganisationConfig();
+        organisationConfig.setOrganisationId(1L);
+        JsonObject settings = new JsonObject();
+        if (messagesPerSecond != null) settings.with(OrganisationConfigSettingKey.messagingRatePerSecond.name(), messagesPerSecond);
+        organisationConfig.setSettings(settings);
+        return organisationConfig;
+    }
+}
@@ -5,10 +5,7 @@ import org.avni.messaging.repository.GlificMessageRepository;
 import org.avni.messaging.repository.ManualMessageRepository;
 import org.avni.messaging.repository.MessageRequestQueueRepository;
 import org.avni.messaging.repository.MessageRuleRepository;
-import org.avni.server.domain.Organisation;
 import org.avni.server.domain.RuleExecutionException;
-import org.avni.server.domain.UserContext;
-import org.avni.server.framework.security.UserContextHolder;
 import org.avni.server.service.RuleService;
 import org.avni.server.web.request.rules.response.ScheduleRuleResponseEntity;
 import org.joda.time.DateTime;
@@ -21,7 +18,6 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 
 import java.util.ArrayList;
-import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -57,6 +53,9 @@ public class MessagingServiceTest {
     @Mock
     private IndividualMessagingService individualMessagingService;
 
+    @Mock
+    private MessageSendRateLimiter rateLimiter;
+
     @Captor
     ArgumentCaptor<MessageReceiver> messageReceiver;
 
@@ -167,23 +166,51 @@ public class MessagingServiceTest {
     }
 
     @Test
-    public void shouldSendMessagesForAllNotSentMessages() throws RuleExecutionException, PhoneNumberNotAvailableOrIncorrectException {
+    public void shouldSendMessageLeasedByThisNode() throws Exception {
+        MessageRequest request = spy(createMessageRequest());
+        doReturn(true).when(request).isLeasedBy("node1");
+        when(messageRequestQueueRepository.findEntity(20L)).thenReturn(request);
+        when(messageRequestService.markComplete(request)).thenReturn(request);
+
+        messagingService.sendMessage(20L, "node1", rateLimiter);
+
+        verify(rateLimiter).acquire();
+        verify(individualMessagingService).sendAutomatedMessage(request);
+    }
+
+    @Test
+    public void shouldNotSendMessageWhoseLeaseIsHeldByAnotherNode() throws Exception {
+        MessageRequest request = spy(createMessageRequest());
+        doReturn(false).when(request).isLeasedBy("node1");
+        when(messageRequestQueueRepository.findEntity(20L)).thenReturn(request);
+
+        messagingService.sendMessage(20L, "node1", rateLimiter);
+
+        verify(rateLimiter, never()).acquire();
+        verify(individualMessagingService, never()).sendAutomatedMessage(any(MessageRequest.class));
+    }
+
+    @Test
+    public void shouldLeaveRateLimitingOfGroupMessageToItsSendToEachContact() throws Exception {
+        ManualMessage manualMessage = new ManualMessage("messageTemplateId", new String[0]);
+        MessageRequest request = spy(new MessageRequest(manualMessage, new MessageReceiver(ReceiverType.Group, "groupId"), DateTime.now()));
+        doReturn(true).when(request).isLeasedBy("node1");
+        when(messageRequestQueueRepository.findEntity(20L)).thenReturn(request);
+        when(messageRequestService.markComplete(request)).thenReturn(request);
+
+        messagingService.sendMessage(20L, "node1", rateLimiter);
+
+        verify(rateLimiter, never()).acquire();
+        verify(groupMessagingService).sendManualMessage(request);
+    }
+
+    private MessageRequest createMessageRequest() {
         MessageRule messageRule = new MessageRule();
         messageRule.setId(10L);
         messageRule.setMessageRule("I am a message rule");
         messageRule.setMessageTemplateId("messageTemplateId");
         messageRule.setEntityType(EntityType.Subject);
         MessageReceiver messageReceiver = new MessageReceiver(ReceiverType.Subject, 1L);
-        MessageRequest request = new MessageRequest(messageRule, messageReceiver, 3L, DateTime.now());
-        UserContext context = new UserContext();
-        context.setOrganisation(new Organisation());
-        UserContextHolder.create(context);
-
-        when(messageRequestQueueRepository.findDueMessageRequests()).thenReturn(Stream.<MessageRequest>builder().add(request).build());
-        when(messageRequestService.markComplete(request)).thenReturn(request);
-
-        messagingService.sendMessages();
-
-        verify(individualMessagingService).sendAutomatedMessage(request);
+        return new MessageRequest(messageRule, messageReceiver, 3L, DateTime.now());
     }
 }
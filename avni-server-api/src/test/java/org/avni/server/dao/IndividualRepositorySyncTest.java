@@ -0,0 +1,123 @@
+package org.avni.server.dao;
+
+import org.avni.server.common.AbstractControllerIntegrationTest;
+import org.avni.server.domain.Individual;
+import org.avni.server.domain.SubjectType;
+import org.avni.server.domain.User;
+import org.avni.server.framework.security.UserContextHolder;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+@Sql({"/test-data.sql"})
+public class IndividualRepositorySyncTest extends AbstractControllerIntegrationTest {
+    private static final String SAME_TIMESTAMP = "2021-01-01 10:00:00";
+
+    @Autowired
+    private IndividualRepository individualRepository;
+
+    @Autowired
+    private SubjectTypeRepository subjectTypeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldNotSkipOrRepeatRowsSharingTheLastModifiedDateTimeAcrossKeysetPages() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(insertIndividual(2, SAME_TIMESTAMP));
+        }
+        expected.add(insertIndividual(2, "2021-01-01 10:00:01"));
+        setUser("demo-user");
+
+        List<String> synced = new ArrayList<>();
+        DateTime lastModifiedDateTime = new DateTime(2021, 1, 1, 9, 0);
+        Long lastEntityId = null;
+        Slice<Individual> slice;
+        do {
+            SyncParameters syncParameters = syncParameters(lastModifiedDateTime, Collections.singletonList(2L), 2);
+            syncParameters.setLastEntityId(lastEntityId);
+            slice = individualRepository.getSyncResultsAsSlice(syncParameters);
+            for (Individual individual : slice.getContent()) {
+                synced.add(individual.getUuid());
+                lastModifiedDateTime = individual.getLastModifiedDateTime();
+                lastEntityId = individual.getId();
+            }
+        } while (slice.hasNext());
+
+        assertEquals(expected, synced);
+    }
+
+    @Test
+    public void shouldSyncOnlyTheIndividualsInTheAddressLevelsGiven() {
+        String first = insertIndividual(1, "2021-01-01 10:00:00");
+        String second = insertIndividual(2, "2021-01-01 10:00:01");
+        String third = insertIndividual(1, "2021-01-01 10:00:02");
+        setUser("demo-user");
+
+        assertEquals(Arrays.asList(first, second, third), syncedUuids(Arrays.asList(1L, 2L)));
+        assertEquals(Arrays.asList(first, third), syncedUuids(Collections.singletonList(1L)));
+        assertEquals(Collections.singletonList(second), syncedUuids(Collections.singletonList(2L)));
+        assertEquals(Collections.emptyList(), syncedUuids(Collections.singletonList(3L)));
+    }
+
+    @Test
+    public void shouldMatchNoAddressLevelAgainstAnEmptyArray() {
+        String uuid = insertIndividual(1, "2021-01-01 10:00:00");
+        setUser("demo-user");
+
+        assertEquals(Collections.emptyList(), uuidsInAddressLevels(uuid, Collections.emptyList()));
+        assertEquals(Collections.singletonList(uuid), uuidsInAddressLevels(uuid, Arrays.asList(2L, 1L)));
+    }
+
+    private List<String> syncedUuids(List<Long> addressLevels) {
+        SyncParameters syncParameters = syncParameters(new DateTime(2021, 1, 1, 9, 0), new DateTime(2021, 1, 2, 0, 0), addressLevels, 10);
+        return individualRepository.getSyncResultsAsSlice(syncParameters).getContent().stream()
+                .map(Individual::getUuid)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> uuidsInAddressLevels(String uuid, List<Long> addressLevels) {
+        return individualRepository.findAll((Specification<Individual>) (root, query, cb) -> cb.and(
+                        cb.equal(root.get("uuid"), uuid),
+                        individualRepository.addressIdIn(cb, root.get("addressLevel").<Long>get("id"), addressLevels)))
+                .stream()
+                .map(Individual::getUuid)
+                .collect(Collectors.toList());
+    }
+
+    private SyncParameters syncParameters(DateTime lastModifiedDateTime, List<Long> addressLevels, int pageSize) {
+        return syncParameters(lastModifiedDateTime, DateTime.now(), addressLevels, pageSize);
+    }
+
+    private SyncParameters syncParameters(DateTime lastModifiedDateTime, DateTime now, List<Long> addressLevels, int pageSize) {
+        User user = UserContextHolder.getUser();
+        SubjectType subjectType = subjectTypeRepository.findOne(1L);
+        return new SyncParameters(lastModifiedDateTime, now, subjectType.getId(), null, PageRequest.of(0, pageSize),
+                addressLevels, subjectType, user.getSyncSettings(), SyncParameters.SyncEntityName.Individual, user.getCatchment());
+    }
+
+    private String insertIndividual(long addressId, String lastModifiedDateTime) {
+        String uuid = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO individual (uuid, address_id, version, date_of_birth, date_of_birth_verified, first_name, last_name, gender_id, organisation_id, " +
+                        "subject_type_id, observations, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                        "VALUES (?, ?, 1, current_timestamp, FALSE, 'Sync', 'Test', 2, 2, 1, '{}'::jsonb, 1, 1, now(), ?::timestamptz)",
+                uuid, addressId, lastModifiedDateTime);
+        return uuid;
+    }
+}
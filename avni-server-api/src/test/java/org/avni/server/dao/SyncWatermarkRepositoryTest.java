@@ -0,0 +1,38 @@
+package org.avni.server.dao;
+
+import org.avni.server.common.AbstractControllerIntegrationTest;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@Sql({"/test-data.sql"})
+public class SyncWatermarkRepositoryTest extends AbstractControllerIntegrationTest {
+    @Autowired
+    private SyncWatermarkRepository syncWatermarkRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void shouldReturnAWatermarkForRowsModifiedAtLoadedSince() {
+        DateTime lastModifiedDateTime = new DateTime(2021, 1, 1, 10, 0, 0, 123);
+        jdbcTemplate.update("update individual set last_modified_date_time = ?", new Timestamp(lastModifiedDateTime.getMillis()));
+
+        Map<String, DateTime> atLoadedSince = syncWatermarkRepository.getLastModifiedDateTimes(Collections.singletonMap("individual", lastModifiedDateTime));
+        Map<String, DateTime> afterLoadedSince = syncWatermarkRepository.getLastModifiedDateTimes(Collections.singletonMap("individual", lastModifiedDateTime.plusMillis(1)));
+
+        assertEquals(lastModifiedDateTime.getMillis(), atLoadedSince.get("individual").getMillis());
+        assertNull(afterLoadedSince.get("individual"));
+    }
+}
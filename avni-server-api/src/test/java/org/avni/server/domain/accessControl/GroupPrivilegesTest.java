@@ -0,0 +1,70 @@
+package org.avni.server.domain.accessControl;
+
+import org.avni.server.domain.EncounterType;
+import org.avni.server.domain.Program;
+import org.avni.server.domain.SubjectType;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupPrivilegesTest {
+    @Test
+    public void shouldMatchOnTheSameFieldsAsGroupPrivilege() {
+        SubjectType subjectType = subjectType(500L);
+        Program program = program(600L);
+        EncounterType encounterType = encounterType(700L);
+        EncounterType programEncounterType = encounterType(800L);
+
+        GroupPrivilege viewSubject = groupPrivilege("View subject", subjectType, null, null, null);
+        GroupPrivilege viewVisit = groupPrivilege("View visit", subjectType, program, encounterType, programEncounterType);
+        GroupPrivileges groupPrivileges = new GroupPrivileges(false, Arrays.asList(viewSubject, viewVisit));
+
+        assertTrue(groupPrivileges.hasPrivilege("View subject", subjectType(500L), null, null, null));
+        assertFalse(groupPrivileges.hasPrivilege("View subject", subjectType(501L), null, null, null));
+        assertFalse(groupPrivileges.hasPrivilege("Edit subject", subjectType, null, null, null));
+        assertFalse(groupPrivileges.hasPrivilege("View subject", subjectType, program, null, null));
+
+        assertTrue(groupPrivileges.hasPrivilege("View visit", subjectType, program, encounterType(700L), null));
+        assertTrue(groupPrivileges.hasPrivilege("View visit", subjectType, program, encounterType(800L), null));
+        assertFalse(groupPrivileges.hasPrivilege("View visit", subjectType, program, null, null));
+        assertFalse(groupPrivileges.hasPrivilege("View visit", subjectType, null, encounterType, null));
+    }
+
+    @Test
+    public void shouldAllowEverythingWhenUserHasAllPrivileges() {
+        assertTrue(new GroupPrivileges().hasPrivilege("View subject", subjectType(1L), null, null, null));
+    }
+
+    private static GroupPrivilege groupPrivilege(String name, SubjectType subjectType, Program program, EncounterType encounterType, EncounterType programEncounterType) {
+        Privilege privilege = new Privilege();
+        privilege.setName(name);
+        GroupPrivilege groupPrivilege = new GroupPrivilege();
+        groupPrivilege.setPrivilege(privilege);
+        groupPrivilege.setSubjectType(subjectType);
+        groupPrivilege.setProgram(program);
+        groupPrivilege.setEncounterType(encounterType);
+        groupPrivilege.setProgramEncounterType(programEncounterType);
+        return groupPrivilege;
+    }
+
+    private static SubjectType subjectType(Long id) {
+        SubjectType subjectType = new SubjectType();
+        subjectType.setId(id);
+        return subjectType;
+    }
+
+    private static Program program(Long id) {
+        Program program = new Program();
+        program.setId(id);
+        return program;
+    }
+
+    private static EncounterType encounterType(Long id) {
+        EncounterType encounterType = new EncounterType();
+        encounterType.setId(id);
+        return encounterType;
+    }
+}
@@ -3,23 +3,30 @@ package org.avni.server.exporter.v2;
 import org.apache.commons.io.output.StringBuilderWriter;
 import org.avni.server.application.Form;
 import org.avni.server.application.FormElement;
+import org.avni.server.application.FormElementType;
 import org.avni.server.application.FormType;
 import org.avni.server.application.TestFormElementBuilder;
 import org.avni.server.dao.*;
 import org.avni.server.domain.*;
 import org.avni.server.domain.factory.UserBuilder;
+import org.avni.server.domain.factory.metadata.ConceptAnswerBuilder;
 import org.avni.server.domain.factory.metadata.ConceptBuilder;
 import org.avni.server.domain.factory.metadata.FormMappingBuilder;
+import org.avni.server.domain.factory.metadata.ProgramBuilder;
 import org.avni.server.domain.factory.txData.ObservationCollectionBuilder;
+import org.avni.server.domain.factory.txn.ProgramEnrolmentBuilder;
 import org.avni.server.domain.factory.txn.SubjectBuilder;
 import org.avni.server.domain.metadata.SubjectTypeBuilder;
 import org.avni.server.exporter.ExportJobService;
 import org.avni.server.service.AddressLevelService;
 import org.avni.server.service.FormMappingService;
 import org.avni.server.service.ObservationService;
+import org.avni.server.web.external.request.export.ExportEntityType;
+import org.avni.server.web.external.request.export.ExportFilters;
 import org.avni.server.web.external.request.export.ExportOutput;
 import org.avni.server.web.request.ExportOutputBuilder;
 import org.bouncycastle.util.Strings;
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -27,8 +34,10 @@ import org.mockito.Mock;
 import java.io.IOException;
 import java.util.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -179,6 +188,118 @@ public class ExportV2CSVFieldExtractorTest {
         assertEquals("\"32\"", getExtractValue(header, "\"ST1_C1_2_C3\"", extract));
     }
 
+    @Test
+    public void extractTheSameRowsAsLookingUpTheExportFieldsForEachRow() {
+        User user = new UserBuilder().userName("user@org").build();
+        SubjectType subjectType = new SubjectTypeBuilder().withUuid("st1").withName("ST1").build();
+        Program program = new ProgramBuilder().withUuid("p1").withName("P1").build();
+        exportOutput.setUuid("st1");
+        exportOutput.setEncounters(Collections.singletonList(exportEntityType("et1")));
+        ExportOutput.ExportNestedOutput programOutput = new ExportOutput.ExportNestedOutput();
+        programOutput.setUuid("p1");
+        programOutput.setEncounters(Collections.singletonList(exportEntityType("pet1")));
+        exportOutput.setPrograms(Collections.singletonList(programOutput));
+
+        Concept answer1 = new ConceptBuilder().withUuid("a1").withName("A1").withDataType(ConceptDataType.NA).build();
+        Concept answer2 = new ConceptBuilder().withUuid("a2").withName("A2").withDataType(ConceptDataType.NA).build();
+        Concept singleSelect = new ConceptBuilder().withUuid("ss").withName("SS").withDataType(ConceptDataType.Coded)
+                .withAnswers(new ConceptAnswerBuilder().withUUID("ss-a2").withAnswerConcept(answer2).withOrder(2).build(),
+                        new ConceptAnswerBuilder().withUUID("ss-a1").withAnswerConcept(answer1).withOrder(1).build()).build();
+        Concept multiSelect = new ConceptBuilder().withUuid("ms").withName("MS").withDataType(ConceptDataType.Coded)
+                .withAnswers(new ConceptAnswerBuilder().withUUID("ms-a1").withAnswerConcept(answer1).withOrder(1).build(),
+                        new ConceptAnswerBuilder().withUUID("ms-a2").withAnswerConcept(answer2).withOrder(2).build()).build();
+        Concept date = new ConceptBuilder().withUuid("d").withName("D").withDataType(ConceptDataType.DateTime).build();
+        Concept text = new ConceptBuilder().withUuid("t").withName("T").withDataType(ConceptDataType.Text).build();
+        Concept questionGroupText = new ConceptBuilder().withUuid("qt").withName("QT").withDataType(ConceptDataType.Text).build();
+        Concept questionGroup = new ConceptBuilder().withUuid("qg").withName("QG").withDataType(ConceptDataType.QuestionGroup).build();
+        FormElement questionGroupElement = new TestFormElementBuilder().withUuid("fe-qg").withConcept(questionGroup).withRepeatable(true).build();
+        LinkedHashMap<String, FormElement> registrationElements = new LinkedHashMap<>();
+        registrationElements.put("t", new TestFormElementBuilder().withUuid("fe-t").withConcept(text).build());
+        registrationElements.put("ss", new TestFormElementBuilder().withUuid("fe-ss").withConcept(singleSelect).withType(FormElementType.SingleSelect).build());
+        registrationElements.put("ms", new TestFormElementBuilder().withUuid("fe-ms").withConcept(multiSelect).withType(FormElementType.MultiSelect).build());
+        registrationElements.put("d", new TestFormElementBuilder().withUuid("fe-d").withConcept(date).build());
+        registrationElements.put("qg", questionGroupElement);
+        registrationElements.put("qt", new TestFormElementBuilder().withUuid("fe-qt").withConcept(questionGroupText).withQuestionGroupElement(questionGroupElement).build());
+        LinkedHashMap<String, FormElement> encounterElements = new LinkedHashMap<>();
+        encounterElements.put("t", new TestFormElementBuilder().withUuid("fe-et-t").withConcept(text).build());
+        LinkedHashMap<String, FormElement> enrolmentElements = new LinkedHashMap<>();
+        enrolmentElements.put("ms", new TestFormElementBuilder().withUuid("fe-p-ms").withConcept(multiSelect).withType(FormElementType.MultiSelect).build());
+
+        exportJobParameters = new ExportJobParametersBuilder().withTimezone("Asia/Kolkata").build();
+        when(addressLevelService.getAllAddressLevelTypeNames()).thenReturn(Arrays.asList("State", "District"));
+        when(exportJobParametersRepository.findByUuid("st1")).thenReturn(exportJobParameters);
+        when(subjectTypeRepository.findByUuid(any())).thenReturn(subjectType);
+        when(formMappingService.findForSubject(any())).thenReturn(new FormMappingBuilder().withForm(new Form()).build());
+        when(formMappingService.findForEncounter(any(), any())).thenReturn(new FormMappingBuilder().withForm(new Form()).build());
+        when(formMappingService.findForProgram(any(), any())).thenReturn(new FormMappingBuilder().withForm(new Form()).build());
+        when(formMappingService.getAllFormElementsAndDecisionMap("st1", null, null, FormType.IndividualProfile)).thenReturn(registrationElements);
+        when(formMappingService.getAllFormElementsAndDecisionMap("st1", null, "et1", FormType.Encounter)).thenReturn(encounterElements);
+        when(formMappingService.getAllFormElementsAndDecisionMap("st1", "p1", null, FormType.ProgramEnrolment)).thenReturn(enrolmentElements);
+        when(encounterRepository.getMaxEncounterCount(eq("et1"), any(), any())).thenReturn(2L);
+        Map<FormElement, Integer> maxNumberOfQuestionGroupObservations = new HashMap<>();
+        maxNumberOfQuestionGroupObservations.put(questionGroupElement, 2);
+        when(observationService.getMaxNumberOfQuestionGroupObservations(any(), any())).thenReturn(maxNumberOfQuestionGroupObservations);
+
+        AddressLevelType districtType = new AddressLevelType();
+        districtType.setName("District");
+        AddressLevel district = new AddressLevel();
+        district.setId(1L);
+        district.setTitle("Pune");
+        district.setType(districtType);
+        Map<String, Object> questionGroupObservation = new HashMap<>();
+        questionGroupObservation.put("qt", "in group");
+        Individual subject = new SubjectBuilder().withSubjectType(subjectType).withAuditUser(user).withUUID("s1")
+                .withObservations(new ObservationCollectionBuilder()
+                        .addObservation("t", "text")
+                        .addObservation("ss", "a2")
+                        .addObservation("ms", Collections.singletonList("a2"))
+                        .addObservation("d", "2020-01-01T10:00:00.000Z")
+                        .addObservation("qg", Collections.singletonList(questionGroupObservation)).build()).build();
+        subject.setAddressLevel(district);
+        Encounter encounter = new Encounter();
+        encounter.setUuid("e1");
+        encounter.setEncounterDateTime(DateTime.parse("2020-02-01T10:00:00.000Z"));
+        encounter.setCreatedBy(user);
+        encounter.setLastModifiedBy(user);
+        encounter.setObservations(new ObservationCollectionBuilder().addObservation("t", "visit").build());
+        ProgramEnrolment programEnrolment = new ProgramEnrolmentBuilder().program(program).build();
+        programEnrolment.setUuid("pe1");
+        programEnrolment.setCreatedBy(user);
+        programEnrolment.setLastModifiedBy(user);
+        programEnrolment.setObservations(new ObservationCollectionBuilder().addObservation("ms", Arrays.asList("a1", "a2")).build());
+        LongitudinalExportItemRow row = new LongitudinalExportItemRowBuilder().withSubject(subject).build();
+        row.setEncounterTypeToEncountersMap(Collections.singletonMap("et1", Collections.singletonList(encounter)));
+        row.setProgramEnrolmentToEncountersMap(Collections.singletonMap(programEnrolment, Collections.emptyMap()));
+        row.setGroupSubjectToEncountersMap(Collections.emptyMap());
+
+        Individual subjectWithoutData = new SubjectBuilder().withSubjectType(subjectType).withAuditUser(user).withUUID("s2").build();
+        LongitudinalExportItemRow rowWithoutData = new LongitudinalExportItemRowBuilder().withSubject(subjectWithoutData).build();
+        rowWithoutData.setEncounterTypeToEncountersMap(Collections.emptyMap());
+        rowWithoutData.setProgramEnrolmentToEncountersMap(Collections.emptyMap());
+        rowWithoutData.setGroupSubjectToEncountersMap(Collections.emptyMap());
+
+        exportV2CSVFieldExtractor.init();
+        ExportFieldsManager exportFieldsManager = new ExportFieldsManager(formMappingService, encounterRepository, programEncounterRepository, "Asia/Kolkata");
+        exportOutput.accept(exportFieldsManager);
+        PerRowExportV2CSVFieldExtractor perRowExtractor = new PerRowExportV2CSVFieldExtractor(exportOutput, exportFieldsManager,
+                Arrays.asList("State", "District"), maxNumberOfQuestionGroupObservations, "Asia/Kolkata");
+
+        for (LongitudinalExportItemRow itemRow : Arrays.asList(row, rowWithoutData, row)) {
+            assertArrayEquals(perRowExtractor.extract(itemRow), exportV2CSVFieldExtractor.extract(itemRow));
+        }
+        Object[] extract = exportV2CSVFieldExtractor.extract(row);
+        assertEquals("\"A2\"", extract[HeaderCreator.getRegistrationCoreFields().size() + 3]);
+    }
+
+    private static ExportEntityType exportEntityType(String uuid) {
+        ExportEntityType exportEntityType = new ExportEntityType();
+        exportEntityType.setUuid(uuid);
+        ExportFilters filters = new ExportFilters();
+        filters.setDate(new ExportFilters.DateFilter());
+        exportEntityType.setFilters(filters);
+        return exportEntityType;
+    }
+
     private Object getExtractValue(String header, String headerFieldName, Object[] extract) {
         String[] headerFields = getHeaderFields(header);
         for (int i = 0; i < headerFields.length; i++) {
@@ -0,0 +1,173 @@
+package org.avni.server.exporter.v2;
+
+import org.avni.server.common.AbstractControllerIntegrationTest;
+import org.avni.server.dao.ExportJobParametersRepository;
+import org.avni.server.dao.IndividualRepository;
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.domain.*;
+import org.avni.server.web.external.request.export.ExportEntityType;
+import org.avni.server.web.external.request.export.ExportFilters;
+import org.avni.server.web.external.request.export.ExportOutput;
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Sql({"/test-data.sql"})
+public class LongitudinalExportPrefetcherIntegrationTest extends AbstractControllerIntegrationTest {
+    private static final String SUBJECT_UUID = "4378dce3-247e-4393-8dd5-032c6eb0a655";
+    private static final String SUBJECT_TYPE_UUID = "9f2af1f9-e150-4f8e-aad3-40bb7eb05aa3";
+    private static final String ENCOUNTER_TYPE_UUID = "3a1535d0-81fd-48fc-85b5-dc9da81064a3";
+    private static final String PROGRAM_UUID = "db62a322-0ec2-4bb0-ac24-296dc7216c9a";
+
+    @Autowired
+    private IndividualRepository individualRepository;
+    @Autowired
+    private ProgramEnrolmentRepository programEnrolmentRepository;
+    @Autowired
+    private LongitudinalExportPrefetcher exportPrefetcher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ExportOutput exportOutput;
+    private ExportV2Processor exportV2Processor;
+    private TransactionTemplate readTransactionTemplate;
+    private Long subjectId;
+    private List<String> encounterUuids;
+    private String enrolmentUuid;
+    private List<String> programEncounterUuids;
+
+    @Before
+    public void setup() {
+        subjectId = jdbcTemplate.queryForObject("select id from individual where uuid = ?", Long.class, SUBJECT_UUID);
+        encounterUuids = Arrays.asList(insertEncounter("2021-01-01 10:00:00"), insertEncounter("2021-02-01 10:00:00"));
+        enrolmentUuid = UUID.randomUUID().toString();
+        Long enrolmentId = jdbcTemplate.queryForObject("insert into program_enrolment (individual_id, program_id, enrolment_date_time, uuid, version, " +
+                        "created_by_id, last_modified_by_id, created_date_time, last_modified_date_time, address_id, organisation_id) " +
+                        "values (?, (select id from program where uuid = ?), '2021-01-01 10:00:00'::timestamptz, ?, 1, 1, 1, now(), now(), 1, 2) returning id",
+                Long.class, subjectId, PROGRAM_UUID, enrolmentUuid);
+        programEncounterUuids = Arrays.asList(insertProgramEncounter(enrolmentId, "2021-01-15 10:00:00"), insertProgramEncounter(enrolmentId, "2021-02-15 10:00:00"));
+        setUser("demo-user");
+
+        exportOutput = new ExportOutput();
+        exportOutput.setUuid(SUBJECT_TYPE_UUID);
+        exportOutput.setEncounters(Collections.singletonList(exportEntityType(ENCOUNTER_TYPE_UUID)));
+        ExportOutput.ExportNestedOutput program = new ExportOutput.ExportNestedOutput();
+        program.setUuid(PROGRAM_UUID);
+        program.setEncounters(Collections.singletonList(exportEntityType(ENCOUNTER_TYPE_UUID)));
+        exportOutput.setPrograms(Collections.singletonList(program));
+        ExportOutput.ExportNestedOutput group = new ExportOutput.ExportNestedOutput();
+        group.setUuid(UUID.randomUUID().toString());
+        exportOutput.setGroups(Collections.singletonList(group));
+
+        ExportJobParametersRepository exportJobParametersRepository = mock(ExportJobParametersRepository.class);
+        when(exportJobParametersRepository.findByUuid(any())).thenReturn(new ExportJobParametersBuilder().withTimezone("Asia/Kolkata").build());
+        exportV2Processor = new ExportV2Processor(exportJobParametersRepository, "exportJobParamsUUID");
+        exportV2Processor.init();
+        exportV2Processor.setExportOutput(exportOutput);
+        readTransactionTemplate = new TransactionTemplate(transactionManager);
+        readTransactionTemplate.setReadOnly(true);
+    }
+
+    @Test
+    public void shouldProcessThePrefetchedSubjectIntoTheSameRowAsTheLazilyLoadedOne() {
+        String lazilyLoadedRow = readTransactionTemplate.execute(status -> describe(process(individualRepository.findByUuid(SUBJECT_UUID))));
+
+        LongitudinalExportItemRow prefetchedRow = readTransactionTemplate.execute(status -> {
+            Individual individual = individualRepository.findByUuid(SUBJECT_UUID);
+            exportPrefetcher.prefetch(Collections.singletonList(individual), exportOutput);
+            assertTrue(Hibernate.isInitialized(individual.getEncounters()));
+            assertTrue(Hibernate.isInitialized(individual.getProgramEnrolments()));
+            individual.getProgramEnrolments().forEach(programEnrolment -> assertTrue(Hibernate.isInitialized(programEnrolment.getProgramEncounters())));
+            assertTrue(Hibernate.isInitialized(individual.getMemberGroupSubjects()));
+            return process(individual);
+        });
+
+        assertEquals(lazilyLoadedRow, describe(prefetchedRow));
+        assertTrue(uuids(prefetchedRow.getEncounterTypeToEncountersMap().get(ENCOUNTER_TYPE_UUID)).containsAll(encounterUuids));
+        ProgramEnrolment programEnrolment = prefetchedRow.getProgramEnrolmentToEncountersMap().keySet().stream()
+                .filter(pe -> pe.getUuid().equals(enrolmentUuid)).findFirst().get();
+        assertEquals(programEncounterUuids, uuids(prefetchedRow.getProgramEnrolmentToEncountersMap().get(programEnrolment).get(ENCOUNTER_TYPE_UUID)));
+    }
+
+    @Test
+    public void shouldNotRepeatTheSubjectOrItsEncountersAcrossTheRowsOfTheFetchJoins() {
+        readTransactionTemplate.execute(status -> {
+            List<Individual> individuals = individualRepository.findWithEncountersForExport(Collections.singletonList(subjectId));
+            assertEquals(1, individuals.size());
+            assertTrue(uuids(individuals.get(0).getEncounters()).containsAll(encounterUuids));
+
+            assertEquals(1, individualRepository.findWithProgramEnrolmentsForExport(Collections.singletonList(subjectId)).size());
+
+            List<ProgramEnrolment> programEnrolments = programEnrolmentRepository.findWithProgramEncountersForExport(Collections.singletonList(subjectId));
+            assertEquals(new HashSet<>(uuids(programEnrolments)).size(), programEnrolments.size());
+            ProgramEnrolment programEnrolment = programEnrolments.stream().filter(pe -> pe.getUuid().equals(enrolmentUuid)).findFirst().get();
+            assertEquals(new HashSet<>(programEncounterUuids), new HashSet<>(uuids(programEnrolment.getProgramEncounters())));
+            return null;
+        });
+    }
+
+    private LongitudinalExportItemRow process(Individual individual) {
+        try {
+            return exportV2Processor.process(individual);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String describe(LongitudinalExportItemRow row) {
+        Map<String, Map<String, List<String>>> enrolments = new TreeMap<>();
+        row.getProgramEnrolmentToEncountersMap().forEach((programEnrolment, encounters) -> enrolments.put(programEnrolment.getUuid(), describe(encounters)));
+        return String.format("subject=%s, encounters=%s, enrolments=%s, groups=%s", row.getIndividual().getUuid(),
+                describe(row.getEncounterTypeToEncountersMap()), enrolments, row.getGroupSubjectToEncountersMap().keySet());
+    }
+
+    private static <T extends AbstractEncounter> Map<String, List<String>> describe(Map<String, List<T>> encounters) {
+        Map<String, List<String>> encounterUuids = new TreeMap<>();
+        encounters.forEach((encounterTypeUuid, encountersOfType) -> encounterUuids.put(encounterTypeUuid, uuids(encountersOfType)));
+        return encounterUuids;
+    }
+
+    private static List<String> uuids(Collection<? extends CHSBaseEntity> entities) {
+        return entities.stream().map(CHSBaseEntity::getUuid).collect(Collectors.toList());
+    }
+
+    private String insertEncounter(String encounterDateTime) {
+        String uuid = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into encounter (individual_id, encounter_type_id, observations, encounter_date_time, uuid, version, " +
+                        "created_by_id, last_modified_by_id, created_date_time, last_modified_date_time, address_id, organisation_id) " +
+                        "values (?, (select id from encounter_type where uuid = ?), '{}'::jsonb, ?::timestamptz, ?, 1, 1, 1, now(), now(), 1, 2)",
+                subjectId, ENCOUNTER_TYPE_UUID, encounterDateTime, uuid);
+        return uuid;
+    }
+
+    private String insertProgramEncounter(Long enrolmentId, String encounterDateTime) {
+        String uuid = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into program_encounter (program_enrolment_id, encounter_type_id, observations, encounter_date_time, uuid, version, " +
+                        "created_by_id, last_modified_by_id, created_date_time, last_modified_date_time, individual_id, address_id, organisation_id) " +
+                        "values (?, (select id from encounter_type where uuid = ?), '{}'::jsonb, ?::timestamptz, ?, 1, 1, 1, now(), now(), ?, 1, 2)",
+                enrolmentId, ENCOUNTER_TYPE_UUID, encounterDateTime, uuid, subjectId);
+        return uuid;
+    }
+
+    private static ExportEntityType exportEntityType(String uuid) {
+        ExportEntityType exportEntityType = new ExportEntityType();
+        exportEntityType.setUuid(uuid);
+        exportEntityType.setFilters(new ExportFilters());
+        return exportEntityType;
+    }
+}
@@ -0,0 +1,73 @@
+package org.avni.server.exporter.v2;
+
+import org.avni.server.dao.IndividualRepository;
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.domain.Individual;
+import org.avni.server.web.external.request.export.ExportOutput;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class LongitudinalExportPrefetcherTest {
+    @Mock
+    private IndividualRepository individualRepository;
+    @Mock
+    private ProgramEnrolmentRepository programEnrolmentRepository;
+
+    private LongitudinalExportPrefetcher exportPrefetcher;
+    private ExportOutput exportOutput;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        exportPrefetcher = new LongitudinalExportPrefetcher(individualRepository, programEnrolmentRepository);
+        exportOutput = new ExportOutput();
+    }
+
+    @Test
+    public void shouldFetchEveryAssociationOfTheChunkThatIsExported() {
+        exportOutput.setPrograms(Collections.singletonList(new ExportOutput.ExportNestedOutput()));
+        exportOutput.setGroups(Collections.singletonList(new ExportOutput.ExportNestedOutput()));
+
+        exportPrefetcher.prefetch(Arrays.asList(individual(1L), individual(2L)), exportOutput);
+
+        List<Long> ids = Arrays.asList(1L, 2L);
+        verify(individualRepository).findWithEncountersForExport(ids);
+        verify(individualRepository).findWithProgramEnrolmentsForExport(ids);
+        verify(programEnrolmentRepository).findWithProgramEncountersForExport(ids);
+        verify(individualRepository).findWithMemberGroupSubjectsForExport(ids);
+        verify(individualRepository).findGroupSubjectsWithEncountersForExport(ids);
+        verify(individualRepository).findGroupSubjectsWithMembersForExport(ids);
+    }
+
+    @Test
+    public void shouldNotFetchTheEnrolmentsOrGroupsOfTheChunkWhenTheyAreNotExported() {
+        exportPrefetcher.prefetch(Collections.singletonList(individual(1L)), exportOutput);
+
+        verify(individualRepository).findWithEncountersForExport(Collections.singletonList(1L));
+        verifyNoMoreInteractions(individualRepository);
+        verifyZeroInteractions(programEnrolmentRepository);
+    }
+
+    @Test
+    public void shouldNotQueryForAnEmptyChunk() {
+        exportPrefetcher.prefetch(Collections.emptyList(), exportOutput);
+
+        verify(individualRepository, never()).findWithEncountersForExport(anyList());
+        verifyZeroInteractions(programEnrolmentRepository);
+    }
+
+    private static Individual individual(Long id) {
+        Individual individual = new Individual();
+        individual.setId(id);
+        return individual;
+    }
+}
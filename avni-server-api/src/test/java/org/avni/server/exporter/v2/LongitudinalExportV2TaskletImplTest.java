@@ -0,0 +1,118 @@
+package org.avni.server.exporter.v2;
+
+import org.apache.commons.io.IOUtils;
+import org.avni.server.domain.Individual;
+import org.avni.server.service.ExportS3Service;
+import org.avni.server.service.ObjectUploadOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class LongitudinalExportV2TaskletImplTest {
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ExportV2CSVFieldExtractor exportV2CSVFieldExtractor;
+    @Mock
+    private ExportV2Processor exportV2Processor;
+    @Mock
+    private LongitudinalExportPrefetcher exportPrefetcher;
+    @Mock
+    private ExportS3Service exportS3Service;
+
+    private final ByteArrayOutputStream upload = new ByteArrayOutputStream();
+    private final Map<Integer, File> partitionFiles = new ConcurrentHashMap<>();
+    private final List<StepExecution> partitionStepExecutions = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setup() throws Exception {
+        initMocks(this);
+        when(exportS3Service.getLocalExportFile(any(), anyInt())).thenAnswer(invocation ->
+                partitionFiles.computeIfAbsent(invocation.getArgument(1), partition -> new File(System.getProperty("java.io.tmpdir"), "export-test-partition-" + partition + ".csv.gz")));
+        when(exportS3Service.openExportUpload(any())).thenReturn(new ObjectUploadOutputStream() {
+            @Override
+            public void write(int b) {
+                upload.write(b);
+            }
+
+            @Override
+            public void abort() {
+            }
+
+            @Override
+            public String getObjectKey() {
+                return "export.csv.gz";
+            }
+        });
+        when(exportV2Processor.process(any())).thenAnswer(invocation -> {
+            StepContext stepContext = StepSynchronizationManager.getContext();
+            partitionStepExecutions.add(stepContext == null ? null : stepContext.getStepExecution());
+            LongitudinalExportItemRow row = new LongitudinalExportItemRow();
+            row.setIndividual((Individual) invocation.getArgument(0));
+            return row;
+        });
+        when(exportV2CSVFieldExtractor.extract(any())).thenAnswer(invocation ->
+                new Object[]{((LongitudinalExportItemRow) invocation.getArgument(0)).getIndividual().getUuid()});
+    }
+
+    @After
+    public void tearDown() {
+        partitionFiles.values().forEach(File::delete);
+    }
+
+    @Test
+    public void shouldExportPartitionsWithTheStepExecutionRegisteredForStepScopedBeans() throws Exception {
+        List<Supplier<Stream>> partitions = Arrays.asList(() -> Stream.of(subject("subject-0")), () -> Stream.of(subject("subject-1")));
+        LongitudinalExportV2TaskletImpl tasklet = new LongitudinalExportV2TaskletImpl(10, entityManager, exportV2CSVFieldExtractor,
+                exportV2Processor, exportPrefetcher, exportS3Service, "job", partitions, new SimpleAsyncTaskExecutor(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), () -> {});
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+        tasklet.execute(stepExecution.createStepContribution(), new ChunkContext(new StepContext(stepExecution)));
+
+        assertEquals(2, partitionStepExecutions.size());
+        partitionStepExecutions.forEach(partitionStepExecution -> assertSame(stepExecution, partitionStepExecution));
+        assertEquals(Arrays.asList("", "subject-0", "subject-1"), exportedLines());
+    }
+
+    private List<String> exportedLines() throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(upload.toByteArray()))) {
+            return Arrays.asList(IOUtils.toString(inputStream, StandardCharsets.UTF_8).split(System.getProperty("line.separator")));
+        }
+    }
+
+    private static Individual subject(String uuid) {
+        Individual individual = new Individual();
+        individual.setUuid(uuid);
+        return individual;
+    }
+}
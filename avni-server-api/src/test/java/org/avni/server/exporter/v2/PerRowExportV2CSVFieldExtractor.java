@@ -0,0 +1,207 @@
+package org.avni.server.exporter.v2;
+
+import org.avni.server.application.FormElement;
+import org.avni.server.application.FormElementType;
+import org.avni.server.domain.*;
+import org.avni.server.web.external.request.export.ExportEntityType;
+import org.avni.server.web.external.request.export.ExportOutput;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts a row the way ExportV2CSVFieldExtractor did before it compiled a plan, looking up the fields, forms and answers
+ * of each entity type again for every row, so that the rows of the compiled plan can be compared against it.
+ */
+class PerRowExportV2CSVFieldExtractor {
+    private final ExportOutput exportOutput;
+    private final ExportFieldsManager exportFieldsManager;
+    private final List<String> addressLevelTypes;
+    private final Map<FormElement, Integer> maxNumberOfQuestionGroupObservations;
+    private final String timeZone;
+
+    PerRowExportV2CSVFieldExtractor(ExportOutput exportOutput, ExportFieldsManager exportFieldsManager, List<String> addressLevelTypes,
+                                    Map<FormElement, Integer> maxNumberOfQuestionGroupObservations, String timeZone) {
+        this.exportOutput = exportOutput;
+        this.exportFieldsManager = exportFieldsManager;
+        this.addressLevelTypes = addressLevelTypes;
+        this.maxNumberOfQuestionGroupObservations = maxNumberOfQuestionGroupObservations;
+        this.timeZone = timeZone;
+    }
+
+    Object[] extract(LongitudinalExportItemRow itemRow) {
+        List<Object> columnsData = new ArrayList<>();
+        addRegistrationColumns(columnsData, itemRow.getIndividual(), exportOutput);
+        exportOutput.getEncounters().forEach(enc -> {
+            List<Encounter> encounters = itemRow.getEncounterTypeToEncountersMap().get(enc.getUuid());
+            if (encounters != null) {
+                addEncounterColumns(columnsData, encounters, enc);
+            } else {
+                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(enc));
+            }
+        });
+        exportOutput.getGroups().forEach(grp -> {
+            Map<Individual, Map<String, List<Encounter>>> groupSubjectToEncountersMap = itemRow.getGroupSubjectToEncountersMap();
+            Optional<Individual> groupSubjectOptional = groupSubjectToEncountersMap.keySet().stream()
+                    .filter(individual -> individual.getSubjectType().getUuid().equals(grp.getUuid())).findFirst();
+            if (groupSubjectOptional.isPresent()) {
+                Individual groupSubject = groupSubjectOptional.get();
+                addRegistrationColumns(columnsData, groupSubject, grp);
+                Map<String, List<Encounter>> encounters = groupSubjectToEncountersMap.get(groupSubject);
+                grp.getEncounters().forEach(ge -> {
+                    if (encounters != null && encounters.get(ge.getUuid()) != null) {
+                        addEncounterColumns(columnsData, encounters.get(ge.getUuid()), ge);
+                    } else {
+                        addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(ge));
+                    }
+                });
+            } else {
+                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(grp));
+                addBlanks(columnsData, addressLevelTypes.size());
+                addBlanks(columnsData, 1);
+            }
+        });
+        Map<ProgramEnrolment, Map<String, List<ProgramEncounter>>> programEnrolmentToEncountersMap = itemRow.getProgramEnrolmentToEncountersMap();
+        exportOutput.getPrograms().forEach(program -> {
+            Optional<ProgramEnrolment> programEnrolmentOptional = programEnrolmentToEncountersMap.keySet().stream()
+                    .filter(pe -> pe.getProgram().getUuid().equals(program.getUuid())).findFirst();
+            if (programEnrolmentOptional.isPresent()) {
+                ProgramEnrolment programEnrolment = programEnrolmentOptional.get();
+                addCoreColumns(columnsData, programEnrolment, exportFieldsManager.getCoreFields(program), HeaderCreator.enrolmentDataMap);
+                columnsData.addAll(addObservations(programEnrolment.getObservations(), exportFieldsManager.getMainFields(program)));
+                columnsData.addAll(addObservations(programEnrolment.getObservations(), exportFieldsManager.getSecondaryFields(program)));
+                program.getEncounters().forEach(pe -> {
+                    Map<String, List<ProgramEncounter>> encounterTypeListMap = programEnrolmentToEncountersMap.get(programEnrolment);
+                    if (encounterTypeListMap != null && encounterTypeListMap.get(pe.getUuid()) != null) {
+                        addEncounterColumns(columnsData, encounterTypeListMap.get(pe.getUuid()), pe);
+                    } else {
+                        addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(pe));
+                    }
+                });
+            } else {
+                addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(program));
+            }
+        });
+        return columnsData.toArray();
+    }
+
+    private void addRegistrationColumns(List<Object> columnsData, Individual individual, ExportEntityType subject) {
+        addCoreColumns(columnsData, individual, exportFieldsManager.getCoreFields(subject), HeaderCreator.registrationDataMap);
+        addAddressLevels(columnsData, individual.getAddressLevel());
+        if (individual.getSubjectType().isGroup()) {
+            columnsData.add(individual.getGroupSubjects().stream()
+                    .filter(gs -> gs.getMembershipEndDate() == null && !gs.getMemberSubject().isVoided())
+                    .count());
+        }
+        columnsData.addAll(addObservations(individual.getObservations(), exportFieldsManager.getMainFields(subject)));
+    }
+
+    private <T extends AbstractEncounter> void addEncounterColumns(List<Object> columnsData, List<T> encounters, ExportEntityType encounterEntityType) {
+        encounters.forEach(encounter -> {
+            addCoreColumns(columnsData, encounter, exportFieldsManager.getCoreFields(encounterEntityType), HeaderCreator.encounterDataMap);
+            columnsData.addAll(addObservations(encounter.getObservations(), exportFieldsManager.getMainFields(encounterEntityType)));
+            columnsData.addAll(addObservations(encounter.getObservations(), exportFieldsManager.getSecondaryFields(encounterEntityType)));
+        });
+        int visit = encounters.size();
+        while (visit++ < exportFieldsManager.getMaxEntityCount(encounterEntityType)) {
+            addBlanks(columnsData, exportFieldsManager.getTotalNumberOfColumns(encounterEntityType));
+        }
+    }
+
+    private static <T> void addCoreColumns(List<Object> columnsData, T entity, List<String> fields, Map<String, HeaderNameAndFunctionMapper<T>> dataMap) {
+        fields.stream()
+                .filter(dataMap::containsKey)
+                .forEach(key -> columnsData.add(dataMap.get(key).getValueFunction().apply(entity)));
+    }
+
+    private List<Object> addObservations(ObservationCollection observations, Map<String, FormElement> obsMap) {
+        List<Object> values = new ArrayList<>();
+        obsMap.forEach((conceptUUID, formElement) -> {
+            if (formElement.isPartOfRepeatableQuestionGroup() || formElement.isQuestionGroupElement()) return;
+            Object val;
+            if (formElement.getGroup() != null) {
+                Concept parentConcept = formElement.getGroup().getConcept();
+                Map<String, Object> nestedObservations = observations == null ? Collections.emptyMap() : (Map<String, Object>) observations.getOrDefault(parentConcept.getUuid(), new HashMap<String, Object>());
+                val = nestedObservations.getOrDefault(conceptUUID, null);
+            } else {
+                val = observations == null ? null : observations.getOrDefault(conceptUUID, null);
+            }
+            addObservation(values, formElement, val);
+        });
+
+        Map<FormElement, List<FormElement>> repeatedFormElements = ExportFieldsManager.groupByQuestionGroup(obsMap.values().stream()
+                .filter(FormElement::isPartOfRepeatableQuestionGroup)
+                .collect(Collectors.toList()));
+        repeatedFormElements.forEach((group, formElements) -> {
+            Integer maxRepeats = maxNumberOfQuestionGroupObservations.get(group);
+            List<Map<String, Object>> repeatableObservations = observations == null ? new ArrayList<>() :
+                    (List<Map<String, Object>>) observations.getOrDefault(group.getConcept().getUuid(), new ArrayList<>());
+            for (int i = 0; i < maxRepeats; i++) {
+                if (repeatableObservations.size() > i) {
+                    Map<String, Object> observationsItem = repeatableObservations.get(i);
+                    for (FormElement formElement : formElements) {
+                        addObservation(values, formElement, observationsItem.getOrDefault(formElement.getConcept().getUuid(), null));
+                    }
+                } else {
+                    formElements.forEach(formElement -> values.add(""));
+                }
+            }
+        });
+        return values;
+    }
+
+    private void addObservation(List<Object> values, FormElement formElement, Object val) {
+        String dataType = formElement.getConcept().getDataType();
+        if (dataType.equals(ConceptDataType.Coded.toString())) {
+            Concept concept = formElement.getConcept();
+            if (formElement.getType().equals(FormElementType.MultiSelect.toString())) {
+                List<Object> codedObs = getObservationValueList(val);
+                concept.getSortedAnswers().forEach(ca -> values.add(codedObs.contains(ca.getAnswerConcept().getUuid()) ? "1" : "0"));
+            } else {
+                values.add(val == null ? "" : concept.getSortedAnswers()
+                        .filter(ca -> ca.getAnswerConcept().getUuid().equals(val))
+                        .map(ca -> getFieldValue(ca.getAnswerConcept().getName()))
+                        .findFirst().orElse(""));
+            }
+        } else if (dataType.equals(ConceptDataType.DateTime.toString()) || dataType.equals(ConceptDataType.Date.toString())) {
+            values.add(val == null ? "" : new DateTime(String.valueOf(val)).withZone(DateTimeZone.forID(timeZone)));
+        } else if (ConceptDataType.isMedia(dataType)) {
+            values.add(getFieldValue(getObservationValueList(val).stream().map(t -> (String) t).collect(Collectors.joining(","))));
+        } else {
+            values.add(getFieldValue(String.valueOf(Optional.ofNullable(val).orElse(""))));
+        }
+    }
+
+    private static List<Object> getObservationValueList(Object val) {
+        return val == null ? Collections.emptyList() : val instanceof List ? (List<Object>) val : Collections.singletonList(val);
+    }
+
+    private static String getFieldValue(String value) {
+        return String.format("\"%s\"", value);
+    }
+
+    private void addAddressLevels(List<Object> row, AddressLevel addressLevel) {
+        Map<String, String> addressLevelMap = new HashMap<>();
+        if (addressLevel != null) {
+            addressLevelMap.put(addressLevel.getType().getName(), addressLevel.getTitle());
+            AddressLevel parentLocation = addressLevel.getParentLocation();
+            while (parentLocation != null) {
+                addressLevelMap.put(parentLocation.getType().getName(), parentLocation.getTitle());
+                parentLocation = parentLocation.getParentLocation();
+            }
+        }
+        addressLevelTypes.forEach(level -> {
+            String title = addressLevelMap.getOrDefault(level, "");
+            row.add(StringUtils.isEmpty(title) ? title : "\"" + title + "\"");
+        });
+    }
+
+    private static void addBlanks(List<Object> row, long noOfColumns) {
+        for (int i = 0; i < noOfColumns; i++) {
+            row.add("");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.avni.server.exporter.v2;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SubjectIdRangeTest {
+    @Test
+    public void shouldSplitIdsIntoContiguousRanges() {
+        List<SubjectIdRange> ranges = SubjectIdRange.split(10L, 19L, 3);
+
+        assertEquals(3, ranges.size());
+        assertEquals(10, ranges.get(0).getFromId());
+        assertEquals(13, ranges.get(0).getToId());
+        assertEquals(14, ranges.get(1).getFromId());
+        assertEquals(18, ranges.get(2).getFromId());
+        assertEquals(19, ranges.get(2).getToId());
+    }
+
+    @Test
+    public void shouldNotCreateMoreRangesThanIds() {
+        assertEquals(2, SubjectIdRange.split(5L, 6L, 4).size());
+        assertEquals(0, SubjectIdRange.split(null, null, 4).size());
+    }
+}
@@ -0,0 +1,39 @@
+package org.avni.server.framework.cache;
+
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BoundedCacheManagerTest {
+    @Test
+    public void shouldEvictBeyondConfiguredEntries() {
+        MockEnvironment environment = new MockEnvironment().withProperty("avni.cache.small.max.entries", "1");
+        BoundedCacheManager cacheManager = new BoundedCacheManager(environment, 100, 600, 1000, false);
+
+        Cache small = cacheManager.getCache("small");
+        small.put("a", 1);
+        small.put("b", 2);
+        Cache large = cacheManager.getCache("large");
+        large.put("a", 1);
+        large.put("b", 2);
+
+        assertNull(small.get("a"));
+        assertEquals(2, large.get("b").get());
+    }
+
+    @Test
+    public void shouldRecordHitsAndMisses() {
+        BoundedCacheManager cacheManager = new BoundedCacheManager(new MockEnvironment(), 100, 600, 1000, false);
+        Cache cache = cacheManager.getCache("anything");
+        cache.get("a");
+        cache.put("a", 1);
+        cache.get("a");
+
+        GuavaBackedCache guavaBackedCache = (GuavaBackedCache) cache;
+        assertEquals(1, guavaBackedCache.getStats().hitCount());
+        assertEquals(1, guavaBackedCache.getStats().missCount());
+    }
+}
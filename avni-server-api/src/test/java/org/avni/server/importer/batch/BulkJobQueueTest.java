@@ -0,0 +1,71 @@
+package org.avni.server.importer.batch;
+
+import org.avni.server.dao.JobStatus;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BulkJobQueueTest {
+    private final List<Runnable> started = new ArrayList<>();
+    private final List<String> startOrder = new ArrayList<>();
+
+    @Test
+    public void shouldServeOrganisationsRoundRobin() {
+        BulkJobQueue queue = new BulkJobQueue(1, 1, 100, started::add);
+        submit(queue, "org1", "a1");
+        submit(queue, "org1", "a2");
+        submit(queue, "org1", "a3");
+        submit(queue, "org2", "b1");
+        submit(queue, "org3", "c1");
+
+        runAll();
+
+        assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "a3"), startOrder);
+    }
+
+    @Test
+    public void shouldLimitRunningJobsPerOrganisation() {
+        BulkJobQueue queue = new BulkJobQueue(3, 1, 100, started::add);
+        submit(queue, "org1", "a1");
+        submit(queue, "org1", "a2");
+        submit(queue, "org2", "b1");
+
+        assertEquals(2, queue.getRunningJobs());
+        assertEquals(1, queue.getQueueDepth());
+
+        JobStatus waiting = jobStatus("a2");
+        queue.describe(waiting);
+        assertEquals(Integer.valueOf(1), waiting.getQueuePosition());
+        JobStatus running = jobStatus("b1");
+        queue.describe(running);
+        assertNull(running.getQueuePosition());
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void shouldRejectWhenQueueIsFull() {
+        BulkJobQueue queue = new BulkJobQueue(1, 1, 1, started::add);
+        submit(queue, "org1", "a1");
+        submit(queue, "org1", "a2");
+        submit(queue, "org1", "a3");
+    }
+
+    private void submit(BulkJobQueue queue, String organisationUUID, String jobUUID) {
+        queue.submit(organisationUUID, jobUUID, () -> startOrder.add(jobUUID));
+    }
+
+    private void runAll() {
+        while (!started.isEmpty()) started.remove(0).run();
+    }
+
+    private static JobStatus jobStatus(String uuid) {
+        JobStatus jobStatus = new JobStatus();
+        jobStatus.setUuid(uuid);
+        return jobStatus;
+    }
+}
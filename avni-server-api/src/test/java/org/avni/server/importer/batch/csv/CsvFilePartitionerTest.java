@@ -0,0 +1,130 @@
+package org.avni.server.importer.batch.csv;
+
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.service.BulkUploadS3Service;
+import org.avni.server.service.S3Service;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CsvFilePartitionerTest {
+    @Mock
+    private S3Service s3Service;
+    @Mock
+    private ProgramEnrolmentRepository programEnrolmentRepository;
+
+    private BulkUploadS3Service bulkUploadS3Service;
+    private String uuid;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        bulkUploadS3Service = new BulkUploadS3Service(s3Service);
+        uuid = UUID.randomUUID().toString();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        bulkUploadS3Service.deletePartitionInputFiles(uuid);
+    }
+
+    @Test
+    public void shouldKeepTheRowsOfASubjectInOnePartitionInOrder() throws IOException {
+        Map<String, List<String>> partitions = partition("Subject---Individual", 3,
+                "Id,Name",
+                "s1,First",
+                "s2,Second",
+                "s1,Third",
+                "s3,Fourth",
+                "s2,Fifth",
+                "s1,Sixth");
+
+        assertEquals(3, partitions.size());
+        List<String> rows = new ArrayList<>();
+        for (List<String> lines : partitions.values()) {
+            assertEquals("Id,Name", lines.get(0));
+            rows.addAll(lines.subList(1, lines.size()));
+        }
+        assertEquals(6, rows.size());
+        assertEquals(Arrays.asList("s1,First", "s1,Third", "s1,Sixth"), partitionOf(partitions, "s1,First"));
+        assertEquals(Arrays.asList("s2,Second", "s2,Fifth"), partitionOf(partitions, "s2,Second"));
+    }
+
+    @Test
+    public void shouldSpreadRowsWithoutASubjectEvenly() throws IOException {
+        Map<String, List<String>> partitions = partition("Subject---Individual", 2,
+                "Name",
+                "First",
+                "Second",
+                "Third",
+                "Fourth");
+
+        assertEquals(Arrays.asList("Name", "First", "Third"), partitions.get("partition0"));
+        assertEquals(Arrays.asList("Name", "Second", "Fourth"), partitions.get("partition1"));
+    }
+
+    @Test
+    public void shouldResolveTheEnrolmentsOfProgramEncountersToTheirSubjectInOneQuery() throws IOException {
+        Map<String, Long> individualIds = new HashMap<>();
+        individualIds.put("e1", 10L);
+        individualIds.put("e2", 10L);
+        when(programEnrolmentRepository.findIndividualIdsByLegacyIdOrUuid(anyCollection())).thenReturn(individualIds);
+
+        Map<String, List<String>> partitions = partition("ProgramEncounter---Visit", 4,
+                "Id,Enrolment Id",
+                "pe1,e1",
+                "pe2,e2",
+                "pe3,e1",
+                "pe4,e2");
+
+        assertEquals(Arrays.asList("pe1,e1", "pe2,e2", "pe3,e1", "pe4,e2"), partitionOf(partitions, "pe1,e1"));
+        verify(programEnrolmentRepository, times(1)).findIndividualIdsByLegacyIdOrUuid(new HashSet<>(Arrays.asList("e1", "e2")));
+    }
+
+    @Test
+    public void shouldNotQueryEnrolmentsForOtherTypes() throws IOException {
+        partition("Encounter---Visit", 2,
+                "Id,Subject Id",
+                "en1,s1");
+
+        verifyZeroInteractions(programEnrolmentRepository);
+    }
+
+    private Map<String, List<String>> partition(String type, int gridSize, String... lines) throws IOException {
+        String content = String.join("\n", lines) + "\n";
+        when(s3Service.getObjectContent("s3Key")).thenAnswer(invocation -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        CsvFilePartitioner partitioner = new CsvFilePartitioner(bulkUploadS3Service, programEnrolmentRepository);
+        partitioner.setS3Key("s3Key");
+        partitioner.setUuid(uuid);
+        partitioner.setType(type);
+
+        Map<String, List<String>> partitions = new LinkedHashMap<>();
+        for (Map.Entry<String, ExecutionContext> entry : partitioner.partition(gridSize).entrySet()) {
+            File partitionFile = new File(entry.getValue().getString(CsvFilePartitioner.PARTITION_FILE));
+            partitions.put(entry.getKey(), Files.readAllLines(partitionFile.toPath()));
+        }
+        return partitions;
+    }
+
+    private static List<String> partitionOf(Map<String, List<String>> partitions, String row) {
+        return partitions.values().stream()
+                .filter(lines -> lines.contains(row))
+                .map(lines -> lines.subList(1, lines.size()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+}
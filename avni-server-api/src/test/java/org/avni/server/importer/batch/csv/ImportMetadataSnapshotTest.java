@@ -0,0 +1,142 @@
+package org.avni.server.importer.batch.csv;
+
+import org.avni.server.application.Form;
+import org.avni.server.application.FormType;
+import org.avni.server.dao.AddressLevelTypeRepository;
+import org.avni.server.dao.ConceptRepository;
+import org.avni.server.dao.LocationRepository;
+import org.avni.server.dao.OperationalSubjectTypeRepository;
+import org.avni.server.dao.SubjectTypeRepository;
+import org.avni.server.dao.application.FormElementRepository;
+import org.avni.server.dao.application.FormMappingRepository;
+import org.avni.server.dao.application.FormRepository;
+import org.avni.server.domain.AddressLevelType;
+import org.avni.server.domain.Concept;
+import org.avni.server.domain.OperationalSubjectType;
+import org.avni.server.domain.SubjectType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ImportMetadataSnapshotTest {
+    @Mock
+    private AddressLevelTypeRepository addressLevelTypeRepository;
+    @Mock
+    private LocationRepository locationRepository;
+    @Mock
+    private ConceptRepository conceptRepository;
+    @Mock
+    private FormRepository formRepository;
+    @Mock
+    private FormElementRepository formElementRepository;
+    @Mock
+    private FormMappingRepository formMappingRepository;
+    @Mock
+    private OperationalSubjectTypeRepository operationalSubjectTypeRepository;
+    @Mock
+    private SubjectTypeRepository subjectTypeRepository;
+
+    private ImportMetadataSnapshot importMetadataSnapshot;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        importMetadataSnapshot = new ImportMetadataSnapshot(addressLevelTypeRepository, locationRepository, conceptRepository, formRepository,
+                formElementRepository, formMappingRepository, operationalSubjectTypeRepository, subjectTypeRepository);
+    }
+
+    @Test
+    public void shouldLookUpASubjectTypeByNameOnceAndLoadItByIdOnEveryCall() {
+        SubjectType subjectType = new SubjectType();
+        subjectType.setId(5L);
+        OperationalSubjectType operationalSubjectType = new OperationalSubjectType();
+        operationalSubjectType.setSubjectType(subjectType);
+        when(operationalSubjectTypeRepository.findByNameIgnoreCase("Individual")).thenReturn(operationalSubjectType);
+        when(subjectTypeRepository.findOne(5L)).thenReturn(subjectType);
+
+        assertSame(subjectType, importMetadataSnapshot.getSubjectType("Individual"));
+        assertSame(subjectType, importMetadataSnapshot.getSubjectType("INDIVIDUAL"));
+
+        verify(operationalSubjectTypeRepository, times(1)).findByNameIgnoreCase("Individual");
+        verify(subjectTypeRepository, times(2)).findOne(5L);
+    }
+
+    @Test
+    public void shouldRememberSubjectTypesThatDoNotExist() {
+        assertNull(importMetadataSnapshot.getSubjectType("Household"));
+        assertNull(importMetadataSnapshot.getSubjectType("Household"));
+
+        verify(operationalSubjectTypeRepository, times(1)).findByNameIgnoreCase("Household");
+    }
+
+    @Test
+    public void shouldLookUpFormsOfATypeOnceAndLoadThemByIdOnEveryCall() {
+        Form form = new Form();
+        form.setId(7L);
+        when(formRepository.findByFormTypeAndIsVoidedFalse(FormType.IndividualProfile)).thenReturn(Collections.singletonList(form));
+        when(formRepository.findOne(7L)).thenReturn(form);
+
+        assertEquals(Collections.singletonList(form), importMetadataSnapshot.getForms(FormType.IndividualProfile));
+        assertEquals(Collections.singletonList(form), importMetadataSnapshot.getForms(FormType.IndividualProfile));
+
+        verify(formRepository, times(1)).findByFormTypeAndIsVoidedFalse(FormType.IndividualProfile);
+        verify(formRepository, times(2)).findOne(7L);
+    }
+
+    @Test
+    public void shouldLookUpConceptsOncePerHeaders() {
+        Concept concept = new Concept();
+        concept.setId(3L);
+        when(conceptRepository.findOne(3L)).thenReturn(concept);
+        AtomicInteger lookups = new AtomicInteger();
+        String[] fixedHeaders = {"Id"};
+
+        Set<Concept> concepts = importMetadataSnapshot.getConcepts(fixedHeaders, new String[]{"Id", "Weight"}, () -> {
+            lookups.incrementAndGet();
+            return new HashSet<>(Collections.singletonList(concept));
+        });
+        importMetadataSnapshot.getConcepts(fixedHeaders, new String[]{"Id", "Weight"}, () -> {
+            lookups.incrementAndGet();
+            return new HashSet<>(Collections.singletonList(concept));
+        });
+        importMetadataSnapshot.getConcepts(fixedHeaders, new String[]{"Id", "Height"}, () -> {
+            lookups.incrementAndGet();
+            return new HashSet<>();
+        });
+
+        assertEquals(Collections.singleton(concept), concepts);
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void shouldLoadAddressLevelTypesOnceHighestLevelFirst() {
+        when(addressLevelTypeRepository.findAllByIsVoidedFalse()).thenReturn(Arrays.asList(addressLevelType("Village", 1d), addressLevelType("District", 3d), addressLevelType("Block", 2d)));
+
+        importMetadataSnapshot.getAddressLevelTypes();
+        List<String> names = importMetadataSnapshot.getAddressLevelTypes().stream().map(AddressLevelType::getName).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("District", "Block", "Village"), names);
+        verify(addressLevelTypeRepository, times(1)).findAllByIsVoidedFalse();
+    }
+
+    private static AddressLevelType addressLevelType(String name, Double level) {
+        AddressLevelType addressLevelType = new AddressLevelType();
+        addressLevelType.setName(name);
+        addressLevelType.setLevel(level);
+        return addressLevelType;
+    }
+}
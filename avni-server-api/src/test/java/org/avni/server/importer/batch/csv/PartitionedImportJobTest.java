@@ -0,0 +1,159 @@
+package org.avni.server.importer.batch.csv;
+
+import org.avni.server.dao.ProgramEnrolmentRepository;
+import org.avni.server.framework.security.AuthService;
+import org.avni.server.importer.batch.BulkJobQueue;
+import org.avni.server.importer.batch.csv.writer.CsvFileItemWriter;
+import org.avni.server.importer.batch.model.Row;
+import org.avni.server.service.BulkUploadS3Service;
+import org.avni.server.service.ObjectInfo;
+import org.avni.server.service.S3Service;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the import job of BatchConfiguration on a partitioned upload, with the writer and the file store stubbed out.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = PartitionedImportJobTest.TestConfiguration.class)
+@TestPropertySource(properties = {
+        "avni.bulkUpload.chunkSize=2",
+        "avni.bulkUpload.partitions=3",
+        "avni.bulkUpload.partition.threads=3"
+})
+public class PartitionedImportJobTest {
+    private static final String INPUT = "Id,Name\n" +
+            "s1,First\n" +
+            "s2,Second\n" +
+            "s1,fail\n" +
+            "s3,Fourth\n" +
+            "s2,fail\n" +
+            "s3,Sixth\n" +
+            "s1,Seventh\n";
+
+    @Configuration
+    @Import({BatchConfiguration.class, CsvFilePartitioner.class, ErrorFileWriterListener.class, ErrorFileCreatorListener.class, BulkUploadS3Service.class})
+    static class TestConfiguration {
+        @Bean(name = "BatchS3Service")
+        public S3Service s3Service() {
+            return mock(S3Service.class);
+        }
+
+        @Bean
+        public CsvFileItemWriter csvFileItemWriter() {
+            return mock(CsvFileItemWriter.class);
+        }
+
+        @Bean
+        public ProgramEnrolmentRepository programEnrolmentRepository() {
+            return mock(ProgramEnrolmentRepository.class);
+        }
+
+        @Bean
+        public AuthService authService() {
+            return mock(AuthService.class);
+        }
+
+        @Bean
+        public BulkJobQueue bulkJobQueue() {
+            return mock(BulkJobQueue.class);
+        }
+    }
+
+    @Autowired
+    private Job importJob;
+    @Autowired
+    @Qualifier("jobLauncher")
+    private JobLauncher jobLauncher;
+    @Autowired
+    @Qualifier("BatchS3Service")
+    private S3Service s3Service;
+    @Autowired
+    private CsvFileItemWriter csvFileItemWriter;
+    @Autowired
+    private BulkUploadS3Service bulkUploadS3Service;
+
+    private String uuid;
+    private List<String> writtenRows;
+
+    @Before
+    public void setup() throws Exception {
+        Mockito.reset(s3Service, csvFileItemWriter);
+        uuid = UUID.randomUUID().toString();
+        writtenRows = Collections.synchronizedList(new ArrayList<>());
+        when(s3Service.getObjectContent("s3Key")).thenAnswer(invocation -> new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)));
+        when(s3Service.uploadFile(any(File.class), anyString(), anyString())).thenReturn(new ObjectInfo("error", 0L));
+        doAnswer(invocation -> {
+            List<Row> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> "fail".equals(row.get("Name")))) {
+                throw new RuntimeException("Invalid row");
+            }
+            rows.forEach(row -> writtenRows.add(row.get("Id") + "," + row.get("Name")));
+            return null;
+        }).when(csvFileItemWriter).write(anyList());
+    }
+
+    @After
+    public void tearDown() {
+        bulkUploadS3Service.getLocalErrorFile(uuid).delete();
+    }
+
+    @Test
+    public void shouldImportEachPartitionAndMergeTheirErrorsIntoTheErrorFileOfTheJob() throws Exception {
+        JobExecution jobExecution = jobLauncher.run(importJob, new JobParametersBuilder()
+                .addString("uuid", uuid)
+                .addString("s3Key", "s3Key")
+                .addString("type", "Subject---Individual")
+                .addString("fileName", "subjects.csv")
+                .addLong("userId", 1L)
+                .addString("organisationUUID", "org")
+                .addString("partitioned", "true")
+                .toJobParameters());
+
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        assertTrue(jobExecution.getStepExecutions().stream().anyMatch(stepExecution -> stepExecution.getStepName().startsWith("importPartitionStep:partition")));
+        assertThat(writtenRows, containsInAnyOrder("s1,First", "s2,Second", "s3,Fourth", "s3,Sixth", "s1,Seventh"));
+        assertTrue(writtenRows.indexOf("s1,First") < writtenRows.indexOf("s1,Seventh"));
+        assertTrue(writtenRows.indexOf("s3,Fourth") < writtenRows.indexOf("s3,Sixth"));
+
+        File errorFile = bulkUploadS3Service.getLocalErrorFile(uuid);
+        List<String> errorLines = Files.readAllLines(errorFile.toPath());
+        assertEquals("Id,Name,error", errorLines.get(0));
+        List<String> failedRows = errorLines.stream().filter(line -> line.endsWith("Invalid row")).collect(Collectors.toList());
+        assertThat(failedRows, containsInAnyOrder("\"s1\",\"fail\",\"Invalid row", "\"s2\",\"fail\",\"Invalid row"));
+        for (int partition = 0; partition < 3; partition++) {
+            assertFalse(bulkUploadS3Service.getLocalErrorFile(uuid, partition).exists());
+            assertFalse(bulkUploadS3Service.getLocalInputFile(uuid, partition).exists());
+        }
+        verify(s3Service).uploadFile(errorFile, uuid + ".csv", "bulkuploads/error");
+    }
+}
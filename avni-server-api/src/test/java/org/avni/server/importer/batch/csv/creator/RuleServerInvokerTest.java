@@ -0,0 +1,54 @@
+package org.avni.server.importer.batch.csv.creator;
+
+import org.avni.server.importer.batch.csv.contract.UploadRuleServerRequestContract;
+import org.avni.server.web.external.RuleEndpointNotFoundException;
+import org.avni.server.web.external.RuleServiceClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class RuleServerInvokerTest {
+    @Mock
+    private RuleServiceClient ruleServiceClient;
+
+    private RuleServerInvoker ruleServerInvoker;
+    private List<UploadRuleServerRequestContract> requests;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        ruleServerInvoker = new RuleServerInvoker(ruleServiceClient, null, null, null, null, null);
+        requests = Arrays.asList(new UploadRuleServerRequestContract(), new UploadRuleServerRequestContract());
+        when(ruleServiceClient.post(eq("/api/upload"), any())).thenReturn("{}");
+    }
+
+    @Test
+    public void shouldStopCallingBatchEndpointWhenRuleServerDoesNotHaveIt() throws Exception {
+        when(ruleServiceClient.post(eq("/api/upload/batch"), any())).thenThrow(new RuleEndpointNotFoundException("/api/upload/batch"));
+
+        assertEquals(2, ruleServerInvoker.getRuleServerResults(requests).size());
+        assertEquals(2, ruleServerInvoker.getRuleServerResults(requests).size());
+
+        verify(ruleServiceClient, times(1)).post(eq("/api/upload/batch"), any());
+        verify(ruleServiceClient, times(4)).post(eq("/api/upload"), any());
+    }
+
+    @Test
+    public void shouldKeepCallingBatchEndpointWhenRuleServerRejectsABatch() throws Exception {
+        when(ruleServiceClient.post(eq("/api/upload/batch"), any())).thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        ruleServerInvoker.getRuleServerResults(requests);
+        ruleServerInvoker.getRuleServerResults(requests);
+
+        verify(ruleServiceClient, times(2)).post(eq("/api/upload/batch"), any());
+    }
+}
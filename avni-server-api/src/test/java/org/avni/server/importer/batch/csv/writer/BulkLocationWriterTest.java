@@ -0,0 +1,42 @@
+package org.avni.server.importer.batch.csv.writer;
+
+import org.avni.server.domain.AddressLevelType;
+import org.avni.server.domain.factory.AddressLevelTypeBuilder;
+import org.avni.server.importer.batch.model.Row;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkLocationWriterTest {
+    private static final String[] headers = {"Block", "Village", "GPS coordinates"};
+
+    @Test
+    public void shouldStageSharedParentsOnceIgnoringCase() {
+        List<Row> rows = Arrays.asList(
+                new Row(headers, new String[]{"Block1", "Village1", ""}),
+                new Row(headers, new String[]{"block1 ", "Village2", "12.1,77.2"}),
+                new Row(headers, new String[]{"Block2", "", ""}));
+
+        BulkLocationWriter.StagedLocation root = BulkLocationWriter.stage(rows, locationTypes());
+
+        assertEquals(2, root.getChildren().size());
+        BulkLocationWriter.StagedLocation block1 = root.getChildren().get(0);
+        assertEquals("Block1", block1.getAddressLevel().getTitle());
+        assertEquals(2, block1.getChildren().size());
+        assertEquals(block1.getAddressLevel(), block1.getChildren().get(1).getAddressLevel().getParent());
+        assertEquals(1, block1.getChildren().get(1).getRows().size());
+        assertEquals(0, root.getChildren().get(1).getChildren().size());
+    }
+
+    private static Map<String, AddressLevelType> locationTypes() {
+        Map<String, AddressLevelType> locationTypes = new HashMap<>();
+        locationTypes.put("Block", new AddressLevelTypeBuilder().name("Block").level(2.0).build());
+        locationTypes.put("Village", new AddressLevelTypeBuilder().name("Village").level(1.0).build());
+        return locationTypes;
+    }
+}
@@ -0,0 +1,71 @@
+package org.avni.server.importer.batch.csv.writer;
+
+import org.avni.server.framework.security.AuthService;
+import org.avni.server.importer.batch.model.Row;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CsvFileItemWriterTest {
+    @Mock
+    private AuthService authService;
+    @Mock
+    private SubjectWriter subjectWriter;
+    @Mock
+    private EncounterWriter encounterWriter;
+
+    private CsvFileItemWriter csvFileItemWriter;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        csvFileItemWriter = new CsvFileItemWriter(authService, mock(LocationWriter.class), mock(UserAndCatchmentWriter.class),
+                subjectWriter, mock(ProgramEnrolmentWriter.class), mock(ProgramEncounterWriter.class), encounterWriter, mock(GroupSubjectWriter.class));
+        csvFileItemWriter.setUserId(1L);
+        csvFileItemWriter.setOrganisationUUID("org-uuid");
+        csvFileItemWriter.setType("Subject---Individual");
+    }
+
+    @Test
+    public void shouldWriteAllRowsOfAChunkToTheWriterOfTheType() throws Exception {
+        List<Row> chunk = Arrays.asList(row("1"), row("2"), row("3"));
+
+        csvFileItemWriter.write(chunk);
+
+        verify(subjectWriter).write(chunk);
+        verify(authService, times(1)).authenticateByUserId(1L, "org-uuid");
+        verifyZeroInteractions(encounterWriter);
+    }
+
+    @Test
+    public void shouldAuthenticateBeforeWritingEveryChunk() throws Exception {
+        List<Row> firstChunk = Arrays.asList(row("1"), row("2"));
+        List<Row> secondChunk = Arrays.asList(row("3"), row("4"));
+
+        csvFileItemWriter.write(firstChunk);
+        csvFileItemWriter.write(secondChunk);
+
+        InOrder inOrder = inOrder(authService, subjectWriter);
+        inOrder.verify(authService).authenticateByUserId(1L, "org-uuid");
+        inOrder.verify(subjectWriter).write(firstChunk);
+        inOrder.verify(authService).authenticateByUserId(1L, "org-uuid");
+        inOrder.verify(subjectWriter).write(secondChunk);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldFailForAnUnknownType() throws Exception {
+        csvFileItemWriter.setType("Unknown");
+        csvFileItemWriter.write(Arrays.asList(row("1")));
+    }
+
+    private static Row row(String id) {
+        return new Row(new String[]{"Id"}, new String[]{id});
+    }
+}
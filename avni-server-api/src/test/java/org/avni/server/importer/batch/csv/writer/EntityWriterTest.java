@@ -0,0 +1,41 @@
+package org.avni.server.importer.batch.csv.writer;
+
+import org.avni.server.importer.batch.model.Row;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EntityWriterTest {
+    private static final String[] headers = {"Id", "Subject Id"};
+
+    @Test
+    public void shouldStartNewRuleBatchWhenSubjectRepeats() {
+        Row first = row("e1", "s1");
+        Row second = row("e2", "s2");
+        Row third = row("e3", "s1");
+        Row fourth = row("", "s3");
+
+        List<List<Row>> batches = EntityWriter.splitIntoRuleBatches(Arrays.asList(first, second, third, fourth), "Id", "Subject Id");
+
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList(first, second), batches.get(0));
+        assertEquals(Arrays.asList(third, fourth), batches.get(1));
+    }
+
+    @Test
+    public void shouldKeepRowsWithoutIdsInOneRuleBatch() {
+        List<Row> rows = Arrays.asList(row("", ""), row("", ""), row("", ""));
+
+        List<List<Row>> batches = EntityWriter.splitIntoRuleBatches(rows, "Id", "Subject Id");
+
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+    }
+
+    private static Row row(String id, String subjectId) {
+        return new Row(headers, new String[]{id, subjectId});
+    }
+}
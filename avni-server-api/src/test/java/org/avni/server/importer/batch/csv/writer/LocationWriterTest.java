@@ -33,7 +33,7 @@ public class LocationWriterTest {
         locationRepository = mock(LocationRepository.class);
         locationService = mock(LocationService.class);
 
-        locationWriter = new LocationWriter(locationService, locationRepository, addressLevelTypeRepository, mock(ObservationCreator.class));
+        locationWriter = new LocationWriter(locationService, locationRepository, addressLevelTypeRepository, mock(ObservationCreator.class), mock(BulkLocationWriter.class));
         when(locationService.save(any())).thenReturn(new AddressLevel());
     }
 
@@ -13,6 +13,7 @@ import org.avni.server.domain.User;
 import org.avni.server.domain.UserContext;
 import org.avni.server.domain.accessControl.AvniNoUserSessionException;
 import org.avni.server.framework.security.AuthService;
+import org.avni.server.framework.security.UserContextCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -25,7 +26,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -43,15 +49,19 @@ public class AuthServiceTest {
     private User user;
     private AuthService authService;
     private AccountAdmin accountAdmin;
+    private UserContextCache userContextCache;
 
     @Before
     public void setup() {
         initMocks(this);
 //        cognitoAuthService = new CognitoUserContextServiceImpl(organisationRepository, userRepository, "poolId", "clientId");
+        userContextCache = new UserContextCache();
         authService = new AuthService(userRepository, organisationRepository, accountAdminRepository,
-                new IdpServiceFactory(organisationRepository, null, null, cognitoAuthService, keycloakAuthService, IdpType.cognito, null));
+                new IdpServiceFactory(organisationRepository, null, null, cognitoAuthService, keycloakAuthService, IdpType.cognito, null), userContextCache);
         String uuid = "9ecc2805-6528-47ee-8267-9368b266ad39";
         user = new User();
+        user.setId(100L);
+        user.setUsername("user@demo");
         user.setUuid(uuid);
         user.setOrganisationId(1L);
         accountAdmin = new AccountAdmin();
@@ -60,16 +70,18 @@ public class AuthServiceTest {
 
     @Test (expected = AvniNoUserSessionException.class)
     public void shouldThrowExceptionIfUserNotFound() throws SigningKeyNotFoundException {
-        when(cognitoAuthService.getUserFromToken("some token")).thenReturn(null);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(null);
         authService.authenticateByToken("some token", null);
     }
 
     @Test
     public void shouldAddOrganisationToContext() throws SigningKeyNotFoundException {
         Organisation organisation = new Organisation();
+        organisation.setId(1L);
         when(organisationRepository.findOne(1L)).thenReturn(organisation);
         when(userRepository.findByUuid(user.getUuid())).thenReturn(user);
-        when(cognitoAuthService.getUserFromToken("some token")).thenReturn(user);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
 //        Algorithm algorithm = Algorithm.HMAC256("not very useful secret");
 //        String token = createForBaseToken(user.getUuid()).sign(algorithm);
         UserContext userContext = authService.authenticateByToken("some token", null);
@@ -87,7 +99,8 @@ public class AuthServiceTest {
         adminUser.add(accountAdmin);
         when(organisationRepository.findOne(1L)).thenReturn(organisation);
         when(userRepository.findByUuid(user.getUuid())).thenReturn(user);
-        when(cognitoAuthService.getUserFromToken("some token")).thenReturn(user);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
 
         UserContext userContext = authService.authenticateByToken("some token", null);
         assertThat(userContext.getRoles(), contains(User.USER));
@@ -100,17 +113,20 @@ public class AuthServiceTest {
 
         user.setAccountAdmin(accountAdmin);
         when(accountAdminRepository.findByUser_Id(user.getId())).thenReturn(adminUser);
+        userContextCache.invalidateUser(user.getId());
         userContext = authService.authenticateByToken("some token", null);
         assertThat(userContext.getRoles().size(), is(equalTo(0)));
 
         user.setAccountAdmin(null);
         when(accountAdminRepository.findByUser_Id(user.getId())).thenReturn(new ArrayList<>());
+        userContextCache.invalidateUser(user.getId());
         userContext = authService.authenticateByToken("some token", null);
         assertThat(userContext.getRoles().size(), is(equalTo(1)));
         assertThat(userContext.getRoles(), contains(User.USER));
 
         user.setAccountAdmin(accountAdmin);
         when(accountAdminRepository.findByUser_Id(user.getId())).thenReturn(adminUser);
+        userContextCache.invalidateUser(user.getId());
         userContext = authService.authenticateByToken("some token", null);
         assertThat(userContext.getRoles().size(), is(equalTo(0)));
     }
@@ -118,11 +134,98 @@ public class AuthServiceTest {
     @Test
     public void shouldSetContextBasedOnUserId() throws SigningKeyNotFoundException {
         Organisation organisation = new Organisation();
+        organisation.setId(1L);
         when(organisationRepository.findOne(1L)).thenReturn(organisation);
         when(userRepository.findById(100L)).thenReturn(Optional.of(user));
-        when(cognitoAuthService.getUserFromToken("some token")).thenReturn(user);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
         UserContext userContext = authService.authenticateByUserId(100L, null);
         assertThat(userContext.getUser(), is(equalTo(user)));
         assertThat(userContext.getOrganisation(), is(equalTo(organisation)));
     }
+
+    @Test
+    public void shouldResolveUserContextOnlyOnceForAUser() throws SigningKeyNotFoundException {
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        when(organisationRepository.findOne(1L)).thenReturn(organisation);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
+
+        authService.authenticateByToken("some token", null);
+        UserContext userContext = authService.authenticateByToken("some token", null);
+
+        assertThat(userContext.getOrganisation(), is(equalTo(organisation)));
+        verify(organisationRepository, times(1)).findOne(1L);
+        verify(accountAdminRepository, times(1)).findByUser_Id(user.getId());
+    }
+
+    @Test
+    public void shouldResolveOrganisationOfUuidOnlyOnce() throws SigningKeyNotFoundException {
+        Organisation organisation = new Organisation();
+        organisation.setId(2L);
+        when(organisationRepository.findByUuid("org-uuid")).thenReturn(organisation);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
+
+        authService.authenticateByToken("some token", "org-uuid");
+        UserContext userContext = authService.authenticateByToken("some token", "org-uuid");
+
+        assertThat(userContext.getOrganisation(), is(equalTo(organisation)));
+        verify(organisationRepository, times(1)).findByUuid("org-uuid");
+        verify(organisationRepository, never()).findOne(2L);
+    }
+
+    @Test
+    public void shouldAuthenticateAVerifiedTokenWithoutLoadingTheUserAgain() throws SigningKeyNotFoundException {
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        when(organisationRepository.findOne(1L)).thenReturn(organisation);
+        when(cognitoAuthService.getUserIdFromToken("some token")).thenReturn(user.getId());
+        when(userRepository.findOne(user.getId())).thenReturn(user);
+
+        authService.authenticateByToken("some token", null);
+        UserContext userContext = authService.authenticateByToken("some token", null);
+
+        assertThat(userContext.getUser(), is(equalTo(user)));
+        verify(userRepository, times(1)).findOne(user.getId());
+        verify(cognitoAuthService, never()).getUserFromToken("some token");
+    }
+
+    @Test
+    public void shouldAuthenticateAKnownUsernameWithoutQueries() {
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        organisation.setDbUser("demo");
+        when(organisationRepository.findOne(1L)).thenReturn(organisation);
+        when(userRepository.findByUsername("user@demo")).thenReturn(user);
+
+        UserContext first = authService.authenticateByUserName("user@demo", null);
+        UserContext second = authService.authenticateByUserName("user@demo", null);
+
+        assertThat(second.getUser(), is(equalTo(user)));
+        assertThat(second.getOrganisation().getDbUser(), is(equalTo("demo")));
+        assertThat(second.getUser(), is(not(sameInstance(first.getUser()))));
+        assertThat(second.getOrganisation(), is(not(sameInstance(first.getOrganisation()))));
+        verify(userRepository, times(1)).findByUsername("user@demo");
+        verify(organisationRepository, times(1)).findOne(1L);
+        verify(accountAdminRepository, times(1)).findByUser_Id(user.getId());
+    }
+
+    @Test
+    public void shouldResolveUserContextAgainAfterItsOrganisationChanges() {
+        Organisation organisation = new Organisation();
+        organisation.setId(1L);
+        when(organisationRepository.findOne(1L)).thenReturn(organisation);
+        when(userRepository.findByUsername("user@demo")).thenReturn(user);
+
+        authService.authenticateByUserName("user@demo", null);
+        userContextCache.invalidateOrganisation(2L);
+        authService.authenticateByUserName("user@demo", null);
+        userContextCache.invalidateOrganisation(1L);
+        authService.authenticateByUserName("user@demo", null);
+
+        verify(userRepository, times(2)).findByUsername("user@demo");
+        verify(organisationRepository, times(2)).findOne(1L);
+    }
 }
@@ -0,0 +1,129 @@
+package org.avni.server.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Verification;
+import org.avni.server.dao.UserRepository;
+import org.avni.server.domain.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class BaseIAMServiceTest {
+    private static final String USER_UUID = "9ecc2805-6528-47ee-8267-9368b266ad39";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AtomicInteger verifications;
+    private TestIAMService iamService;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        verifications = new AtomicInteger();
+        iamService = new TestIAMService(userRepository);
+        User user = new User();
+        user.setId(100L);
+        user.setUuid(USER_UUID);
+        when(userRepository.findByUuid(USER_UUID)).thenReturn(user);
+    }
+
+    @Test
+    public void shouldAnswerAVerifiedTokenWithoutVerifyingItOrLoadingTheUserAgain() throws Exception {
+        String token = token(new Date(System.currentTimeMillis() + 60000));
+
+        assertEquals(Long.valueOf(100), iamService.getUserIdFromToken(token));
+        assertEquals(Long.valueOf(100), iamService.getUserIdFromToken(token));
+
+        assertEquals(1, verifications.get());
+        verify(userRepository, times(1)).findByUuid(USER_UUID);
+        assertEquals(1, iamService.getVerifiedTokenCacheStats().hitCount());
+        assertEquals(1, iamService.getVerifiedTokenCacheSize());
+    }
+
+    @Test
+    public void shouldVerifyATokenAgainOnceItHasExpired() throws Exception {
+        String token = token(new Date(System.currentTimeMillis() - 1000));
+
+        iamService.getUserIdFromToken(token);
+        iamService.getUserIdFromToken(token);
+
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    public void shouldNotCacheATokenOfAnUnknownUser() throws Exception {
+        when(userRepository.findByUuid(USER_UUID)).thenReturn(null);
+        String token = token(new Date(System.currentTimeMillis() + 60000));
+
+        assertNull(iamService.getUserIdFromToken(token));
+        assertNull(iamService.getUserIdFromToken(token));
+
+        assertEquals(2, verifications.get());
+        assertEquals(0, iamService.getVerifiedTokenCacheSize());
+    }
+
+    private static String token(Date expiresAt) {
+        return JWT.create()
+                .withClaim("custom:userUUID", USER_UUID)
+                .withExpiresAt(expiresAt)
+                .sign(Algorithm.HMAC256("secret"));
+    }
+
+    private class TestIAMService extends BaseIAMService {
+        TestIAMService(UserRepository userRepository) {
+            super(userRepository);
+        }
+
+        @Override
+        protected DecodedJWT verifyAndDecodeToken(String token) {
+            verifications.incrementAndGet();
+            return JWT.decode(token);
+        }
+
+        @Override
+        protected String getUserUuidField() {
+            return "custom:userUUID";
+        }
+
+        @Override
+        protected String getUsernameField() {
+            return "cognito:username";
+        }
+
+        @Override
+        protected void addClaim(Verification verification) {
+        }
+
+        @Override
+        protected String getAudience() {
+            return "audience";
+        }
+
+        @Override
+        protected String getJwkProviderUrl() {
+            return "http://localhost/jwks.json";
+        }
+
+        @Override
+        protected String getIssuer() {
+            return "http://localhost";
+        }
+
+        @Override
+        public void logConfiguration() {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.avni.server.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class MultipartUploadOutputStreamTest {
+    private AmazonS3 s3Client;
+
+    @Before
+    public void setUp() {
+        s3Client = mock(AmazonS3.class);
+        InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload1");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+    }
+
+    @Test
+    public void shouldUploadFullPartsAndTheRemainderOnClose() throws IOException {
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(((UploadPartRequest) invocation.getArgument(0)).getPartNumber());
+            result.setETag("etag");
+            return result;
+        });
+        MultipartUploadOutputStream outputStream = new MultipartUploadOutputStream(s3Client, "bucket", "exports/org/a.csv.gz", new ObjectMetadata(), 4);
+
+        outputStream.write(new byte[10], 0, 10);
+        outputStream.close();
+
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class));
+        verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void shouldRetryAFailedPartWithoutRestartingTheUpload() throws IOException {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(1);
+        result.setETag("etag");
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenThrow(new SdkClientException("timeout")).thenReturn(result);
+        MultipartUploadOutputStream outputStream = new MultipartUploadOutputStream(s3Client, "bucket", "exports/org/a.csv.gz", new ObjectMetadata(), 4);
+
+        outputStream.write(new byte[3], 0, 3);
+        outputStream.close();
+
+        verify(s3Client, times(2)).uploadPart(any(UploadPartRequest.class));
+        verify(s3Client, times(1)).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void shouldAbortTheUploadWhenAPartKeepsFailing() {
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenThrow(new SdkClientException("timeout"));
+        MultipartUploadOutputStream outputStream = new MultipartUploadOutputStream(s3Client, "bucket", "exports/org/a.csv.gz", new ObjectMetadata(), 4);
+
+        try {
+            outputStream.write(new byte[3], 0, 3);
+            outputStream.close();
+            fail("Upload should have failed");
+        } catch (IOException e) {
+            assertEquals("Upload of part 1 of exports/org/a.csv.gz failed", e.getMessage());
+        }
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+}
@@ -0,0 +1,119 @@
+package org.avni.server.service;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class RefreshingJwkProviderTest {
+    @Mock
+    private JwkProvider delegate;
+
+    private FakeTicker ticker;
+    private RefreshingJwkProvider jwkProvider;
+    private Jwk key;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        ticker = new FakeTicker();
+        jwkProvider = new RefreshingJwkProvider(delegate, ticker);
+        key = mock(Jwk.class);
+    }
+
+    @Test
+    public void shouldServeAKeyFromTheCacheOnceLoaded() throws Exception {
+        when(delegate.get("kid")).thenReturn(key);
+
+        assertSame(key, jwkProvider.get("kid"));
+        assertSame(key, jwkProvider.get("kid"));
+
+        verify(delegate, times(1)).get("kid");
+        assertEquals(1, jwkProvider.getStats().hitCount());
+        assertEquals(1, jwkProvider.getStats().missCount());
+        assertEquals(1, jwkProvider.size());
+    }
+
+    @Test
+    public void shouldLoadAKeyAgainOnceItExpires() throws Exception {
+        Jwk reissuedKey = mock(Jwk.class);
+        when(delegate.get("kid")).thenReturn(key, reissuedKey);
+
+        jwkProvider.get("kid");
+        ticker.advance(25, TimeUnit.HOURS);
+
+        assertSame(reissuedKey, jwkProvider.get("kid"));
+        verify(delegate, times(2)).get("kid");
+    }
+
+    @Test
+    public void shouldPickUpAKeyRotatedInAtTheIdp() throws Exception {
+        Jwk rotatedKey = mock(Jwk.class);
+        when(delegate.get("kid")).thenReturn(key);
+        when(delegate.get("rotated-kid")).thenReturn(rotatedKey);
+
+        jwkProvider.get("kid");
+
+        assertSame(rotatedKey, jwkProvider.get("rotated-kid"));
+        assertSame(key, jwkProvider.get("kid"));
+        verify(delegate, times(1)).get("kid");
+        verify(delegate, times(1)).get("rotated-kid");
+    }
+
+    @Test
+    public void shouldRefreshAKeyInTheBackgroundWhileServingTheCachedOne() throws Exception {
+        Jwk refreshedKey = mock(Jwk.class);
+        when(delegate.get("kid")).thenReturn(key, refreshedKey);
+
+        jwkProvider.get("kid");
+        ticker.advance(61, TimeUnit.MINUTES);
+
+        assertSame(key, jwkProvider.get("kid"));
+        long giveUpAt = System.currentTimeMillis() + 5000;
+        while (jwkProvider.get("kid") != refreshedKey) {
+            if (System.currentTimeMillis() > giveUpAt) fail("Key was not refreshed");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void shouldNotCacheAKeyThatIsNotFound() throws Exception {
+        when(delegate.get("kid")).thenThrow(new SigningKeyNotFoundException("Not found", null)).thenReturn(key);
+
+        try {
+            jwkProvider.get("kid");
+            fail("Expected SigningKeyNotFoundException");
+        } catch (SigningKeyNotFoundException ignored) {
+        }
+
+        assertSame(key, jwkProvider.get("kid"));
+    }
+
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit timeUnit) {
+            nanos.addAndGet(timeUnit.toNanos(duration));
+        }
+    }
+}
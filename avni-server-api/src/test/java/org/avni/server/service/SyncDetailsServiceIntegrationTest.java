@@ -0,0 +1,73 @@
+package org.avni.server.service;
+
+import org.avni.server.common.AbstractControllerIntegrationTest;
+import org.avni.server.domain.SyncableItem;
+import org.avni.server.framework.security.UserContextHolder;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@Sql({"/test-data.sql"})
+public class SyncDetailsServiceIntegrationTest extends AbstractControllerIntegrationTest {
+    @Autowired
+    private SyncDetailsService syncDetailsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldComputeSyncableItemsAgainOnlyOnceMetadataChanges() {
+        setUser("demo-user");
+        Set<SyncableItem> syncableItems = syncDetailsService.getAllSyncableItems(false);
+        assertSame(syncableItems, syncDetailsService.getAllSyncableItems(false));
+
+        UserContextHolder.clear();
+        String subjectTypeUuid = insertOperationalSubjectType();
+        setUser("demo-user");
+        Set<SyncableItem> changedSyncableItems = syncDetailsService.getAllSyncableItems(false);
+
+        assertNotSame(syncableItems, changedSyncableItems);
+        assertFalse(containsIndividualsOf(syncableItems, subjectTypeUuid));
+        assertTrue(containsIndividualsOf(changedSyncableItems, subjectTypeUuid));
+    }
+
+    @Test
+    public void shouldBumpTheMetadataVersionOncePerStatement() {
+        long version = metadataVersion(2);
+
+        jdbcTemplate.update("insert into subject_type (uuid, name, organisation_id, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                "values (?, 'Household', 2, 1, 1, now(), now()), (?, 'Village', 2, 1, 1, now(), now())",
+                UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        assertEquals(version + 1, metadataVersion(2));
+
+        jdbcTemplate.update("update subject_type set name = name || ' updated' where organisation_id = 2");
+        assertEquals(version + 2, metadataVersion(2));
+
+        jdbcTemplate.update("update subject_type set name = name where organisation_id = 3");
+        assertEquals(version + 2, metadataVersion(2));
+    }
+
+    private String insertOperationalSubjectType() {
+        String uuid = UUID.randomUUID().toString();
+        Long subjectTypeId = jdbcTemplate.queryForObject("insert into subject_type (uuid, name, organisation_id, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                "values (?, 'Household', 2, 1, 1, now(), now()) returning id", Long.class, uuid);
+        jdbcTemplate.update("insert into operational_subject_type (uuid, name, subject_type_id, organisation_id, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time) " +
+                "values (?, 'Household', ?, 2, 1, 1, now(), now())", UUID.randomUUID().toString(), subjectTypeId);
+        return uuid;
+    }
+
+    private long metadataVersion(long organisationId) {
+        return jdbcTemplate.queryForObject("select version from organisation_metadata_version where organisation_id = ?", Long.class, organisationId);
+    }
+
+    private static boolean containsIndividualsOf(Set<SyncableItem> syncableItems, String subjectTypeUuid) {
+        return syncableItems.stream().anyMatch(syncableItem -> "Individual".equals(syncableItem.getName())
+                && subjectTypeUuid.equals(syncableItem.getEntityTypeUuid()));
+    }
+}
@@ -0,0 +1,23 @@
+package org.avni.server.web;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyncControllerUnitTest {
+    private final DateTime loadedSince = new DateTime(2021, 1, 1, 10, 0, 0, 123);
+
+    @Test
+    public void shouldTreatATableModifiedAtLoadedSinceAsChanged() {
+        assertTrue(SyncController.isChangedSince(loadedSince, loadedSince));
+        assertTrue(SyncController.isChangedSince(loadedSince.plusMillis(1), loadedSince));
+    }
+
+    @Test
+    public void shouldNotTreatATableModifiedOnlyBeforeLoadedSinceAsChanged() {
+        assertFalse(SyncController.isChangedSince(loadedSince.minusMillis(1), loadedSince));
+        assertFalse(SyncController.isChangedSince(null, loadedSince));
+    }
+}
@@ -0,0 +1,59 @@
+package org.avni.server.web.external;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong(0);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, 1000, now::get);
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailures() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.Open, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldLetOneTrialThroughAfterOpenPeriod() {
+        openCircuit();
+        now.set(1000);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.Closed, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldReopenWhenTrialFails() {
+        openCircuit();
+        now.set(1000);
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.Open, circuitBreaker.getState());
+        now.set(1999);
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    private void openCircuit() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+    }
+}
@@ -26,13 +26,16 @@ DELETE FROM account_admin;
 DELETE FROM user_group;
 DELETE FROM external_system_config;
 DELETE FROM organisation_config;
+delete from message_outbox_event;
 delete from message_request_queue;
 delete from message_receiver;
 delete from message_rule;
 DELETE FROM users;
+DELETE FROM operational_subject_type;
 DELETE FROM subject_type;
 DELETE FROM groups;
 DELETE FROM group_privilege;
+DELETE FROM organisation_metadata_version;
 DELETE FROM organisation;
 DELETE FROM audit;
 
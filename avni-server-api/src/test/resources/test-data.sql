@@ -26,13 +26,16 @@ DELETE FROM account_admin;
 DELETE FROM user_group;
 DELETE FROM external_system_config;
 DELETE FROM organisation_config;
+DELETE from message_outbox_event;
 DELETE from message_request_queue;
 DELETE from message_receiver;
 DELETE from message_rule;
 DELETE FROM users;
+DELETE FROM operational_subject_type;
 DELETE FROM subject_type;
 DELETE FROM group_privilege;
 DELETE FROM groups;
+DELETE FROM organisation_metadata_version;
 DELETE FROM organisation;
 DELETE FROM audit;
 
@@ -349,7 +352,7 @@ insert into message_request_queue(uuid, organisation_id, message_rule_id, messag
 values ('75925823-109f-41a5-89e3-9c719c88155d', 1, 1, 1, now(), null, 'NotSent', 1, 1, now(), now(), 0, (select id from individual where uuid = '4378dce3-247e-4393-8dd5-032c6eb0a655'));
 
 insert into message_request_queue(uuid, organisation_id, message_rule_id, message_receiver_id, scheduled_date_time, delivered_date_time, delivery_status, created_by_id, last_modified_by_id, created_date_time, last_modified_date_time, version, entity_id)
-values ('647bb6bb-99f1-4921-809e-26f2c730fc09', 1, 1, 1, now(), now(), 'Sent', 1, 1, now(), now(), 0, (select id from individual where uuid = '4378dce3-247e-4393-8dd5-032c6eb0a655'));
+values ('647bb6bb-99f1-4921-809e-26f2c730fc09', 1, 1, 1, now(), now(), 'Sent', 1, 1, now(), now(), 0, (select id from individual where uuid = '5378dce3-247e-4393-8dd5-032c6eb0a655'));
 
 SELECT setval('non_applicable_form_element_id_seq', COALESCE((SELECT MAX(id) + 1
                                                               FROM non_applicable_form_element), 1), FALSE);
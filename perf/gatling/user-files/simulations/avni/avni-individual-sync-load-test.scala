@@ -0,0 +1,32 @@
+package avni
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import scala.concurrent.duration._
+
+// Run against a user with a large (district level) catchment before and after changes to sync scope predicates
+class avniIndividualSyncLoadTest extends Simulation {
+
+  val httpsProtocol = http
+  .baseUrl("http://localhost:8021")
+  .acceptHeader("application/json")
+  .acceptEncodingHeader("gzip;q=1.0,compress;q=0.5")
+
+  val subjectTypeUuid = System.getProperty("subjectTypeUuid", "")
+  val userName = System.getProperty("userName", "taqim@lahi")
+
+  val scn = scenario("Get individual sync slices")
+  .repeat(20, "page") {
+    exec(http("Get individual v2")
+    .get("/individual/v2")
+    .queryParam("lastModifiedDateTime", "1900-01-01T00:00:00.000Z")
+    .queryParam("now", "2100-01-01T00:00:00.000Z")
+    .queryParam("subjectTypeUuid", subjectTypeUuid)
+    .queryParam("size", "100")
+    .queryParam("page", "${page}")
+    .header("USER-NAME", userName))
+  }
+
+  setUp(scn.inject(atOnceUsers(10)).protocols(httpsProtocol))
+
+}